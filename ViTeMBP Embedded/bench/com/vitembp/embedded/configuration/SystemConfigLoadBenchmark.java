@@ -0,0 +1,190 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.configuration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.xml.stream.XMLStreamException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks loading the system configuration at startup from its file, as
+ * it was loaded by joining lines with string concatenation, by parsing the
+ * file read in one pass, and from the binary snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SystemConfigLoadBenchmark {
+    /**
+     * The number of sensors in the configuration.
+     */
+    @Param({"5", "50"})
+    public int sensorCount;
+
+    /**
+     * The directory holding the configuration files.
+     */
+    private Path directory;
+
+    /**
+     * The configuration file.
+     */
+    private Path configFile;
+
+    /**
+     * The configuration to load into.
+     */
+    private SystemConfig config;
+
+    /**
+     * Writes an indented configuration file with its snapshot to a
+     * temporary directory.
+     * @throws IOException If the files cannot be written.
+     * @throws XMLStreamException If the configuration cannot be parsed.
+     */
+    @Setup
+    public void setUp() throws IOException, XMLStreamException {
+        this.directory = Files.createTempDirectory("vitembp-bench");
+        this.configFile = this.directory.resolve("vitembp_config.xml");
+        Files.write(this.configFile, createConfig(this.sensorCount).getBytes(StandardCharsets.UTF_8));
+        this.config = SystemConfig.getConfig();
+        
+        // creates the snapshot
+        this.config.loadConfigFromPath(this.configFile);
+    }
+
+    /**
+     * Removes the configuration files.
+     * @throws IOException If the files cannot be removed.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(this.directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    /**
+     * Creates a configuration with one element per line as the default
+     * configurations are written.
+     * @param sensorCount The number of sensors in the configuration.
+     * @return The configuration.
+     */
+    private static String createConfig(int sensorCount) {
+        Random random = new Random(0x56695465L);
+        StringBuilder names = new StringBuilder();
+        StringBuilder sites = new StringBuilder();
+        StringBuilder bindings = new StringBuilder();
+        StringBuilder calibrations = new StringBuilder();
+        for (int i = 0; i < sensorCount; i++) {
+            UUID site = new UUID(random.nextLong(), random.nextLong());
+            names.append("    <name>Sensor ").append(i).append("</name>\n");
+            sites.append("    <site>").append(site).append("</site>\n");
+            bindings.append("    <sensorbinding>\n")
+                    .append("      <name>Sensor ").append(i).append("</name>\n")
+                    .append("      <binding>").append(site).append("</binding>\n")
+                    .append("    </sensorbinding>\n");
+            calibrations.append("    <sensorcalibration>\n")
+                    .append("      <site>").append(site).append("</site>\n")
+                    .append("      <calibration>").append(random.nextInt(4096)).append(",").append(random.nextInt(4096)).append("</calibration>\n")
+                    .append("    </sensorcalibration>\n");
+        }
+        
+        return "<?xml version=\"1.0\" ?>\n"
+                + "<configuration>\n"
+                + "  <systemname>Bench</systemname>\n"
+                + "  <systemid>2ae1239a-3389-4580-b704-ff5c7b4dd3ee</systemid>\n"
+                + "  <samplingfrequency>29.97</samplingfrequency>\n"
+                + "  <sensornames>\n" + names + "  </sensornames>\n"
+                + "  <sensorbindingsites>\n" + sites + "  </sensorbindingsites>\n"
+                + "  <sensorbindings>\n" + bindings + "  </sensorbindings>\n"
+                + "  <sensorcalibrations>\n" + calibrations + "  </sensorcalibrations>\n"
+                + "  <capturetype>EmbeddedH2</capturetype>\n"
+                + "  <enablecompression>true</enablecompression>\n"
+                + "  <cloud>\n"
+                + "    <uploadtocloud>true</uploadtocloud>\n"
+                + "    <deleteonuploadtocloud>true</deleteonuploadtocloud>\n"
+                + "  </cloud>\n"
+                + "  <networkinterfaces>\n"
+                + "    <wiredethernet><metric>0</metric></wiredethernet>\n"
+                + "    <wirelessethernet><metric>0</metric></wirelessethernet>\n"
+                + "    <bluetooth><metric>0</metric></bluetooth>\n"
+                + "  </networkinterfaces>\n"
+                + "</configuration>\n";
+    }
+
+    /**
+     * Loads the configuration by joining the lines of the file with string
+     * concatenation and parsing the result, as it was loaded before
+     * snapshots.
+     * @throws IOException If the file cannot be read.
+     * @throws XMLStreamException If the configuration cannot be parsed.
+     */
+    @Benchmark
+    public void loadConcatenatedLines() throws IOException, XMLStreamException {
+        String text;
+        try (Stream<String> lines = Files.lines(this.configFile)) {
+            text = lines.reduce("", (a, b) -> a + b);
+        }
+        this.config.readFromString(text);
+    }
+
+    /**
+     * Loads the configuration by reading the file in one pass and parsing
+     * it, as it is loaded when there is no valid snapshot.
+     * @throws IOException If the file cannot be read.
+     * @throws XMLStreamException If the configuration cannot be parsed.
+     */
+    @Benchmark
+    public void loadXml() throws IOException, XMLStreamException {
+        this.config.readFromString(String.join("", Files.readAllLines(this.configFile)));
+    }
+
+    /**
+     * Loads the configuration from its snapshot after validating it against
+     * the file.
+     * @throws IOException If the file cannot be read.
+     * @throws XMLStreamException If the configuration cannot be parsed.
+     */
+    @Benchmark
+    public void loadSnapshot() throws IOException, XMLStreamException {
+        this.config.loadConfigFromPath(this.configFile);
+    }
+}
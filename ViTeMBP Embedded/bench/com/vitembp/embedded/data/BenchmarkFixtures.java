@@ -0,0 +1,126 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.data;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Generates deterministic sample data used as benchmark fixtures so results
+ * are comparable between runs.
+ */
+final class BenchmarkFixtures {
+    /**
+     * The seed used for all generated data.
+     */
+    static final long SEED = 0x56695465L;
+    
+    /**
+     * The nanoseconds between samples of a 29.97 Hz capture.
+     */
+    static final long SAMPLE_INTERVAL = 33366700L;
+    
+    /**
+     * Initializes a new instance of the BenchmarkFixtures class.
+     */
+    private BenchmarkFixtures() {
+    }
+    
+    /**
+     * Creates sensor readings in the same formats the embedded sensors
+     * produce for a single sample.
+     * @param random The source of random values.
+     * @return The sensor name to reading map.
+     */
+    static Map<String, String> createSensorData(Random random) {
+        Map<String, String> data = new HashMap<>();
+        data.put("Front Brake", Integer.toString(random.nextInt(1024)));
+        data.put("Rear Brake", Integer.toString(random.nextInt(1024)));
+        data.put("Front Shock", Integer.toString(random.nextInt(8190)));
+        data.put("Rear Shock", Integer.toString(random.nextInt(8190)));
+        data.put("Frame Accelerometer", "(" +
+                Integer.toString(random.nextInt(8192) - 4096) + "," +
+                Integer.toString(random.nextInt(8192) - 4096) + "," +
+                Integer.toString(random.nextInt(8192) - 4096) + ")");
+        return data;
+    }
+    
+    /**
+     * Creates a list of consecutive samples.
+     * @param count The number of samples to create.
+     * @return The samples which were created.
+     */
+    static List<Sample> createSamples(int count) {
+        Random random = new Random(SEED);
+        List<Sample> samples = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            samples.add(new Sample(i, Instant.EPOCH.plusNanos(SAMPLE_INTERVAL * i), createSensorData(random)));
+        }
+        return samples;
+    }
+    
+    /**
+     * Creates a full sample page in the provided location.
+     * @param location The location to store the page in.
+     * @param pageSize The number of samples in the page.
+     * @return The page which was created.
+     */
+    static SamplePage createPage(UuidStringLocation location, int pageSize) {
+        SamplePage page = new SamplePage(location, 0, pageSize, Instant.EPOCH, SAMPLE_INTERVAL);
+        createSamples(pageSize).forEach(page::addSample);
+        return page;
+    }
+    
+    /**
+     * Creates the serialized form of a full sample page, the data written
+     * to a store for each page of a capture.
+     * @param pageSize The number of samples in the page.
+     * @return The serialized page.
+     */
+    static String createPageData(int pageSize) {
+        UuidStringStore store = new UuidStringStoreHashMap();
+        UUID key = UUID.randomUUID();
+        try {
+            createPage(new UuidStringLocation(store, key), pageSize).save();
+            return store.read(key);
+        } catch (XMLStreamException | IOException ex) {
+            throw new IllegalStateException("Could not serialize fixture page.", ex);
+        }
+    }
+    
+    /**
+     * Creates keys in a repeatable order.
+     * @param count The number of keys to create.
+     * @return The keys which were created.
+     */
+    static List<UUID> createKeys(int count) {
+        Random random = new Random(SEED);
+        List<UUID> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.data;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the compressing store decorators over an in-memory store so
+ * only the cost of compression is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+    /**
+     * The decorator to benchmark, None is the undecorated baseline.
+     */
+    @Param({"None", "GZip", "Deflate"})
+    public String compression;
+
+    /**
+     * The number of samples in each page.
+     */
+    @Param({"30", "300"})
+    public int pageSize;
+
+    /**
+     * The store under test.
+     */
+    private UuidStringStore store;
+
+    /**
+     * The serialized page written to the store.
+     */
+    private String pageData;
+
+    /**
+     * The key holding the page in the store.
+     */
+    private UUID key;
+
+    /**
+     * Builds the decorated store and saves a page in it.
+     * @throws IOException If the page cannot be written.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        UuidStringStore backing = new UuidStringStoreHashMap();
+        switch (this.compression) {
+            case "GZip":
+                this.store = new UuidStringStoreGZip(backing);
+                break;
+            case "Deflate":
+                this.store = new UuidStringStoreDeflate(backing);
+                break;
+            default:
+                this.store = backing;
+                break;
+        }
+
+        this.pageData = BenchmarkFixtures.createPageData(this.pageSize);
+        this.key = UUID.randomUUID();
+        this.store.write(this.key, this.pageData);
+    }
+
+    /**
+     * Compresses and writes a page.
+     * @throws IOException If the page cannot be written.
+     */
+    @Benchmark
+    public void write() throws IOException {
+        this.store.write(this.key, this.pageData);
+    }
+
+    /**
+     * Reads and decompresses a page.
+     * @return The page data.
+     * @throws IOException If the page cannot be read.
+     */
+    @Benchmark
+    public String read() throws IOException {
+        return this.store.read(this.key);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.data;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the XML serialization of samples and sample pages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SampleSerializationBenchmark {
+    /**
+     * The number of samples in each page.
+     */
+    @Param({"30", "300"})
+    public int pageSize;
+
+    /**
+     * A single sample to serialize.
+     */
+    private Sample sample;
+
+    /**
+     * The serialized form of the single sample.
+     */
+    private String sampleData;
+
+    /**
+     * A full page to serialize.
+     */
+    private SamplePage page;
+
+    /**
+     * The store the page is saved to and loaded from.
+     */
+    private UuidStringStore store;
+
+    /**
+     * The location of the saved page in the store.
+     */
+    private UUID pageKey;
+
+    /**
+     * Builds the fixtures for the benchmarks.
+     */
+    @Setup
+    public void setUp() {
+        this.sample = BenchmarkFixtures.createSamples(1).get(0);
+        this.sampleData = this.sample.toXmlFragment();
+
+        // save a full page so it can be loaded
+        this.store = new UuidStringStoreHashMap();
+        this.pageKey = UUID.randomUUID();
+        this.page = BenchmarkFixtures.createPage(new UuidStringLocation(this.store, this.pageKey), this.pageSize);
+        try {
+            this.page.save();
+        } catch (XMLStreamException ex) {
+            throw new IllegalStateException("Could not save fixture page.", ex);
+        }
+    }
+
+    /**
+     * Serializes a single sample to XML.
+     * @return The serialized sample.
+     */
+    @Benchmark
+    public String writeSample() {
+        return this.sample.toXmlFragment();
+    }
+
+    /**
+     * Reads a single sample from XML.
+     * @return The sample which was read.
+     * @throws XMLStreamException If the sample cannot be read.
+     */
+    @Benchmark
+    public Sample readSample() throws XMLStreamException {
+        XMLStreamReader reader = XMLStreams.createReader(this.sampleData);
+        reader.next();
+        return new Sample(0, Instant.EPOCH, reader);
+    }
+
+    /**
+     * Serializes a full page into the store.
+     * @throws XMLStreamException If the page cannot be saved.
+     */
+    @Benchmark
+    public void savePage() throws XMLStreamException {
+        this.page.save();
+    }
+
+    /**
+     * Loads a full page from the store and reads every sample from it.
+     * @return The samples of the page.
+     * @throws XMLStreamException If the page cannot be loaded.
+     */
+    @Benchmark
+    public List<Sample> loadPage() throws XMLStreamException {
+        SamplePage loaded = new SamplePage(new UuidStringLocation(this.store, this.pageKey), 0, this.pageSize, Instant.EPOCH, BenchmarkFixtures.SAMPLE_INTERVAL);
+        loaded.load();
+
+        List<Sample> samples = new ArrayList<>(this.pageSize);
+        for (int i = 0; i < this.pageSize; i++) {
+            samples.add(loaded.getSample(i));
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.data;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks reading, writing, and hashing pages in the H2 store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UuidStringStoreH2Benchmark {
+    /**
+     * The number of pages in the store.
+     */
+    @Param({"1000"})
+    public int pageCount;
+
+    /**
+     * The number of samples in each page.
+     */
+    @Param({"30"})
+    public int pageSize;
+
+    /**
+     * The number of locations hashed in each getHashes call.
+     */
+    @Param({"10", "100"})
+    public int hashBatch;
+
+    /**
+     * The directory holding the database files.
+     */
+    private Path directory;
+
+    /**
+     * The store under test.
+     */
+    private UuidStringStoreH2 store;
+
+    /**
+     * The keys of the pages in the store.
+     */
+    private List<UUID> keys;
+
+    /**
+     * The serialized page written to the store.
+     */
+    private String pageData;
+
+    /**
+     * The position of the next key to use.
+     */
+    private int next;
+
+    /**
+     * Creates a database in a temporary directory filled with pages.
+     * @throws IOException If the directory cannot be created.
+     * @throws SQLException If the database cannot be created.
+     */
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        this.directory = Files.createTempDirectory("vitembp-bench");
+        this.store = new UuidStringStoreH2(this.directory.resolve("store"));
+        this.keys = BenchmarkFixtures.createKeys(this.pageCount);
+        this.pageData = BenchmarkFixtures.createPageData(this.pageSize);
+        for (UUID key : this.keys) {
+            this.store.write(key, this.pageData);
+        }
+        this.next = 0;
+    }
+
+    /**
+     * Closes the database and removes its files.
+     * @throws IOException If the files cannot be removed.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        this.store.close();
+        try (Stream<Path> files = Files.walk(this.directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    /**
+     * Gets the next key, cycling through all pages in the store.
+     * @return The next key.
+     */
+    private UUID nextKey() {
+        UUID key = this.keys.get(this.next);
+        this.next = (this.next + 1) % this.keys.size();
+        return key;
+    }
+
+    /**
+     * Reads a page from the store.
+     * @return The page data.
+     * @throws IOException If the page cannot be read.
+     */
+    @Benchmark
+    public String read() throws IOException {
+        return this.store.read(this.nextKey());
+    }
+
+    /**
+     * Overwrites an existing page in the store.
+     * @throws IOException If the page cannot be written.
+     */
+    @Benchmark
+    public void write() throws IOException {
+        this.store.write(this.nextKey(), this.pageData);
+    }
+
+    /**
+     * Gets the hashes for a batch of pages as the transporter does when
+     * checking which pages need to be uploaded.
+     * @return The hashes of the batch.
+     * @throws IOException If the hashes cannot be read.
+     */
+    @Benchmark
+    public Map<UUID, String> getHashes() throws IOException {
+        int start = this.next;
+        this.next = (this.next + this.hashBatch) % (this.keys.size() - this.hashBatch);
+        return this.store.getHashes(this.keys.subList(start, start + this.hashBatch));
+    }
+}
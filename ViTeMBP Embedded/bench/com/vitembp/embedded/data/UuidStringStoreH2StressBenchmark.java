@@ -0,0 +1,175 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.data;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency percentiles of page writes to the H2 store under
+ * continuous capture. Each iteration records one capture as fast as pages
+ * can be written. Between iterations the oldest captures are deleted, as if
+ * they were uploaded, and the store is compacted as the controller does while
+ * idle. This runs for over ten minutes and can be skipped with
+ * -Dbenchmark.args="-e Stress".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 30)
+@Measurement(iterations = 10, time = 60)
+@Fork(1)
+public class UuidStringStoreH2StressBenchmark {
+    /**
+     * The sample frequency of the captures.
+     */
+    private static final double FREQUENCY = 29.97;
+    
+    /**
+     * The number of samples in each page, which holds three seconds of data.
+     */
+    private static final int PAGE_SIZE = (int)Math.ceil(FREQUENCY * 3);
+    
+    /**
+     * The number of captures kept in the store before the oldest is deleted.
+     */
+    @Param({"3"})
+    public int retainedCaptures;
+    
+    /**
+     * The directory holding the database files.
+     */
+    private Path directory;
+    
+    /**
+     * The database under test.
+     */
+    private UuidStringStoreH2 database;
+    
+    /**
+     * The sensor readings added to each page.
+     */
+    private List<Map<String, String>> sensorData;
+    
+    /**
+     * The sensor name to type map of the captures.
+     */
+    private Map<String, UUID> sensorTypes;
+    
+    /**
+     * The captures in the store, oldest first.
+     */
+    private Deque<Capture> captures;
+    
+    /**
+     * The capture being recorded.
+     */
+    private Capture capture;
+    
+    /**
+     * Creates a database in a temporary directory and the sensor readings.
+     * @throws IOException If the directory cannot be created.
+     * @throws SQLException If the database cannot be created.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        this.directory = Files.createTempDirectory("vitembp-bench");
+        this.database = new UuidStringStoreH2(this.directory.resolve("store"));
+        this.captures = new ArrayDeque<>();
+        
+        Random random = new Random(BenchmarkFixtures.SEED);
+        this.sensorData = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            this.sensorData.add(BenchmarkFixtures.createSensorData(random));
+        }
+        this.sensorTypes = new HashMap<>();
+        this.sensorData.get(0).keySet().forEach(name -> this.sensorTypes.put(name, UUID.randomUUID()));
+    }
+    
+    /**
+     * Closes the database and removes its files.
+     * @throws IOException If the files cannot be removed.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.database.close();
+        try (Stream<Path> files = Files.walk(this.directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+    
+    /**
+     * Ends the previous capture, deletes the oldest captures, compacts the
+     * store, and starts a new capture.
+     * @throws IOException If the store cannot be updated.
+     */
+    @Setup(Level.Iteration)
+    public void startCapture() throws IOException {
+        if (this.capture != null) {
+            this.capture.save();
+        }
+        
+        while (this.captures.size() >= this.retainedCaptures) {
+            this.captures.removeFirst().delete();
+        }
+        this.database.compact();
+        
+        this.capture = CaptureFactory.prepareCapture(this.database, FREQUENCY, this.sensorTypes, new HashMap<>());
+        this.capture.setStartTime(Instant.now());
+        this.capture.addToIndex();
+        this.captures.addLast(this.capture);
+    }
+    
+    /**
+     * Adds a page of samples to the capture, which writes the previous page
+     * and the capture in one batch.
+     */
+    @Benchmark
+    public void writePage() {
+        for (Map<String, String> data : this.sensorData) {
+            this.capture.addSample(data);
+        }
+    }
+}
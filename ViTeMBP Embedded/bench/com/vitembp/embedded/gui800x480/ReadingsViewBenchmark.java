@@ -0,0 +1,208 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.gui800x480;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.swing.DefaultListModel;
+import javax.swing.JList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the cost of showing a sensor reading on the capture status
+ * screen, painted headless into an off-screen image. The list the screen
+ * used to show is rebuilt and fully painted for every reading, while the
+ * readings view only paints the regions of the values which changed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ReadingsViewBenchmark {
+    /**
+     * The width of the sensors area of the screen.
+     */
+    private static final int WIDTH = 770;
+    
+    /**
+     * The height of the sensors area of the screen.
+     */
+    private static final int HEIGHT = 184;
+    
+    /**
+     * The number of readings cycled through.
+     */
+    private static final int READING_COUNT = 64;
+    
+    /**
+     * The number of sensors shown.
+     */
+    @Param({"5", "10"})
+    public int sensorCount;
+    
+    /**
+     * The readings shown in turn, where about a third of the values change
+     * between consecutive readings as with idle sensors.
+     */
+    private List<Map<String, String>> readings;
+    
+    /**
+     * The index of the next reading to show.
+     */
+    private int next = 0;
+    
+    /**
+     * The off-screen image painted into.
+     */
+    private BufferedImage screen;
+    
+    /**
+     * The graphics of the off-screen image.
+     */
+    private Graphics2D graphics;
+    
+    /**
+     * The list the screen used to show readings in.
+     */
+    private JList<String> list;
+    
+    /**
+     * The view showing readings.
+     */
+    private ReadingsView view;
+    
+    /**
+     * The regions the view requested to be repainted.
+     */
+    private final List<Rectangle> dirty = new ArrayList<>();
+    
+    /**
+     * Builds the fixtures for the benchmarks.
+     */
+    @Setup
+    public void setUp() {
+        System.setProperty("java.awt.headless", "true");
+        
+        Random random = new Random(0x56695465L);
+        this.readings = new ArrayList<>(READING_COUNT);
+        Map<String, String> last = new HashMap<>();
+        for (int i = 0; i < this.sensorCount; i++) {
+            last.put("Sensor " + i, Integer.toString(random.nextInt(1024)));
+        }
+        for (int i = 0; i < READING_COUNT; i++) {
+            Map<String, String> reading = new HashMap<>(last);
+            reading.replaceAll((k, v) -> random.nextInt(3) == 0 ? Integer.toString(random.nextInt(1024)) : v);
+            this.readings.add(reading);
+            last = reading;
+        }
+        
+        this.screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        this.graphics = this.screen.createGraphics();
+        Font font = new Font("Tahoma", 0, 14);
+        
+        this.list = new JList<>();
+        this.list.setFont(font);
+        this.list.setSize(WIDTH, HEIGHT);
+        
+        // repaint requests are collected as the repaint manager would
+        this.view = new ReadingsView(font) {
+            @Override
+            public void repaint(long tm, int x, int y, int width, int height) {
+                dirty.add(new Rectangle(x, y, width, height));
+            }
+        };
+        this.view.setSize(WIDTH, HEIGHT);
+        this.view.setReadings(this.readings.get(READING_COUNT - 1));
+        this.view.paint(this.graphics);
+        this.dirty.clear();
+    }
+    
+    /**
+     * Releases the off-screen image graphics.
+     */
+    @TearDown
+    public void tearDown() {
+        this.graphics.dispose();
+    }
+    
+    /**
+     * Shows a reading by rebuilding the list model and painting the list.
+     * @return The number of rows shown.
+     */
+    @Benchmark
+    public int listRepaint() {
+        Map<String, String> reading = this.nextReading();
+        DefaultListModel<String> model = new DefaultListModel<>();
+        reading.forEach((String sensor, String data) -> model.addElement(sensor + " - " + data));
+        this.list.setModel(model);
+        this.list.paint(this.graphics);
+        return model.getSize();
+    }
+    
+    /**
+     * Shows a reading in the readings view and paints the changed regions.
+     * @return The number of regions painted.
+     */
+    @Benchmark
+    public int viewRepaint() {
+        this.view.setReadings(this.nextReading());
+        int painted = this.dirty.size();
+        for (Rectangle region : this.dirty) {
+            Graphics2D g = (Graphics2D)this.graphics.create();
+            try {
+                g.clip(region);
+                this.view.paint(g);
+            } finally {
+                g.dispose();
+            }
+        }
+        this.dirty.clear();
+        return painted;
+    }
+    
+    /**
+     * Gets the next reading to show.
+     * @return The next reading to show.
+     */
+    private Map<String, String> nextReading() {
+        Map<String, String> reading = this.readings.get(this.next);
+        this.next = (this.next + 1) % READING_COUNT;
+        return reading;
+    }
+}
@@ -47,7 +47,7 @@ public class ViTeMBPEmbedded {
         
         if (!GraphicsEnvironment.isHeadless()) {
             // start GUI
-            GUI.start(machine::setSensorsChangedCallback, machine::setSensorsReadCallback);
+            GUI.start(machine::setSensorsChangedCallback, machine::setSensorsReadCallback, machine::setCommitStatusCallback);
         }
         
         // start state machine
@@ -55,6 +55,6 @@ public class ViTeMBPEmbedded {
         
         // start sqs message processor
         String queueName = "ViTeMBP-Device-" + SystemConfig.getConfig().getSystemUUID().toString();
-        new AmazonSQSControl(queueName, SQSTarget::parseUuidMessage, 1).start();
+        new AmazonSQSControl(queueName, SQSTarget::parseUuidMessage).start();
     }
 }
\ No newline at end of file
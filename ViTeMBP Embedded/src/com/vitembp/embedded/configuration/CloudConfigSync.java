@@ -17,25 +17,15 @@
  */
 package com.vitembp.embedded.configuration;
 
-import com.amazonaws.AmazonServiceException;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
-import com.amazonaws.services.dynamodbv2.model.AttributeAction;
-import com.amazonaws.services.dynamodbv2.model.AttributeValue;
-import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
-import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
-import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
-import com.amazonaws.services.dynamodbv2.model.GetItemResult;
-import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
-import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.UUID;
 import javax.xml.stream.XMLStreamException;
 import org.apache.logging.log4j.LogManager;
 
 /**
  * Class providing synchronization with a cloud configuration provider.
+ * Checks only read the version of the remote configuration, the full
+ * configuration is transferred when either side has changed.
  */
 public class CloudConfigSync {
     /**
@@ -48,6 +38,11 @@ public class CloudConfigSync {
      */
     private static final int CHECK_INTERVAL_MS = 60 * 1000;
     
+    /**
+     * The remote version used before the remote configuration has been read.
+     */
+    private static final long UNKNOWN_VERSION = -1;
+    
     /**
      * Thread that runs the sync target.
      */
@@ -59,21 +54,52 @@ public class CloudConfigSync {
     private static boolean isRunning = false;
     
     /**
-     * The connection to the database.
+     * The singleton instance used by the polling service.
+     */
+    private static CloudConfigSync singleton;
+    
+    /**
+     * The store holding the remote configuration.
      */
-    private static final AmazonDynamoDB client;
+    private final ConfigStore store;
+    
+    /**
+     * The local configuration to synchronize.
+     */
+    private final SystemConfig config;
+    
+    /**
+     * A boolean value indicating whether configurations read from the store
+     * are saved to the local system.
+     */
+    private final boolean persist;
     
     /**
      * Flag indicating whether the devices has been registered.
      */
-    private static boolean deviceRegistered;
+    private boolean deviceRegistered;
+    
+    /**
+     * The version of the remote configuration when it was last synchronized.
+     */
+    private long remoteVersion = UNKNOWN_VERSION;
     
     /**
-     * Static initializer.
+     * The revision of the local configuration when it was last synchronized.
      */
-    static {
-        // build DynamoDB client with default credentials
-        client =  AmazonDynamoDBClient.builder().build();
+    private long syncedRevision;
+    
+    /**
+     * Initializes a new instance of the CloudConfigSync class.
+     * @param store The store holding the remote configuration.
+     * @param config The local configuration to synchronize.
+     * @param persist A boolean value indicating whether configurations read
+     * from the store are saved to the local system.
+     */
+    CloudConfigSync(ConfigStore store, SystemConfig config, boolean persist) {
+        this.store = store;
+        this.config = config;
+        this.persist = persist;
     }
     
     /**
@@ -109,7 +135,18 @@ public class CloudConfigSync {
      */
     public static void checkForUpdates() {
         LOGGER.info("Configuration update check triggered.");
-        CloudConfigSync.checkConfiguration();
+        CloudConfigSync.getInstance().checkConfiguration();
+    }
+    
+    /**
+     * Gets the singleton instance synchronizing the system configuration.
+     * @return The singleton instance.
+     */
+    private static synchronized CloudConfigSync getInstance() {
+        if (CloudConfigSync.singleton == null) {
+            CloudConfigSync.singleton = new CloudConfigSync(new ConfigStoreDynamoDB(), SystemConfig.getConfig(), true);
+        }
+        return CloudConfigSync.singleton;
     }
     
     /**
@@ -121,7 +158,7 @@ public class CloudConfigSync {
             checkStarted = System.currentTimeMillis();
             
             // check configuration
-            CloudConfigSync.checkConfiguration();
+            CloudConfigSync.getInstance().checkConfiguration();
             
             // wait until next check time
             msToNextStart = CHECK_INTERVAL_MS - (System.currentTimeMillis() - checkStarted);
@@ -141,163 +178,104 @@ public class CloudConfigSync {
     }
     
     /**
-     * Checks if the configuration has changed.
+     * Checks if the local or remote configuration has changed.
      */
-    private static void checkConfiguration() {
-        // register the device if it is not in the table
-        if (!CloudConfigSync.deviceRegistered) {
-            try {
-                CloudConfigSync.registerDevice();
-            } catch (IOException ex) {
-                // log the error
-                LOGGER.error("Could not register device.", ex);
-                // do not continue we cannot update config if it is not registered
-                return;
-            }
-        }
-
-        // check if configuration has changed
-        boolean hasChanged;
-        String remoteConfig;
-        
-        // perform query
-        Map<String, AttributeValue> reqkey = new HashMap<>();
-        reqkey.put("ID", new AttributeValue().withS(SystemConfig.getConfig().getSystemUUID().toString()));
-        
-        GetItemRequest request = new GetItemRequest()
-                .withTableName("DEVICES")
-                .withKey(reqkey)
-                .withProjectionExpression("CONFIG,UPDATED");
+    synchronized void checkConfiguration() {
+        UUID device = this.config.getSystemUUID();
         
-        // try to get the data
-        GetItemResult result = client.getItem(request);
-        if (result != null && result.getItem() != null) {
-            // parse data from response if the table has the attributes
-            Map<String, AttributeValue> attributes = result.getItem();
-
-            // can not continue if the UPDATED and CONFIG attributes are not
-            // present in the table row
-            if (!attributes.containsKey("UPDATED") || !attributes.containsKey("CONFIG")) {
-                LOGGER.error("Configuration is not available in database.");
-                return;
-            }
-            
-            // attributes are present, get their values
-            hasChanged = Boolean.parseBoolean(result.getItem().get("UPDATED").getS());
-            remoteConfig = result.getItem().get("CONFIG").getS();
-        } else {
-            // query failed so do not continue
-            LOGGER.error("Could not query configuration in databse.");
-            return;
-        }
-        
-        // update if tagged as changed, prefering the remote config over the local
-        if (hasChanged) {
-            try {
-                loadConfigFromRemote(remoteConfig);
-            } catch (XMLStreamException ex) {
-                LOGGER.error("Could not update configuration.", ex);
-                return;
+        try {
+            // register the device if it is not in the table
+            if (!this.deviceRegistered) {
+                this.store.register(device, this.config.writeToString());
+                this.deviceRegistered = true;
             }
             
-            // change updated to false
-            Map<String, AttributeValue> keyAttribs = new HashMap<>();
-            keyAttribs.put("ID", new AttributeValue().withS(SystemConfig.getConfig().getSystemUUID().toString()));
-            Map<String, AttributeValueUpdate> updateAttribs = new HashMap<>();
-            updateAttribs.put("UPDATED", new AttributeValueUpdate()
-                    .withValue(new AttributeValue().withS(Boolean.toString(false)))
-                    .withAction(AttributeAction.PUT));
-            
-            client.updateItem("DEVICES", keyAttribs, updateAttribs);
-            LOGGER.info("Config updated flag set to false.");
-        } else {
-            // build local config to check if the local has changes not
-            // in the remote config
-            String localConfig;
-            try {
-                localConfig = SystemConfig.getConfig().writeToString();
-            } catch (XMLStreamException ex) {
-                LOGGER.error("Could not create configuration string.", ex);
+            // only the version and flag are read when nothing has changed
+            ConfigRecord header = this.store.getHeader(device);
+            if (header == null) {
+                LOGGER.error("Could not query configuration in databse.");
                 return;
             }
             
-            // update remote as needed
-            if (!remoteConfig.equals(localConfig)) {
-                // updated configuration with local
-                Map<String, AttributeValue> keyAttribs = new HashMap<>();
-                keyAttribs.put("ID", new AttributeValue().withS(SystemConfig.getConfig().getSystemUUID().toString()));
-                Map<String, AttributeValueUpdate> updateAttribs = new HashMap<>();
-                updateAttribs.put("CONFIG", new AttributeValueUpdate()
-                        .withValue(new AttributeValue().withS(localConfig))
-                        .withAction(AttributeAction.PUT));
-
-                client.updateItem("DEVICES", keyAttribs, updateAttribs);
-                LOGGER.info("Remote config updated.");
+            if (header.isUpdated()) {
+                // update if tagged as changed, prefering the remote config
+                this.pull(device);
+            } else if (this.remoteVersion == UNKNOWN_VERSION) {
+                // compare the full configurations once after starting
+                ConfigRecord remote = this.store.get(device);
+                if (remote == null || remote.getConfig() == null) {
+                    throw new IOException("Configuration is not available in database.");
+                }
+                this.remoteVersion = remote.getVersion();
+                long revision = this.config.getRevision();
+                if (remote.getConfig().equals(this.config.writeToString())) {
+                    this.syncedRevision = revision;
+                    LOGGER.debug("Configuration is up to date.");
+                } else {
+                    this.push(device);
+                }
+            } else if (header.getVersion() != this.remoteVersion) {
+                // the remote was written by another client
+                this.pull(device);
+            } else if (this.config.getRevision() != this.syncedRevision) {
+                // the local configuration has changed
+                this.push(device);
+            } else {
+                LOGGER.debug("Configuration is up to date.");
             }
+        } catch (IOException | XMLStreamException ex) {
+            LOGGER.error("Could not synchronize configuration.", ex);
         }
     }
     
     /**
-     * Updates the configuration from the string read from the database.
-     * @param newConfig The string read from the database.
-     * @throws XMLStreamException If there is an exception while updating the
-     * configuration.
+     * Loads the remote configuration into the local configuration.
+     * @param device The UUID of the device.
+     * @throws IOException If the configuration cannot be read from the store.
+     * @throws XMLStreamException If the configuration cannot be parsed.
      */
-    private static void loadConfigFromRemote(String newConfig) throws XMLStreamException {
-        // load config from the remote string
-        LOGGER.info("Loading new configuration: " + newConfig);
-        SystemConfig.getConfig().readFromString(newConfig);
+    private void pull(UUID device) throws IOException, XMLStreamException {
+        ConfigRecord remote = this.store.get(device);
+        if (remote == null || remote.getConfig() == null) {
+            throw new IOException("Configuration is not available in database.");
+        }
         
-        try {
-            // save the config to the local system
-            SystemConfig.getConfig().saveToLocalSystem();
-        } catch (IOException ex) {
-            throw new XMLStreamException("Exception saving config.", ex);
+        // only the settings that differ are applied and notified
+        LOGGER.info("Loading new configuration: " + remote.getConfig());
+        this.config.readFromString(remote.getConfig());
+        if (this.persist) {
+            this.config.saveToLocalSystem();
+        }
+        
+        if (remote.isUpdated()) {
+            this.store.clearUpdated(device);
+            LOGGER.info("Config updated flag set to false.");
         }
+        
+        this.remoteVersion = remote.getVersion();
+        this.syncedRevision = this.config.getRevision();
     }
     
     /**
-     * Registers the device's ID to the database.
-     * @throws IOException 
+     * Writes the local configuration to the store if the remote has not
+     * changed since it was last read.
+     * @param device The UUID of the device.
+     * @throws IOException If the configuration cannot be written to the store.
+     * @throws XMLStreamException If the configuration cannot be serialized.
      */
-    private static void registerDevice() throws IOException {
-        // get configuration string
-        String config;
-        try {
-            config = SystemConfig.getConfig().writeToString();
-        } catch (XMLStreamException ex) {
-            throw new IOException("Could not generate configuration string.", ex);
-        }
-        
-        // add holds data to store in table.
-        Map<String, AttributeValue> itemToSet = new HashMap<>();
-        PutItemRequest pir = new PutItemRequest();
-        pir.setConditionExpression("attribute_not_exists(ID)");
-        // add the system ID
-        itemToSet.put(
-                "ID",
-                new AttributeValue(SystemConfig.getConfig().getSystemUUID().toString()));
-        itemToSet.put(
-                "CONFIG",
-                new AttributeValue(config));
-        itemToSet.put(
-                "UPDATED",
-                new AttributeValue(Boolean.toString(false)));
-        pir.setTableName("DEVICES");
-        pir.setItem(itemToSet);
+    private void push(UUID device) throws IOException, XMLStreamException {
+        // the revision is read first so changes made while writing are pushed
+        // on the next check
+        long revision = this.config.getRevision();
+        String localConfig = this.config.writeToString();
         
-        try {
-            CloudConfigSync.client.putItem(pir);
-            CloudConfigSync.deviceRegistered = true;
-            LOGGER.info("Device successfully registered.");
-        } catch (ConditionalCheckFailedException e) {
-            CloudConfigSync.deviceRegistered = true;
-            LOGGER.debug("Device already registered.");
-        } catch (ResourceNotFoundException e) {
-            LOGGER.error("The database does not contain the device index table.", e);
-        } catch (AmazonServiceException e) {
-            LOGGER.error("Exception occurred writing to database.", e);
+        if (this.store.put(device, localConfig, this.remoteVersion)) {
+            this.remoteVersion++;
+            this.syncedRevision = revision;
+            LOGGER.info("Remote config updated.");
+        } else {
+            // the remote changed, it is loaded by the next check
+            LOGGER.info("Remote config changed before it could be updated.");
         }
     }
-    
 }
@@ -0,0 +1,78 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.configuration;
+
+/**
+ * A device configuration as stored by a remote configuration store.
+ */
+final class ConfigRecord {
+    /**
+     * The version of the configuration, incremented on each write.
+     */
+    private final long version;
+    
+    /**
+     * A boolean value indicating whether the configuration was changed
+     * remotely and should be loaded by the device.
+     */
+    private final boolean updated;
+    
+    /**
+     * The configuration, or null if it was not read.
+     */
+    private final String config;
+    
+    /**
+     * Initializes a new instance of the ConfigRecord class.
+     * @param version The version of the configuration.
+     * @param updated A boolean value indicating whether the configuration was
+     * changed remotely.
+     * @param config The configuration, or null if it was not read.
+     */
+    ConfigRecord(long version, boolean updated, String config) {
+        this.version = version;
+        this.updated = updated;
+        this.config = config;
+    }
+    
+    /**
+     * Gets the version of the configuration.
+     * @return The version of the configuration.
+     */
+    long getVersion() {
+        return this.version;
+    }
+    
+    /**
+     * Gets a boolean value indicating whether the configuration was changed
+     * remotely and should be loaded by the device.
+     * @return A boolean value indicating whether the configuration was changed
+     * remotely.
+     */
+    boolean isUpdated() {
+        return this.updated;
+    }
+    
+    /**
+     * Gets the configuration.
+     * @return The configuration, or null if it was not read.
+     */
+    String getConfig() {
+        return this.config;
+    }
+}
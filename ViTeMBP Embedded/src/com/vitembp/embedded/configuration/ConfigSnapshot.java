@@ -0,0 +1,165 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.configuration;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Reads and writes binary snapshots of a configuration file. A snapshot is
+ * stored next to the file it was made from and records the length and
+ * checksum of that file, so it is only used while the file is unchanged.
+ */
+final class ConfigSnapshot {
+    /**
+     * Class logger instance.
+     */
+    private static final Logger LOGGER = LogManager.getLogger();
+    
+    /**
+     * The value identifying a snapshot file.
+     */
+    private static final int MAGIC = 0x56544353;
+    
+    /**
+     * The version of the snapshot format, which must be incremented when
+     * the binary form of the configuration changes.
+     */
+    private static final int FORMAT_VERSION = 2;
+    
+    /**
+     * The extension added to the configuration file name for its snapshot.
+     */
+    private static final String EXTENSION = ".snapshot";
+    
+    /**
+     * Initializes a new instance of the ConfigSnapshot class.
+     */
+    private ConfigSnapshot() {
+    }
+    
+    /**
+     * Gets the location of the snapshot of a configuration file.
+     * @param configFile The configuration file.
+     * @return The location of the snapshot of the configuration file.
+     */
+    static Path getPath(Path configFile) {
+        return configFile.resolveSibling(configFile.getFileName().toString() + EXTENSION);
+    }
+    
+    /**
+     * Reads a snapshot if it is valid and was made from the source provided.
+     * @param snapshotFile The snapshot file to read.
+     * @param source The contents of the configuration file.
+     * @return The configuration stored in the snapshot, or null if there is
+     * no valid snapshot of the source.
+     */
+    static byte[] read(Path snapshotFile, byte[] source) {
+        if (!Files.exists(snapshotFile)) {
+            return null;
+        }
+        
+        try {
+            byte[] data = Files.readAllBytes(snapshotFile);
+            
+            // the last 8 bytes are the checksum of the rest of the file
+            if (data.length < 8) {
+                LOGGER.warn("Configuration snapshot is truncated.");
+                return null;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            in.skipBytes(data.length - 8);
+            if (in.readLong() != checksum(data, 0, data.length - 8)) {
+                LOGGER.warn("Configuration snapshot checksum does not match.");
+                return null;
+            }
+            
+            // check the snapshot was made from the source by this version
+            in = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - 8));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                LOGGER.info("Configuration snapshot format is not supported.");
+                return null;
+            }
+            if (in.readInt() != source.length || in.readLong() != checksum(source, 0, source.length)) {
+                LOGGER.info("Configuration changed since snapshot was made.");
+                return null;
+            }
+            
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            return payload;
+        } catch (IOException ex) {
+            LOGGER.warn("Could not read configuration snapshot.", ex);
+            return null;
+        }
+    }
+    
+    /**
+     * Writes a snapshot of a configuration file.
+     * @param snapshotFile The snapshot file to write.
+     * @param source The contents of the configuration file.
+     * @param payload The binary form of the configuration.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    static void write(Path snapshotFile, byte[] source, byte[] payload) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(payload.length + 36);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(source.length);
+        out.writeLong(checksum(source, 0, source.length));
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.flush();
+        byte[] data = buffer.toByteArray();
+        out.writeLong(checksum(data, 0, data.length));
+        out.flush();
+        
+        // replace the snapshot in one step so a partial write is never read
+        Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName().toString() + ".tmp");
+        Files.write(temporary, buffer.toByteArray());
+        try {
+            Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * Calculates the checksum of a range of bytes.
+     * @param data The bytes to calculate the checksum of.
+     * @param offset The offset of the range.
+     * @param length The length of the range.
+     * @return The checksum of the range of bytes.
+     */
+    private static long checksum(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.configuration;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Provides an interface to a remote store of versioned device configurations.
+ */
+interface ConfigStore {
+    /**
+     * Adds a device with its configuration if the device is not already
+     * present in the store.
+     * @param device The UUID of the device.
+     * @param config The configuration of the device.
+     * @throws IOException If an exception occurs while writing to the store.
+     */
+    public abstract void register(UUID device, String config) throws IOException;
+    
+    /**
+     * Gets the version and updated flag of a device configuration without
+     * reading the configuration itself.
+     * @param device The UUID of the device.
+     * @return The version and updated flag, or null if the device is not in
+     * the store.
+     * @throws IOException If an exception occurs while reading from the store.
+     */
+    public abstract ConfigRecord getHeader(UUID device) throws IOException;
+    
+    /**
+     * Gets the configuration of a device.
+     * @param device The UUID of the device.
+     * @return The configuration with its version and updated flag, or null if
+     * the device is not in the store.
+     * @throws IOException If an exception occurs while reading from the store.
+     */
+    public abstract ConfigRecord get(UUID device) throws IOException;
+    
+    /**
+     * Replaces the configuration of a device if the stored configuration is
+     * still at the expected version and was not changed remotely. The
+     * version is incremented when the configuration is replaced.
+     * @param device The UUID of the device.
+     * @param config The new configuration.
+     * @param expectedVersion The version the stored configuration should have.
+     * @return A boolean value indicating whether the configuration was
+     * replaced.
+     * @throws IOException If an exception occurs while writing to the store.
+     */
+    public abstract boolean put(UUID device, String config, long expectedVersion) throws IOException;
+    
+    /**
+     * Clears the flag indicating the configuration was changed remotely.
+     * @param device The UUID of the device.
+     * @throws IOException If an exception occurs while writing to the store.
+     */
+    public abstract void clearUpdated(UUID device) throws IOException;
+}
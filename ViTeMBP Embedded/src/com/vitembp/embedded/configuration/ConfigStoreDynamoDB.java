@@ -0,0 +1,181 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.configuration;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A ConfigStore which keeps device configurations in the DynamoDB DEVICES
+ * table. Each device item holds the CONFIG, the UPDATED flag set by remote
+ * editors, and a numeric VERSION. Items written before versioning have no
+ * VERSION and are treated as version 0.
+ */
+class ConfigStoreDynamoDB implements ConfigStore {
+    /**
+     * The connection to the database.
+     */
+    private final AmazonDynamoDB client;
+    
+    /**
+     * Initializes a new instance of the ConfigStoreDynamoDB class.
+     */
+    ConfigStoreDynamoDB() {
+        // build DynamoDB client with default credentials
+        this.client = AmazonDynamoDBClient.builder().build();
+    }
+    
+    @Override
+    public void register(UUID device, String config) throws IOException {
+        Map<String, AttributeValue> itemToSet = new HashMap<>();
+        itemToSet.put("ID", new AttributeValue(device.toString()));
+        itemToSet.put("CONFIG", new AttributeValue(config));
+        itemToSet.put("UPDATED", new AttributeValue(Boolean.toString(false)));
+        itemToSet.put("VERSION", new AttributeValue().withN("1"));
+        
+        PutItemRequest pir = new PutItemRequest()
+                .withTableName("DEVICES")
+                .withItem(itemToSet)
+                .withConditionExpression("attribute_not_exists(ID)");
+        
+        try {
+            this.client.putItem(pir);
+        } catch (ConditionalCheckFailedException e) {
+            // the device is already registered
+        } catch (AmazonServiceException e) {
+            throw new IOException("Exception occurred registering device in database.", e);
+        }
+    }
+
+    @Override
+    public ConfigRecord getHeader(UUID device) throws IOException {
+        return this.read(device, "VERSION,UPDATED");
+    }
+
+    @Override
+    public ConfigRecord get(UUID device) throws IOException {
+        return this.read(device, "CONFIG,VERSION,UPDATED");
+    }
+
+    @Override
+    public boolean put(UUID device, String config, long expectedVersion) throws IOException {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":config", new AttributeValue(config));
+        values.put(":expected", new AttributeValue().withN(Long.toString(expectedVersion)));
+        values.put(":next", new AttributeValue().withN(Long.toString(expectedVersion + 1)));
+        values.put(":false", new AttributeValue(Boolean.toString(false)));
+        
+        // items written before versioning are at version 0
+        String versionCondition = expectedVersion == 0 ?
+                "(attribute_not_exists(VERSION) OR VERSION = :expected)" :
+                "VERSION = :expected";
+        
+        UpdateItemRequest request = new UpdateItemRequest()
+                .withTableName("DEVICES")
+                .withKey(key(device))
+                .withUpdateExpression("SET CONFIG = :config, VERSION = :next")
+                .withConditionExpression(versionCondition + " AND UPDATED = :false")
+                .withExpressionAttributeValues(values);
+        
+        try {
+            this.client.updateItem(request);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        } catch (AmazonServiceException e) {
+            throw new IOException("Exception occurred writing configuration to database.", e);
+        }
+    }
+
+    @Override
+    public void clearUpdated(UUID device) throws IOException {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":false", new AttributeValue(Boolean.toString(false)));
+        
+        UpdateItemRequest request = new UpdateItemRequest()
+                .withTableName("DEVICES")
+                .withKey(key(device))
+                .withUpdateExpression("SET UPDATED = :false")
+                .withExpressionAttributeValues(values);
+        
+        try {
+            this.client.updateItem(request);
+        } catch (AmazonServiceException e) {
+            throw new IOException("Exception occurred writing configuration to database.", e);
+        }
+    }
+    
+    /**
+     * Reads attributes of a device item.
+     * @param device The UUID of the device.
+     * @param projection The attributes to read.
+     * @return The attributes which were read, or null if the device is not
+     * in the table.
+     * @throws IOException If the attributes cannot be read.
+     */
+    private ConfigRecord read(UUID device, String projection) throws IOException {
+        GetItemRequest request = new GetItemRequest()
+                .withTableName("DEVICES")
+                .withKey(key(device))
+                .withProjectionExpression(projection);
+        
+        GetItemResult result;
+        try {
+            result = this.client.getItem(request);
+        } catch (AmazonServiceException e) {
+            throw new IOException("Exception occurred reading configuration from database.", e);
+        }
+        
+        if (result == null || result.getItem() == null) {
+            return null;
+        }
+        
+        // the UPDATED attribute is always written with the configuration
+        Map<String, AttributeValue> attributes = result.getItem();
+        if (!attributes.containsKey("UPDATED")) {
+            throw new IOException("Configuration is not available in database.");
+        }
+        
+        long version = attributes.containsKey("VERSION") ? Long.parseLong(attributes.get("VERSION").getN()) : 0;
+        boolean updated = Boolean.parseBoolean(attributes.get("UPDATED").getS());
+        String config = attributes.containsKey("CONFIG") ? attributes.get("CONFIG").getS() : null;
+        return new ConfigRecord(version, updated, config);
+    }
+    
+    /**
+     * Builds the key of a device item.
+     * @param device The UUID of the device.
+     * @return The key of the device item.
+     */
+    private static Map<String, AttributeValue> key(UUID device) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("ID", new AttributeValue().withS(device.toString()));
+        return key;
+    }
+}
@@ -21,26 +21,36 @@ import com.vitembp.embedded.data.CaptureTypes;
 import com.vitembp.embedded.data.XMLStreams;
 import com.vitembp.embedded.hardware.SystemInfo;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamConstants;
@@ -54,6 +64,27 @@ import org.apache.logging.log4j.Logger;
  * Provides a set of system configuration data to use during system operation.
  */
 public class SystemConfig {
+    /**
+     * The settings of the configuration which listeners can subscribe to.
+     */
+    public enum Setting {
+        SYSTEM_NAME,
+        SYSTEM_ID,
+        SAMPLING_FREQUENCY,
+        SENSOR_NAMES,
+        SENSOR_BINDING_SITES,
+        SENSOR_BINDINGS,
+        SENSOR_CALIBRATIONS,
+        CAPTURE_TYPE,
+        ENABLE_COMPRESSION,
+        ENABLE_DEDUPLICATION,
+        UPLOAD_TO_CLOUD,
+        DELETE_ON_UPLOAD_TO_CLOUD,
+        WIRED_ETHERNET_METRIC,
+        WIRELESS_ETHERNET_METRIC,
+        BLUETOOTH_METRIC
+    }
+    
     /**
      * Class logger instance.
      */
@@ -75,9 +106,16 @@ public class SystemConfig {
     private static final SystemConfig SINGLETON = new SystemConfig();
     
     /**
-     * Listeners to be notified when a configuration change occurs.
+     * Listeners to be notified when a configuration change occurs, with the
+     * settings each listener subscribes to.
+     */
+    private final Map<Runnable, Set<Setting>> configChangedListeners = new LinkedHashMap<>();
+    
+    /**
+     * The revision of the configuration, which is incremented when any
+     * setting changes.
      */
-    private final List<Runnable> configChangedListeners = new ArrayList<>();
+    private final AtomicLong revision = new AtomicLong();
     
     /**
      * The path to the configuration file.
@@ -131,6 +169,12 @@ public class SystemConfig {
      */
     private boolean enableCompression = true;
     
+    /**
+     * A boolean value indicating whether identical values should be stored
+     * once.
+     */
+    private boolean enableDeduplication = false;
+    
     /**
      * The UUID representing this instance.
      */
@@ -197,6 +241,16 @@ public class SystemConfig {
         return this.enableCompression;
     }
     
+    /**
+     * Returns a boolean value indicating whether identical values should be
+     * stored once and referenced by each key they are written to.
+     * @return A boolean value indicating whether identical values should be
+     * stored once.
+     */
+    public boolean getEnableDeduplication() {
+        return this.enableDeduplication;
+    }
+    
     /**
      * Gets the sampling frequency to use when polling data from the sensors.
      * @return The sampling frequency to use when polling data from the sensors.
@@ -247,7 +301,9 @@ public class SystemConfig {
      * @param calibration The sensor calibration.
      */
     public void setSensorCalibration(UUID sensor, String calibration) {
-        this.sensorCalibrations.put(sensor, calibration);
+        if (!calibration.equals(this.sensorCalibrations.put(sensor, calibration))) {
+            this.revision.incrementAndGet();
+        }
         try {
             this.saveToLocalSystem();
         } catch (IOException ex) {
@@ -264,11 +320,34 @@ public class SystemConfig {
     }
     
     /**
-     * Adds a listener to be notified when a configuration change occurs.
+     * Adds a listener to be notified when any setting changes.
      * @param toAdd The listener to be added.
      */
     public void addConfigChangedListener(Runnable toAdd) {
-        this.configChangedListeners.add(toAdd);
+        this.addConfigChangedListener(toAdd, Setting.values());
+    }
+    
+    /**
+     * Adds a listener to be notified when one of the specified settings
+     * changes.
+     * @param toAdd The listener to be added.
+     * @param settings The settings the listener subscribes to.
+     */
+    public void addConfigChangedListener(Runnable toAdd, Setting... settings) {
+        Set<Setting> subscribed = EnumSet.noneOf(Setting.class);
+        Collections.addAll(subscribed, settings);
+        synchronized (this.configChangedListeners) {
+            this.configChangedListeners.put(toAdd, subscribed);
+        }
+    }
+    
+    /**
+     * Gets the revision of the configuration, which changes whenever any
+     * setting changes.
+     * @return The revision of the configuration.
+     */
+    public long getRevision() {
+        return this.revision.get();
     }
     
     /**
@@ -359,26 +438,38 @@ public class SystemConfig {
     public void registerSensorUUID(UUID toRegister) {
         if (!this.sensorBindingSites.contains(toRegister)) {
             this.sensorBindingSites.add(toRegister);
+            this.revision.incrementAndGet();
         }
     }
     
     /**
-     * Loads the configuration from a file.
+     * Loads the configuration from a file. A binary snapshot of the file is
+     * kept next to it and used instead of parsing the file while the file is
+     * unchanged.
      * @param configFile The file to load from.
      */
-    private void loadConfigFromPath(Path configFile) throws IOException, XMLStreamException {
-        // the configuration xml will be read into this string then parsed
-        String config;
-        
+    void loadConfigFromPath(Path configFile) throws IOException, XMLStreamException {
         // path may be in the filesystem or in the local assembly, try both
         // defaulting to the more commonly used filesystem
         if (Files.exists(configFile)) {
             LOGGER.info("Loading config from path: " + configFile.toAbsolutePath().toString());
             
-            // read in all lines in file and combine them to a single string
-            config = Files
-                    .lines(configFile)
-                    .reduce("", (a, b) -> a + b);
+            // read the file in one pass, it is needed to validate the snapshot
+            byte[] source = Files.readAllBytes(configFile);
+            Path snapshotFile = ConfigSnapshot.getPath(configFile);
+            byte[] snapshot = ConfigSnapshot.read(snapshotFile, source);
+            if (snapshot != null) {
+                try {
+                    this.readFromSnapshot(snapshot);
+                    return;
+                } catch (IOException | IllegalArgumentException ex) {
+                    LOGGER.warn("Could not load configuration snapshot.", ex);
+                }
+            }
+            
+            // parse the file and snapshot it for the next load
+            this.readFromString(joinLines(new StringReader(new String(source, StandardCharsets.UTF_8))));
+            this.saveSnapshot(snapshotFile, source);
         } else {
             // read in all lines from assembly file and combine them to a single string
             // replace the system path seperator with '/' to support operating
@@ -387,14 +478,24 @@ public class SystemConfig {
             
             LOGGER.info("Loading config from path: " + pathToResource);
             
-            InputStream in = this.getClass().getResourceAsStream(pathToResource);
-            config = new BufferedReader(new InputStreamReader(in))
-                    .lines()
-                    .reduce("", (a, b) -> a + b);
+            try (InputStream in = this.getClass().getResourceAsStream(pathToResource)) {
+                if (in == null) {
+                    throw new IOException("Configuration not found: " + pathToResource);
+                }
+                this.readFromString(joinLines(new InputStreamReader(in, StandardCharsets.UTF_8)));
+            }
         }
-        
-        // read config from the file
-        this.readFromString(config);
+    }
+    
+    /**
+     * Reads all lines of a configuration and combines them to a single string.
+     * @param reader The reader to read lines from.
+     * @return The lines combined to a single string.
+     */
+    private static String joinLines(Reader reader) {
+        return new BufferedReader(reader)
+                .lines()
+                .collect(Collectors.joining());
     }
     
     /**
@@ -413,17 +514,25 @@ public class SystemConfig {
             Files.createDirectory(configDir);
         }
         
-        // create a buffered writer to output the file to
-        try (BufferedWriter writer = Files.newBufferedWriter(fullConfigFile)) {
-            // create a stream to write config to
-            XMLStreamWriter configOutputStream = XMLOutputFactory
-                    .newFactory()
-                    .createXMLStreamWriter(writer);
-            
-            // write config to the file
-            this.writeTo(configOutputStream);
-            configOutputStream.flush();
-            configOutputStream.close();
+        // write config to the file
+        byte[] source = this.writeToString().getBytes(StandardCharsets.UTF_8);
+        Files.write(fullConfigFile, source);
+        
+        // keep the snapshot in step with the file
+        this.saveSnapshot(ConfigSnapshot.getPath(fullConfigFile), source);
+    }
+    
+    /**
+     * Saves a binary snapshot of the configuration. Failures are logged as
+     * the configuration file is still available to load from.
+     * @param snapshotFile The snapshot file to save to.
+     * @param source The contents of the configuration file.
+     */
+    private void saveSnapshot(Path snapshotFile, byte[] source) {
+        try {
+            ConfigSnapshot.write(snapshotFile, source, this.writeToSnapshot());
+        } catch (IOException ex) {
+            LOGGER.warn("Could not save configuration snapshot.", ex);
         }
     }
     
@@ -447,6 +556,7 @@ public class SystemConfig {
             
             // create a new, unique, system ID
             this.systemID = UUID.randomUUID();
+            this.revision.incrementAndGet();
         } catch (XMLStreamException | IllegalStateException | IOException ex) {
             throw new IOException("Exception reading default configuration from: " + location.toString(), ex);
         }
@@ -553,6 +663,11 @@ public class SystemConfig {
         toWriteTo.writeCharacters(Boolean.toString(this.enableCompression));
         toWriteTo.writeEndElement();
         
+        // save deduplication option
+        toWriteTo.writeStartElement("enablededuplication");
+        toWriteTo.writeCharacters(Boolean.toString(this.enableDeduplication));
+        toWriteTo.writeEndElement();
+        
         // save upload options
         toWriteTo.writeStartElement("cloud");
         toWriteTo.writeStartElement("uploadtocloud");
@@ -606,13 +721,13 @@ public class SystemConfig {
 
         // read system name
         toReadFrom.next();
-        this.systemName = XMLStreams.readElementWithEmpty("systemname", toReadFrom);
+        String readSystemName = XMLStreams.readElementWithEmpty("systemname", toReadFrom);
         
         // read system ID
-        this.systemID = UUID.fromString(XMLStreams.readElement("systemid", toReadFrom));
+        UUID readSystemID = UUID.fromString(XMLStreams.readElement("systemid", toReadFrom));
         
         // read sampling frequency
-        this.samplingFrequency = Double.valueOf(XMLStreams.readElement("samplingfrequency", toReadFrom));
+        double readSamplingFrequency = Double.valueOf(XMLStreams.readElement("samplingfrequency", toReadFrom));
         
         // read into sensor names element
         if (toReadFrom.getEventType()!= XMLStreamConstants.START_ELEMENT || !"sensornames".equals(toReadFrom.getLocalName())) {
@@ -708,10 +823,17 @@ public class SystemConfig {
         
         // read capture type
         toReadFrom.next();
-        this.captureType = Enum.valueOf(CaptureTypes.class, XMLStreams.readElement("capturetype", toReadFrom));
+        CaptureTypes readCaptureType = Enum.valueOf(CaptureTypes.class, XMLStreams.readElement("capturetype", toReadFrom));
         
         // read enable compression
-        this.enableCompression = Boolean.valueOf(XMLStreams.readElement("enablecompression", toReadFrom));
+        boolean readEnableCompression = Boolean.valueOf(XMLStreams.readElement("enablecompression", toReadFrom));
+        
+        // read enable deduplication, which configurations written before it
+        // was added do not have
+        boolean readEnableDeduplication = false;
+        if (toReadFrom.getEventType() == XMLStreamConstants.START_ELEMENT && "enablededuplication".equals(toReadFrom.getLocalName())) {
+            readEnableDeduplication = Boolean.valueOf(XMLStreams.readElement("enablededuplication", toReadFrom));
+        }
         
         // read cloud options
         // read into cloud element
@@ -720,8 +842,8 @@ public class SystemConfig {
         }
         
         toReadFrom.next();
-        this.uploadToCloud = Boolean.valueOf(XMLStreams.readElement("uploadtocloud", toReadFrom));
-        this.deleteOnUploadToCloud = Boolean.valueOf(XMLStreams.readElement("deleteonuploadtocloud", toReadFrom));
+        boolean readUploadToCloud = Boolean.valueOf(XMLStreams.readElement("uploadtocloud", toReadFrom));
+        boolean readDeleteOnUploadToCloud = Boolean.valueOf(XMLStreams.readElement("deleteonuploadtocloud", toReadFrom));
         
         // read into close cloud
         if (toReadFrom.getEventType()!= XMLStreamConstants.END_ELEMENT || !"cloud".equals(toReadFrom.getLocalName())) {
@@ -740,7 +862,7 @@ public class SystemConfig {
         }
 
         toReadFrom.next();
-        this.wiredEthernetMetric = Integer.parseInt(XMLStreams.readElement("metric", toReadFrom));
+        int readWiredEthernetMetric = Integer.parseInt(XMLStreams.readElement("metric", toReadFrom));
         
         // read into close wired ethernet
         if (toReadFrom.getEventType()!= XMLStreamConstants.END_ELEMENT || !"wiredethernet".equals(toReadFrom.getLocalName())) {
@@ -753,7 +875,7 @@ public class SystemConfig {
         }
 
         toReadFrom.next();
-        this.wirelessEthernetMetric = Integer.parseInt(XMLStreams.readElement("metric", toReadFrom));
+        int readWirelessEthernetMetric = Integer.parseInt(XMLStreams.readElement("metric", toReadFrom));
         
         // read into close wired ethernet
         if (toReadFrom.getEventType()!= XMLStreamConstants.END_ELEMENT || !"wirelessethernet".equals(toReadFrom.getLocalName())) {
@@ -766,7 +888,7 @@ public class SystemConfig {
         }
 
         toReadFrom.next();
-        this.bluetoothMetric = Integer.parseInt(XMLStreams.readElement("metric", toReadFrom));
+        int readBluetoothMetric = Integer.parseInt(XMLStreams.readElement("metric", toReadFrom));
         
         // read into close wired ethernet
         if (toReadFrom.getEventType()!= XMLStreamConstants.END_ELEMENT || !"bluetooth".equals(toReadFrom.getLocalName())) {
@@ -788,16 +910,232 @@ public class SystemConfig {
             throw new XMLStreamException("Expected end of document not found.", toReadFrom.getLocation());
         }
         
-        // configuration successfully read, safe to update settings
-        this.sensorNames = readSensorNames;
-        this.sensorBindings = readSensorBindings;
-        this.sensorCalibrations = readSensorCalibrations;
+        // configuration successfully read, safe to update settings which
+        // have changed
+        this.applySettings(readSystemName, readSystemID, readSamplingFrequency,
+                readSensorNames, readSensorBindingSites, readSensorBindings,
+                readSensorCalibrations, readCaptureType, readEnableCompression,
+                readEnableDeduplication, readUploadToCloud,
+                readDeleteOnUploadToCloud, readWiredEthernetMetric,
+                readWirelessEthernetMetric, readBluetoothMetric);
+    }
+    
+    /**
+     * Writes configuration to a DataOutput in the binary form used by
+     * configuration snapshots.
+     * @param toWriteTo The DataOutput to write to.
+     * @throws IOException If an exception occurs writing to the output.
+     */
+    final void writeTo(DataOutput toWriteTo) throws IOException {
+        toWriteTo.writeUTF(this.systemName);
+        writeUUID(toWriteTo, this.systemID);
+        toWriteTo.writeDouble(this.samplingFrequency);
+        
+        toWriteTo.writeInt(this.sensorNames.size());
+        for (String name : this.sensorNames) {
+            toWriteTo.writeUTF(name);
+        }
+        
+        toWriteTo.writeInt(this.sensorBindingSites.size());
+        for (UUID site : this.sensorBindingSites) {
+            writeUUID(toWriteTo, site);
+        }
+        
+        toWriteTo.writeInt(this.sensorBindings.size());
+        for (Map.Entry<String, UUID> binding : this.sensorBindings.entrySet()) {
+            toWriteTo.writeUTF(binding.getKey());
+            writeUUID(toWriteTo, binding.getValue());
+        }
+        
+        toWriteTo.writeInt(this.sensorCalibrations.size());
+        for (Map.Entry<UUID, String> calibration : this.sensorCalibrations.entrySet()) {
+            writeUUID(toWriteTo, calibration.getKey());
+            toWriteTo.writeUTF(calibration.getValue());
+        }
+        
+        toWriteTo.writeUTF(this.captureType.name());
+        toWriteTo.writeBoolean(this.enableCompression);
+        toWriteTo.writeBoolean(this.enableDeduplication);
+        toWriteTo.writeBoolean(this.uploadToCloud);
+        toWriteTo.writeBoolean(this.deleteOnUploadToCloud);
+        toWriteTo.writeInt(this.wiredEthernetMetric);
+        toWriteTo.writeInt(this.wirelessEthernetMetric);
+        toWriteTo.writeInt(this.bluetoothMetric);
+    }
+    
+    /**
+     * Read configuration data from a DataInput in the binary form used by
+     * configuration snapshots.
+     * @param toReadFrom The DataInput to read from.
+     * @throws IOException If an exception occurs reading from the input.
+     */
+    final void readFrom(DataInput toReadFrom) throws IOException {
+        String readSystemName = toReadFrom.readUTF();
+        UUID readSystemID = readUUID(toReadFrom);
+        double readSamplingFrequency = toReadFrom.readDouble();
+        
+        Set<String> readSensorNames = new HashSet<>();
+        for (int i = toReadFrom.readInt(); i > 0; i--) {
+            readSensorNames.add(toReadFrom.readUTF());
+        }
+        
+        Set<UUID> readSensorBindingSites = new HashSet<>();
+        for (int i = toReadFrom.readInt(); i > 0; i--) {
+            readSensorBindingSites.add(readUUID(toReadFrom));
+        }
+        
+        Map<String, UUID> readSensorBindings = new HashMap<>();
+        for (int i = toReadFrom.readInt(); i > 0; i--) {
+            readSensorBindings.put(toReadFrom.readUTF(), readUUID(toReadFrom));
+        }
+        
+        Map<UUID, String> readSensorCalibrations = new HashMap<>();
+        for (int i = toReadFrom.readInt(); i > 0; i--) {
+            readSensorCalibrations.put(readUUID(toReadFrom), toReadFrom.readUTF());
+        }
+        
+        CaptureTypes readCaptureType = Enum.valueOf(CaptureTypes.class, toReadFrom.readUTF());
+        boolean readEnableCompression = toReadFrom.readBoolean();
+        boolean readEnableDeduplication = toReadFrom.readBoolean();
+        boolean readUploadToCloud = toReadFrom.readBoolean();
+        boolean readDeleteOnUploadToCloud = toReadFrom.readBoolean();
+        int readWiredEthernetMetric = toReadFrom.readInt();
+        int readWirelessEthernetMetric = toReadFrom.readInt();
+        int readBluetoothMetric = toReadFrom.readInt();
+        
+        // configuration successfully read, safe to update settings which
+        // have changed
+        this.applySettings(readSystemName, readSystemID, readSamplingFrequency,
+                readSensorNames, readSensorBindingSites, readSensorBindings,
+                readSensorCalibrations, readCaptureType, readEnableCompression,
+                readEnableDeduplication, readUploadToCloud,
+                readDeleteOnUploadToCloud, readWiredEthernetMetric,
+                readWirelessEthernetMetric, readBluetoothMetric);
+    }
+    
+    /**
+     * Writes the configuration to its binary snapshot form.
+     * @return The configuration in binary form.
+     * @throws IOException If an error occurs while writing the configuration.
+     */
+    byte[] writeToSnapshot() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        this.writeTo(out);
+        out.flush();
+        return buffer.toByteArray();
+    }
+    
+    /**
+     * Loads the configuration from its binary snapshot form.
+     * @param snapshot The configuration in binary form.
+     * @throws IOException If an error occurs while reading the configuration.
+     */
+    void readFromSnapshot(byte[] snapshot) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot));
+        this.readFrom(in);
+        if (in.read() != -1) {
+            throw new IOException("Unexpected data after configuration snapshot.");
+        }
+    }
+    
+    /**
+     * Writes a UUID to a DataOutput.
+     * @param toWriteTo The DataOutput to write to.
+     * @param toWrite The UUID to write.
+     * @throws IOException If an exception occurs writing to the output.
+     */
+    private static void writeUUID(DataOutput toWriteTo, UUID toWrite) throws IOException {
+        toWriteTo.writeLong(toWrite.getMostSignificantBits());
+        toWriteTo.writeLong(toWrite.getLeastSignificantBits());
+    }
+    
+    /**
+     * Reads a UUID from a DataInput.
+     * @param toReadFrom The DataInput to read from.
+     * @return The UUID which was read.
+     * @throws IOException If an exception occurs reading from the input.
+     */
+    private static UUID readUUID(DataInput toReadFrom) throws IOException {
+        return new UUID(toReadFrom.readLong(), toReadFrom.readLong());
+    }
+    
+    /**
+     * Updates the settings which differ from the values read and notifies
+     * listeners of the changes.
+     * @param readSystemName The system name which was read.
+     * @param readSystemID The system ID which was read.
+     * @param readSamplingFrequency The sampling frequency which was read.
+     * @param readSensorNames The sensor names which were read.
+     * @param readSensorBindingSites The sensor binding sites which were read.
+     * @param readSensorBindings The sensor bindings which were read.
+     * @param readSensorCalibrations The sensor calibrations which were read.
+     * @param readCaptureType The capture type which was read.
+     * @param readEnableCompression The compression setting which was read.
+     * @param readEnableDeduplication The deduplication setting which was
+     * read.
+     * @param readUploadToCloud The upload setting which was read.
+     * @param readDeleteOnUploadToCloud The delete on upload setting which was
+     * read.
+     * @param readWiredEthernetMetric The wired interface metric which was read.
+     * @param readWirelessEthernetMetric The wireless interface metric which
+     * was read.
+     * @param readBluetoothMetric The bluetooth interface metric which was read.
+     */
+    private void applySettings(String readSystemName, UUID readSystemID,
+            double readSamplingFrequency, Set<String> readSensorNames,
+            Set<UUID> readSensorBindingSites, Map<String, UUID> readSensorBindings,
+            Map<UUID, String> readSensorCalibrations, CaptureTypes readCaptureType,
+            boolean readEnableCompression, boolean readEnableDeduplication,
+            boolean readUploadToCloud, boolean readDeleteOnUploadToCloud,
+            int readWiredEthernetMetric, int readWirelessEthernetMetric,
+            int readBluetoothMetric) {
+        Set<Setting> changed = EnumSet.noneOf(Setting.class);
+        this.systemName = update(Setting.SYSTEM_NAME, this.systemName, readSystemName, changed);
+        this.systemID = update(Setting.SYSTEM_ID, this.systemID, readSystemID, changed);
+        this.samplingFrequency = update(Setting.SAMPLING_FREQUENCY, this.samplingFrequency, readSamplingFrequency, changed);
+        this.sensorNames = update(Setting.SENSOR_NAMES, this.sensorNames, readSensorNames, changed);
+        this.sensorBindings = update(Setting.SENSOR_BINDINGS, this.sensorBindings, readSensorBindings, changed);
+        this.sensorCalibrations = update(Setting.SENSOR_CALIBRATIONS, this.sensorCalibrations, readSensorCalibrations, changed);
+        this.captureType = update(Setting.CAPTURE_TYPE, this.captureType, readCaptureType, changed);
+        this.enableCompression = update(Setting.ENABLE_COMPRESSION, this.enableCompression, readEnableCompression, changed);
+        this.enableDeduplication = update(Setting.ENABLE_DEDUPLICATION, this.enableDeduplication, readEnableDeduplication, changed);
+        this.uploadToCloud = update(Setting.UPLOAD_TO_CLOUD, this.uploadToCloud, readUploadToCloud, changed);
+        this.deleteOnUploadToCloud = update(Setting.DELETE_ON_UPLOAD_TO_CLOUD, this.deleteOnUploadToCloud, readDeleteOnUploadToCloud, changed);
+        this.wiredEthernetMetric = update(Setting.WIRED_ETHERNET_METRIC, this.wiredEthernetMetric, readWiredEthernetMetric, changed);
+        this.wirelessEthernetMetric = update(Setting.WIRELESS_ETHERNET_METRIC, this.wirelessEthernetMetric, readWirelessEthernetMetric, changed);
+        this.bluetoothMetric = update(Setting.BLUETOOTH_METRIC, this.bluetoothMetric, readBluetoothMetric, changed);
         
         // only ever add binding site to avoid sync related erasure
-        this.sensorBindingSites.addAll(readSensorBindingSites);
+        if (this.sensorBindingSites.addAll(readSensorBindingSites)) {
+            changed.add(Setting.SENSOR_BINDING_SITES);
+        }
         
         // notify listeners of changes
-        this.notifyChangeListeners();
+        if (!changed.isEmpty()) {
+            this.revision.incrementAndGet();
+            LOGGER.info("Configuration settings changed: " + changed.toString());
+            this.notifyChangeListeners(changed);
+        }
+    }
+    
+    /**
+     * Gets the value a setting should have after reading the configuration,
+     * recording the setting as changed if the value differs.
+     * @param <T> The type of the setting value.
+     * @param setting The setting being updated.
+     * @param current The current value of the setting.
+     * @param read The value of the setting which was read.
+     * @param changed The set of changed settings to add to.
+     * @return The value the setting should have.
+     */
+    private static <T> T update(Setting setting, T current, T read, Set<Setting> changed) {
+        if (Objects.equals(current, read)) {
+            return current;
+        }
+        
+        changed.add(setting);
+        return read;
     }
     
     /**
@@ -855,14 +1193,17 @@ public class SystemConfig {
     }
 
     /**
-     * Notifies listeners that the configuration has changed.
+     * Notifies listeners subscribed to any of the changed settings.
+     * @param changed The settings which changed.
      */
-    private void notifyChangeListeners() {
+    private void notifyChangeListeners(Set<Setting> changed) {
         ExecutorService executor = Executors.newCachedThreadPool();
-        Runnable[] listeners = this.configChangedListeners.toArray(
-                new Runnable[this.configChangedListeners.size()]);
-        for (Runnable listener : listeners) {
-            executor.submit(listener);
+        synchronized (this.configChangedListeners) {
+            this.configChangedListeners.forEach((listener, settings) -> {
+                if (!Collections.disjoint(settings, changed)) {
+                    executor.submit(listener);
+                }
+            });
         }
         executor.shutdown();
     }
@@ -0,0 +1,209 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.controller;
+
+import com.vitembp.embedded.data.CaptureFactory;
+import com.vitembp.embedded.data.CaptureTypes;
+import com.vitembp.embedded.datacollection.CaptureSession;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * Completes and saves ended captures in the background, in the order they
+ * ended, so the controller can accept the next start signal immediately.
+ */
+class CaptureCommitter {
+    /**
+     * Class logger instance.
+     */
+    private static final org.apache.logging.log4j.Logger LOGGER = LogManager.getLogger();
+    
+    /**
+     * The time in seconds to wait for pending captures when shutting down.
+     */
+    private static final long SHUTDOWN_TIMEOUT = 60;
+    
+    /**
+     * The executor which saves the captures.
+     */
+    private final ExecutorService executor;
+    
+    /**
+     * The number of captures which have not yet been saved.
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+    
+    /**
+     * A boolean value indicating whether a compaction is waiting to run.
+     */
+    private final AtomicBoolean compactionQueued = new AtomicBoolean();
+    
+    /**
+     * Lock held while the capture store is compacted.
+     */
+    private final Object compactionLock = new Object();
+    
+    /**
+     * Callback used to notify listeners of the commit status.
+     */
+    private volatile Consumer<String> statusCallback = null;
+    
+    /**
+     * Initializes a new instance of the CaptureCommitter class.
+     */
+    CaptureCommitter() {
+        this.executor = Executors.newSingleThreadExecutor((r) -> new Thread(r, "CaptureCommitter"));
+    }
+    
+    /**
+     * Completes and saves an ended capture session in the background.
+     * @param session The session which was stopped.
+     * @param signal The signal which ended the capture, which receives the
+     * result once the capture is saved.
+     */
+    void commit(CaptureSession session, Signal signal) {
+        this.updateStatus(this.pending.incrementAndGet(), false);
+        this.executor.execute(() -> this.complete(session, signal));
+    }
+    
+    /**
+     * Compacts the capture store once the pending captures are saved, if the
+     * system is still idle then. Requests made while a compaction is waiting
+     * to run are combined with it. A compaction cannot be interrupted once it
+     * has started, so captures wait for it with awaitCompaction before they
+     * start.
+     * @param type The type of capture whose store is compacted.
+     * @param isIdle Supplies a value indicating whether the system is idle.
+     */
+    void compact(CaptureTypes type, BooleanSupplier isIdle) {
+        if (!this.compactionQueued.compareAndSet(false, true)) {
+            return;
+        }
+        
+        this.executor.execute(() -> {
+            this.compactionQueued.set(false);
+            
+            synchronized (this.compactionLock) {
+                // a capture may have started while captures were being saved,
+                // this is checked under the lock so a starting capture either
+                // waits for the compaction or the compaction is skipped
+                if (!isIdle.getAsBoolean()) {
+                    return;
+                }
+                
+                try {
+                    CaptureFactory.compactStore(type);
+                } catch (IOException | RuntimeException ex) {
+                    LOGGER.error("Could not compact the capture store.", ex);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Waits for a compaction in progress to complete. This is called once the
+     * system is no longer idle, so compactions which have not started are
+     * skipped, and the first writes of a capture are not blocked behind one.
+     */
+    void awaitCompaction() {
+        synchronized (this.compactionLock) {
+            LOGGER.trace("No compaction in progress.");
+        }
+    }
+    
+    /**
+     * Gets the number of captures which have not yet been saved.
+     * @return The number of captures which have not yet been saved.
+     */
+    int getPendingCount() {
+        return this.pending.get();
+    }
+    
+    /**
+     * Stops accepting captures and waits for the pending captures to be saved.
+     */
+    void shutdown() {
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                LOGGER.error("Timed out saving " + this.pending.get() + " captures.");
+            }
+        } catch (InterruptedException ex) {
+            LOGGER.error("Interrupted waiting for captures to be saved.", ex);
+        }
+    }
+    
+    /**
+     * Sets the Consumer which is called when the commit status changes.
+     * @param callback The Consumer which is called when the commit status changes.
+     */
+    void setStatusCallback(Consumer<String> callback) {
+        this.statusCallback = callback;
+    }
+    
+    /**
+     * Completes a capture session and returns the result to its signal.
+     * @param session The session which was stopped.
+     * @param signal The signal which ended the capture.
+     */
+    private void complete(CaptureSession session, Signal signal) {
+        boolean failed = false;
+        try {
+            // save the capture data
+            session.completeCapture();
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.error("Error while saving data at end of capture.", ex);
+            failed = true;
+        }
+        
+        this.updateStatus(this.pending.decrementAndGet(), failed);
+        signal.returnResult(failed ?
+                "Error, capture ended, but an error occured while saving data." :
+                "Capture ended.");
+    }
+    
+    /**
+     * Notifies the listener of the commit status.
+     * @param remaining The number of captures which have not yet been saved.
+     * @param failed A boolean value indicating whether the last capture
+     * could not be saved.
+     */
+    private void updateStatus(int remaining, boolean failed) {
+        Consumer<String> callback = this.statusCallback;
+        if (callback == null) {
+            return;
+        }
+        
+        if (failed) {
+            callback.accept("Error saving capture.");
+        } else if (remaining == 0) {
+            callback.accept("Capture saved.");
+        } else if (remaining == 1) {
+            callback.accept("Saving capture...");
+        } else {
+            callback.accept("Saving " + remaining + " captures...");
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.controller;
+
+/**
+ * Base class for all events processed by the controller state machine.
+ */
+public abstract class ControllerEvent {
+    /**
+     * The time in nanoseconds the event was created.
+     */
+    private final long createdTime;
+    
+    /**
+     * The time in nanoseconds the event was dispatched to a state.
+     */
+    private volatile long dispatchedTime;
+    
+    /**
+     * Initializes a new instance of the ControllerEvent class.
+     */
+    ControllerEvent() {
+        this.createdTime = System.nanoTime();
+    }
+    
+    /**
+     * Gets the time the event was created as reported by System.nanoTime().
+     * @return The time the event was created.
+     */
+    long getCreatedTime() {
+        return this.createdTime;
+    }
+    
+    /**
+     * Gets the time the event was dispatched to a state as reported by
+     * System.nanoTime().
+     * @return The time the event was dispatched or zero if it has not been
+     * dispatched.
+     */
+    long getDispatchedTime() {
+        return this.dispatchedTime;
+    }
+    
+    /**
+     * Records the time the event was dispatched to a state.
+     * @param time The time the event was dispatched.
+     */
+    void setDispatchedTime(long time) {
+        this.dispatchedTime = time;
+    }
+}
@@ -22,8 +22,22 @@ package com.vitembp.embedded.controller;
  */
 interface ControllerState {
     /**
-     * The function called by the state machine to execute the state.
+     * The function called by the state machine when the state is entered.
+     * Returning the class of this state leaves the state waiting for events.
      * @param state State variable providing all execution context.
+     * @return The class of the next state.
      */
     public Class execute(ExecutionContext state);
+    
+    /**
+     * The function called by the state machine for each event received while
+     * the state is waiting. Implementations must not block.
+     * @param state State variable providing all execution context.
+     * @param event The event to process.
+     * @return The class of the next state, or the class of this state to
+     * continue waiting for events.
+     */
+    public default Class handle(ExecutionContext state, ControllerEvent event) {
+        return this.getClass();
+    }
 }
@@ -23,13 +23,15 @@ import com.vitembp.embedded.data.CaptureFactory;
 import com.vitembp.embedded.data.CaptureTypes;
 import com.vitembp.embedded.datacollection.CaptureSession;
 import com.vitembp.embedded.hardware.HardwareInterface;
+import com.vitembp.embedded.hardware.Sensor;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import org.apache.logging.log4j.LogManager;
 
 /**
- * The class containing the implementation for the StartCapture state.
+ * The class containing the implementation for the CreateCapture state, which
+ * prepares the next capture while the system is idle.
  */
 class CreateCapture implements ControllerState {
     /**
@@ -63,7 +65,7 @@ class CreateCapture implements ControllerState {
         Capture dataStore = null;
         
         try {
-            dataStore = CaptureFactory.buildCapture(config.getCaptureType(), config.getSamplingFrequency(), sensorTypes, calData);
+            dataStore = CaptureFactory.prepareCapture(config.getCaptureType(), config.getSamplingFrequency(), sensorTypes, calData);
         } catch (InstantiationException ex) {
             LOGGER.error("Could not create capture for configured type \"" + config.getCaptureType().toString() + "\".", ex);
         }
@@ -81,13 +83,15 @@ class CreateCapture implements ControllerState {
             }
         }
 
-        // build and return a new capture session
-        CaptureSession captureSession = new CaptureSession(hardware.getSensors(), dataStore);
+        // build a new capture session with its sampler ready to start
+        Map<String, Sensor> sensors = hardware.getSensors();
+        CaptureSession captureSession = new CaptureSession(sensors, dataStore);
+        captureSession.prepare();
 
         // save session to state machine state
-        state.setCaptureSession(captureSession);
+        state.setCaptureSession(captureSession, sensors, calData);
         
-        // transition to wait for end class
-        return StartCapture.class;
+        // indicate the system is ready to start
+        return WaitForStartFlashLed.class;
     }
 }
@@ -17,19 +17,13 @@
  */
 package com.vitembp.embedded.controller;
 
+import com.vitembp.embedded.data.NetworkScheduler;
 import com.vitembp.embedded.datacollection.CaptureSession;
-import java.io.IOException;
-import org.apache.logging.log4j.LogManager;
 
 /**
  * The class containing the implementation for the EndCapture state.
  */
 class EndCapture implements ControllerState {
-    /**
-     * Class logger instance.
-     */
-    private static final org.apache.logging.log4j.Logger LOGGER = LogManager.getLogger();
-    
     @Override
     public Class execute(ExecutionContext state) {
         // get the current capture session
@@ -38,15 +32,14 @@ class EndCapture implements ControllerState {
         // stop the current capture session
         session.stop();
         
-        try {
-            // save the capture data
-            session.completeCapture();
-            state.getSignal().returnResult("Capture ended.");
-        } catch (IOException ex) {
-            LOGGER.error("Error while saving data at end of capture.", ex);
-            state.getSignal().returnResult("Error, capture ended, but an error occured while saving data.");
-        }
+        // network transfers may use the full bandwidth again
+        NetworkScheduler.getInstance().setCapturing(false);
         
-        return WaitForStartFlashLed.class;
+        // the session is saved in the background, the signal receives the
+        // result once it is
+        state.getCommitter().commit(session, state.getSignal());
+        state.setCaptureSession(null, null, null);
+        
+        return CreateCapture.class;
     }
 }
@@ -21,6 +21,9 @@ import com.vitembp.embedded.configuration.SystemConfig;
 import com.vitembp.embedded.datacollection.CaptureSession;
 import com.vitembp.embedded.hardware.Calibrator;
 import com.vitembp.embedded.hardware.HardwareInterface;
+import com.vitembp.embedded.hardware.Sensor;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * State variable for state machine states.
@@ -31,6 +34,16 @@ class ExecutionContext {
      */
     private CaptureSession captureSession;
     
+    /**
+     * The sensors the capture session was prepared for.
+     */
+    private Map<String, Sensor> captureSensors;
+    
+    /**
+     * The sensor calibrations the capture session was prepared with.
+     */
+    private Map<String, String> captureCalibrations;
+    
     /**
      * The calibrator used for sensor calibration.
      */
@@ -46,10 +59,22 @@ class ExecutionContext {
      */
     private Signal signal;
     
+    /**
+     * The poller which provides sensor updates while idle.
+     */
+    private final IdleSensor idleSensor;
+    
+    /**
+     * The committer which saves ended captures in the background.
+     */
+    private final CaptureCommitter committer;
+    
     /**
      * Initializes a new instance of the ExecutionContext class.
      */
     ExecutionContext() {
+        this.idleSensor = new IdleSensor();
+        this.committer = new CaptureCommitter();
     }
 
     /**
@@ -69,10 +94,36 @@ class ExecutionContext {
     }
 
     /**
-     * Creates a new capture session.
+     * Sets the capture session to use in the controller state machine.
+     * @param session The capture session.
+     * @param sensors The sensors the session was prepared for.
+     * @param calibrations The sensor calibrations the session was prepared
+     * with.
      */
-    void setCaptureSession(CaptureSession session) {
+    void setCaptureSession(CaptureSession session, Map<String, Sensor> sensors, Map<String, String> calibrations) {
         this.captureSession = session;
+        this.captureSensors = sensors;
+        this.captureCalibrations = calibrations;
+    }
+    
+    /**
+     * Gets a boolean value indicating whether the prepared capture session
+     * still matches the sensor bindings and calibrations of the system.
+     * @return A boolean value indicating whether the prepared capture session
+     * can be started.
+     */
+    boolean isCaptureSessionCurrent() {
+        if (this.captureSession == null) {
+            return false;
+        }
+        
+        // sensor bindings are replaced when the configuration changes
+        if (this.captureSensors != this.getHardware().getSensors()) {
+            return false;
+        }
+        
+        return this.captureCalibrations.entrySet().stream().allMatch((e) ->
+                Objects.equals(e.getValue(), this.getConfig().getSensorCalibration(e.getKey())));
     }
     
     /**
@@ -117,6 +168,22 @@ class ExecutionContext {
         this.signal = signal;
     }
     
+    /**
+     * Gets the poller which provides sensor updates while idle.
+     * @return The poller which provides sensor updates while idle.
+     */
+    IdleSensor getIdleSensor() {
+        return this.idleSensor;
+    }
+    
+    /**
+     * Gets the committer which saves ended captures in the background.
+     * @return The committer which saves ended captures in the background.
+     */
+    CaptureCommitter getCommitter() {
+        return this.committer;
+    }
+    
     /**
      * Gets the interface to the system hardware.
      * @return The interface to the system hardware.
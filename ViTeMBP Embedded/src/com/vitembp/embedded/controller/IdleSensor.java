@@ -23,54 +23,145 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
 
 /**
- * Provides sensor updates when idle.
+ * Provides rate limited sensor updates when idle. Readings are taken on a low
+ * priority thread of their own so the display never delays the controller.
  */
-class IdleSensor  implements ControllerState {
+class IdleSensor {
+    /**
+     * Class logger instance.
+     */
+    private static final org.apache.logging.log4j.Logger LOGGER = LogManager.getLogger();
+    
+    /**
+     * The time in milliseconds between sensor readings.
+     */
+    private static final long UPDATE_INTERVAL = 250;
+    
     /**
      * Callback used to notify listener of sensors being added/removed
      */
-    private Consumer<Set<String>> sensorsChangedCallback = null;
+    private volatile Consumer<Set<String>> sensorsChangedCallback = null;
     
     /**
      * Callback used to notify listeners of a new senor reading.
      */
-    private Consumer<Map<String, String>> sensorsReadCallback = null;
+    private volatile Consumer<Map<String, String>> sensorsReadCallback = null;
     
     /**
      * Set of currently enumerated sensors.
      */
     private final Set<String> sensors = new HashSet<>();
     
-    @Override
-    public Class execute(ExecutionContext state) {
-        // get sensors for both checks
-        Map<String, Sensor> currentSensors = HardwareInterface.getInterface().getSensors();
+    /**
+     * Lock held while the sensors are being read.
+     */
+    private final Object readLock = new Object();
+    
+    /**
+     * A boolean value indicating whether sensors should be read.
+     */
+    private volatile boolean isEnabled = false;
+    
+    /**
+     * The executor which runs the sensor readings.
+     */
+    private ScheduledExecutorService poller = null;
+    
+    /**
+     * Starts providing sensor updates.
+     */
+    synchronized void resume() {
+        this.isEnabled = true;
         
-        // check for new sensors
-        if (this.sensorsChangedCallback != null) {
-            if (!currentSensors.keySet().equals(this.sensors)) {
-                this.sensors.clear();
-                this.sensors.addAll(currentSensors.keySet());
-                this.sensorsChangedCallback.accept(this.sensors);
-            }
+        // the polling thread is created the first time it is needed
+        if (this.poller == null) {
+            this.poller = Executors.newSingleThreadScheduledExecutor((r) -> {
+                Thread pollThread = new Thread(r, "IdleSensor");
+                pollThread.setDaemon(true);
+                pollThread.setPriority(Thread.MIN_PRIORITY);
+                return pollThread;
+            });
+            this.poller.scheduleWithFixedDelay(this::poll, 0, UPDATE_INTERVAL, TimeUnit.MILLISECONDS);
         }
-        
-        // get readings for sensors
-        if (this.sensorsReadCallback != null) {
-            Map<String, String> readings = new HashMap<>();
-            currentSensors.forEach((name, sensor) -> {
-                if (sensor != null) {
-                    readings.put(name, sensor.readSample());
+    }
+    
+    /**
+     * Stops providing sensor updates, waiting for any reading in progress to
+     * finish so the sensors can be used by another reader.
+     */
+    void pause() {
+        this.isEnabled = false;
+        synchronized (this.readLock) {
+            LOGGER.trace("Idle sensor updates paused.");
+        }
+    }
+    
+    /**
+     * Gets a value indicating whether sensor updates are being provided, which
+     * is the case while the system is idle.
+     * @return A value indicating whether sensor updates are being provided.
+     */
+    boolean isResumed() {
+        return this.isEnabled;
+    }
+    
+    /**
+     * Stops providing sensor updates and releases the polling thread.
+     */
+    synchronized void shutdown() {
+        this.pause();
+        if (this.poller != null) {
+            this.poller.shutdownNow();
+            this.poller = null;
+        }
+    }
+    
+    /**
+     * Reads the sensors and notifies the listeners.
+     */
+    private void poll() {
+        synchronized (this.readLock) {
+            if (!this.isEnabled) {
+                return;
+            }
+            
+            try {
+                // get sensors for both checks
+                Map<String, Sensor> currentSensors = HardwareInterface.getInterface().getSensors();
+
+                // check for new sensors
+                Consumer<Set<String>> changed = this.sensorsChangedCallback;
+                if (changed != null) {
+                    if (!currentSensors.keySet().equals(this.sensors)) {
+                        this.sensors.clear();
+                        this.sensors.addAll(currentSensors.keySet());
+                        changed.accept(this.sensors);
+                    }
                 }
-            });
-            this.sensorsReadCallback.accept(readings);
+
+                // get readings for sensors
+                Consumer<Map<String, String>> read = this.sensorsReadCallback;
+                if (read != null) {
+                    Map<String, String> readings = new HashMap<>();
+                    currentSensors.forEach((name, sensor) -> {
+                        if (sensor != null) {
+                            readings.put(name, sensor.readSample());
+                        }
+                    });
+                    read.accept(readings);
+                }
+            } catch (Exception ex) {
+                // an exception would cancel all further readings
+                LOGGER.error("Exception reading idle sensor values.", ex);
+            }
         }
-        
-        // return to wait for start state to await start keypress
-        return WaitForStart.class;
     }
     
     /**
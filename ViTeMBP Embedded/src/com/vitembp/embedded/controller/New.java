@@ -63,6 +63,6 @@ class New implements ControllerState {
             }
         }
         
-        return WaitForStart.class;
+        return CreateCapture.class;
     }
 }
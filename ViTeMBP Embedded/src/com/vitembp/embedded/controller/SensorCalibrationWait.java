@@ -17,38 +17,27 @@
  */
 package com.vitembp.embedded.controller;
 
-import org.apache.logging.log4j.LogManager;
-
 /**
  * State that waits for external input to control a sensor calibration.
  */
 class SensorCalibrationWait implements ControllerState {
-    /**
-     * Class logger instance.
-     */
-    private static final org.apache.logging.log4j.Logger LOGGER = LogManager.getLogger();
-    
     @Override
     public Class execute(ExecutionContext state) {
         // wait for a signal event
-        Signal signal = null;
-        try {
-            signal = StateMachine.getSingleton().getSignal();
-        } catch (InterruptedException ex) {
-            LOGGER.error("Interrupted waiting for event.", ex);
-        }
-        
+        return this.getClass();
+    }
+    
+    @Override
+    public Class handle(ExecutionContext state, ControllerEvent event) {
         // process the signal by type
-        if (signal instanceof SignalCalibrateNextStep) {
-            state.setSignal(signal);
+        if (event instanceof SignalCalibrateNextStep) {
+            state.setSignal((Signal)event);
             return SensorCalibrationNext.class;
-        } else if (signal instanceof SignalGetCalibrationStatus) {
-            state.setSignal(signal);
+        } else if (event instanceof SignalGetCalibrationStatus) {
+            state.setSignal((Signal)event);
             return SensorCalibrationStatus.class;
-        }
-        
-        if (signal != null) {
-            signal.returnResult("Error, sensor calibration in progress.");
+        } else if (event instanceof Signal) {
+            ((Signal)event).returnResult("Error, sensor calibration in progress.");
         }
         
         // no valid signal received, return to this state
@@ -22,7 +22,7 @@ import java.util.function.Consumer;
 /**
  * Base class that can signal an external event.
  */
-public abstract class Signal {
+public abstract class Signal extends ControllerEvent {
     /**
      * The callback to send results to the signaler.
      */
@@ -17,6 +17,7 @@
  */
 package com.vitembp.embedded.controller;
 
+import com.vitembp.embedded.data.NetworkScheduler;
 import com.vitembp.embedded.datacollection.CaptureSession;
 import com.vitembp.embedded.hardware.HardwareInterface;
 import java.io.IOException;
@@ -34,6 +35,12 @@ class StartCapture implements ControllerState {
      */
     private static final int LIGHT_DURATION = 2000;
     
+    /**
+     * The time in nanoseconds between the start signal and the first sample,
+     * allowing the sampler, sync light and buzzer threads to reach the start.
+     */
+    private static final long START_LEAD = 10000000L;
+    
     /**
      * Class logger instance.
      */
@@ -43,31 +50,56 @@ class StartCapture implements ControllerState {
     public Class execute(ExecutionContext state) {
         HardwareInterface hardware = state.getHardware();
         CaptureSession session = state.getCaptureSession();
+        Signal signal = state.getSignal();
         
-        // send capture started response
-        state.getSignal().returnResult("Capture started.");
+        // limit network transfers before sampling starts so uploads do not
+        // add jitter to the samples
+        NetworkScheduler.getInstance().setCapturing(true);
         
         // this represents the time to enable the sync light for
         List<Integer> syncLightDuration = Arrays.asList(new Integer[] { LIGHT_DURATION});
 
-        // start capture
-        session.start();
+        // the first sample, sync light and buzzer all start at the same time
+        long startTime = System.nanoTime() + START_LEAD;
         
         try {
             // flash sync LED
-            hardware.flashSyncLight(syncLightDuration);
+            hardware.flashSyncLight(syncLightDuration, startTime);
         } catch (IOException ex) {
             LOGGER.error("Error flashing sync light when starting new capture.", ex);
         }
         
         try {
             // sound the buzzer
-            hardware.soundBuzzer(LIGHT_DURATION);
+            hardware.soundBuzzer(LIGHT_DURATION, startTime);
         } catch (IOException ex) {
             LOGGER.error("Error sounding buzzer when starting new capture.", ex);
         }
         
+        // the sampler is started last as it also indexes the capture, which
+        // may take longer than the lead time
+        try {
+            // start capture and measure from the request to the first sample
+            session.start(startTime, (sampleTime) -> logStartLatency(signal, sampleTime));
+        } catch (IOException ex) {
+            LOGGER.error("Error adding the started capture to the capture index.", ex);
+        }
+        
+        // send capture started response
+        signal.returnResult("Capture started.");
+        
         // transition to wait for end class
         return WaitForEnd.class;
     }
+    
+    /**
+     * Logs the latency between a start request and the first sample.
+     * @param signal The signal which requested the capture start.
+     * @param sampleTime The System.nanoTime() of the first sample.
+     */
+    private static void logStartLatency(Signal signal, long sampleTime) {
+        double queued = (signal.getDispatchedTime() - signal.getCreatedTime()) / 1000000.0d;
+        double total = (sampleTime - signal.getCreatedTime()) / 1000000.0d;
+        LOGGER.info(String.format("Capture start latency: %.3f ms to first sample, %.3f ms queued.", total, queued));
+    }
 }
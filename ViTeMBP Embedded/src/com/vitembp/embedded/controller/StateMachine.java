@@ -17,10 +17,15 @@
  */
 package com.vitembp.embedded.controller;
 
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import org.apache.logging.log4j.LogManager;
 
@@ -62,12 +67,29 @@ public class StateMachine {
     /**
      * A boolean value indicating whether the machine is running.
      */
-    private boolean isRunning = true;
+    private volatile boolean isRunning = true;
     
     /**
-     * The queue for processing external signals.
+     * The queue of events waiting to be dispatched to states.
      */
-    private final LinkedBlockingQueue<Signal> signalQueue;
+    private final LinkedBlockingDeque<ControllerEvent> eventQueue;
+    
+    /**
+     * Events deferred by the current state which are dispatched again once
+     * the state changes.
+     */
+    private final List<ControllerEvent> deferredEvents;
+    
+    /**
+     * The executor which raises timer events.
+     */
+    private final ScheduledExecutorService timers;
+    
+    /**
+     * A count of the state entries, used to discard timers which were
+     * scheduled by a state that has since been left.
+     */
+    private long stateEntry = 0;
     
     /**
      * Initializes a new instance of the StateMachine class.
@@ -76,9 +98,17 @@ public class StateMachine {
         // create the thread that runs the executeMachine() function which
         // runs the state machine
         this.executionThread = new Thread(this::executeMachine);
+        this.executionThread.setName("StateMachine");
+        this.executionThread.setPriority(Thread.MAX_PRIORITY);
         
-        // create signal queue
-        this.signalQueue = new LinkedBlockingQueue<>();
+        // create event queue and the timer thread which feeds it
+        this.eventQueue = new LinkedBlockingDeque<>();
+        this.deferredEvents = new ArrayList<>();
+        this.timers = Executors.newSingleThreadScheduledExecutor((r) -> {
+            Thread timerThread = new Thread(r, "StateMachineTimers");
+            timerThread.setDaemon(true);
+            return timerThread;
+        });
         
         // create execution context
         this.context = new ExecutionContext();
@@ -96,7 +126,6 @@ public class StateMachine {
         this.states.put(WaitForEnd.class, new WaitForEnd());
         this.states.put(WaitForStart.class, new WaitForStart());
         this.states.put(WaitForStartFlashLed.class, new WaitForStartFlashLed());
-        this.states.put(IdleSensor.class, new IdleSensor());
     }
     
     /**
@@ -120,10 +149,15 @@ public class StateMachine {
     }
     
     /**
-     * Stops the execution of the state machine.
+     * Stops the execution of the state machine, waiting for ended captures to
+     * be saved.
      */
     public void stop() {
         this.isRunning = false;
+        this.executionThread.interrupt();
+        this.timers.shutdownNow();
+        this.context.getIdleSensor().shutdown();
+        this.context.getCommitter().shutdown();
     }
     
     /**
@@ -131,21 +165,27 @@ public class StateMachine {
      * @param signal The signal to enqueue.
      */
     public void enqueueSignal(Signal signal) {
-        try {
-            this.signalQueue.put(signal);
-        } catch (InterruptedException ex) {
-            LOGGER.error("Interrupted while enqueuing signal.", ex);
-        }
+        this.eventQueue.add(signal);
+    }
+    
+    /**
+     * Schedules a timer event which is dispatched to the current state after
+     * the delay has elapsed. The timer is discarded if the state is left
+     * before it expires.
+     * @param delay The time to wait in milliseconds.
+     */
+    void scheduleTimer(long delay) {
+        TimerEvent timer = new TimerEvent(this.stateEntry);
+        this.timers.schedule(() -> this.eventQueue.add(timer), delay, TimeUnit.MILLISECONDS);
     }
     
     /**
-     * Waits for an external signal event object.
-     * @return An external signal event object.
-     * @throws InterruptedException If the thread is interrupted waiting for an
-     * event.
+     * Holds an event the current state cannot process so it is dispatched
+     * again, in order, once the state changes.
+     * @param event The event to defer.
      */
-    Signal getSignal() throws InterruptedException {
-        return this.signalQueue.take();
+    void deferEvent(ControllerEvent event) {
+        this.deferredEvents.add(event);
     }
     
     /**
@@ -153,8 +193,7 @@ public class StateMachine {
      * @param callback The Consumer which is called when sensors are added or removed.
      */
     public void setSensorsChangedCallback(Consumer<Set<String>> callback) {
-        IdleSensor state = (IdleSensor)this.states.get(IdleSensor.class);
-        state.setSensorsChangedCallback(callback);
+        this.context.getIdleSensor().setSensorsChangedCallback(callback);
     }
     
     /**
@@ -162,15 +201,24 @@ public class StateMachine {
      * @param callback The Consumer which is called when a sensor reading is performed.
      */
     public void setSensorsReadCallback(Consumer<Map<String, String>> callback) {
-        IdleSensor state = (IdleSensor)this.states.get(IdleSensor.class);
-        state.setSensorsReadCallback(callback);
+        this.context.getIdleSensor().setSensorsReadCallback(callback);
+    }
+    
+    /**
+     * Sets the Consumer which is called when the status of saving ended
+     * captures changes.
+     * @param callback The Consumer which is called with the commit status.
+     */
+    public void setCommitStatusCallback(Consumer<String> callback) {
+        this.context.getCommitter().setStatusCallback(callback);
     }
     
     /**
      * Machine executor function.
      */
     private void executeMachine() {
-        // the next state to execute
+        // the state currently waiting for events and the next state to execute
+        Class currentState = null;
         Class nextState = New.class;
         
         // a count of how many exceptions occurred to stop running the machine
@@ -180,11 +228,40 @@ public class StateMachine {
         // loop processing states until the isRunning signal is false
         while (this.isRunning) {
             try {
-                LOGGER.info("Executing: " + nextState.getSimpleName());
-                nextState = this.states.get(nextState).execute(this.context);
+                if (nextState != currentState) {
+                    // entering a state, deferred events get another chance
+                    currentState = nextState;
+                    this.stateEntry++;
+                    for (int i = this.deferredEvents.size() - 1; i >= 0; i--) {
+                        this.eventQueue.addFirst(this.deferredEvents.get(i));
+                    }
+                    this.deferredEvents.clear();
+                    
+                    LOGGER.info("Executing: " + currentState.getSimpleName());
+                    nextState = this.states.get(currentState).execute(this.context);
+                } else {
+                    // the state is waiting, dispatch it the next event
+                    ControllerEvent event = this.eventQueue.take();
+                    if (event instanceof TimerEvent && ((TimerEvent)event).getEntry() != this.stateEntry) {
+                        continue;
+                    }
+                    
+                    event.setDispatchedTime(System.nanoTime());
+                    LOGGER.debug("Dispatching " + event.getClass().getSimpleName() + " to " + currentState.getSimpleName());
+                    nextState = this.states.get(currentState).handle(this.context, event);
+                }
+            } catch (InterruptedException ex) {
+                if (this.isRunning) {
+                    LOGGER.error("Interrupted waiting for event.", ex);
+                }
             } catch (Exception ex) {
                 LOGGER.error("Exception occurred running controller state: " + nextState.getSimpleName(), ex);
                 
+                // run the state again as it may not have completed its entry
+                if (nextState == currentState) {
+                    currentState = null;
+                }
+                
                 // increment exceptoin count and if count is above limit stop execution
                 exceptionCount++;
                 if (exceptionCount > EXCEPTION_LIMIT) {
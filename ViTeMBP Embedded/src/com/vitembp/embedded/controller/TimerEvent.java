@@ -0,0 +1,45 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.controller;
+
+/**
+ * Event raised when a timer scheduled by a controller state expires.
+ */
+class TimerEvent extends ControllerEvent {
+    /**
+     * The state entry the timer was scheduled during.
+     */
+    private final long entry;
+    
+    /**
+     * Initializes a new instance of the TimerEvent class.
+     * @param entry The state entry the timer was scheduled during.
+     */
+    TimerEvent(long entry) {
+        this.entry = entry;
+    }
+    
+    /**
+     * Gets the state entry the timer was scheduled during, timers from
+     * earlier entries are stale and are not dispatched.
+     * @return The state entry the timer was scheduled during.
+     */
+    long getEntry() {
+        return this.entry;
+    }
+}
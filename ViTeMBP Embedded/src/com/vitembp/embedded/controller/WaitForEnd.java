@@ -17,35 +17,24 @@
  */
 package com.vitembp.embedded.controller;
 
-import org.apache.logging.log4j.LogManager;
-
 /**
  * The class containing the implementation for the WaitForEnd state.
  */
 class WaitForEnd implements ControllerState {
-    /**
-     * Class logger instance.
-     */
-    private static final org.apache.logging.log4j.Logger LOGGER = LogManager.getLogger();
-
     @Override
     public Class execute(ExecutionContext state) {
         // wait for a signal event
-        Signal signal = null;
-        try {
-            signal = StateMachine.getSingleton().getSignal();
-        } catch (InterruptedException ex) {
-            LOGGER.error("Interrupted waiting for event.", ex);
-        }
-        
+        return this.getClass();
+    }
+    
+    @Override
+    public Class handle(ExecutionContext state, ControllerEvent event) {
         // process the signal by type
-        if (signal instanceof SignalEndCapture) {
-            state.setSignal(signal);
+        if (event instanceof SignalEndCapture) {
+            state.setSignal((Signal)event);
             return EndCapture.class;
-        }
-        
-        if (signal != null) {
-            signal.returnResult("Error, capture running.");
+        } else if (event instanceof Signal) {
+            ((Signal)event).returnResult("Error, capture running.");
         }
         
         // no valid signal received, return to this state
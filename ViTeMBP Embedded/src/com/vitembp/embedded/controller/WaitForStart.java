@@ -17,6 +17,7 @@
  */
 package com.vitembp.embedded.controller;
 
+import java.io.IOException;
 import org.apache.logging.log4j.LogManager;
 
 /**
@@ -27,37 +28,70 @@ class WaitForStart implements ControllerState {
      * Class logger instance.
      */
     private static final org.apache.logging.log4j.Logger LOGGER = LogManager.getLogger();
-
+    
     @Override
     public Class execute(ExecutionContext state) {
-        // wait for a signal event
-        Signal signal = null;
-        try {
-            signal = StateMachine.getSingleton().getSignal();
-        } catch (InterruptedException ex) {
-            LOGGER.error("Interrupted waiting for event.", ex);
+        // prepare a new capture if the system changed since the last one
+        if (!state.isCaptureSessionCurrent()) {
+            discardCaptureSession(state);
+            return CreateCapture.class;
         }
         
+        // show sensor readings while waiting
+        state.getIdleSensor().resume();
+        
+        // reclaim storage space while no capture is running
+        IdleSensor idle = state.getIdleSensor();
+        state.getCommitter().compact(state.getConfig().getCaptureType(), idle::isResumed);
+        
+        // wait for a signal event
+        return this.getClass();
+    }
+    
+    @Override
+    public Class handle(ExecutionContext state, ControllerEvent event) {
         // process the signal by type
-        if (signal instanceof SignalStartCapture) {
-            state.setSignal(signal);
-            return CreateCapture.class;
-        } else if (signal instanceof SignalCalibrateSensor) {
-            state.setSignal(signal);
+        if (event instanceof SignalStartCapture) {
+            // process the signal again once a current capture is prepared
+            if (!state.isCaptureSessionCurrent()) {
+                StateMachine.getSingleton().deferEvent(event);
+                discardCaptureSession(state);
+                return CreateCapture.class;
+            }
+            
+            state.getIdleSensor().pause();
+            
+            // finish a compaction in progress before sampling starts
+            state.getCommitter().awaitCompaction();
+            state.setSignal((Signal)event);
+            return StartCapture.class;
+        } else if (event instanceof SignalCalibrateSensor) {
+            state.getIdleSensor().pause();
+            state.setSignal((Signal)event);
             return SensorCalibrationStart.class;
-        } else if (signal instanceof SignalGetCalibrationStatus) {
+        } else if (event instanceof SignalGetCalibrationStatus) {
             // no caliration running return not running response
-            signal.returnResult(SensorCalibrationStatus.NOT_RUNNING_RESPONSE);
-            
-            // wait for next signal
-            return this.getClass();
-        }
-        
-        if (signal != null) {
-            signal.returnResult("Error, waiting to start capture.");
+            ((Signal)event).returnResult(SensorCalibrationStatus.NOT_RUNNING_RESPONSE);
+        } else if (event instanceof Signal) {
+            ((Signal)event).returnResult("Error, waiting to start capture.");
         }
         
-        // no valid signal received, return to this state
+        // wait for next signal
         return this.getClass();
     }
+    
+    /**
+     * Deletes the prepared capture session, if there is one.
+     * @param state State variable providing all execution context.
+     */
+    private static void discardCaptureSession(ExecutionContext state) {
+        if (state.getCaptureSession() != null) {
+            try {
+                state.getCaptureSession().discard();
+            } catch (IOException ex) {
+                LOGGER.error("Could not delete the prepared capture.", ex);
+            }
+            state.setCaptureSession(null, null, null);
+        }
+    }
 }
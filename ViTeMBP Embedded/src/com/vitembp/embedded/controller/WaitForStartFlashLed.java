@@ -29,6 +29,11 @@ class WaitForStartFlashLed implements ControllerState {
      * Class logger instance.
      */
     private static final org.apache.logging.log4j.Logger LOGGER = LogManager.getLogger();
+    
+    /**
+     * The time in milliseconds the ready flash takes to complete.
+     */
+    private static final long FLASH_DURATION = 400;
 
     @Override
     public Class execute(ExecutionContext state) {
@@ -40,13 +45,20 @@ class WaitForStartFlashLed implements ControllerState {
         }
         
         // wait for flash to complete
-        try {
-            Thread.sleep(400);
-        } catch (InterruptedException ex) {
-            LOGGER.error("IOException flashing sync light.", ex);
+        StateMachine.getSingleton().scheduleTimer(FLASH_DURATION);
+        return this.getClass();
+    }
+    
+    @Override
+    public Class handle(ExecutionContext state, ControllerEvent event) {
+        // go to wait state once the flash is complete
+        if (event instanceof TimerEvent) {
+            return WaitForStart.class;
         }
         
-        // go to wait state
-        return WaitForStart.class;
+        // signals are processed once the flash completes so the sync light
+        // is not in use when a capture starts
+        StateMachine.getSingleton().deferEvent(event);
+        return this.getClass();
     }
 }
@@ -20,6 +20,7 @@ package com.vitembp.embedded.data;
 import com.vitembp.embedded.configuration.SystemConfig;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.format.DateTimeParseException;
 import java.util.HashMap;
@@ -49,6 +50,12 @@ public abstract class Capture {
      */
     private final RunnableIOException deleteCallback;
     
+    /**
+     * The callback which adds a prepared capture to the capture index of its
+     * store, or null if the capture is already indexed.
+     */
+    private RunnableIOException indexCallback = null;
+    
     /**
      * The time this capture was created.
      */
@@ -169,11 +176,55 @@ public abstract class Capture {
         this.save();
     }
     
+    /**
+     * Sets the time of the first sample. A capture which was prepared ahead
+     * of time and is not yet indexed is also taken to be created at this time.
+     * @param startTime The time of the first sample.
+     * @throws IllegalStateException If samples have already been added.
+     */
+    public void setStartTime(Instant startTime) {
+        if (this.getSampleCount() > 0) {
+            throw new IllegalStateException("Cannot set the start time of a capture with samples.");
+        }
+        
+        this.startTime = startTime;
+        if (this.indexCallback != null) {
+            this.createdTime = startTime;
+        }
+    }
+    
+    /**
+     * Adds a capture which was prepared ahead of time to the capture index of
+     * its store. Does nothing if the capture is already indexed.
+     * @throws IOException If the capture cannot be added to the index.
+     */
+    public void addToIndex() throws IOException {
+        if (this.indexCallback != null) {
+            this.indexCallback.run();
+            this.indexCallback = null;
+        }
+    }
+    
+    /**
+     * Sets the callback which adds a prepared capture to the capture index of
+     * its store.
+     * @param callback The callback which adds the capture to the index.
+     */
+    void setIndexCallback(RunnableIOException callback) {
+        this.indexCallback = callback;
+    }
+    
     /**
      * Deletes this capture session from persistent storage.
      * @throws java.io.IOException If an IO exception occurs while loading data.
      */
     public void delete() throws IOException {
+        // a prepared capture which was never started has nothing stored
+        if (this.indexCallback != null && this.getSampleCount() == 0) {
+            this.indexCallback = null;
+            return;
+        }
+        
         this.deleteData();
         this.deleteCallback.run();
     }
@@ -198,6 +249,55 @@ public abstract class Capture {
      */
     public abstract UUID getId();
     
+    /**
+     * Gets the location in persistent storage this capture is bound to.
+     * @return The location in persistent storage this capture is bound to.
+     */
+    abstract UuidStringLocation getLocation();
+    
+    /**
+     * Reads data associated with this capture, such as results derived from
+     * its samples, from the persistent storage the capture is kept in.
+     * @param name The name of the associated data.
+     * @return The associated data or null if none has been written.
+     * @throws IOException If an IO exception occurs while reading data.
+     */
+    public String readAssociatedData(String name) throws IOException {
+        return this.getAssociatedLocation(name).read();
+    }
+    
+    /**
+     * Writes data associated with this capture to the persistent storage the
+     * capture is kept in.
+     * @param name The name of the associated data.
+     * @param value The data to write.
+     * @throws IOException If an IO exception occurs while writing data.
+     */
+    public void writeAssociatedData(String name, String value) throws IOException {
+        this.getAssociatedLocation(name).write(value);
+    }
+    
+    /**
+     * Deletes data associated with this capture from persistent storage.
+     * @param name The name of the associated data.
+     * @throws IOException If an IO exception occurs while deleting data.
+     */
+    public void deleteAssociatedData(String name) throws IOException {
+        this.getAssociatedLocation(name).delete();
+    }
+    
+    /**
+     * Gets the location of associated data which is derived from the location
+     * of this capture so it can be found again without an index.
+     * @param name The name of the associated data.
+     * @return The location of the associated data.
+     */
+    private UuidStringLocation getAssociatedLocation(String name) {
+        UuidStringLocation location = this.getLocation();
+        String key = location.getLocation().toString() + "/" + name;
+        return location.getNewLocation(UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)));
+    }
+    
     /**
      * Gets the sampling frequency of this capture.
      * @return The sampling frequency of this capture.
@@ -51,29 +51,34 @@ public class CaptureFactory {
                 RunnableIOException delCallback = () -> inMemory.removeCaptureDescription(locationID);
                 return new UuidStringStoreCapture(delCallback, frequency, hashMapStore, nameToIds);
             case EmbeddedH2:
-                try {
-                    UuidStringStore h2Store = UuidStringStoreFactory.build(CaptureTypes.EmbeddedH2);
-                    UUID h2LocationID = UUID.randomUUID();
-                    UuidStringLocation location = new UuidStringLocation(h2Store, h2LocationID);
-                    RunnableIOException delH2 = () -> h2Store.removeCaptureDescription(h2LocationID);
-                    Capture toReturn = new UuidStringStorePagingCapture(delH2, frequency, location, (int)Math.ceil(frequency * 3), nameToIds, calData);
-                    h2Store.addCaptureDescription(new CaptureDescription(toReturn, h2LocationID));
-                    return toReturn;
-                } catch (IOException ex) {
-                    throw new InstantiationException("Could not create new capture location. " + ex.getLocalizedMessage());
-                }
+                return buildCapture(UuidStringStoreFactory.build(CaptureTypes.EmbeddedH2), frequency, nameToIds, calData);
             case AmazonDynamoDB:
-                try {
-                    UuidStringStore ddbStore = UuidStringStoreFactory.build(CaptureTypes.AmazonDynamoDB);
-                    UUID adbLocationID = UUID.randomUUID();
-                    UuidStringLocation location = new UuidStringLocation(ddbStore, adbLocationID);
-                    RunnableIOException delAdb = () -> ddbStore.removeCaptureDescription(adbLocationID);
-                    Capture toReturn = new UuidStringStorePagingCapture(delAdb, frequency, location, (int)Math.ceil(frequency * 3), nameToIds, calData);
-                    ddbStore.addCaptureDescription(new CaptureDescription(toReturn, adbLocationID));
-                    return toReturn;
-                } catch (IOException ex) {
-                    throw new InstantiationException("Could not create new capture location. " + ex.getLocalizedMessage());
-                }
+                return buildCapture(UuidStringStoreFactory.build(CaptureTypes.AmazonDynamoDB), frequency, nameToIds, calData);
+        }
+        
+        throw new InstantiationException("Could not build a Capture instance for the given parameters.");
+    }
+    
+    /**
+     * Builds a new capture with the specified parameters ahead of time. The
+     * capture is only added to the capture index of its store by
+     * Capture.addToIndex(), once it is started.
+     * @param type The type of the capture, reflecting the backing store it uses.
+     * @param frequency The sample frequency of the capture.
+     * @param nameToIds A map of the Sensor names to types.
+     * @param calData Calibration data for sensors.
+     * @return A new capture with the specified parameters.
+     * @throws InstantiationException If an appropriate capture cannot be created.
+     */
+    public static Capture prepareCapture(CaptureTypes type, double frequency, Map<String, UUID> nameToIds, Map<String, String> calData) throws InstantiationException {
+        switch (type) { 
+            case InMemory:
+                // in-memory captures are not indexed
+                return buildCapture(type, frequency, nameToIds, calData);
+            case EmbeddedH2:
+                return prepareCapture(UuidStringStoreFactory.build(CaptureTypes.EmbeddedH2), frequency, nameToIds, calData);
+            case AmazonDynamoDB:
+                return prepareCapture(UuidStringStoreFactory.build(CaptureTypes.AmazonDynamoDB), frequency, nameToIds, calData);
         }
         
         throw new InstantiationException("Could not build a Capture instance for the given parameters.");
@@ -89,27 +94,13 @@ public class CaptureFactory {
         switch (type) { 
             case EmbeddedH2:
                 try {
-                    UuidStringStore h2Store = UuidStringStoreFactory.build(CaptureTypes.EmbeddedH2);
-                    List<Capture> toReturn = new ArrayList<>();
-                    for (UUID id : (Iterable<UUID>)h2Store.getCaptureLocations().map((c) -> c.getLocation())::iterator) {
-                        toReturn.add( new UuidStringStorePagingCapture(
-                                () -> h2Store.removeCaptureDescription(id),
-                                new UuidStringLocation(h2Store, id)));
-                    }
-                    return toReturn;
+                    return getCaptures(UuidStringStoreFactory.build(CaptureTypes.EmbeddedH2));
                 } catch (IOException ex) {
                     throw new InstantiationException("Could not load H2 database capture index. " + ex.getLocalizedMessage());
                 }
             case AmazonDynamoDB:
                 try {
-                    UuidStringStore ddbStore = UuidStringStoreFactory.build(CaptureTypes.AmazonDynamoDB);
-                    List<Capture> toReturn = new ArrayList<>();
-                    for (UUID id : (Iterable<UUID>)ddbStore.getCaptureLocations().map((c) -> c.getLocation())::iterator) {
-                        toReturn.add(new UuidStringStorePagingCapture(
-                                () -> ddbStore.removeCaptureDescription(id),
-                                new UuidStringLocation(ddbStore, id)));
-                    }
-                    return toReturn;
+                    return getCaptures(UuidStringStoreFactory.build(CaptureTypes.AmazonDynamoDB));
                 } catch (IOException ex) {
                     LOGGER.error("Could not load DynamoDB database capture index.", ex);
                     throw new InstantiationException("Could not load DynamoDB database capture index. " + ex.getLocalizedMessage());
@@ -118,4 +109,89 @@ public class CaptureFactory {
         
         throw new UnsupportedOperationException();
     }
+    
+    /**
+     * Reclaims unused space in the store used by captures of the given type.
+     * This can take some time and should only be called while the system is
+     * not capturing.
+     * @param type The type of capture whose store is compacted.
+     * @throws IOException If the store cannot be compacted.
+     */
+    public static void compactStore(CaptureTypes type) throws IOException {
+        try {
+            UuidStringStoreFactory.build(type).compact();
+        } catch (InstantiationException ex) {
+            throw new IOException("Could not build store to compact.", ex);
+        }
+    }
+    
+    /**
+     * Builds a new paging capture in the provided store and adds its
+     * description to the store's capture index.
+     * @param store The store to build the capture in.
+     * @param frequency The sample frequency of the capture.
+     * @param nameToIds A map of the Sensor names to types.
+     * @param calData Calibration data for sensors.
+     * @return A new capture with the specified parameters.
+     * @throws InstantiationException If the capture cannot be added to the
+     * store.
+     */
+    public static Capture buildCapture(UuidStringStore store, double frequency, Map<String, UUID> nameToIds, Map<String, String> calData) throws InstantiationException {
+        try {
+            Capture toReturn = prepareCapture(store, frequency, nameToIds, calData);
+            toReturn.addToIndex();
+            return toReturn;
+        } catch (IOException ex) {
+            throw new InstantiationException("Could not create new capture location. " + ex.getLocalizedMessage());
+        }
+    }
+    
+    /**
+     * Builds a new paging capture in the provided store which is added to the
+     * store's capture index when Capture.addToIndex() is called.
+     * @param store The store to build the capture in.
+     * @param frequency The sample frequency of the capture.
+     * @param nameToIds A map of the Sensor names to types.
+     * @param calData Calibration data for sensors.
+     * @return A new capture with the specified parameters.
+     */
+    static Capture prepareCapture(UuidStringStore store, double frequency, Map<String, UUID> nameToIds, Map<String, String> calData) {
+        UUID locationID = UUID.randomUUID();
+        UuidStringLocation location = new UuidStringLocation(store, locationID);
+        RunnableIOException delCallback = () -> store.removeCaptureDescription(locationID);
+        Capture toReturn = new UuidStringStorePagingCapture(delCallback, frequency, location, (int)Math.ceil(frequency * 3), nameToIds, calData);
+        toReturn.setIndexCallback(() -> store.addCaptureDescription(new CaptureDescription(toReturn, locationID)));
+        return toReturn;
+    }
+    
+    /**
+     * Gets the captures in the capture index of the provided store.
+     * @param store The store to load captures from.
+     * @return The captures in the store.
+     * @throws IOException If the capture index or a capture cannot be read.
+     */
+    public static List<Capture> getCaptures(UuidStringStore store) throws IOException {
+        List<Capture> toReturn = new ArrayList<>();
+        for (UUID id : (Iterable<UUID>)store.getCaptureLocations().map((c) -> c.getLocation())::iterator) {
+            toReturn.add(getCapture(store, id));
+        }
+        return toReturn;
+    }
+    
+    /**
+     * Gets a capture in the capture index of the provided store.
+     * @param store The store to load the capture from.
+     * @param id The ID of the capture.
+     * @return The capture or null if it is not in the capture index.
+     * @throws IOException If the capture index or the capture cannot be read.
+     */
+    public static Capture getCapture(UuidStringStore store, UUID id) throws IOException {
+        if (store.getCaptureDescription(id) == null) {
+            return null;
+        }
+        
+        return new UuidStringStorePagingCapture(
+                () -> store.removeCaptureDescription(id),
+                new UuidStringLocation(store, id));
+    }
 }
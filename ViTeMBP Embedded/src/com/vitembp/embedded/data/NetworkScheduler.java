@@ -0,0 +1,371 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.data;
+
+import com.vitembp.embedded.configuration.SystemConfig;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * Schedules network transfers around captures. While a capture is running
+ * bulk transfers are limited by a token bucket for the network link in use,
+ * and are paused entirely on links without a capture rate. When no capture
+ * is running transfers are not limited so any backlog drains at full speed.
+ */
+public class NetworkScheduler {
+    /**
+     * The network links the platform can route traffic over.
+     */
+    public enum Link {
+        WIRED("eth0", 262144),
+        WIRELESS("wlan0", 32768),
+        BLUETOOTH("bnep0", 0);
+        
+        /**
+         * The name of the network interface of the link.
+         */
+        private final String interfaceName;
+        
+        /**
+         * The bytes per second bulk transfers may use during a capture.
+         */
+        private final long captureRate;
+        
+        /**
+         * Initializes a new instance of the Link enumeration.
+         * @param interfaceName The name of the network interface of the link.
+         * @param captureRate The bytes per second bulk transfers may use
+         * during a capture.
+         */
+        Link(String interfaceName, long captureRate) {
+            this.interfaceName = interfaceName;
+            this.captureRate = captureRate;
+        }
+        
+        /**
+         * Gets the name of the network interface of the link.
+         * @return The name of the network interface of the link.
+         */
+        public String getInterfaceName() {
+            return this.interfaceName;
+        }
+        
+        /**
+         * Gets the bytes per second bulk transfers may use during a capture.
+         * @return The bytes per second bulk transfers may use during a
+         * capture, zero if they are paused.
+         */
+        public long getCaptureRate() {
+            return this.captureRate;
+        }
+    }
+    
+    /**
+     * Class logger instance.
+     */
+    private static final org.apache.logging.log4j.Logger LOGGER = LogManager.getLogger();
+    
+    /**
+     * The milliseconds of transfer at the capture rate a bucket holds.
+     */
+    private static final long BURST_MS = 250;
+    
+    /**
+     * The milliseconds between checks of which link is in use.
+     */
+    private static final long LINK_CHECK_MS = 5000;
+    
+    /**
+     * The singleton instance of this class.
+     */
+    private static NetworkScheduler singleton = null;
+    
+    /**
+     * The function which finds the link in use.
+     */
+    private final Supplier<Link> linkFinder;
+    
+    /**
+     * The token bucket of each link.
+     */
+    private final Map<Link, TokenBucket> buckets = new EnumMap<>(Link.class);
+    
+    /**
+     * A boolean value indicating whether a capture is running.
+     */
+    private boolean capturing = false;
+    
+    /**
+     * The link in use when it was last checked.
+     */
+    private Link link = null;
+    
+    /**
+     * The System.nanoTime() the link in use was last checked.
+     */
+    private long linkChecked = 0;
+    
+    /**
+     * Initializes a new instance of the NetworkScheduler class.
+     * @param linkFinder The function which finds the link in use.
+     * @param captureRates The bytes per second bulk transfers may use on
+     * each link during a capture.
+     */
+    NetworkScheduler(Supplier<Link> linkFinder, Map<Link, Long> captureRates) {
+        this.linkFinder = linkFinder;
+        for (Link toAdd : Link.values()) {
+            this.buckets.put(toAdd, new TokenBucket(captureRates.getOrDefault(toAdd, 0L)));
+        }
+    }
+    
+    /**
+     * Gets the singleton instance of this class.
+     * @return The singleton instance of this class.
+     */
+    public static synchronized NetworkScheduler getInstance() {
+        if (NetworkScheduler.singleton == null) {
+            Map<Link, Long> rates = new EnumMap<>(Link.class);
+            for (Link toAdd : Link.values()) {
+                rates.put(toAdd, toAdd.getCaptureRate());
+            }
+            NetworkScheduler.singleton = new NetworkScheduler(NetworkScheduler::findActiveLink, rates);
+        }
+        return NetworkScheduler.singleton;
+    }
+    
+    /**
+     * Sets whether a capture is running. Transfers waiting for bandwidth are
+     * released as soon as a capture ends.
+     * @param capturing A boolean value indicating whether a capture is
+     * running.
+     */
+    public synchronized void setCapturing(boolean capturing) {
+        if (this.capturing == capturing) {
+            return;
+        }
+        
+        LOGGER.info(capturing ? "Limiting network transfers during capture." : "Network transfers no longer limited.");
+        this.capturing = capturing;
+        
+        // each capture starts with full buckets and the link checked again
+        long now = System.nanoTime();
+        this.buckets.values().forEach((bucket) -> bucket.reset(now));
+        this.link = null;
+        this.notifyAll();
+    }
+    
+    /**
+     * Gets a boolean value indicating whether a capture is running.
+     * @return A boolean value indicating whether a capture is running.
+     */
+    public synchronized boolean isCapturing() {
+        return this.capturing;
+    }
+    
+    /**
+     * Waits until a bulk transfer of the given size may start.
+     * @param bytes The estimated number of bytes to transfer.
+     * @throws InterruptedException If the thread is interrupted while
+     * waiting.
+     */
+    public synchronized void acquire(long bytes) throws InterruptedException {
+        while (this.capturing) {
+            long wait = this.buckets.get(this.getLink()).take(bytes, System.nanoTime());
+            if (wait == 0) {
+                return;
+            }
+            
+            // paused links wait for the capture to end or the link to change
+            this.wait(wait < 0 ? LINK_CHECK_MS : wait);
+        }
+    }
+    
+    /**
+     * Accounts for a transfer which does not wait for bandwidth, such as
+     * control messages, so bulk transfers yield to it.
+     * @param bytes The estimated number of bytes transferred.
+     */
+    public synchronized void charge(long bytes) {
+        if (this.capturing) {
+            this.buckets.get(this.getLink()).charge(bytes, System.nanoTime());
+        }
+    }
+    
+    /**
+     * Waits between passes of a transfer task, returning early when a
+     * capture ends so a backlog starts draining as soon as possible.
+     * @param millis The maximum time to wait.
+     * @throws InterruptedException If the thread is interrupted while
+     * waiting.
+     */
+    public synchronized void idleWait(long millis) throws InterruptedException {
+        long end = System.currentTimeMillis() + millis;
+        boolean wasCapturing = this.capturing;
+        long remaining;
+        while ((remaining = end - System.currentTimeMillis()) > 0 && !(wasCapturing && !this.capturing)) {
+            this.wait(remaining);
+        }
+    }
+    
+    /**
+     * Gets the link in use, checking it again once it is out of date.
+     * @return The link in use.
+     */
+    private Link getLink() {
+        long now = System.nanoTime();
+        if (this.link == null || now - this.linkChecked > LINK_CHECK_MS * 1000000L) {
+            this.link = this.linkFinder.get();
+            this.linkChecked = now;
+        }
+        return this.link;
+    }
+    
+    /**
+     * Finds the link traffic is routed over, which is the link with the
+     * lowest configured interface metric whose interface is up.
+     * @return The link traffic is routed over.
+     */
+    private static Link findActiveLink() {
+        SystemConfig config = SystemConfig.getConfig();
+        Link found = null;
+        int foundMetric = Integer.MAX_VALUE;
+        for (Link toCheck : Link.values()) {
+            int metric = getMetric(config, toCheck);
+            try {
+                NetworkInterface iface = NetworkInterface.getByName(toCheck.getInterfaceName());
+                if (iface != null && iface.isUp() && metric < foundMetric) {
+                    found = toCheck;
+                    foundMetric = metric;
+                }
+            } catch (SocketException ex) {
+                LOGGER.error("Could not get the state of interface \"" + toCheck.getInterfaceName() + "\".", ex);
+            }
+        }
+        
+        // without a known interface assume the slowest link which is not paused
+        return found == null ? Link.WIRELESS : found;
+    }
+    
+    /**
+     * Gets the configured interface metric of a link.
+     * @param config The system configuration.
+     * @param link The link to get the metric of.
+     * @return The configured interface metric of the link.
+     */
+    private static int getMetric(SystemConfig config, Link link) {
+        switch (link) {
+            case WIRED:
+                return config.getWiredEthernetMetric();
+            case WIRELESS:
+                return config.getWirelessEthernetMetric();
+            default:
+                return config.getBluetoothMetric();
+        }
+    }
+    
+    /**
+     * A token bucket limiting the bytes transferred over a link.
+     */
+    private static final class TokenBucket {
+        /**
+         * The bytes per second added to the bucket.
+         */
+        private final long rate;
+        
+        /**
+         * The most bytes the bucket holds.
+         */
+        private final long capacity;
+        
+        /**
+         * The bytes in the bucket, negative after transfers larger than the
+         * bucket or charged transfers.
+         */
+        private double tokens;
+        
+        /**
+         * The System.nanoTime() the bucket was last filled.
+         */
+        private long filled;
+        
+        /**
+         * Initializes a new instance of the TokenBucket class.
+         * @param rate The bytes per second added to the bucket.
+         */
+        TokenBucket(long rate) {
+            this.rate = rate;
+            this.capacity = Math.max(1, rate * BURST_MS / 1000);
+            this.reset(System.nanoTime());
+        }
+        
+        /**
+         * Fills the bucket.
+         * @param now The current System.nanoTime().
+         */
+        void reset(long now) {
+            this.tokens = this.capacity;
+            this.filled = now;
+        }
+        
+        /**
+         * Takes bytes from the bucket if enough are available.
+         * @param bytes The bytes to take.
+         * @param now The current System.nanoTime().
+         * @return Zero if the bytes were taken, otherwise the milliseconds
+         * until they may be available, or -1 if the bucket is never filled.
+         */
+        long take(long bytes, long now) {
+            if (this.rate == 0) {
+                return -1;
+            }
+            
+            this.fill(now);
+            
+            // transfers larger than the bucket start when it is full
+            double needed = Math.min(bytes, this.capacity);
+            if (this.tokens >= needed) {
+                this.tokens -= bytes;
+                return 0;
+            }
+            return Math.max(1, (long)Math.ceil((needed - this.tokens) * 1000 / this.rate));
+        }
+        
+        /**
+         * Takes bytes from the bucket whether or not they are available.
+         * @param bytes The bytes to take.
+         * @param now The current System.nanoTime().
+         */
+        void charge(long bytes, long now) {
+            this.fill(now);
+            this.tokens -= bytes;
+        }
+        
+        /**
+         * Adds the bytes accumulated since the bucket was last filled.
+         * @param now The current System.nanoTime().
+         */
+        private void fill(long now) {
+            this.tokens = Math.min(this.capacity, this.tokens + (now - this.filled) * (double)this.rate / 1000000000L);
+            this.filled = now;
+        }
+    }
+}
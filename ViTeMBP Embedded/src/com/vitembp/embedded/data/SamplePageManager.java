@@ -283,18 +283,29 @@ class SamplePageManager {
         // create new page
         SamplePage newPage = this.lastPage.getNextPage();
         
-        // save last page
-        this.lastPage.save();
-        
-        // set last page to new page
-        this.lastPageLocation = this.lastPage.getNextPageLocation();
-        this.lastPage = newPage;
-        
-        // increment the number of pages in the list
-        this.pageCount++;
-        
-        // tell the capture to save the updated data
-        this.saveCallback.run();
+        // commit the full page and the updated capture together
+        try {
+            this.store.batch(() -> {
+                // save last page
+                try {
+                    this.lastPage.save();
+                } catch (XMLStreamException ex) {
+                    throw new IOException("XMLStreamException occured writing SamplePage to persistant storage.", ex);
+                }
+
+                // set last page to new page
+                this.lastPageLocation = this.lastPage.getNextPageLocation();
+                this.lastPage = newPage;
+
+                // increment the number of pages in the list
+                this.pageCount++;
+
+                // tell the capture to save the updated data
+                this.saveCallback.run();
+            });
+        } catch (IOException ex) {
+            throw new XMLStreamException("IO Exception occured writing SamplePage to persistant storage.", ex);
+        }
     }
 
     /**
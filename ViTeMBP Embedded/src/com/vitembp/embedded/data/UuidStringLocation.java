@@ -74,6 +74,17 @@ class UuidStringLocation {
         this.store.delete(this.location);
     }
     
+    /**
+     * Runs a group of writes so that they are committed to the underlying
+     * store together.
+     * @param writes The writes to commit together.
+     * @throws IOException If an exception occurs while writing to the
+     * persistent store.
+     */
+    public void batch(RunnableIOException writes) throws IOException {
+        this.store.batch(writes);
+    }
+    
     /**
      * Returns a new instance of UuidStringLocation bound to the supplied UUID.
      * @param location The location to bind the new instance to.
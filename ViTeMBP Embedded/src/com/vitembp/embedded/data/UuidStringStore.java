@@ -26,7 +26,7 @@ import java.util.stream.Stream;
 /**
  * Provides an interface to a UUID keyed String value store.
  */
-interface UuidStringStore {
+public interface UuidStringStore {
     /**
      * Reads a String value for the supplied key.
      * @param key The key of the value to read.
@@ -102,4 +102,25 @@ interface UuidStringStore {
      * persistent store.
      */
     public abstract Map<UUID, String> getHashes(List<UUID> locations) throws IOException;
+    
+    /**
+     * Runs a group of writes so that they are committed together. Stores
+     * without transactions run the writes directly.
+     * @param writes The writes to commit together.
+     * @throws java.io.IOException If an exception occurs while writing to the
+     * persistent store.
+     */
+    public default void batch(RunnableIOException writes) throws IOException {
+        writes.run();
+    }
+    
+    /**
+     * Reclaims space left by overwritten and deleted values. This should
+     * only be called while the system is idle as it can take some time.
+     * Stores which do not need compaction do nothing.
+     * @throws java.io.IOException If an exception occurs while compacting the
+     * persistent store.
+     */
+    public default void compact() throws IOException {
+    }
 }
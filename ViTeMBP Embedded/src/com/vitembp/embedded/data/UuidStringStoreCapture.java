@@ -173,6 +173,11 @@ class UuidStringStoreCapture extends Capture {
         return this.store.getLocation();
     }
 
+    @Override
+    UuidStringLocation getLocation() {
+        return this.store;
+    }
+
     @Override
     public Map<String, String> getSensorCalibrations() {
         return Collections.unmodifiableMap(this.calibrations);
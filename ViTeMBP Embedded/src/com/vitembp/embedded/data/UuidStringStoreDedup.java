@@ -0,0 +1,342 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * This class wraps another UuidStringStore implementing class and stores
+ * each distinct value once. A value is stored under a key derived from its
+ * SHA-256 hash, and each key it is written to holds a reference to that hash.
+ * A reference count is kept for each value so it is removed once the last
+ * key referencing it is overwritten or deleted. Keys derived from hashes are
+ * version 8 UUIDs, which cannot be used as keys of this store. When
+ * deduplication is disabled new values are stored directly, but values which
+ * were deduplicated are still read, released and hidden from the keys.
+ */
+class UuidStringStoreDedup implements UuidStringStore {
+    /**
+     * Class logger instance.
+     */
+    private static final org.apache.logging.log4j.Logger LOGGER = LogManager.getLogger();
+    
+    /**
+     * The prefix of a reference to a stored value, followed by its hash.
+     */
+    private static final String REFERENCE_PREFIX = "#sha256:";
+    
+    /**
+     * The UUID version of keys derived from hashes.
+     */
+    private static final int DERIVED_VERSION = 8;
+    
+    /**
+     * The store which is being wrapped.
+     */
+    private final UuidStringStore store;
+    
+    /**
+     * Whether values being written are deduplicated.
+     */
+    private final boolean deduplicate;
+    
+    /**
+     * Whether the wrapped store may hold references, or null if it has not
+     * been checked yet.
+     */
+    private Boolean mayHoldReferences;
+    
+    /**
+     * Initializes a new instance of the UuidStringStoreDedup class.
+     * @param toWrap The store to wrap.
+     * @param deduplicate Whether values being written are deduplicated.
+     */
+    UuidStringStoreDedup(final UuidStringStore toWrap, boolean deduplicate) {
+        this.store = toWrap;
+        this.deduplicate = deduplicate;
+    }
+
+    @Override
+    public synchronized String read(UUID key) throws IOException {
+        String value = this.store.read(key);
+        if (isReference(value)) {
+            return this.store.read(getValueKey(getHash(value)));
+        }
+        
+        // values written before deduplication was enabled are read directly
+        return value;
+    }
+
+    @Override
+    public synchronized void write(UUID key, String value) throws IOException {
+        if (key.version() == DERIVED_VERSION) {
+            throw new IllegalArgumentException("Keys with the UUID version of derived keys cannot be stored.");
+        }
+        
+        // stores which never held references are written to directly
+        if (!this.getMayHoldReferences()) {
+            this.store.write(key, value);
+            return;
+        }
+        
+        String previous = this.store.read(key);
+        if (value == null || !this.deduplicate) {
+            if (!isReference(previous)) {
+                this.store.write(key, value);
+                return;
+            }
+            
+            this.store.batch(() -> {
+                this.store.write(key, value);
+                this.release(previous);
+            });
+            return;
+        }
+        
+        String hash = hash(value);
+        String reference = REFERENCE_PREFIX + hash;
+        
+        // writing the value a key already references costs only this read
+        if (reference.equals(previous)) {
+            return;
+        }
+        
+        this.store.batch(() -> {
+            long count = this.getCount(hash);
+            if (count == 0) {
+                this.store.write(getValueKey(hash), value);
+            }
+            this.store.write(getCountKey(hash), Long.toString(count + 1));
+            this.store.write(key, reference);
+            this.release(previous);
+        });
+    }
+
+    @Override
+    public synchronized void delete(UUID key) throws IOException {
+        if (!this.getMayHoldReferences()) {
+            this.store.delete(key);
+            return;
+        }
+        
+        String previous = this.store.read(key);
+        this.store.batch(() -> {
+            this.store.delete(key);
+            this.release(previous);
+        });
+    }
+
+    @Override
+    public Stream<UUID> getKeys() throws IOException {
+        return this.store.getKeys().filter((key) -> key.version() != DERIVED_VERSION);
+    }
+
+    @Override
+    public synchronized Map<UUID, String> getHashes(List<UUID> locations) throws IOException {
+        // hash the stored value of each location as the wrapped store does
+        // so hashes match stores without deduplication
+        Map<UUID, UUID> valueKeys = new LinkedHashMap<>();
+        for (UUID location : locations) {
+            String value = this.store.read(location);
+            valueKeys.put(location, isReference(value) ? getValueKey(getHash(value)) : location);
+        }
+        
+        Map<UUID, String> valueHashes = this.store.getHashes(new ArrayList<>(new LinkedHashSet<>(valueKeys.values())));
+        Map<UUID, String> hashes = new HashMap<>();
+        valueKeys.forEach((location, valueKey) -> hashes.put(location, valueHashes.get(valueKey)));
+        return hashes;
+    }
+
+    @Override
+    public Stream<CaptureDescription> getCaptureLocations() throws IOException {
+        return this.store.getCaptureLocations();
+    }
+
+    @Override
+    public void addCaptureDescription(CaptureDescription toAdd) throws IOException {
+        this.store.addCaptureDescription(toAdd);
+    }
+
+    @Override
+    public void removeCaptureDescription(UUID location) throws IOException {
+        this.store.removeCaptureDescription(location);
+    }
+
+    @Override
+    public CaptureDescription getCaptureDescription(UUID location) throws IOException {
+        return this.store.getCaptureDescription(location);
+    }
+    
+    @Override
+    public synchronized void batch(RunnableIOException writes) throws IOException {
+        // writes of the batch call back into this store, so this lock is taken
+        // before the wrapped store's in every path to avoid deadlocks
+        this.store.batch(writes);
+    }
+    
+    @Override
+    public void compact() throws IOException {
+        this.store.compact();
+    }
+    
+    /**
+     * Releases a reference to a value, removing the value once it is no
+     * longer referenced.
+     * @param previous The value previously stored at a key, which is only
+     * released if it is a reference.
+     * @throws IOException If an exception occurs accessing the wrapped store.
+     */
+    private void release(String previous) throws IOException {
+        if (!isReference(previous)) {
+            return;
+        }
+        
+        String hash = getHash(previous);
+        long count = this.getCount(hash);
+        if (count > 1) {
+            this.store.write(getCountKey(hash), Long.toString(count - 1));
+        } else if (count == 1) {
+            this.store.delete(getValueKey(hash));
+            this.store.delete(getCountKey(hash));
+        } else {
+            LOGGER.error("Released value with no references: " + hash);
+        }
+    }
+    
+    /**
+     * Gets a boolean value indicating whether the wrapped store may hold
+     * references. While deduplication is disabled the keys are checked once
+     * for derived keys, so writes to stores which never held references skip
+     * reading the previous value.
+     * @return A boolean value indicating whether the wrapped store may hold
+     * references.
+     * @throws IOException If an exception occurs accessing the wrapped store.
+     */
+    private boolean getMayHoldReferences() throws IOException {
+        if (this.deduplicate) {
+            return true;
+        }
+        
+        if (this.mayHoldReferences == null) {
+            this.mayHoldReferences = this.store.getKeys().anyMatch((key) -> key.version() == DERIVED_VERSION);
+        }
+        return this.mayHoldReferences;
+    }
+    
+    /**
+     * Gets the number of keys referencing a value.
+     * @param hash The hash of the value.
+     * @return The number of keys referencing the value.
+     * @throws IOException If an exception occurs accessing the wrapped store.
+     */
+    private long getCount(String hash) throws IOException {
+        String count = this.store.read(getCountKey(hash));
+        return count == null ? 0 : Long.parseLong(count);
+    }
+    
+    /**
+     * Gets a boolean value indicating whether a stored value is a reference.
+     * @param value The stored value.
+     * @return A boolean value indicating whether the stored value is a
+     * reference.
+     */
+    private static boolean isReference(String value) {
+        return value != null && value.startsWith(REFERENCE_PREFIX);
+    }
+    
+    /**
+     * Gets the hash a reference refers to.
+     * @param reference The reference.
+     * @return The hash the reference refers to.
+     */
+    private static String getHash(String reference) {
+        return reference.substring(REFERENCE_PREFIX.length());
+    }
+    
+    /**
+     * Calculates the SHA-256 hash of a value.
+     * @param value The value to hash.
+     * @return The hash as hexadecimal digits.
+     * @throws IOException If the hash algorithm is not available.
+     */
+    private static String hash(String value) throws IOException {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException("SHA-256 is not available.", ex);
+        }
+        
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+    
+    /**
+     * Gets the key a value is stored under.
+     * @param hash The hash of the value.
+     * @return The key the value is stored under.
+     */
+    private static UUID getValueKey(String hash) {
+        return deriveKey(hash, 0);
+    }
+    
+    /**
+     * Gets the key the reference count of a value is stored under.
+     * @param hash The hash of the value.
+     * @return The key the reference count is stored under.
+     */
+    private static UUID getCountKey(String hash) {
+        return deriveKey(hash, 32);
+    }
+    
+    /**
+     * Derives a version 8 UUID from half of a hash.
+     * @param hash The hash as hexadecimal digits.
+     * @param start The index of the first digit of the half to use.
+     * @return The derived UUID.
+     */
+    private static UUID deriveKey(String hash, int start) {
+        ByteBuffer bits = ByteBuffer.allocate(16);
+        for (int i = start; i < start + 32; i += 2) {
+            bits.put((byte)Integer.parseInt(hash.substring(i, i + 2), 16));
+        }
+        bits.flip();
+        
+        // set the version and the IETF variant
+        long most = (bits.getLong() & ~0xF000L) | ((long)DERIVED_VERSION << 12);
+        long least = (bits.getLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(most, least);
+    }
+}
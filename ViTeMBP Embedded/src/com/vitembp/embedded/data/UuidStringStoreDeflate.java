@@ -79,6 +79,16 @@ class UuidStringStoreDeflate implements UuidStringStore {
         return this.store.getHashes(locations);
     }
     
+    @Override
+    public void batch(RunnableIOException writes) throws IOException {
+        this.store.batch(writes);
+    }
+    
+    @Override
+    public void compact() throws IOException {
+        this.store.compact();
+    }
+    
     private String decompress(String data) throws IOException {
         // read data from the store
         char[] toDecomp = data.toCharArray();
@@ -55,6 +55,10 @@ class UuidStringStoreFactory {
                     if (SystemConfig.getConfig().getEnableCompression()) {
                         inMemoryInstance = new UuidStringStoreGZip(inMemoryInstance);
                     }
+                    // deduplication wraps compression so values are hashed
+                    // before they are compressed, and is always present so
+                    // deduplicated values are read after it is disabled
+                    inMemoryInstance = new UuidStringStoreDedup(inMemoryInstance, SystemConfig.getConfig().getEnableDeduplication());
                 }
                 return inMemoryInstance;
             case EmbeddedH2:
@@ -64,6 +68,7 @@ class UuidStringStoreFactory {
                         if (SystemConfig.getConfig().getEnableCompression()) {
                             h2Instance = new UuidStringStoreGZip(h2Instance);
                         }
+                        h2Instance = new UuidStringStoreDedup(h2Instance, SystemConfig.getConfig().getEnableDeduplication());
                     } catch (SQLException ex) {
                         throw new InstantiationException("Could not create database file. " + ex.getLocalizedMessage());
                     }
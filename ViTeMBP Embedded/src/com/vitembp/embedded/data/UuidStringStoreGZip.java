@@ -87,6 +87,16 @@ class UuidStringStoreGZip implements UuidStringStore {
         return this.store.getHashes(locations);
     }
     
+    @Override
+    public void batch(RunnableIOException writes) throws IOException {
+        this.store.batch(writes);
+    }
+    
+    @Override
+    public void compact() throws IOException {
+        this.store.compact();
+    }
+    
     private String decompress(String data) throws IOException {
         // handle null entries
         if (data == null) {
@@ -18,10 +18,12 @@
 package com.vitembp.embedded.data;
 
 import com.vitembp.embedded.configuration.SystemConfig;
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.sql.Clob;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
@@ -33,50 +35,123 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
-import javax.sql.rowset.serial.SerialClob;
 import org.apache.logging.log4j.LogManager;
+import org.h2.api.ErrorCode;
 
 /**
      * Creates a UuidStringStore for the H2 embedded database.
  */
-class UuidStringStoreH2 implements UuidStringStore {
+public class UuidStringStoreH2 implements UuidStringStore {
     /**
      * Class logger instance.
      */
     private static final org.apache.logging.log4j.Logger LOGGER = LogManager.getLogger();
+    
+    /**
+     * The database settings tuned for SD card storage. The page cache is kept
+     * small for the embedded system, changes are written at most once a second
+     * so page writes are grouped into fewer chunks, compaction on close is
+     * bounded as the store is compacted while the system is idle, and page
+     * payloads are stored in their row instead of as separate LOB chunks.
+     */
+    private static final String STORAGE_PROFILE = ";CACHE_SIZE=8192;WRITE_DELAY=1000;MAX_COMPACT_TIME=100;MAX_LENGTH_INPLACE_LOB=65536";
+    
+    /**
+     * The marker for payloads stored as UTF-8 bytes.
+     */
+    private static final byte UTF8_PAYLOAD = 0;
+    
+    /**
+     * The marker for payloads stored one byte per character, which is used for
+     * all payloads with only 8-bit characters such as compressed pages.
+     */
+    private static final byte BINARY_PAYLOAD = 1;
 
     /**
      * The connection to the database.
      */
     private final Connection connection;
     
+    /**
+     * Lock held while modifying the database so writes from other threads do
+     * not become part of a batch.
+     */
+    private final ReentrantLock transactionLock = new ReentrantLock();
+    
+    /**
+     * The number of batches currently running on the thread holding the lock.
+     */
+    private int batchDepth = 0;
+    
+    /**
+     * A boolean value indicating whether the database was modified since it
+     * was last compacted.
+     */
+    private volatile boolean modified = true;
+    
     /**
      * Initializes a new instance of the UuidStringStoreH2 class.
      * @param dataFile The file to store the database to.
      * @throws SQLException If there is an error connecting to the database.
      */
-    UuidStringStoreH2(Path dataFile) throws SQLException {
+    public UuidStringStoreH2(Path dataFile) throws SQLException {
         // load the jdbc driver
         org.h2.Driver.load();
         
         // connect to the database with jdbc
-        String location = "jdbc:h2:file:" + dataFile.toAbsolutePath().toString();
+        Connection opened;
         try {
-            connection = DriverManager.getConnection(location, "sa", "");
+            opened = open(dataFile);
         } catch (SQLException ex) {
-            LOGGER.error("Could not connect to database.", ex);
-            throw ex;
+            if (ex.getErrorCode() != ErrorCode.FILE_CORRUPTED_1) {
+                LOGGER.error("Could not open database.", ex);
+                throw ex;
+            }
+            
+            // keep the damaged file for recovery and start a new database
+            LOGGER.error("Database failed its integrity check, moving it aside and creating a new database.", ex);
+            moveAside(dataFile);
+            opened = open(dataFile);
         }
-        
-        // initialize the database if needed
+        this.connection = opened;
+    }
+    
+    /**
+     * Connects to, initializes, and checks the integrity of the database.
+     * @param dataFile The file to store the database to.
+     * @return The connection to the database.
+     * @throws SQLException If there is an error opening the database.
+     */
+    private static Connection open(Path dataFile) throws SQLException {
+        String location = "jdbc:h2:file:" + dataFile.toAbsolutePath().toString() + STORAGE_PROFILE;
+        Connection opened = DriverManager.getConnection(location, "sa", "");
         try {
-            this.initializeDatabase();
+            initializeDatabase(opened);
+            checkIntegrity(opened);
         } catch (SQLException ex) {
-            LOGGER.error("Could not initialize database.", ex);
+            opened.close();
             throw ex;
         }
+        return opened;
+    }
+    
+    /**
+     * Moves the files of a damaged database aside so a new one can be created.
+     * @param dataFile The file the database is stored to.
+     * @throws SQLException If the files cannot be moved.
+     */
+    private static void moveAside(Path dataFile) throws SQLException {
+        Path file = Paths.get(dataFile.toAbsolutePath().toString() + ".mv.db");
+        Path target = Paths.get(dataFile.toAbsolutePath().toString() + "-corrupt-" + Long.toString(System.currentTimeMillis()) + ".mv.db");
+        try {
+            Files.move(file, target);
+        } catch (IOException ex) {
+            throw new SQLException("Could not move damaged database file: " + file.toString(), ex);
+        }
+        LOGGER.error("Moved damaged database to: " + target.toString());
     }
     
     /**
@@ -141,9 +216,11 @@ class UuidStringStoreH2 implements UuidStringStore {
         query.append(Double.toString(toAdd.getFrequency()));
         query.append("')");
 
+        this.transactionLock.lock();
         try {
             // execute query
             int rowsUpdated = this.connection.createStatement().executeUpdate(query.toString());
+            this.modified = true;
             
             // only one row should have been updated
             if (rowsUpdated != 1) {
@@ -152,6 +229,8 @@ class UuidStringStoreH2 implements UuidStringStore {
         } catch (SQLException ex) {
             LOGGER.error("Could not write to database.", ex);
             throw new IOException("Exception writing to H2 database.", ex);
+        } finally {
+            this.transactionLock.unlock();
         }
     }
     
@@ -197,14 +276,7 @@ class UuidStringStoreH2 implements UuidStringStore {
             if (!results.next()) {
                 return null;
             }
-            BufferedReader val = new BufferedReader(results.getClob("VALUE").getCharacterStream());
-            StringBuilder result = new StringBuilder();
-            int read = val.read();
-            while (read != -1) {
-                result.append((char)read);
-                read = val.read();
-            } 
-            return result.toString();
+            return decode(results.getBytes("VALUE"));
         } catch (SQLException ex) {
             LOGGER.error("Could not read from database.", ex);
             throw new IOException("Exception reading from H2 database.", ex);
@@ -213,25 +285,21 @@ class UuidStringStoreH2 implements UuidStringStore {
 
     @Override
     public void write(UUID key, String value) throws IOException {
-        char[] chars = new char[value.length()];
-        for (int i = 0; i < chars.length; i++) {
-            chars[i] = value.charAt(i);
-        }
-        
         // build query to put value String into the data store at UUID key
         StringBuilder query = new StringBuilder();
         query.append("MERGE INTO DATA VALUES('");
         query.append(key.toString());
         query.append("', (?))");
 
+        this.transactionLock.lock();
         try {
             // build statement
             PreparedStatement stmt = this.connection.prepareStatement(query.toString());
-            Clob toSend = new SerialClob(chars);
-            stmt.setClob(1, toSend);
+            stmt.setBytes(1, encode(value));
             
             // execute query
             int rowsUpdated = stmt.executeUpdate();
+            this.modified = true;
             
             // only one row should have been updated
             if (rowsUpdated != 1) {
@@ -240,6 +308,8 @@ class UuidStringStoreH2 implements UuidStringStore {
         } catch (SQLException ex) {
             LOGGER.error("Could not write to database.", ex);
             throw new IOException("Exception writing to H2 database.", ex);
+        } finally {
+            this.transactionLock.unlock();
         }
     }
     
@@ -251,9 +321,11 @@ class UuidStringStoreH2 implements UuidStringStore {
         query.append(key.toString());
         query.append("'");
         
+        this.transactionLock.lock();
         try {
             // execute query
             int rowsUpdated = this.connection.createStatement().executeUpdate(query.toString());
+            this.modified = true;
             // only one row should have been updated
             if (rowsUpdated != 1) {
                 throw new SQLException("Expected one row to be udpdated, actually updated: " + Integer.toString(rowsUpdated));
@@ -261,19 +333,188 @@ class UuidStringStoreH2 implements UuidStringStore {
         } catch (SQLException ex) {
             LOGGER.error("Could not write to database.", ex);
             throw new IOException("Exception writing to H2 database.", ex);
+        } finally {
+            this.transactionLock.unlock();
         }
     }
     
-    private void initializeDatabase() throws SQLException {
-        // execute query to create the DATA table with (ID -> UUID, VALUE -> String) 
-        this.connection.createStatement().execute("CREATE CACHED TABLE IF NOT EXISTS DATA(ID UUID PRIMARY KEY, VALUE CLOB)");
+    @Override
+    public void batch(RunnableIOException writes) throws IOException {
+        this.transactionLock.lock();
+        try {
+            // start a transaction for the outermost batch
+            if (this.batchDepth == 0) {
+                this.connection.setAutoCommit(false);
+            }
+            this.batchDepth++;
+            
+            boolean completed = false;
+            try {
+                writes.run();
+                completed = true;
+            } finally {
+                this.batchDepth--;
+                if (this.batchDepth == 0) {
+                    // commit the writes together, or none of them on failure
+                    if (completed) {
+                        this.connection.commit();
+                    } else {
+                        this.connection.rollback();
+                    }
+                    this.connection.setAutoCommit(true);
+                }
+            }
+        } catch (SQLException ex) {
+            LOGGER.error("Could not commit to database.", ex);
+            throw new IOException("Exception committing to H2 database.", ex);
+        } finally {
+            this.transactionLock.unlock();
+        }
+    }
+    
+    @Override
+    public void compact() throws IOException {
+        // nothing to reclaim if nothing was written since the last compaction
+        if (!this.modified) {
+            return;
+        }
+        
+        this.transactionLock.lock();
+        try {
+            // a checkpoint rewrites a bounded amount of sparsely used chunks
+            long start = System.nanoTime();
+            this.connection.createStatement().execute("CHECKPOINT");
+            this.modified = false;
+            LOGGER.info("Compacted database in " + Long.toString((System.nanoTime() - start) / 1000000) + " ms.");
+        } catch (SQLException ex) {
+            LOGGER.error("Could not compact database.", ex);
+            throw new IOException("Exception compacting H2 database.", ex);
+        } finally {
+            this.transactionLock.unlock();
+        }
+    }
+    
+    /**
+     * Creates the tables of the database if they do not exist, and converts
+     * the DATA table of databases created with character values.
+     * @param connection The connection to the database.
+     * @throws SQLException If the database cannot be initialized.
+     */
+    private static void initializeDatabase(Connection connection) throws SQLException {
+        // rename a DATA table with character values so it can be converted
+        ResultSet column = connection.createStatement().executeQuery("SELECT TYPE_NAME FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME='DATA' AND COLUMN_NAME='VALUE'");
+        if (column.next() && "CLOB".equals(column.getString("TYPE_NAME"))) {
+            connection.createStatement().execute("ALTER TABLE DATA RENAME TO DATA_CLOB");
+        }
+        
+        // execute query to create the DATA table with (ID -> UUID, VALUE -> encoded String) 
+        connection.createStatement().execute("CREATE CACHED TABLE IF NOT EXISTS DATA(ID UUID PRIMARY KEY, VALUE BLOB)");
         
         // execute query to create the CAPTURES table which tracks the locations of captures in the data table
         // with the system that created them, the time they were created, and the frequency of the capture data
-        this.connection.createStatement().execute("CREATE CACHED TABLE IF NOT EXISTS CAPTURES(LOCATION UUID PRIMARY KEY, SYSTEM_UUID UUID, CREATEDTIME VARCHAR, FREQUENCY DOUBLE)");
+        connection.createStatement().execute("CREATE CACHED TABLE IF NOT EXISTS CAPTURES(LOCATION UUID PRIMARY KEY, SYSTEM_UUID UUID, CREATEDTIME VARCHAR, FREQUENCY DOUBLE)");
         
         // execute query to create the DEVICES table which holds UUIDS of devices
-        this.connection.createStatement().execute("CREATE CACHED TABLE IF NOT EXISTS DEVICES(ID UUID PRIMARY KEY)");
+        connection.createStatement().execute("CREATE CACHED TABLE IF NOT EXISTS DEVICES(ID UUID PRIMARY KEY)");
+        
+        // convert character values, this is repeated if it was interrupted
+        ResultSet clobTable = connection.createStatement().executeQuery("SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME='DATA_CLOB'");
+        if (clobTable.next()) {
+            convertClobData(connection);
+        }
+    }
+    
+    /**
+     * Copies the values of the DATA_CLOB table into the DATA table and then
+     * drops the DATA_CLOB table.
+     * @param connection The connection to the database.
+     * @throws SQLException If the values cannot be copied.
+     */
+    private static void convertClobData(Connection connection) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            int converted = 0;
+            ResultSet values = connection.createStatement().executeQuery("SELECT ID, VALUE FROM DATA_CLOB");
+            PreparedStatement stmt = connection.prepareStatement("MERGE INTO DATA VALUES(?, ?)");
+            while (values.next()) {
+                stmt.setString(1, values.getString("ID"));
+                stmt.setBytes(2, encode(values.getString("VALUE")));
+                stmt.executeUpdate();
+                converted++;
+            }
+            connection.commit();
+            connection.createStatement().execute("DROP TABLE DATA_CLOB");
+            LOGGER.info("Converted " + Integer.toString(converted) + " database entries to binary values.");
+        } catch (SQLException ex) {
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+    
+    /**
+     * Checks that every stored value can be read. Captures in the index
+     * without data are kept, as their data may have been uploaded and
+     * deleted before the index entry was uploaded.
+     * @param connection The connection to the database.
+     * @throws SQLException If the database is damaged, with the error code of
+     * a corrupted file so the database is moved aside.
+     */
+    private static void checkIntegrity(Connection connection) throws SQLException {
+        long start = System.nanoTime();
+        
+        // scan every row so damaged chunks are found now instead of during an upload
+        int entries = 0;
+        try {
+            ResultSet values = connection.createStatement().executeQuery("SELECT ID, LENGTH(VALUE) FROM DATA");
+            while (values.next()) {
+                entries++;
+            }
+        } catch (SQLException ex) {
+            throw new SQLException("Database values could not be read.", "90030", ErrorCode.FILE_CORRUPTED_1, ex);
+        }
+        
+        LOGGER.info("Database integrity check of " + Integer.toString(entries) + " entries completed in " + Long.toString((System.nanoTime() - start) / 1000000) + " ms.");
+    }
+    
+    /**
+     * Encodes a String value for storage. Values with only 8-bit characters
+     * are stored one byte per character so binary payloads are not expanded.
+     * @param value The value to encode.
+     * @return The encoded value.
+     */
+    private static byte[] encode(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                byte[] encoded = new byte[utf8.length + 1];
+                encoded[0] = UTF8_PAYLOAD;
+                System.arraycopy(utf8, 0, encoded, 1, utf8.length);
+                return encoded;
+            }
+        }
+        
+        byte[] encoded = new byte[value.length() + 1];
+        encoded[0] = BINARY_PAYLOAD;
+        for (int i = 0; i < value.length(); i++) {
+            encoded[i + 1] = (byte)value.charAt(i);
+        }
+        return encoded;
+    }
+    
+    /**
+     * Decodes a String value from storage.
+     * @param encoded The stored value.
+     * @return The decoded value.
+     */
+    private static String decode(byte[] encoded) {
+        if (encoded == null || encoded.length == 0) {
+            return "";
+        }
+        
+        Charset charset = encoded[0] == UTF8_PAYLOAD ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+        return new String(encoded, 1, encoded.length - 1, charset);
     }
 
     @Override
@@ -335,9 +576,11 @@ class UuidStringStoreH2 implements UuidStringStore {
         query.append(toRemove.toString());
         query.append("'");
         
+        this.transactionLock.lock();
         try {
             // execute query
             int rowsUpdated = this.connection.createStatement().executeUpdate(query.toString());
+            this.modified = true;
             // only one row should have been updated
             if (rowsUpdated != 1) {
                 throw new SQLException("Expected one row to be udpdated, actually updated: " + Integer.toString(rowsUpdated));
@@ -345,6 +588,8 @@ class UuidStringStoreH2 implements UuidStringStore {
         } catch (SQLException ex) {
             LOGGER.error("Could not remove capture from database.", ex);
             throw new IOException("Exception writing to H2 database.", ex);
+        } finally {
+            this.transactionLock.unlock();
         }
     }
 }
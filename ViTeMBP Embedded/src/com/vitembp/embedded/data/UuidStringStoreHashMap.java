@@ -25,21 +25,23 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Stream;
 
 /**
  * Implementation of the UuidStringtStore class using a HashMap
  */
-class UuidStringStoreHashMap implements UuidStringStore {
+public class UuidStringStoreHashMap implements UuidStringStore {
     /**
      * The backing data store.
      */
     private final Map<UUID, String> store = new ConcurrentHashMap<>();
     
     /**
-     * Holds list of capture descriptions.
+     * Holds list of capture descriptions, copied on write so the list can be
+     * streamed while transporters add to it.
      */
-    private final List<CaptureDescription> captureList = Collections.synchronizedList(new ArrayList<>());
+    private final List<CaptureDescription> captureList = new CopyOnWriteArrayList<>();
     
     /**
      * Holds UUID of devices.
@@ -54,7 +56,7 @@ class UuidStringStoreHashMap implements UuidStringStore {
     /**
      * Initializes a new instance of the UuidStringStoreHashMap class.
      */
-    UuidStringStoreHashMap() {
+    public UuidStringStoreHashMap() {
     }
     
     @Override
@@ -79,7 +81,12 @@ class UuidStringStoreHashMap implements UuidStringStore {
     
     @Override
     public void addCaptureDescription(CaptureDescription toAdd) throws IOException {
-        this.captureList.add(toAdd);
+        // replace any existing description for the location as a put to a
+        // database table would
+        synchronized (this.captureList) {
+            this.removeCaptureDescription(toAdd.getLocation());
+            this.captureList.add(toAdd);
+        }
     }
     
     @Override
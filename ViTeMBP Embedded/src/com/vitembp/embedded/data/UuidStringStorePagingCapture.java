@@ -141,12 +141,21 @@ class UuidStringStorePagingCapture extends Capture {
         sampleCount++;
     }
 
+    @Override
+    public void setStartTime(Instant startTime) {
+        super.setStartTime(startTime);
+        
+        // build the page manager ahead of the first sample
+        this.manager = new SamplePageManager(store, pageSize, this.startTime, this.nanoSecondInterval, this::trySave);
+    }
+    
     /**
      * If there are no samples, set the current time as the capture start time.
      */
     private void checkStartTime() {
-        // if this is the first sample, set the start time
-        if (this.sampleCount == 0) {
+        // if this is the first sample and the start time was not set ahead
+        // of it, set the start time
+        if (this.sampleCount == 0 && this.manager == null) {
             this.startTime = Instant.now();
             
             // build a page manager, now that we have the start time all
@@ -169,19 +178,22 @@ class UuidStringStorePagingCapture extends Capture {
      */
     @Override
     public void save() throws IOException {
-        // save this instance to the store
-        try {
-            StringWriter sw = new StringWriter();
-            this.writeTo(XMLStreams.createWriter(sw));
-            this.store.write(sw.toString());
-        } catch (XMLStreamException ex) {
-            throw new IOException("XMLStreamException occured writing capture to persistant storage.", ex);
-        }
-        
-        // if we have a manager also save that
-        if (this.manager != null) {
-            this.manager.save();
-        }
+        // commit the capture and its last page together
+        this.store.batch(() -> {
+            // save this instance to the store
+            try {
+                StringWriter sw = new StringWriter();
+                this.writeTo(XMLStreams.createWriter(sw));
+                this.store.write(sw.toString());
+            } catch (XMLStreamException ex) {
+                throw new IOException("XMLStreamException occured writing capture to persistant storage.", ex);
+            }
+
+            // if we have a manager also save that
+            if (this.manager != null) {
+                this.manager.save();
+            }
+        });
     }
 
     /**
@@ -211,12 +223,14 @@ class UuidStringStorePagingCapture extends Capture {
 
     @Override
     public void deleteData() throws IOException {
-        // if the capture did not store any data the manager would be null
-        if (this.manager != null) {
-            this.manager.delete();
-        }
-        
-        this.store.delete();
+        this.store.batch(() -> {
+            // if the capture did not store any data the manager would be null
+            if (this.manager != null) {
+                this.manager.delete();
+            }
+
+            this.store.delete();
+        });
     }
     
     @Override
@@ -294,4 +308,9 @@ class UuidStringStorePagingCapture extends Capture {
     public UUID getId() {
         return this.store.getLocation();
     }
+
+    @Override
+    UuidStringLocation getLocation() {
+        return this.store;
+    }
 }
@@ -39,10 +39,14 @@ public class UuidStringTransporter {
     private static final int LONG_SLEEP = 10000;
     
     /**
-     * The sleep time during checks to allow for higher priority threads to
-     * execute if we are on a single core system.
+     * The estimated bytes transferred to compare the hash of one key.
      */
-    private static final int SHORT_SLEEP = 20;
+    private static final int HASH_BYTES = 128;
+    
+    /**
+     * The estimated bytes transferred to compare one capture description.
+     */
+    private static final int DESCRIPTION_BYTES = 256;
     
     /**
      * The number of hashes to create in one batch transaction.
@@ -75,6 +79,11 @@ public class UuidStringTransporter {
      */
     private final boolean deleteAfterTransfer;
     
+    /**
+     * The scheduler which limits transfers during captures.
+     */
+    private final NetworkScheduler scheduler;
+    
     /**
      * A boolean flag indicating whether the sync thread should keep running.
      */
@@ -87,13 +96,26 @@ public class UuidStringTransporter {
      * @param deleteAfterTransfer Whether data should be deleted after it is
      * found to be synchronized.
      */
-    UuidStringTransporter(UuidStringStore from, UuidStringStore to, boolean deleteAfterTransfer) throws InstantiationException {
+    public UuidStringTransporter(UuidStringStore from, UuidStringStore to, boolean deleteAfterTransfer) throws InstantiationException {
+        this(from, to, deleteAfterTransfer, NetworkScheduler.getInstance());
+    }
+    
+    /**
+     * Initializes a new instance of the UuidStringTransporter class.
+     * @param from The store to transfer data from.
+     * @param to The store to transfer data to.
+     * @param deleteAfterTransfer Whether data should be deleted after it is
+     * found to be synchronized.
+     * @param scheduler The scheduler which limits transfers during captures.
+     */
+    UuidStringTransporter(UuidStringStore from, UuidStringStore to, boolean deleteAfterTransfer, NetworkScheduler scheduler) throws InstantiationException {
         if (from == to) {
             throw new IllegalArgumentException("To and from capture types cannot be the same.");
         }
         this.from = from;
         this.to = to;
         this.deleteAfterTransfer = deleteAfterTransfer;
+        this.scheduler = scheduler;
         
         this.dataSyncThread = new Thread(this::syncDataTask);
         this.dataSyncThread.setName("DataSync");
@@ -151,18 +173,19 @@ public class UuidStringTransporter {
                 // for each batch of UUIDs to process
                 for (List<UUID> batch : batches) {
                     // get their hashes
+                    this.scheduler.acquire(HASH_BYTES * batch.size());
                     Map<UUID, String> fromHashes = from.getHashes(batch);
                     Map<UUID, String> toHashes = to.getHashes(batch);
-                    Thread.sleep(SHORT_SLEEP);
                     
                     // for each key in this batch
                     for (UUID key : batch) {
                         if (!fromHashes.get(key).equals(toHashes.get(key))) {
                             // the hashes don't match so copy the entry between
-                            // the stores
-                            to.write(key, from.read(key));
+                            // the stores once there is bandwidth for it
+                            String data = from.read(key);
+                            this.scheduler.acquire(data.length());
+                            to.write(key, data);
                             LOGGER.debug("Synced key: " + key.toString());
-                            Thread.sleep(SHORT_SLEEP);
                         } else if (this.deleteAfterTransfer) {
                             // the hashes match so delete if set to do so by the
                             // deleteAfterTransfer parameter.
@@ -172,7 +195,7 @@ public class UuidStringTransporter {
                     }
                 }
                 
-                Thread.sleep(LONG_SLEEP);
+                this.scheduler.idleWait(LONG_SLEEP);
             } catch (IOException ex) {
                 LOGGER.error("Failed to access keys in store.", ex);
             } catch (InterruptedException ex) {
@@ -196,7 +219,7 @@ public class UuidStringTransporter {
                 // sync the capture definitions
                 CaptureDescription[] toSend = this.from.getCaptureLocations().toArray(CaptureDescription[]::new);
                 for (CaptureDescription desc : toSend) {
-                    Thread.sleep(SHORT_SLEEP);
+                    this.scheduler.acquire(DESCRIPTION_BYTES);
                     CaptureDescription existingDesc = to.getCaptureDescription(desc.getLocation());
                     if (existingDesc == null ||
                             !existingDesc.getCreated().equals(desc.getCreated()) ||
@@ -213,7 +236,7 @@ public class UuidStringTransporter {
                     }
                 }
                 
-                Thread.sleep(LONG_SLEEP);
+                this.scheduler.idleWait(LONG_SLEEP);
             } catch (IOException ex) {
                 LOGGER.error("Failed to access keys in store.", ex);
             } catch (InterruptedException ex) {
@@ -20,7 +20,9 @@ package com.vitembp.embedded.datacollection;
 import com.vitembp.embedded.data.Capture;
 import com.vitembp.embedded.hardware.Sensor;
 import java.io.IOException;
+import java.time.Instant;
 import java.util.Map;
+import java.util.function.LongConsumer;
 
 /**
  * A class that uses a SensorSampler to create a Capture.
@@ -53,6 +55,37 @@ public class CaptureSession {
         this.sampler.start();
     }
     
+    /**
+     * Prepares the sampler so the capture can be started without delay.
+     */
+    public void prepare() {
+        this.sampler.prepare();
+    }
+    
+    /**
+     * Start capturing data at a set time. A capture which was prepared ahead
+     * of time is added to the capture index once sampling is under way.
+     * @param startTime The System.nanoTime() to take the first sample at.
+     * @param firstSampleCallback The function which is called with the
+     * System.nanoTime() the first sample was taken at.
+     * @throws IOException If the capture cannot be added to the capture index.
+     */
+    public void start(long startTime, LongConsumer firstSampleCallback) throws IOException {
+        // stamp the capture with the wall clock time of the first sample
+        this.data.setStartTime(Instant.now().plusNanos(startTime - System.nanoTime()));
+        this.sampler.start(startTime, firstSampleCallback);
+        this.data.addToIndex();
+    }
+    
+    /**
+     * Stops a prepared capture which will not be used and deletes it.
+     * @throws IOException If an IOException occurs while deleting the capture.
+     */
+    public void discard() throws IOException {
+        this.sampler.stop();
+        this.data.delete();
+    }
+    
     /**
      * Stops capturing data.
      */
@@ -61,10 +94,17 @@ public class CaptureSession {
     }
     
     /**
-     * Marks the current capture as complete and then saves it.
+     * Marks the current capture as complete and then saves it. Waits for the
+     * sampler to take its last sample if it is still stopping.
      * @throws IOException If an IOException occurs while saving the capture.
      */
     public void completeCapture() throws IOException {
+        try {
+            this.sampler.awaitStop();
+        } catch (InterruptedException ex) {
+            throw new IOException("Interrupted waiting for the sampler to stop.", ex);
+        }
+        
         this.data.complete();
     }
     
@@ -20,7 +20,9 @@ package com.vitembp.embedded.datacollection;
 import com.vitembp.embedded.hardware.Sensor;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -56,13 +58,28 @@ public class SensorSampler {
     /**
      * Boolean value indicating  whether the data logger is running.
      */
-    private boolean isRunning = false;
+    private volatile boolean isRunning = false;
     
     /**
      * The thread that will be used for logging.
      */
     private Thread loggingThread;
     
+    /**
+     * This function is called with the time the first sample was taken.
+     */
+    private volatile LongConsumer firstSampleCallback;
+    
+    /**
+     * The gate the prepared logging thread waits on until data logging starts.
+     */
+    private CountDownLatch startGate;
+    
+    /**
+     * The System.nanoTime() the first sample is to be taken at.
+     */
+    private long startTime;
+    
     /**
      * Initializes a new instance of the DataLogger class.
      * @param frequency The frequency to take samples at.
@@ -77,23 +94,67 @@ public class SensorSampler {
     }
     
     /**
-     * Start data logging.
+     * Creates and starts the logging thread which then waits until data
+     * logging is started, so starting takes no more than opening a gate.
      */
-    public void start() {
-        LOGGER.info("Starting data logging.");
+    public void prepare() {
+        if (this.loggingThread != null) {
+            return;
+        }
+        
         this.isRunning = true;
+        this.startGate = new CountDownLatch(1);
         this.loggingThread = new Thread(() -> { collectData(); });
         this.loggingThread.setName("DataLogger");
         this.loggingThread.setPriority(Thread.MAX_PRIORITY);
         this.loggingThread.start();
     }
     
+    /**
+     * Start data logging.
+     */
+    public void start() {
+        this.start(System.nanoTime(), null);
+    }
+    
+    /**
+     * Start data logging.
+     * @param startTime The System.nanoTime() to take the first sample at.
+     * @param firstSampleCallback The function which is called with the
+     * System.nanoTime() the first sample was taken at, or null.
+     */
+    public void start(long startTime, LongConsumer firstSampleCallback) {
+        LOGGER.info("Starting data logging.");
+        this.prepare();
+        this.startTime = startTime;
+        this.firstSampleCallback = firstSampleCallback;
+        this.startGate.countDown();
+    }
+    
     /**
      * Stop data logging.
      */
     public void stop() {
         LOGGER.info("Stopping data logging.");
         this.isRunning = false;
+        
+        // release a prepared thread which was never started
+        if (this.startGate != null) {
+            this.startGate.countDown();
+        }
+    }
+    
+    /**
+     * Waits for the logging thread to finish after data logging was stopped,
+     * so no more samples are delivered to the callback. Returns immediately
+     * if data logging is running.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public void awaitStop() throws InterruptedException {
+        Thread thread = this.loggingThread;
+        if (!this.isRunning && thread != null && thread != Thread.currentThread()) {
+            thread.join();
+        }
     }
     
     /**
@@ -103,12 +164,31 @@ public class SensorSampler {
         // hashmap for storing data
         HashMap<String, String> skippedData = new HashMap<>();
         
+        // wait until data logging is started
+        try {
+            this.startGate.await();
+        } catch (InterruptedException ex) {
+            LOGGER.error("Interrupted waiting for data logging to start.", ex);
+            return;
+        }
+        
+        // wait for the time the first sample is to be taken at
+        Long toWait = this.startTime - System.nanoTime();
+        if (toWait > 0) {
+            try {
+                Thread.sleep(toWait / 1000000, (int)(toWait % 1000000));
+            } catch (InterruptedException ex) {
+                LOGGER.error("Thread sleep was interrupted.", ex);
+            }
+        }
+        
         // calculate the start time of the next data collection interval
-        Long nextStart = System.nanoTime() + this.nanoSecondInterval;
-        Long toWait;
+        Long nextStart = this.startTime + this.nanoSecondInterval;
         
         // collect data
-        while (this.isRunning) {            
+        while (this.isRunning) {
+            long sampleTime = System.nanoTime();
+            
             // take data
             HashMap<String, String> data = new HashMap<>();
             this.sensors.forEach((sensorName, sensor) -> {
@@ -124,6 +204,11 @@ public class SensorSampler {
             
             // notify listeners
             this.sampleCallback.accept(data);
+            LongConsumer firstSample = this.firstSampleCallback;
+            if (firstSample != null) {
+                this.firstSampleCallback = null;
+                firstSample.accept(sampleTime);
+            }
             
             // wait for next data collection interval
             toWait = nextStart - System.nanoTime();
@@ -23,7 +23,6 @@ import com.vitembp.embedded.controller.StateMachine;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import javax.swing.DefaultListModel;
 import org.apache.logging.log4j.LogManager;
 
 /**
@@ -42,6 +41,21 @@ public class CaptureStatus extends javax.swing.JDialog {
      */
     private static final org.apache.logging.log4j.Logger LOGGER = LogManager.getLogger();
     
+    /**
+     * The largest number of times per second the displayed status changes.
+     */
+    private static final int FRAMES_PER_SECOND = 10;
+    
+    /**
+     * The frame slot sensor readings are posted to.
+     */
+    private static final String READINGS_SLOT = "readings";
+    
+    /**
+     * The frame slot commit status updates are posted to.
+     */
+    private static final String COMMIT_SLOT = "commit";
+    
     /**
      * Maps of currently attached sensors.
      */
@@ -52,6 +66,16 @@ public class CaptureStatus extends javax.swing.JDialog {
      */
     private long debounceTime = System.currentTimeMillis() - DEBOUNCE_MS;
     
+    /**
+     * Applies status updates at a fixed frame rate.
+     */
+    private final FrameCoalescer frames = new FrameCoalescer(FRAMES_PER_SECOND);
+    
+    /**
+     * The view showing the latest reading of each sensor.
+     */
+    private final ReadingsView readingsView;
+    
     /**
      * Creates new form CaptureStatus
      * @param parent The parent frame of the window.
@@ -61,6 +85,10 @@ public class CaptureStatus extends javax.swing.JDialog {
         super(parent, modal);
         this.sensors = new HashSet<>();
         initComponents();
+        
+        // readings are drawn by a view which only repaints changed values
+        this.readingsView = new ReadingsView(sensorsList.getFont());
+        jScrollPane1.setViewportView(this.readingsView);
     }
 
     /**
@@ -80,6 +108,7 @@ public class CaptureStatus extends javax.swing.JDialog {
         jPanel2 = new javax.swing.JPanel();
         startCaptureButton = new javax.swing.JButton();
         jPanel3 = new javax.swing.JPanel();
+        commitStatusLabel = new javax.swing.JLabel();
         jPanel4 = new javax.swing.JPanel();
         jScrollPane1 = new javax.swing.JScrollPane();
         sensorsList = new javax.swing.JList<>();
@@ -165,15 +194,23 @@ public class CaptureStatus extends javax.swing.JDialog {
 
         jPanel3.setBorder(javax.swing.BorderFactory.createTitledBorder(null, "Capture Status", javax.swing.border.TitledBorder.DEFAULT_JUSTIFICATION, javax.swing.border.TitledBorder.DEFAULT_POSITION, new java.awt.Font("Tahoma", 0, 18))); // NOI18N
 
+        commitStatusLabel.setFont(new java.awt.Font("Tahoma", 0, 18)); // NOI18N
+
         javax.swing.GroupLayout jPanel3Layout = new javax.swing.GroupLayout(jPanel3);
         jPanel3.setLayout(jPanel3Layout);
         jPanel3Layout.setHorizontalGroup(
             jPanel3Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
-            .addGap(0, 0, Short.MAX_VALUE)
+            .addGroup(jPanel3Layout.createSequentialGroup()
+                .addContainerGap()
+                .addComponent(commitStatusLabel, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                .addContainerGap())
         );
         jPanel3Layout.setVerticalGroup(
             jPanel3Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
-            .addGap(0, 100, Short.MAX_VALUE)
+            .addGroup(jPanel3Layout.createSequentialGroup()
+                .addContainerGap()
+                .addComponent(commitStatusLabel, javax.swing.GroupLayout.DEFAULT_SIZE, 78, Short.MAX_VALUE)
+                .addContainerGap())
         );
 
         jPanel4.setBorder(javax.swing.BorderFactory.createTitledBorder(null, "Sensors", javax.swing.border.TitledBorder.DEFAULT_JUSTIFICATION, javax.swing.border.TitledBorder.DEFAULT_POSITION, new java.awt.Font("Tahoma", 0, 18))); // NOI18N
@@ -311,29 +348,41 @@ public class CaptureStatus extends javax.swing.JDialog {
      * @param currentSensors The currently connected sensors.
      */
     void updateSensors(Set<String> currentSensors) {
-        this.sensors.clear();
-        this.sensors.addAll(currentSensors);
-        
-        DefaultListModel<String> model = new DefaultListModel<>();
-        this.sensors.forEach(model::addElement);
+        Set<String> updated;
+        synchronized (this.sensors) {
+            this.sensors.clear();
+            this.sensors.addAll(currentSensors);
+            updated = new HashSet<>(this.sensors);
+        }
         
-        java.awt.EventQueue.invokeLater((Runnable)() -> sensorsList.setModel(model));
+        // a pending reading is dropped as it may include removed sensors
+        this.frames.post(READINGS_SLOT, () -> this.readingsView.setSensors(updated));
     }
     
     /**
      * Updates the sensor list with latest sensor reading.
-     * @param dataReadCallback The latest sensor reading.
+     * @param readData The latest sensor reading.
      */
     void sensorReading(Map<String, String> readData) {
-        DefaultListModel<String> model = new DefaultListModel<>();
-        readData.forEach((String sensor, String data) -> model.addElement(
-                sensor + " - " + data));
-        
-        java.awt.EventQueue.invokeLater((Runnable)() -> sensorsList.setModel(model));
+        this.frames.post(READINGS_SLOT, () -> this.readingsView.setReadings(readData));
+    }
+    
+    /**
+     * Updates the capture status with the progress of saving ended captures.
+     * @param status The status of saving ended captures.
+     */
+    void commitStatus(String status) {
+        this.frames.post(COMMIT_SLOT, () -> {
+            // setting the same text still revalidates the label
+            if (!status.equals(commitStatusLabel.getText())) {
+                commitStatusLabel.setText(status);
+            }
+        });
     }
 
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JButton captureStatusButton;
+    private javax.swing.JLabel commitStatusLabel;
     private javax.swing.JPanel jPanel1;
     private javax.swing.JPanel jPanel2;
     private javax.swing.JPanel jPanel3;
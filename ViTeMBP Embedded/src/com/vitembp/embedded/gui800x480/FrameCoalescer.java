@@ -0,0 +1,100 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.gui800x480;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.Timer;
+
+/**
+ * Coalesces display updates posted from other threads so they are applied on
+ * the event dispatch thread at most once per frame. Only the latest update
+ * posted to each slot is applied, and no timer runs while nothing is posted.
+ */
+final class FrameCoalescer {
+    /**
+     * The latest update posted to each slot, in the order slots were first
+     * posted to.
+     */
+    private final Map<Object, Runnable> pending = new LinkedHashMap<>();
+    
+    /**
+     * The timer which applies the pending updates.
+     */
+    private final Timer timer;
+    
+    /**
+     * The number of frames which have been applied.
+     */
+    private long frames = 0;
+    
+    /**
+     * Initializes a new instance of the FrameCoalescer class.
+     * @param framesPerSecond The largest number of times per second updates
+     * are applied.
+     */
+    FrameCoalescer(int framesPerSecond) {
+        this.timer = new Timer(1000 / framesPerSecond, (e) -> this.applyFrame());
+        this.timer.setRepeats(false);
+        this.timer.setCoalesce(true);
+    }
+    
+    /**
+     * Posts an update to be applied with the next frame, replacing any update
+     * to the same slot which has not been applied yet.
+     * @param slot The slot the update is for.
+     * @param update The update to apply on the event dispatch thread.
+     */
+    void post(Object slot, Runnable update) {
+        synchronized (this.pending) {
+            boolean idle = this.pending.isEmpty();
+            this.pending.put(slot, update);
+            
+            // the frame starts with the first update posted since the last
+            if (idle) {
+                this.timer.start();
+            }
+        }
+    }
+    
+    /**
+     * Gets the number of frames which have been applied.
+     * @return The number of frames which have been applied.
+     */
+    long getFrameCount() {
+        synchronized (this.pending) {
+            return this.frames;
+        }
+    }
+    
+    /**
+     * Applies the pending updates.
+     */
+    private void applyFrame() {
+        List<Runnable> updates;
+        synchronized (this.pending) {
+            updates = new ArrayList<>(this.pending.values());
+            this.pending.clear();
+            this.frames++;
+        }
+        
+        updates.forEach(Runnable::run);
+    }
+}
@@ -54,13 +54,17 @@ public class GUI {
      * sensor change events.
      * @param dataReadCallback Callback which registers listener for processing
      * periodic data read from sensors.
+     * @param commitStatusCallback Callback which registers listener for the
+     * progress of saving ended captures.
      */
     public static void start(
             Consumer<Consumer<Set<String>>> sensorsChangedCallback,
-            Consumer<Consumer<Map<String, String>>> dataReadCallback) {
+            Consumer<Consumer<Map<String, String>>> dataReadCallback,
+            Consumer<Consumer<String>> commitStatusCallback) {
         // register callbacks
         sensorsChangedCallback.accept(CAPTURE_STATUS_WINDOW::updateSensors);
         dataReadCallback.accept(CAPTURE_STATUS_WINDOW::sensorReading);
+        commitStatusCallback.accept(CAPTURE_STATUS_WINDOW::commitStatus);
         
         // show status window
         java.awt.EventQueue.invokeLater(() -> {
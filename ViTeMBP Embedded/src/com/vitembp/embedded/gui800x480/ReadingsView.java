@@ -0,0 +1,259 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.gui800x480;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.swing.JComponent;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+
+/**
+ * Displays one row per sensor with its latest reading. The parts which only
+ * change with the set of sensors are rendered once into a cached image, and a
+ * new reading only repaints the value of each sensor whose value changed.
+ * This component must only be used on the event dispatch thread.
+ */
+class ReadingsView extends JComponent implements Scrollable {
+    /**
+     * The text shown when there are no sensors.
+     */
+    private static final String NO_SENSORS = "No sensors attached.";
+    
+    /**
+     * The separator drawn between sensor names and their values.
+     */
+    private static final String SEPARATOR = " - ";
+    
+    /**
+     * The background of every other row.
+     */
+    private static final Color STRIPE = new Color(0xEE, 0xEE, 0xEE);
+    
+    /**
+     * The margin in pixels at the start of each row.
+     */
+    private static final int MARGIN = 4;
+    
+    /**
+     * The names of the sensors in the order they are shown.
+     */
+    private final List<String> names = new ArrayList<>();
+    
+    /**
+     * The value shown for each sensor.
+     */
+    private final Map<String, String> values = new HashMap<>();
+    
+    /**
+     * The rendered names, separators, and row backgrounds, or null if they
+     * must be rendered again.
+     */
+    private BufferedImage chrome = null;
+    
+    /**
+     * The x position where values are drawn.
+     */
+    private int valueX = 0;
+    
+    /**
+     * Initializes a new instance of the ReadingsView class.
+     * @param font The font to draw rows with.
+     */
+    ReadingsView(Font font) {
+        this.setFont(font);
+        this.setOpaque(true);
+        this.setBackground(Color.WHITE);
+        this.setForeground(Color.BLACK);
+    }
+    
+    /**
+     * Sets the sensors shown, clearing the values of removed sensors.
+     * @param sensors The names of the sensors to show.
+     */
+    void setSensors(Collection<String> sensors) {
+        List<String> sorted = new ArrayList<>(sensors);
+        Collections.sort(sorted);
+        if (sorted.equals(this.names)) {
+            return;
+        }
+        
+        this.names.clear();
+        this.names.addAll(sorted);
+        this.values.keySet().retainAll(sorted);
+        this.chrome = null;
+        this.revalidate();
+        this.repaint();
+    }
+    
+    /**
+     * Shows a sensor reading, repainting only the values which changed.
+     * @param readings The latest value of each sensor.
+     */
+    void setReadings(Map<String, String> readings) {
+        // a reading may arrive before the sensors change notification
+        if (!readings.keySet().containsAll(this.names) || !this.names.containsAll(readings.keySet())) {
+            this.setSensors(readings.keySet());
+        }
+        
+        for (int row = 0; row < this.names.size(); row++) {
+            String name = this.names.get(row);
+            String value = readings.get(name);
+            if (!Objects.equals(value, this.values.get(name))) {
+                this.values.put(name, value);
+                Rectangle bounds = this.getValueBounds(row);
+                this.repaint(bounds.x, bounds.y, bounds.width, bounds.height);
+            }
+        }
+    }
+    
+    /**
+     * Gets the region the value of a row is drawn in.
+     * @param row The row.
+     * @return The region the value of the row is drawn in.
+     */
+    Rectangle getValueBounds(int row) {
+        int rowHeight = this.getRowHeight();
+        return new Rectangle(this.valueX, row * rowHeight, Math.max(0, this.getWidth() - this.valueX), rowHeight);
+    }
+    
+    /**
+     * Gets the height of each row.
+     * @return The height of each row.
+     */
+    private int getRowHeight() {
+        FontMetrics metrics = this.getFontMetrics(this.getFont());
+        return metrics.getHeight() + 2;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        // render the chrome when it is first needed or the size changed
+        if (this.chrome == null || this.chrome.getWidth() != this.getWidth() || this.chrome.getHeight() != this.getHeight()) {
+            this.chrome = this.renderChrome();
+        }
+        
+        // only the clipped part of the chrome is copied
+        g.drawImage(this.chrome, 0, 0, null);
+        
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, this.getWidth(), this.getHeight());
+        }
+        
+        // draw the values of the rows being painted
+        int rowHeight = this.getRowHeight();
+        FontMetrics metrics = this.getFontMetrics(this.getFont());
+        int first = Math.max(0, clip.y / rowHeight);
+        int last = Math.min(this.names.size() - 1, (clip.y + clip.height) / rowHeight);
+        g.setFont(this.getFont());
+        g.setColor(this.getForeground());
+        for (int row = first; row <= last; row++) {
+            String value = this.values.get(this.names.get(row));
+            if (value != null) {
+                g.drawString(value, this.valueX, row * rowHeight + 1 + metrics.getAscent());
+            }
+        }
+    }
+    
+    /**
+     * Renders the row backgrounds, sensor names, and separators.
+     * @return The rendered image.
+     */
+    private BufferedImage renderChrome() {
+        BufferedImage image = new BufferedImage(Math.max(1, this.getWidth()), Math.max(1, this.getHeight()), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(this.getBackground());
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.setFont(this.getFont());
+            FontMetrics metrics = g.getFontMetrics();
+            int rowHeight = this.getRowHeight();
+            
+            if (this.names.isEmpty()) {
+                g.setColor(this.getForeground());
+                g.drawString(NO_SENSORS, MARGIN, 1 + metrics.getAscent());
+                this.valueX = image.getWidth();
+                return image;
+            }
+            
+            // values line up after the longest name
+            int labelWidth = 0;
+            for (String name : this.names) {
+                labelWidth = Math.max(labelWidth, metrics.stringWidth(name + SEPARATOR));
+            }
+            this.valueX = MARGIN + labelWidth;
+            
+            for (int row = 0; row < this.names.size(); row++) {
+                int y = row * rowHeight;
+                if (row % 2 == 1) {
+                    g.setColor(STRIPE);
+                    g.fillRect(0, y, image.getWidth(), rowHeight);
+                }
+                g.setColor(this.getForeground());
+                g.drawString(this.names.get(row) + SEPARATOR, MARGIN, y + 1 + metrics.getAscent());
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(0, Math.max(1, this.names.size()) * this.getRowHeight());
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return this.getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? this.getRowHeight() : 1;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
@@ -64,8 +64,15 @@ public class HardwareInterface {
         
         // updates the sensor collection when configuration updates occur
         SystemConfig config = SystemConfig.getConfig();
-        config.addConfigChangedListener(this::updateSensorBindings);
-        config.addConfigChangedListener(this::updateInterfaceMetrics);
+        config.addConfigChangedListener(
+                this::updateSensorBindings,
+                SystemConfig.Setting.SENSOR_NAMES,
+                SystemConfig.Setting.SENSOR_BINDINGS);
+        config.addConfigChangedListener(
+                this::updateInterfaceMetrics,
+                SystemConfig.Setting.WIRED_ETHERNET_METRIC,
+                SystemConfig.Setting.WIRELESS_ETHERNET_METRIC,
+                SystemConfig.Setting.BLUETOOTH_METRIC);
     }
     
     /**
@@ -91,6 +98,17 @@ public class HardwareInterface {
      * @throws java.io.IOException If an error occurs accessing sync light IO.
      */
     public void flashSyncLight(List<Integer> durations) throws IOException {
+        this.flashSyncLight(durations, System.nanoTime());
+    }
+    
+    /**
+     * Flashes the sync light with the list of integers indicating the durations
+     * starting at a set time.
+     * @param durations The delays between turning the sync light on and off.
+     * @param startTime The System.nanoTime() to first turn the light on at.
+     * @throws java.io.IOException If an error occurs accessing sync light IO.
+     */
+    public void flashSyncLight(List<Integer> durations, long startTime) throws IOException {
         ConsumerIOException<Boolean> light = this.platform.getSetSyncLightTarget();
         Runnable lightTask = () -> {
             try {
@@ -98,6 +116,9 @@ public class HardwareInterface {
                 boolean lightState = false;
                 light.accept(false);
                 
+                // wait for the start time
+                sleepUntil(startTime);
+                
                 // flip light state and wait for duration
                 for (int wait : durations) {
                     lightState = !lightState;
@@ -123,9 +144,20 @@ public class HardwareInterface {
      * @throws java.io.IOException If an error occurs accessing buzzer IO.
      */
     public void soundBuzzer(int duration) throws IOException {
+        this.soundBuzzer(duration, System.nanoTime());
+    }
+    
+    /**
+     * Sounds the buzzer for the specified duration starting at a set time.
+     * @param duration The duration in milliseconds to sound the buzzer.
+     * @param startTime The System.nanoTime() to start the buzzer at.
+     * @throws IOException If an error occurs accessing buzzer IO.
+     */
+    public void soundBuzzer(int duration, long startTime) throws IOException {
         ConsumerIOException<Boolean> buzzer = this.platform.getBuzzerTarget();
         Runnable buzzTask = () -> {
             try {
+                sleepUntil(startTime);
                 buzzer.accept(true);
                 Thread.sleep(duration);
                 buzzer.accept(false);
@@ -138,6 +170,18 @@ public class HardwareInterface {
         new Thread(buzzTask, "Buzzer").start();
     }
     
+    /**
+     * Sleeps until System.nanoTime() reaches the provided time.
+     * @param time The time to sleep until.
+     * @throws InterruptedException If the thread is interrupted while sleeping.
+     */
+    private static void sleepUntil(long time) throws InterruptedException {
+        long toWait = time - System.nanoTime();
+        if (toWait > 0) {
+            Thread.sleep(toWait / 1000000, (int)(toWait % 1000000));
+        }
+    }
+    
     /**
      * Shuts down and halts the system.
      * @throws IOException if the shutdown process cannot be started.
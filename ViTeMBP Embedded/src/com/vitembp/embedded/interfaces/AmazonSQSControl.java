@@ -19,28 +19,53 @@ package com.vitembp.embedded.interfaces;
 
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
-import com.amazonaws.services.dynamodbv2.model.AttributeAction;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
-import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
-import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
-import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteRequest;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
 import com.amazonaws.services.sqs.model.CreateQueueRequest;
-import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.vitembp.embedded.data.NetworkScheduler;
 import java.io.IOException;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * Allows control via an Amazon SQS queue.
+ * Allows control via an Amazon SQS queue. Messages are received in batches
+ * with a long poll, the commands stored in the database by FROMUUID messages
+ * are read and deleted in batches, and commands complete asynchronously with
+ * their results written back to the database in batches.
  */
 public class AmazonSQSControl {
     /**
@@ -49,19 +74,51 @@ public class AmazonSQSControl {
     private static final Logger LOGGER = LogManager.getLogger();
     
     /**
-     * The singleton instance of this class.
+     * The largest number of messages SQS returns in one receive.
      */
-    private static AmazonSQSControl singleton;
+    static final int RECEIVE_BATCH_SIZE = 10;
+    
+    /**
+     * The largest number of items DynamoDB reads in one batch.
+     */
+    static final int READ_BATCH_SIZE = 100;
+    
+    /**
+     * The largest number of items DynamoDB writes in one batch.
+     */
+    static final int WRITE_BATCH_SIZE = 25;
+    
+    /**
+     * The time in seconds a receive waits for messages to arrive.
+     */
+    private static final int WAIT_TIME_SECONDS = 20;
+    
+    /**
+     * The longest time in milliseconds a command result waits to be written
+     * with other results.
+     */
+    private static final int REPLY_DELAY_MS = 200;
+    
+    /**
+     * The number of times a batch is sent while DynamoDB leaves some of it
+     * unprocessed.
+     */
+    private static final int BATCH_ATTEMPTS = 5;
+    
+    /**
+     * The estimated bytes of protocol overhead of one request.
+     */
+    private static final int REQUEST_BYTES = 512;
     
     /**
      * Flag indicating whether the instance is running.
      */
-    private boolean isRunning = false;
+    private volatile boolean isRunning = false;
     
     /**
      * Client instance to use to connect to SQS.
      */
-    AmazonSQS sqsClient;
+    private final AmazonSQS sqsClient;
     
     /**
      * The name of the queue to monitor.
@@ -84,36 +141,90 @@ public class AmazonSQSControl {
     private final AmazonDynamoDB client;
     
     /**
-     * The function which parses messages.
+     * The function which parses messages and passes their results to a
+     * callback when they complete.
+     */
+    private final BiConsumer<String, Consumer<String>> messageParser;
+    
+    /**
+     * The number of commands which have not completed.
+     */
+    private final AtomicInteger outstanding = new AtomicInteger();
+    
+    /**
+     * The command results waiting to be written to the database.
      */
-    private final Function<String, String> messageParser;
+    private final ConcurrentLinkedQueue<WriteRequest> pendingReplies = new ConcurrentLinkedQueue<>();
     
     /**
-     * The number of threads to dispatch messages to.
+     * Runs the periodic writes of command results.
      */
-    private final int threadCount;
+    private volatile ScheduledExecutorService replyWriter;
+    
+    /**
+     * The scheduler control traffic is accounted to so uploads yield to it
+     * during captures.
+     */
+    private final NetworkScheduler scheduler = NetworkScheduler.getInstance();
     
     /**
      * Initializes a new instance of the AmazonSQSControl class.
      * @param queueName The name of the queue to connect to.
      * @param msgParser The parser that handles messages.
-     * @param threads The number of message handling threads.
+     * @param threads The number of threads which run the parser, if zero the
+     * parser runs on the thread processing the message.
      */
     public AmazonSQSControl(String queueName, Function<String, String> msgParser, int threads) {
-        // save thread count
-        this.threadCount = threads;
-        
-        // create client to use to communicate with sqs
-        this.sqsClient = AmazonSQSClientBuilder.defaultClient();
-        
-        // save the function which parses messages
-        this.messageParser = msgParser;
-        
-        // save the name of the queue for this device
+        this(queueName, runOn(msgParser, threads));
+    }
+    
+    /**
+     * Initializes a new instance of the AmazonSQSControl class.
+     * @param queueName The name of the queue to connect to.
+     * @param msgParser The parser that handles messages, which passes the
+     * result of each message to the callback when it completes.
+     */
+    public AmazonSQSControl(String queueName, BiConsumer<String, Consumer<String>> msgParser) {
+        this(queueName,
+                msgParser,
+                AmazonSQSClientBuilder.defaultClient(),
+                AmazonDynamoDBClient.builder().build());
+    }
+    
+    /**
+     * Initializes a new instance of the AmazonSQSControl class.
+     * @param queueName The name of the queue to connect to.
+     * @param msgParser The parser that handles messages, which passes the
+     * result of each message to the callback when it completes.
+     * @param sqsClient The client used to access the queue.
+     * @param client The client for the store where commands are located.
+     */
+    AmazonSQSControl(String queueName, BiConsumer<String, Consumer<String>> msgParser, AmazonSQS sqsClient, AmazonDynamoDB client) {
         this.queueName = queueName;
+        this.messageParser = msgParser;
+        this.sqsClient = sqsClient;
+        this.client = client;
+    }
+    
+    /**
+     * Adapts a parser which returns its result to one which passes its
+     * result to a callback.
+     * @param parser The parser to adapt.
+     * @param threads The number of threads which run the parser.
+     * @return The adapted parser.
+     */
+    private static BiConsumer<String, Consumer<String>> runOn(Function<String, String> parser, int threads) {
+        if (threads < 1) {
+            return (cmd, callback) -> callback.accept(parser.apply(cmd));
+        }
         
-        // build DynamoDB client with default credentials
-        this.client = AmazonDynamoDBClient.builder().build();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, (r) -> {
+            Thread thread = new Thread(r);
+            thread.setName("AWSSQS-Control Parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        return (cmd, callback) -> executor.execute(() -> callback.accept(parser.apply(cmd)));
     }
 
     /**
@@ -123,7 +234,7 @@ public class AmazonSQSControl {
         // if the queue was not yet created
         if (this.queueUrl == null) {
             // create the queue
-            this.sqsClient.createQueue(new CreateQueueRequest().withQueueName(this.queueName).addAttributesEntry("ReceiveMessageWaitTimeSeconds", "20"));
+            this.sqsClient.createQueue(new CreateQueueRequest().withQueueName(this.queueName).addAttributesEntry("ReceiveMessageWaitTimeSeconds", Integer.toString(WAIT_TIME_SECONDS)));
             // save the url for use when acknowledging messages
             this.queueUrl = this.sqsClient.getQueueUrl(this.queueName).getQueueUrl();
         }
@@ -135,6 +246,14 @@ public class AmazonSQSControl {
     public synchronized void start() {
         // if not already started build and start the sync thread
         if (this.isRunning != true) {
+            this.replyWriter = Executors.newSingleThreadScheduledExecutor((r) -> {
+                Thread thread = new Thread(r);
+                thread.setName("AWSSQS-Control Replies");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.replyWriter.scheduleWithFixedDelay(() -> this.flushReplies(true), REPLY_DELAY_MS, REPLY_DELAY_MS, TimeUnit.MILLISECONDS);
+            
             this.messageProcessThread = new Thread(this::processMessages);
             this.messageProcessThread.setName("AWSSQS-Control");
             this.isRunning = true;
@@ -155,6 +274,8 @@ public class AmazonSQSControl {
             } catch (InterruptedException ex) {
                 LOGGER.error("Interrupted wiating for message processing thread to complete.", ex);
             }
+            this.replyWriter.shutdown();
+            this.flushReplies(true);
         }
     }
     
@@ -162,220 +283,404 @@ public class AmazonSQSControl {
      * Processes messages from the device's SQS queue.
      */
     private void processMessages() {
-        ExecutorService executor = Executors.newFixedThreadPool(this.threadCount);
-        
-        // create processor threads
-        for (int i = 0; i < this.threadCount; i++) {
-            executor.submit(() -> {
-                // parameters of an increasing backoff in case of errors to
-                // prevent excessive retry rate
-                int startErrorBackoff = 200;
-                int errorBackoff = startErrorBackoff;
-                float errorFactor = 2;
-                int errorMax = 5000;
-
-                while (isRunning) {
-                    try {
-                        // create the queue in this try-block so if the service starts
-                        // when a connection is not available it will cleanly retry
-                        this.createQueue();
+        // parameters of an increasing backoff in case of errors to
+        // prevent excessive retry rate
+        int startErrorBackoff = 200;
+        int errorBackoff = startErrorBackoff;
+        float errorFactor = 2;
+        int errorMax = 5000;
 
-                        // check for new commands
-                        ReceiveMessageResult result = sqsClient.receiveMessage(queueUrl);
-
-                        // process commands
-                        result.getMessages().forEach((msg) -> {
-                            // get message text
-                            String toProcess = msg.getBody();
+        while (this.isRunning) {
+            try {
+                // create the queue in this try-block so if the service starts
+                // when a connection is not available it will cleanly retry
+                this.createQueue();
 
-                            // remove message from queue
-                            this.sqsClient.deleteMessage(this.queueUrl, msg.getReceiptHandle());
+                // wait for a batch of new commands
+                List<Message> messages = this.sqsClient.receiveMessage(new ReceiveMessageRequest(this.queueUrl)
+                        .withMaxNumberOfMessages(RECEIVE_BATCH_SIZE)
+                        .withWaitTimeSeconds(WAIT_TIME_SECONDS)).getMessages();
+                
+                // commands such as ending a capture are never delayed, only
+                // accounted for
+                long received = REQUEST_BYTES;
+                for (Message msg : messages) {
+                    received += msg.getBody().length();
+                }
+                this.scheduler.charge(received);
 
-                            // process the message
-                            this.parseMessage(toProcess);
-                        });
+                if (!messages.isEmpty()) {
+                    // remove messages from queue before processing so commands
+                    // such as reboot are not delivered again
+                    this.deleteMessages(messages);
+                    
+                    List<String> bodies = new ArrayList<>(messages.size());
+                    messages.forEach((msg) -> bodies.add(msg.getBody()));
+                    this.processCommands(bodies);
+                }
 
-                        // reset error backoff on success
-                        errorBackoff = startErrorBackoff;
-                    } catch (Exception e) {
-                        LOGGER.error("Unexpected Exception processing SQS queue.", e);
+                // reset error backoff on success
+                errorBackoff = startErrorBackoff;
+            } catch (Exception e) {
+                LOGGER.error("Unexpected Exception processing SQS queue.", e);
 
-                        // wait for the backoff period to prevent retry flooding
-                        try {
-                            LOGGER.error("Backing off for " + Integer.toString(errorBackoff) + "ms.");
-                            Thread.sleep(errorBackoff);
-                        } catch (InterruptedException ex) {
-                            LOGGER.error("Interrupted while waiting for backoff on SQS queue failure.", ex);
-                        }
+                // wait for the backoff period to prevent retry flooding
+                try {
+                    LOGGER.error("Backing off for " + Integer.toString(errorBackoff) + "ms.");
+                    Thread.sleep(errorBackoff);
+                } catch (InterruptedException ex) {
+                    LOGGER.error("Interrupted while waiting for backoff on SQS queue failure.", ex);
+                }
 
-                        // increase backoff factor until it is at the max value
-                        errorBackoff *= errorFactor;
-                        if (errorBackoff > errorMax) {
-                            errorBackoff = errorMax;
-                        }
-                    }
+                // increase backoff factor until it is at the max value
+                errorBackoff *= errorFactor;
+                if (errorBackoff > errorMax) {
+                    errorBackoff = errorMax;
                 }
-            });
+            }
         }
     }
     
     /**
-     * Parses a message from the queue.
+     * Deletes received messages from the queue in one batch.
+     * @param messages The messages to delete.
+     */
+    private void deleteMessages(List<Message> messages) {
+        List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>(messages.size());
+        for (Message msg : messages) {
+            entries.add(new DeleteMessageBatchRequestEntry(Integer.toString(entries.size()), msg.getReceiptHandle()));
+        }
+        
+        DeleteMessageBatchResult result = this.sqsClient.deleteMessageBatch(new DeleteMessageBatchRequest(this.queueUrl, entries));
+        this.scheduler.charge(REQUEST_BYTES);
+        for (BatchResultErrorEntry error : result.getFailed()) {
+            LOGGER.error("Could not delete message: " + error.getMessage());
+        }
+    }
+    
+    /**
+     * Parses a message from the queue. Results which are available when the
+     * parser returns are written before this method returns.
      * @param toProcess The message to process.
      */
-    private void parseMessage(String toProcess) {
-        LOGGER.info("Processing device queue message: " + toProcess);
+    void parseMessage(String toProcess) {
+        this.processCommands(Collections.singletonList(toProcess));
+        this.flushReplies(true);
+    }
+    
+    /**
+     * Processes a batch of messages, reading the commands of all FROMUUID
+     * messages from the database at once.
+     * @param messages The messages to process.
+     */
+    private void processCommands(List<String> messages) {
+        // the locations of commands stored in the database
+        Set<UUID> locations = new LinkedHashSet<>();
         
-        // process message
-        String upperCase = toProcess.toUpperCase();
-        if (upperCase.startsWith("FROMUUID")) {
-            String[] split = toProcess.split(" ");
+        for (String toProcess : messages) {
+            LOGGER.info("Processing device queue message: " + toProcess);
             
-            // from must be "FROMUUID [UUID LOCATION]"
-            if (split.length != 2) {
-                LOGGER.error("Invalid format processing FROMUUID command.");
-            } else {
-                UUID location = null;
-                try {
-                    location = UUID.fromString(split[1]);
-                } catch (IllegalArgumentException e) {
-                    LOGGER.error("UUID location is not valid.", e);
-                    return;
-                }
-                
-                String uuidCommand = null;
-                try {
-                    uuidCommand = this.readData(location);
-                } catch (IOException ex) {
-                    LOGGER.error("Could not read command from database store while processing FROMUUID command.", ex);
-                    return;
-                }
+            String upperCase = toProcess.toUpperCase();
+            if (upperCase.startsWith("FROMUUID")) {
+                String[] split = toProcess.split(" ");
                 
-                try {
-                    this.deleteData(location);
-                } catch (IOException ex) {
-                    LOGGER.error("Could not delete command from database store while processing FROMUUID command.", ex);
-                    return;
-                }
-                
-                LOGGER.info("Processing command from database: " + uuidCommand);
-                
-                if (uuidCommand.length() < 37) {
-                    LOGGER.error("Command not of form: \"[UUID] [COMMAND]\".");
-                    return;
-                }
-                
-                UUID responseLocation = null;
-                try {
-                    responseLocation = UUID.fromString(uuidCommand.substring(0, 36));
-                } catch (IllegalArgumentException ex) {
-                    LOGGER.error("UUID location is not valid.", ex);
-                    return;
+                // from must be "FROMUUID [UUID LOCATION]"
+                if (split.length != 2) {
+                    LOGGER.error("Invalid format processing FROMUUID command.");
+                } else {
+                    try {
+                        locations.add(UUID.fromString(split[1]));
+                    } catch (IllegalArgumentException e) {
+                        LOGGER.error("UUID location is not valid.", e);
+                    }
                 }
-                
-                String result = this.messageParser.apply(uuidCommand.substring(37));
+            } else {
+                // use the uuid processing to prevent duplication
+                this.dispatch(toProcess, (result) -> LOGGER.info("Command result: " + result));
+            }
+        }
+        
+        if (locations.isEmpty()) {
+            return;
+        }
+        
+        Map<UUID, String> uuidCommands;
+        try {
+            uuidCommands = this.readData(locations);
+        } catch (IOException ex) {
+            LOGGER.error("Could not read command from database store while processing FROMUUID command.", ex);
+            return;
+        }
+        
+        try {
+            this.deleteData(uuidCommands.keySet());
+        } catch (IOException ex) {
+            LOGGER.error("Could not delete command from database store while processing FROMUUID command.", ex);
+            return;
+        }
+        
+        for (UUID location : locations) {
+            String uuidCommand = uuidCommands.get(location);
+            if (uuidCommand == null) {
+                LOGGER.error("Could not get value from databse for location: " + location.toString());
+                continue;
+            }
+            
+            LOGGER.info("Processing command from database: " + uuidCommand);
+
+            if (uuidCommand.length() < 37) {
+                LOGGER.error("Command not of form: \"[UUID] [COMMAND]\".");
+                continue;
+            }
+
+            UUID responseLocation;
+            try {
+                responseLocation = UUID.fromString(uuidCommand.substring(0, 36));
+            } catch (IllegalArgumentException ex) {
+                LOGGER.error("UUID location is not valid.", ex);
+                continue;
+            }
+            
+            this.dispatch(uuidCommand.substring(37), (result) -> {
                 LOGGER.info("Command result: " + result);
+                this.queueReply(responseLocation, result);
+            });
+        }
+    }
+    
+    /**
+     * Passes a command to the parser, tracking it until its result is
+     * available.
+     * @param command The command to parse.
+     * @param onResult The function which receives the result.
+     */
+    private void dispatch(String command, Consumer<String> onResult) {
+        this.outstanding.incrementAndGet();
+        try {
+            this.messageParser.accept(command, (result) -> {
                 try {
-                    this.writeData(responseLocation, result);
-                } catch (IOException ex) {
-                    LOGGER.error("Could not write result of proccsing FROMUUID command.", ex);
+                    onResult.accept(result);
+                } finally {
+                    this.completed();
                 }
+            });
+        } catch (RuntimeException ex) {
+            LOGGER.error("Unexpected exception processing command: " + command, ex);
+            this.completed();
+        }
+    }
+    
+    /**
+     * Records that a command completed, writing results once no other
+     * commands are running.
+     */
+    private void completed() {
+        // full batches are written right away and a partial batch is written
+        // once nothing else is running
+        boolean idle = this.outstanding.decrementAndGet() == 0;
+        
+        // results are written on the reply thread so callers such as the
+        // controller are never blocked on the database, when not started
+        // parseMessage writes them instead
+        ScheduledExecutorService writer = this.replyWriter;
+        if (writer != null && (idle || this.pendingReplies.size() >= WRITE_BATCH_SIZE)) {
+            try {
+                writer.execute(() -> this.flushReplies(idle));
+            } catch (RejectedExecutionException ex) {
+                // stopping, remaining results are written by stop
             }
-        } else {
-            // use the uuid processing to prevent duplication
-            String result = this.messageParser.apply(toProcess);
-            LOGGER.info("Command result: " + result);
         }
     }
     
     /**
-     * Deletes a value from the DATA table.
-     * @param location The location to delete in the table.
+     * Queues the result of a command to be written to the DATA table.
+     * @param location The location to write the result to.
+     * @param result The result of the command.
+     */
+    private void queueReply(UUID location, String result) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("ID", new AttributeValue().withS(location.toString()));
+        item.put("VALUE", new AttributeValue().withS(result));
+        this.pendingReplies.add(new WriteRequest().withPutRequest(new PutRequest().withItem(item)));
+    }
+    
+    /**
+     * Writes queued command results to the DATA table in batches.
+     * @param partial Whether a batch smaller than the batch size should be
+     * written.
+     */
+    private synchronized void flushReplies(boolean partial) {
+        while (this.pendingReplies.size() >= WRITE_BATCH_SIZE || (partial && !this.pendingReplies.isEmpty())) {
+            List<WriteRequest> batch = new ArrayList<>();
+            WriteRequest reply;
+            while (batch.size() < WRITE_BATCH_SIZE && (reply = this.pendingReplies.poll()) != null) {
+                batch.add(reply);
+            }
+            
+            try {
+                this.writeItems(batch);
+            } catch (IOException ex) {
+                LOGGER.error("Could not write result of proccsing FROMUUID command.", ex);
+            }
+        }
+    }
+    
+    /**
+     * Deletes values from the DATA table.
+     * @param locations The locations to delete in the table.
      * @throws IOException If an error occurs deleting the data.
      */
-    private void deleteData(UUID location) throws IOException {
-        try {
-            // build the request to put toWrite in VALUE at the ID location
-            Map<String, AttributeValue> keyAttribs = new HashMap<>();
-            keyAttribs.put("ID", new AttributeValue().withS(location.toString()));
-
-            // write the request to the DATA table
-            client.deleteItem("DATA", keyAttribs);
-        } catch (Exception ex) {
-            throw new IOException(
-                    "Unexpected exception deleting data from location: " + 
-                            location.toString(),
-                    ex);
+    private void deleteData(Collection<UUID> locations) throws IOException {
+        List<WriteRequest> batch = new ArrayList<>();
+        for (UUID location : locations) {
+            batch.add(new WriteRequest().withDeleteRequest(new DeleteRequest().withKey(key(location))));
+            if (batch.size() == WRITE_BATCH_SIZE) {
+                this.writeItems(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        
+        if (!batch.isEmpty()) {
+            this.writeItems(batch);
         }
     }
     
     /**
-     * Deletes a value from the DATA table.
-     * @param location The location to delete in the table.
-     * @param toWrite The data to write to the table row.
+     * Sends a batch of writes to the DATA table, resending any writes which
+     * were not processed.
+     * @param batch The writes to send.
      * @throws IOException If an error occurs writing the data.
      */
-    private void writeData(UUID location, String toWrite) throws IOException {
+    private void writeItems(List<WriteRequest> batch) throws IOException {
+        Map<String, List<WriteRequest>> toWrite = Collections.singletonMap("DATA", batch);
         try {
-            // build the request to put toWrite in VALUE at the ID location
-            Map<String, AttributeValue> keyAttribs = new HashMap<>();
-            keyAttribs.put("ID", new AttributeValue().withS(location.toString()));
-            Map<String, AttributeValueUpdate> updateAttribs = new HashMap<>();
-            updateAttribs.put("VALUE", new AttributeValueUpdate()
-                    .withValue(new AttributeValue().withS(toWrite))
-                    .withAction(AttributeAction.PUT));
-
-            // write the request to the DATA table
-            client.updateItem("DATA", keyAttribs, updateAttribs);
+            for (int attempt = 1; toWrite != null && !toWrite.isEmpty(); attempt++) {
+                if (attempt > BATCH_ATTEMPTS) {
+                    throw new IOException("Database did not process all writes.");
+                }
+                if (attempt > 1) {
+                    Thread.sleep(50L << attempt);
+                }
+                
+                BatchWriteItemResult result = this.client.batchWriteItem(new BatchWriteItemRequest(toWrite));
+                this.scheduler.charge(REQUEST_BYTES + getSize(toWrite.get("DATA")));
+                toWrite = result.getUnprocessedItems();
+            }
+        } catch (IOException ex) {
+            throw ex;
         } catch (Exception ex) {
-            throw new IOException(
-                    "Unexpected exception writing \"" + 
-                            toWrite  +
-                            "\" to location: " +
-                            location.toString(),
-                    ex);
+            throw new IOException("Unexpected exception writing batch to DATA table.", ex);
+        }
+    }
+    
+    /**
+     * Reads values from the DATA table.
+     * @param locations The locations to read VALUE from in the table.
+     * @return The data from the table for each location which has a value.
+     * @throws IOException If an error occurs reading the data.
+     */
+    private Map<UUID, String> readData(Collection<UUID> locations) throws IOException {
+        Map<UUID, String> values = new HashMap<>();
+        List<Map<String, AttributeValue>> keys = new ArrayList<>();
+        for (UUID location : locations) {
+            keys.add(key(location));
+            if (keys.size() == READ_BATCH_SIZE) {
+                this.readItems(keys, values);
+                keys = new ArrayList<>();
+            }
+        }
+        
+        if (!keys.isEmpty()) {
+            this.readItems(keys, values);
         }
+        
+        return values;
     }
     
     /**
-     * Reads a value from the DATA table.
-     * @param location The location to read VALUE from in the table.
-     * @return The data from the table.
+     * Reads a batch of values from the DATA table, reading again any keys
+     * which were not processed.
+     * @param keys The keys to read.
+     * @param values The map to add the values which were read to.
      * @throws IOException If an error occurs reading the data.
      */
-    private String readData(UUID location) throws IOException{
+    private void readItems(List<Map<String, AttributeValue>> keys, Map<UUID, String> values) throws IOException {
+        Map<String, KeysAndAttributes> toRead = Collections.singletonMap(
+                "DATA",
+                new KeysAndAttributes().withKeys(keys).withAttributesToGet("ID", "VALUE"));
         try {
-            Map<String, AttributeValue> reqkey = new HashMap<>();
-            reqkey.put("ID", new AttributeValue().withS(location.toString()));
-
-            GetItemRequest request = new GetItemRequest()
-                    .withTableName("DATA")
-                    .withKey(reqkey)
-                    .withAttributesToGet(Arrays.asList(new String[] { "VALUE" }));
-
-            // try to get the data
-            GetItemResult result = client.getItem(request);
-            if (result != null && result.getItem() != null) {
-                // parse data from response if the table has the attributes
-                Map<String, AttributeValue> attributes = result.getItem();
-
-                // can not continue if the VALUE is attribute is not present
-                if (!attributes.containsKey("VALUE")) {
-                    LOGGER.error("Value attribute is not in database.");
-                    return null;
+            for (int attempt = 1; toRead != null && !toRead.isEmpty(); attempt++) {
+                if (attempt > BATCH_ATTEMPTS) {
+                    throw new IOException("Database did not process all reads.");
                 }
-
-                // data are present, get their values
-                return result.getItem().get("VALUE").getS();
-            } else {
-                // query failed so do not continue
-                LOGGER.error("Could not get value from databse.");
-                return null;
+                if (attempt > 1) {
+                    Thread.sleep(50L << attempt);
+                }
+                
+                BatchGetItemResult result = this.client.batchGetItem(new BatchGetItemRequest(toRead));
+                List<Map<String, AttributeValue>> items = result.getResponses().get("DATA");
+                long read = REQUEST_BYTES;
+                if (items != null) {
+                    for (Map<String, AttributeValue> item : items) {
+                        read += getSize(item);
+                        // can not use the item if the VALUE is attribute is not present
+                        if (item.containsKey("VALUE")) {
+                            values.put(UUID.fromString(item.get("ID").getS()), item.get("VALUE").getS());
+                        } else {
+                            LOGGER.error("Value attribute is not in database.");
+                        }
+                    }
+                }
+                this.scheduler.charge(read);
+                toRead = result.getUnprocessedKeys();
             }
+        } catch (IOException ex) {
+            throw ex;
         } catch (Exception ex) {
-            throw new IOException(
-                    "Unexpected exception reading from location: " + location.toString(),
-                    ex);
+            throw new IOException("Unexpected exception reading batch from DATA table.", ex);
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Estimates the bytes of the items written by a batch.
+     * @param batch The writes in the batch.
+     * @return The estimated bytes of the items written by the batch.
+     */
+    private static long getSize(List<WriteRequest> batch) {
+        long size = 0;
+        if (batch != null) {
+            for (WriteRequest write : batch) {
+                if (write.getPutRequest() != null) {
+                    size += getSize(write.getPutRequest().getItem());
+                }
+            }
+        }
+        return size;
+    }
+    
+    /**
+     * Estimates the bytes of the string attributes of an item.
+     * @param item The item.
+     * @return The estimated bytes of the item.
+     */
+    private static long getSize(Map<String, AttributeValue> item) {
+        long size = 0;
+        for (AttributeValue value : item.values()) {
+            if (value.getS() != null) {
+                size += value.getS().length();
+            }
+        }
+        return size;
+    }
+    
+    /**
+     * Builds the key of an item in the DATA table.
+     * @param location The location of the item.
+     * @return The key of the item.
+     */
+    private static Map<String, AttributeValue> key(UUID location) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("ID", new AttributeValue().withS(location.toString()));
+        return key;
+    }
+}
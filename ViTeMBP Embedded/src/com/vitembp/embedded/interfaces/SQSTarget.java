@@ -28,7 +28,7 @@ import com.vitembp.embedded.hardware.HardwareInterface;
 import com.vitembp.embedded.hardware.Sensor;
 import java.io.IOException;
 import java.util.Map;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -42,11 +42,14 @@ public class SQSTarget {
     private static final Logger LOGGER = LogManager.getLogger();
     
     /**
-     * Parses a message sent through the FROMUUID command.
+     * Parses a message sent through the FROMUUID command. Commands handled by
+     * the controller complete when the controller processes them, so the
+     * calling thread is not blocked waiting for them.
      * @param toProcess The message to process.
-     * @return The result of processing the message.
+     * @param resultCallback The callback which receives the result of
+     * processing the message.
      */
-    public static String parseUuidMessage(String toProcess) {
+    public static void parseUuidMessage(String toProcess, Consumer<String> resultCallback) {
         LOGGER.info("Processing uuid message: " + toProcess);
         String failureReason = null;
         
@@ -58,7 +61,8 @@ public class SQSTarget {
         } else if ("REBOOT".equals(upperCase)) {
             try {
                 HardwareInterface.getInterface().restartSystem();
-                return "Success.";
+                resultCallback.accept("Success.");
+                return;
             } catch (IOException ex) {
                 failureReason = "Error processing reboot command.";
                 LOGGER.error(failureReason, ex);
@@ -66,7 +70,8 @@ public class SQSTarget {
         } else if ("SHUTDOWN".equals(upperCase)) {
             try {
                 HardwareInterface.getInterface().shutDownSystem();
-                return "Success.";
+                resultCallback.accept("Success.");
+                return;
             } catch (IOException ex) {
                 failureReason = "Error processing reboot command.";
                 LOGGER.error(failureReason, ex);
@@ -74,27 +79,16 @@ public class SQSTarget {
         } else if ("UPDATECONFIG".equals(upperCase)) {
             // trigger the cloud configuration service to check for updates
             CloudConfigSync.checkForUpdates();
-            return "Success.";
+            resultCallback.accept("Success.");
+            return;
         } else if ("STARTCAPTURE".equals(upperCase)) {
             // send start command
-            LinkedBlockingQueue<String> result = new LinkedBlockingQueue<>();
-            StateMachine.getSingleton().enqueueSignal(new SignalStartCapture(result::add));
-            try {
-                return result.take();
-            } catch (InterruptedException ex) {
-                failureReason = "Interrupted waiting for result of start capture command.";
-                LOGGER.error(failureReason, ex);
-            }
+            StateMachine.getSingleton().enqueueSignal(new SignalStartCapture(resultCallback));
+            return;
         } else if ("ENDCAPTURE".equals(upperCase)) {
             // send the signal to end capture
-            LinkedBlockingQueue<String> result = new LinkedBlockingQueue<>();
-            StateMachine.getSingleton().enqueueSignal(new SignalEndCapture(result::add));
-            try {
-                return result.take();
-            } catch (InterruptedException ex) {
-                failureReason = "Interrupted waiting for result of end capture command.";
-                LOGGER.error(failureReason, ex);
-            }
+            StateMachine.getSingleton().enqueueSignal(new SignalEndCapture(resultCallback));
+            return;
         } else if ("LISTSENSORS".equals(upperCase)) {
             StringBuilder toReturn = new StringBuilder();
             
@@ -113,7 +107,8 @@ public class SQSTarget {
             
             // replace last comma with a close array
             toReturn.setCharAt(toReturn.length() - 1, ']');
-            return toReturn.toString();
+            resultCallback.accept(toReturn.toString());
+            return;
         } else if (upperCase.startsWith("CALSENSOR")) {
             // command must be of the form: "calsensor [sensor name]"
             if (toProcess.length() < 10) {
@@ -121,42 +116,24 @@ public class SQSTarget {
             } else {
                 String sensorName = toProcess.substring(10);
                 // send start calibration command
-                LinkedBlockingQueue<String> result = new LinkedBlockingQueue<>();
-                StateMachine.getSingleton().enqueueSignal(new SignalCalibrateSensor(sensorName, result::add));
-                try {
-                    return result.take();
-                } catch (InterruptedException ex) {
-                    failureReason = "Interrupted waiting for result of start calibration command.";
-                    LOGGER.error(failureReason, ex);
-                }
+                StateMachine.getSingleton().enqueueSignal(new SignalCalibrateSensor(sensorName, resultCallback));
+                return;
             }
         } else if ("CALSTATUS".equals(upperCase)) {
             // send cas status command
-            LinkedBlockingQueue<String> result = new LinkedBlockingQueue<>();
-            StateMachine.getSingleton().enqueueSignal(new SignalGetCalibrationStatus(result::add));
-            try {
-                return result.take();
-            } catch (InterruptedException ex) {
-                failureReason = "Interrupted waiting for result of get calibration status command.";
-                LOGGER.error(failureReason, ex);
-            }
+            StateMachine.getSingleton().enqueueSignal(new SignalGetCalibrationStatus(resultCallback));
+            return;
         } else if ("CALNEXTSTEP".equals(upperCase)) {
             // send cas status command
-            LinkedBlockingQueue<String> result = new LinkedBlockingQueue<>();
-            StateMachine.getSingleton().enqueueSignal(new SignalCalibrateNextStep(result::add));
-            try {
-                return result.take();
-            } catch (InterruptedException ex) {
-                failureReason = "Interrupted waiting for result of next calibration step command.";
-                LOGGER.error(failureReason, ex);
-            }
+            StateMachine.getSingleton().enqueueSignal(new SignalCalibrateNextStep(resultCallback));
+            return;
         }
         
         // return as specific a failure messsage as possible
         if (failureReason != null) {
-            return "Failed: " + failureReason;
+            resultCallback.accept("Failed: " + failureReason);
         } else {
-            return "Failed.";
+            resultCallback.accept("Failed.");
         }
     }
 }
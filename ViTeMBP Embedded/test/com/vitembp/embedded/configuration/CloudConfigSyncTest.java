@@ -0,0 +1,181 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.configuration;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the CloudConfigSync class.
+ */
+public class CloudConfigSyncTest {
+    /**
+     * An XML String when loaded sets the configuration to default values.
+     */
+    private static final String DEFAULT = "<?xml version=\"1.0\" ?><configuration><systemname></systemname><systemid>2ae1239a-3389-4580-b704-ff5c7b4dd3ee</systemid><samplingfrequency>29.97</samplingfrequency><sensornames></sensornames><sensorbindingsites></sensorbindingsites><sensorbindings></sensorbindings><sensorcalibrations></sensorcalibrations><capturetype>EmbeddedH2</capturetype><enablecompression>true</enablecompression><enablededuplication>false</enablededuplication><cloud><uploadtocloud>true</uploadtocloud><deleteonuploadtocloud>true</deleteonuploadtocloud></cloud><networkinterfaces><wiredethernet><metric>0</metric></wiredethernet><wirelessethernet><metric>0</metric></wirelessethernet><bluetooth><metric>0</metric></bluetooth></networkinterfaces></configuration>";
+    
+    /**
+     * The default configuration at 30 samples per second.
+     */
+    private static final String DEFAULT_30SPS = DEFAULT.replace("<samplingfrequency>29.97<", "<samplingfrequency>30.0<");
+    
+    /**
+     * The UUID of the device in the default configuration.
+     */
+    private static final UUID DEVICE = UUID.fromString("2ae1239a-3389-4580-b704-ff5c7b4dd3ee");
+    
+    public CloudConfigSyncTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() throws Exception {
+        // loads the default configuration
+        SystemConfig.getConfig().readFromString(DEFAULT);
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        SystemConfig.getConfig().readFromString(DEFAULT);
+    }
+
+    /**
+     * Test that checks after the first only read the configuration version.
+     * @throws Exception If the configuration cannot be synchronized.
+     */
+    @Test
+    public void testCheckUnchanged() throws Exception {
+        System.out.println("checkUnchanged");
+        ConfigStoreHashMap store = new ConfigStoreHashMap();
+        CloudConfigSync instance = new CloudConfigSync(store, SystemConfig.getConfig(), false);
+        
+        instance.checkConfiguration();
+        assertEquals(DEFAULT, store.get(DEVICE).getConfig());
+        int reads = store.getFullReads();
+        
+        instance.checkConfiguration();
+        instance.checkConfiguration();
+        assertEquals(reads, store.getFullReads());
+        assertEquals(1, store.getHeader(DEVICE).getVersion());
+    }
+    
+    /**
+     * Test that remote changes are applied and only notify listeners of the
+     * settings that changed.
+     * @throws Exception If the configuration cannot be synchronized.
+     */
+    @Test
+    public void testPullRemoteChange() throws Exception {
+        System.out.println("pullRemoteChange");
+        ConfigStoreHashMap store = new ConfigStoreHashMap();
+        CloudConfigSync instance = new CloudConfigSync(store, SystemConfig.getConfig(), false);
+        instance.checkConfiguration();
+        
+        CountDownLatch frequencyChanged = new CountDownLatch(1);
+        AtomicInteger metricChanges = new AtomicInteger();
+        SystemConfig.getConfig().addConfigChangedListener(frequencyChanged::countDown, SystemConfig.Setting.SAMPLING_FREQUENCY);
+        SystemConfig.getConfig().addConfigChangedListener(metricChanges::incrementAndGet, SystemConfig.Setting.BLUETOOTH_METRIC);
+        
+        store.edit(DEVICE, DEFAULT_30SPS, false);
+        instance.checkConfiguration();
+        
+        assertEquals(30.0, SystemConfig.getConfig().getSamplingFrequency(), 0.0);
+        assertTrue(frequencyChanged.await(10, TimeUnit.SECONDS));
+        assertEquals(0, metricChanges.get());
+        
+        // the pulled configuration is not pushed back
+        instance.checkConfiguration();
+        assertEquals(2, store.getHeader(DEVICE).getVersion());
+    }
+    
+    /**
+     * Test that configurations flagged as updated are applied and the flag is
+     * cleared.
+     * @throws Exception If the configuration cannot be synchronized.
+     */
+    @Test
+    public void testPullUpdatedFlag() throws Exception {
+        System.out.println("pullUpdatedFlag");
+        ConfigStoreHashMap store = new ConfigStoreHashMap();
+        CloudConfigSync instance = new CloudConfigSync(store, SystemConfig.getConfig(), false);
+        instance.checkConfiguration();
+        
+        store.edit(DEVICE, DEFAULT_30SPS, true);
+        instance.checkConfiguration();
+        
+        assertEquals(30.0, SystemConfig.getConfig().getSamplingFrequency(), 0.0);
+        assertFalse(store.getHeader(DEVICE).isUpdated());
+    }
+    
+    /**
+     * Test that local changes are written to the store.
+     * @throws Exception If the configuration cannot be synchronized.
+     */
+    @Test
+    public void testPushLocalChange() throws Exception {
+        System.out.println("pushLocalChange");
+        ConfigStoreHashMap store = new ConfigStoreHashMap();
+        CloudConfigSync instance = new CloudConfigSync(store, SystemConfig.getConfig(), false);
+        instance.checkConfiguration();
+        
+        SystemConfig.getConfig().readFromString(DEFAULT_30SPS);
+        instance.checkConfiguration();
+        
+        ConfigRecord remote = store.get(DEVICE);
+        assertEquals(DEFAULT_30SPS, remote.getConfig());
+        assertEquals(2, remote.getVersion());
+        
+        // nothing is written when the configuration has not changed
+        instance.checkConfiguration();
+        assertEquals(2, store.getHeader(DEVICE).getVersion());
+    }
+    
+    /**
+     * Test that a local configuration which differs from the store when
+     * first checked is written to the store.
+     * @throws Exception If the configuration cannot be synchronized.
+     */
+    @Test
+    public void testPushOnFirstCheck() throws Exception {
+        System.out.println("pushOnFirstCheck");
+        ConfigStoreHashMap store = new ConfigStoreHashMap();
+        store.register(DEVICE, DEFAULT_30SPS);
+        CloudConfigSync instance = new CloudConfigSync(store, SystemConfig.getConfig(), false);
+        
+        instance.checkConfiguration();
+        
+        ConfigRecord remote = store.get(DEVICE);
+        assertEquals(DEFAULT, remote.getConfig());
+        assertEquals(2, remote.getVersion());
+    }
+}
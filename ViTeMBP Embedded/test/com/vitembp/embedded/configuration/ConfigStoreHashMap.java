@@ -0,0 +1,91 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.configuration;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A ConfigStore backed by a HashMap used to test configuration sync.
+ */
+class ConfigStoreHashMap implements ConfigStore {
+    /**
+     * The records stored for each device.
+     */
+    private final Map<UUID, ConfigRecord> records = new HashMap<>();
+    
+    /**
+     * The number of times a full configuration was read.
+     */
+    private int fullReads;
+    
+    @Override
+    public synchronized void register(UUID device, String config) throws IOException {
+        this.records.putIfAbsent(device, new ConfigRecord(1, false, config));
+    }
+
+    @Override
+    public synchronized ConfigRecord getHeader(UUID device) throws IOException {
+        ConfigRecord record = this.records.get(device);
+        return record == null ? null : new ConfigRecord(record.getVersion(), record.isUpdated(), null);
+    }
+
+    @Override
+    public synchronized ConfigRecord get(UUID device) throws IOException {
+        this.fullReads++;
+        return this.records.get(device);
+    }
+
+    @Override
+    public synchronized boolean put(UUID device, String config, long expectedVersion) throws IOException {
+        ConfigRecord record = this.records.get(device);
+        if (record == null || record.getVersion() != expectedVersion || record.isUpdated()) {
+            return false;
+        }
+        this.records.put(device, new ConfigRecord(expectedVersion + 1, false, config));
+        return true;
+    }
+
+    @Override
+    public synchronized void clearUpdated(UUID device) throws IOException {
+        ConfigRecord record = this.records.get(device);
+        this.records.put(device, new ConfigRecord(record.getVersion(), false, record.getConfig()));
+    }
+    
+    /**
+     * Replaces a configuration as another client writing to the store would.
+     * @param device The UUID of the device.
+     * @param config The new configuration.
+     * @param updated A boolean value indicating whether to flag the
+     * configuration as changed remotely.
+     */
+    synchronized void edit(UUID device, String config, boolean updated) {
+        ConfigRecord record = this.records.get(device);
+        this.records.put(device, new ConfigRecord(record.getVersion() + 1, updated, config));
+    }
+    
+    /**
+     * Gets the number of times a full configuration was read.
+     * @return The number of times a full configuration was read.
+     */
+    synchronized int getFullReads() {
+        return this.fullReads;
+    }
+}
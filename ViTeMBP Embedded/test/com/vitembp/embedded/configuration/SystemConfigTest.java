@@ -19,6 +19,9 @@ package com.vitembp.embedded.configuration;
 
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Set;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLOutputFactory;
@@ -39,12 +42,12 @@ public class SystemConfigTest {
     /**
      * An XML String when loaded sets the configuration to default values.
      */
-    private static final String DEFAULT = "<?xml version=\"1.0\" ?><configuration><systemname></systemname><systemid>2ae1239a-3389-4580-b704-ff5c7b4dd3ee</systemid><samplingfrequency>29.97</samplingfrequency><sensornames></sensornames><sensorbindingsites></sensorbindingsites><sensorbindings></sensorbindings><sensorcalibrations></sensorcalibrations><capturetype>EmbeddedH2</capturetype><enablecompression>true</enablecompression><cloud><uploadtocloud>true</uploadtocloud><deleteonuploadtocloud>true</deleteonuploadtocloud></cloud><networkinterfaces><wiredethernet><metric>0</metric></wiredethernet><wirelessethernet><metric>0</metric></wirelessethernet><bluetooth><metric>0</metric></bluetooth></networkinterfaces></configuration>";
+    private static final String DEFAULT = "<?xml version=\"1.0\" ?><configuration><systemname></systemname><systemid>2ae1239a-3389-4580-b704-ff5c7b4dd3ee</systemid><samplingfrequency>29.97</samplingfrequency><sensornames></sensornames><sensorbindingsites></sensorbindingsites><sensorbindings></sensorbindings><sensorcalibrations></sensorcalibrations><capturetype>EmbeddedH2</capturetype><enablecompression>true</enablecompression><enablededuplication>false</enablededuplication><cloud><uploadtocloud>true</uploadtocloud><deleteonuploadtocloud>true</deleteonuploadtocloud></cloud><networkinterfaces><wiredethernet><metric>0</metric></wiredethernet><wirelessethernet><metric>0</metric></wirelessethernet><bluetooth><metric>0</metric></bluetooth></networkinterfaces></configuration>";
     
     /**
      * An XML String when loaded sets the configuration to have two sensor names and 30 samples per second.
      */
-    private static final String TWO_NAMES_30SPS = "<?xml version=\"1.0\" ?><configuration><systemname></systemname><systemid>2ae1239a-3389-4580-b704-ff5c7b4dd3ee</systemid><samplingfrequency>30</samplingfrequency><sensornames><name>Name 1</name><name>Name 2</name></sensornames><sensorbindingsites></sensorbindingsites><sensorbindings></sensorbindings><sensorcalibrations></sensorcalibrations><capturetype>EmbeddedH2</capturetype><enablecompression>true</enablecompression><cloud><uploadtocloud>true</uploadtocloud><deleteonuploadtocloud>true</deleteonuploadtocloud></cloud><networkinterfaces><wiredethernet><metric>0</metric></wiredethernet><wirelessethernet><metric>0</metric></wirelessethernet><bluetooth><metric>0</metric></bluetooth></networkinterfaces></configuration>";
+    private static final String TWO_NAMES_30SPS = "<?xml version=\"1.0\" ?><configuration><systemname></systemname><systemid>2ae1239a-3389-4580-b704-ff5c7b4dd3ee</systemid><samplingfrequency>30</samplingfrequency><sensornames><name>Name 1</name><name>Name 2</name></sensornames><sensorbindingsites></sensorbindingsites><sensorbindings></sensorbindings><sensorcalibrations></sensorcalibrations><capturetype>EmbeddedH2</capturetype><enablecompression>true</enablecompression><enablededuplication>false</enablededuplication><cloud><uploadtocloud>true</uploadtocloud><deleteonuploadtocloud>true</deleteonuploadtocloud></cloud><networkinterfaces><wiredethernet><metric>0</metric></wiredethernet><wirelessethernet><metric>0</metric></wirelessethernet><bluetooth><metric>0</metric></bluetooth></networkinterfaces></configuration>";
     
     @BeforeClass
     public static void setUpClass() throws Exception {
@@ -147,4 +150,82 @@ public class SystemConfigTest {
         assertTrue(instance.getSensorNames().contains("Name 1"));
         assertTrue(instance.getSensorNames().contains("Name 2"));
     }
+
+    /**
+     * Test of readFrom method, of class SystemConfig, with and without the
+     * deduplication setting added after the first configuration format.
+     */
+    @Test
+    public void testReadFromDeduplication() throws Exception {
+        System.out.println("readFromDeduplication");
+        SystemConfig instance = SystemConfig.getConfig();
+        assertFalse(instance.getEnableDeduplication());
+        
+        instance.readFromString(DEFAULT.replace("<enablededuplication>false<", "<enablededuplication>true<"));
+        assertTrue(instance.getEnableDeduplication());
+        
+        instance.readFromString(DEFAULT.replace("<enablededuplication>false</enablededuplication>", ""));
+        assertFalse(instance.getEnableDeduplication());
+        assertEquals(DEFAULT, instance.writeToString());
+    }
+
+    /**
+     * Test of writeToSnapshot and readFromSnapshot methods, of class
+     * SystemConfig.
+     */
+    @Test
+    public void testSnapshot() throws Exception {
+        System.out.println("snapshot");
+        SystemConfig instance = SystemConfig.getConfig();
+        instance.readFromString(TWO_NAMES_30SPS);
+        String expected = instance.writeToString();
+        byte[] snapshot = instance.writeToSnapshot();
+        
+        instance.readFromString(DEFAULT);
+        instance.readFromSnapshot(snapshot);
+        assertEquals(expected, instance.writeToString());
+    }
+
+    /**
+     * Test of loadConfigFromPath method, of class SystemConfig.
+     */
+    @Test
+    public void testLoadConfigFromPath() throws Exception {
+        System.out.println("loadConfigFromPath");
+        SystemConfig instance = SystemConfig.getConfig();
+        Path directory = Files.createTempDirectory("vitembp-config");
+        Path configFile = directory.resolve("config.xml");
+        Path snapshotFile = ConfigSnapshot.getPath(configFile);
+        try {
+            // the first load parses the file and creates the snapshot
+            byte[] source = TWO_NAMES_30SPS.getBytes(StandardCharsets.UTF_8);
+            Files.write(configFile, source);
+            instance.loadConfigFromPath(configFile);
+            assertEquals(30, instance.getSamplingFrequency(), 0.0001);
+            assertNotNull(ConfigSnapshot.read(snapshotFile, source));
+            
+            // the next load uses the snapshot
+            instance.readFromString(DEFAULT);
+            instance.loadConfigFromPath(configFile);
+            assertEquals(30, instance.getSamplingFrequency(), 0.0001);
+            assertEquals(2, instance.getSensorNames().size());
+            
+            // the snapshot is not used once the file changes
+            Files.write(configFile, DEFAULT.getBytes(StandardCharsets.UTF_8));
+            instance.loadConfigFromPath(configFile);
+            assertEquals(29.97, instance.getSamplingFrequency(), 0.0001);
+            assertEquals(0, instance.getSensorNames().size());
+            
+            // a damaged snapshot is replaced
+            Files.write(configFile, source);
+            Files.write(snapshotFile, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+            instance.loadConfigFromPath(configFile);
+            assertEquals(30, instance.getSamplingFrequency(), 0.0001);
+            assertNotNull(ConfigSnapshot.read(snapshotFile, source));
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+            Files.deleteIfExists(configFile);
+            Files.delete(directory);
+        }
+    }
 }
@@ -0,0 +1,137 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.controller;
+
+import com.vitembp.embedded.data.Capture;
+import com.vitembp.embedded.data.CaptureFactory;
+import com.vitembp.embedded.data.CaptureTypes;
+import com.vitembp.embedded.datacollection.CaptureSession;
+import com.vitembp.embedded.hardware.AccelerometerMock;
+import com.vitembp.embedded.hardware.Sensor;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the CaptureCommitter class.
+ */
+public class CaptureCommitterTest {
+    
+    public CaptureCommitterTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+    }
+    
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of commit method, of class CaptureCommitter.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testCommit() throws Exception {
+        System.out.println("commit");
+        Map<String, Sensor> sensors = new HashMap<>();
+        sensors.put("Sensor 1", new AccelerometerMock());
+        Map<String, UUID> sensorTypes = new HashMap<>();
+        sensorTypes.put("Sensor 1", sensors.get("Sensor 1").getType());
+        
+        Capture capture = CaptureFactory.buildCapture(CaptureTypes.InMemory, 29.97, sensorTypes, new HashMap<>());
+        CaptureSession session = new CaptureSession(sensors, capture);
+        session.start();
+        Thread.sleep(300);
+        
+        List<String> statuses = new CopyOnWriteArrayList<>();
+        LinkedBlockingQueue<String> result = new LinkedBlockingQueue<>();
+        CaptureCommitter instance = new CaptureCommitter();
+        instance.setStatusCallback(statuses::add);
+        
+        // the commit returns before the capture is saved
+        session.stop();
+        instance.commit(session, new SignalEndCapture(result::add));
+        assertEquals("Capture ended.", result.poll(10, TimeUnit.SECONDS));
+        
+        // no samples are added once the capture is saved
+        assertTrue(capture.isComplete());
+        long count = capture.getSampleCount();
+        Thread.sleep(100);
+        assertEquals(count, capture.getSampleCount());
+        
+        assertEquals(0, instance.getPendingCount());
+        assertEquals("Saving capture...", statuses.get(0));
+        assertEquals("Capture saved.", statuses.get(statuses.size() - 1));
+        instance.shutdown();
+    }
+    
+    /**
+     * Test of awaitCompaction method, of class CaptureCommitter.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testAwaitCompaction() throws Exception {
+        System.out.println("awaitCompaction");
+        CaptureCommitter instance = new CaptureCommitter();
+        
+        // the idle check runs under the compaction lock, so a slow check
+        // stands in for a compaction in progress
+        CountDownLatch compacting = new CountDownLatch(1);
+        instance.compact(CaptureTypes.InMemory, () -> {
+            compacting.countDown();
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException ex) {
+                fail("Interrupted compacting.");
+            }
+            return true;
+        });
+        assertTrue(compacting.await(10, TimeUnit.SECONDS));
+        
+        long start = System.nanoTime();
+        instance.awaitCompaction();
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        
+        // nothing is waited for without a compaction in progress
+        start = System.nanoTime();
+        instance.awaitCompaction();
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(200));
+        instance.shutdown();
+    }
+}
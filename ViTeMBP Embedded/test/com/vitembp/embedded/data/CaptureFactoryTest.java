@@ -17,6 +17,7 @@
  */
 package com.vitembp.embedded.data;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -124,4 +125,34 @@ public class CaptureFactoryTest {
         captures.forEach(loaded::add);
         assertTrue(loaded.size() > 0);
     }
+    
+    /**
+     * Test of prepareCapture method, of class CaptureFactory.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testPrepareCapture() throws Exception {
+        System.out.println("prepareCapture");
+        UuidStringStore store = new UuidStringStoreHashMap();
+        Map<String, UUID> nameToIds = new HashMap<>();
+        nameToIds.put("Sensor 1", UUID.randomUUID());
+        Capture result = CaptureFactory.prepareCapture(store, 29.9, nameToIds, new HashMap<>());
+        
+        // a prepared capture is not indexed until it is started
+        assertEquals(0, store.getCaptureLocations().count());
+        
+        Instant start = Instant.now().plusSeconds(60);
+        result.setStartTime(start);
+        result.addToIndex();
+        result.addToIndex();
+        assertEquals(1, store.getCaptureLocations().count());
+        assertEquals(start, result.getStartTime());
+        assertEquals(start, result.getCreatedTime());
+        
+        // samples follow the start time which was set
+        Map<String, String> data = new HashMap<>();
+        data.put("Sensor 1", "1");
+        result.addSample(data);
+        assertEquals(start, result.getSamples().findFirst().get().getTime());
+    }
 }
@@ -0,0 +1,172 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.data;
+
+import java.util.EnumMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Class containing unit tests for the NetworkScheduler class.
+ */
+public class NetworkSchedulerTest {
+    /**
+     * The bytes per second of the wired link in tests, a bucket holds a
+     * quarter of this.
+     */
+    private static final long WIRED_RATE = 40000;
+    
+    /**
+     * Initializes a new instance of the NetworkSchedulerTest class.
+     */
+    public NetworkSchedulerTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    /**
+     * Creates a scheduler which always uses the given link.
+     * @param link The link in use.
+     * @return The scheduler.
+     */
+    private static NetworkScheduler createScheduler(NetworkScheduler.Link link) {
+        Map<NetworkScheduler.Link, Long> rates = new EnumMap<>(NetworkScheduler.Link.class);
+        rates.put(NetworkScheduler.Link.WIRED, WIRED_RATE);
+        rates.put(NetworkScheduler.Link.BLUETOOTH, 0L);
+        return new NetworkScheduler(() -> link, rates);
+    }
+    
+    /**
+     * Tests that transfers are not limited when no capture is running.
+     * @throws java.lang.InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void testIdle() throws InterruptedException {
+        System.out.println("idle");
+        NetworkScheduler instance = createScheduler(NetworkScheduler.Link.BLUETOOTH);
+        
+        long start = System.nanoTime();
+        instance.charge(1000000000L);
+        instance.acquire(1000000000L);
+        instance.acquire(1000000000L);
+        assertTrue(System.nanoTime() - start < 100000000L);
+    }
+    
+    /**
+     * Tests that transfers during a capture are limited to the rate of the
+     * link.
+     * @throws java.lang.InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void testThrottle() throws InterruptedException {
+        System.out.println("throttle");
+        NetworkScheduler instance = createScheduler(NetworkScheduler.Link.WIRED);
+        instance.setCapturing(true);
+        
+        // a full bucket starts right away, the next waits for it to fill
+        long start = System.nanoTime();
+        instance.acquire(WIRED_RATE / 4);
+        assertTrue(System.nanoTime() - start < 100000000L);
+        instance.acquire(WIRED_RATE / 4);
+        long elapsed = System.nanoTime() - start;
+        assertTrue(elapsed >= 200000000L);
+        assertTrue(elapsed < 2000000000L);
+        
+        // charged control traffic delays bulk transfers
+        start = System.nanoTime();
+        instance.charge(WIRED_RATE / 4);
+        instance.acquire(1);
+        assertTrue(System.nanoTime() - start >= 200000000L);
+    }
+    
+    /**
+     * Tests that transfers on a paused link wait until the capture ends.
+     * @throws java.lang.InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void testPause() throws InterruptedException {
+        System.out.println("pause");
+        NetworkScheduler instance = createScheduler(NetworkScheduler.Link.BLUETOOTH);
+        instance.setCapturing(true);
+        
+        Thread transfer = new Thread(() -> {
+            try {
+                instance.acquire(1);
+            } catch (InterruptedException ex) {
+                fail("Interrupted waiting to transfer.");
+            }
+        });
+        transfer.start();
+        transfer.join(300);
+        assertTrue(transfer.isAlive());
+        
+        instance.setCapturing(false);
+        transfer.join(1000);
+        assertFalse(transfer.isAlive());
+    }
+    
+    /**
+     * Tests that waiting between transfer passes ends early when a capture
+     * ends.
+     * @throws java.lang.InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void testIdleWait() throws InterruptedException {
+        System.out.println("idleWait");
+        NetworkScheduler instance = createScheduler(NetworkScheduler.Link.WIRED);
+        
+        long start = System.nanoTime();
+        instance.idleWait(100);
+        assertTrue(System.nanoTime() - start >= 100000000L);
+        
+        instance.setCapturing(true);
+        Thread waiting = new Thread(() -> {
+            try {
+                instance.idleWait(10000);
+            } catch (InterruptedException ex) {
+                fail("Interrupted waiting between passes.");
+            }
+        });
+        waiting.start();
+        waiting.join(200);
+        assertTrue(waiting.isAlive());
+        
+        instance.setCapturing(false);
+        waiting.join(1000);
+        assertFalse(waiting.isAlive());
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.data;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Class containing unit tests for the UuidStringStoreDedup class.
+ */
+public class UuidStringStoreDedupTest {
+    /**
+     * A value written to several keys.
+     */
+    private static final String SHARED = "<page><sample/><sample/></page>";
+    
+    /**
+     * Initializes a new instance of the UuidStringStoreDedupTest class.
+     */
+    public UuidStringStoreDedupTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    /**
+     * Runs a test against an in-memory and an H2 store.
+     * @param test The test, which receives the wrapped store.
+     * @throws Exception If the test fails.
+     */
+    private static void runWithStores(ConsumerIOException<UuidStringStore> test) throws Exception {
+        test.accept(new UuidStringStoreHashMap());
+        
+        Path directory = Files.createTempDirectory("vitembp-test");
+        UuidStringStoreH2 h2 = new UuidStringStoreH2(directory.resolve("store"));
+        try {
+            test.accept(h2);
+        } finally {
+            h2.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+    
+    /**
+     * Gets the number of entries in a store.
+     * @param store The store.
+     * @return The number of entries in the store.
+     * @throws IOException If the store cannot be read.
+     */
+    private static long count(UuidStringStore store) throws IOException {
+        return store.getKeys().count();
+    }
+
+    /**
+     * Test of write and read methods, of class UuidStringStoreDedup.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testWriteRead() throws Exception {
+        System.out.println("writeRead");
+        runWithStores((backing) -> {
+            UuidStringStoreDedup instance = new UuidStringStoreDedup(backing, true);
+            List<UUID> keys = Arrays.asList(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+            for (UUID key : keys) {
+                instance.write(key, SHARED);
+            }
+            UUID other = UUID.randomUUID();
+            instance.write(other, "other");
+            
+            for (UUID key : keys) {
+                assertEquals(SHARED, instance.read(key));
+            }
+            assertEquals("other", instance.read(other));
+            assertNull(instance.read(UUID.randomUUID()));
+            
+            // each value and its reference count are stored once
+            assertEquals(8, count(backing));
+            Set<UUID> visible = instance.getKeys().collect(Collectors.toSet());
+            assertEquals(4, visible.size());
+            assertTrue(visible.containsAll(keys));
+            assertTrue(visible.contains(other));
+            
+            // writing the same value again changes nothing
+            instance.write(keys.get(0), SHARED);
+            assertEquals(8, count(backing));
+        });
+    }
+
+    /**
+     * Test of delete method, of class UuidStringStoreDedup.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testDelete() throws Exception {
+        System.out.println("delete");
+        runWithStores((backing) -> {
+            UuidStringStoreDedup instance = new UuidStringStoreDedup(backing, true);
+            UUID first = UUID.randomUUID();
+            UUID second = UUID.randomUUID();
+            instance.write(first, SHARED);
+            instance.write(second, SHARED);
+            assertEquals(4, count(backing));
+            
+            // the value is kept while a key references it
+            instance.delete(first);
+            assertNull(instance.read(first));
+            assertEquals(SHARED, instance.read(second));
+            assertEquals(3, count(backing));
+            
+            instance.delete(second);
+            assertNull(instance.read(second));
+            assertEquals(0, count(backing));
+        });
+    }
+
+    /**
+     * Test of overwriting a key, of class UuidStringStoreDedup.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testOverwrite() throws Exception {
+        System.out.println("overwrite");
+        runWithStores((backing) -> {
+            UuidStringStoreDedup instance = new UuidStringStoreDedup(backing, true);
+            UUID key = UUID.randomUUID();
+            instance.write(key, SHARED);
+            instance.write(key, "replaced");
+            assertEquals("replaced", instance.read(key));
+            assertEquals(3, count(backing));
+            
+            // values written before deduplication are read and replaced
+            UUID legacy = UUID.randomUUID();
+            backing.write(legacy, "legacy");
+            assertEquals("legacy", instance.read(legacy));
+            instance.write(legacy, "replaced");
+            assertEquals("replaced", instance.read(legacy));
+            assertEquals(4, count(backing));
+            
+            instance.delete(key);
+            instance.delete(legacy);
+            assertEquals(0, count(backing));
+        });
+    }
+
+    /**
+     * Test of getHashes method, of class UuidStringStoreDedup.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testGetHashes() throws Exception {
+        System.out.println("getHashes");
+        runWithStores((backing) -> {
+            UuidStringStoreDedup instance = new UuidStringStoreDedup(backing, true);
+            UuidStringStoreHashMap plain = new UuidStringStoreHashMap();
+            UUID first = UUID.randomUUID();
+            UUID second = UUID.randomUUID();
+            UUID missing = UUID.randomUUID();
+            instance.write(first, SHARED);
+            instance.write(second, SHARED);
+            plain.write(first, SHARED);
+            plain.write(second, SHARED);
+            
+            // hashes match a store holding the values directly
+            List<UUID> locations = Arrays.asList(first, second, missing);
+            Map<UUID, String> hashes = instance.getHashes(locations);
+            assertEquals(plain.getHashes(locations), hashes);
+            assertEquals("", hashes.get(missing));
+        });
+    }
+
+    /**
+     * Test of reading values written with deduplication enabled after it has
+     * been disabled, of class UuidStringStoreDedup.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testDisabled() throws Exception {
+        System.out.println("disabled");
+        runWithStores((backing) -> {
+            UuidStringStoreDedup enabled = new UuidStringStoreDedup(backing, true);
+            UUID first = UUID.randomUUID();
+            UUID second = UUID.randomUUID();
+            enabled.write(first, SHARED);
+            enabled.write(second, SHARED);
+            
+            // deduplicated values are read and derived keys stay hidden
+            UuidStringStoreDedup instance = new UuidStringStoreDedup(backing, false);
+            assertEquals(SHARED, instance.read(first));
+            assertEquals(SHARED, instance.read(second));
+            assertEquals(2, instance.getKeys().count());
+            
+            // new values are stored directly
+            UUID plain = UUID.randomUUID();
+            instance.write(plain, SHARED);
+            assertEquals(SHARED, backing.read(plain));
+            assertEquals(5, count(backing));
+            
+            // replacing and deleting references releases the shared value
+            instance.write(first, "replaced");
+            assertEquals("replaced", backing.read(first));
+            assertEquals(SHARED, instance.read(second));
+            instance.delete(second);
+            assertEquals(2, count(backing));
+            assertEquals(2, instance.getKeys().count());
+        });
+    }
+
+    /**
+     * Test of writing to a store which never held references while
+     * deduplication is disabled, of class UuidStringStoreDedup, which should
+     * not read the previous values.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testDisabledWithoutReferences() throws Exception {
+        System.out.println("disabledWithoutReferences");
+        AtomicInteger reads = new AtomicInteger();
+        UuidStringStoreHashMap backing = new UuidStringStoreHashMap() {
+            @Override
+            public String read(UUID key) throws IOException {
+                reads.incrementAndGet();
+                return super.read(key);
+            }
+        };
+        
+        UuidStringStoreDedup instance = new UuidStringStoreDedup(backing, false);
+        UUID key = UUID.randomUUID();
+        instance.write(key, SHARED);
+        instance.write(key, "replaced");
+        instance.delete(key);
+        assertEquals(0, reads.get());
+        assertEquals(0, count(backing));
+    }
+    
+    /**
+     * Test of a batch writing through the store while another thread deletes
+     * a key, of class UuidStringStoreDedup, which must not deadlock.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testConcurrentBatchDelete() throws Exception {
+        System.out.println("concurrentBatchDelete");
+        Path directory = Files.createTempDirectory("vitembp-test");
+        UuidStringStoreH2 h2 = new UuidStringStoreH2(directory.resolve("store"));
+        try {
+            UuidStringStoreDedup instance = new UuidStringStoreDedup(h2, true);
+            UUID written = UUID.randomUUID();
+            UUID deleted = UUID.randomUUID();
+            instance.write(deleted, SHARED);
+            
+            // the batch holds the store while the delete is started, then
+            // writes through the wrapper as a capture save does
+            CountDownLatch inBatch = new CountDownLatch(1);
+            AtomicReference<Exception> error = new AtomicReference<>();
+            Thread batch = new Thread(() -> {
+                try {
+                    instance.batch(() -> {
+                        inBatch.countDown();
+                        try {
+                            Thread.sleep(200);
+                        } catch (InterruptedException ex) {
+                            throw new IOException(ex);
+                        }
+                        instance.write(written, SHARED);
+                    });
+                } catch (Exception ex) {
+                    error.set(ex);
+                }
+            });
+            Thread delete = new Thread(() -> {
+                try {
+                    inBatch.await();
+                    instance.delete(deleted);
+                } catch (Exception ex) {
+                    error.set(ex);
+                }
+            });
+            batch.setDaemon(true);
+            delete.setDaemon(true);
+            batch.start();
+            delete.start();
+            batch.join(10000);
+            delete.join(10000);
+            
+            assertFalse("Batch deadlocked.", batch.isAlive());
+            assertFalse("Delete deadlocked.", delete.isAlive());
+            assertNull(error.get());
+            assertEquals(SHARED, instance.read(written));
+            assertNull(instance.read(deleted));
+        } finally {
+            h2.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+    
+    /**
+     * Test of write method, of class UuidStringStoreDedup, with a key in the
+     * form of derived keys.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWriteDerivedKey() throws Exception {
+        System.out.println("writeDerivedKey");
+        UuidStringStoreDedup instance = new UuidStringStoreDedup(new UuidStringStoreHashMap(), true);
+        instance.write(UUID.fromString("00000000-0000-8000-8000-000000000000"), SHARED);
+    }
+}
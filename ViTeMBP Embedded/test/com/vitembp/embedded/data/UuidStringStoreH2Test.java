@@ -18,7 +18,13 @@
 package com.vitembp.embedded.data;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -342,4 +348,163 @@ public class UuidStringStoreH2Test {
         desc = instance.getCaptureDescription(locationID);
         assertNotNull(desc);
     }
+    
+    /**
+     * Test of batch method, of class UuidStringStoreH2.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testBatch() throws Exception {
+        System.out.println("batch");
+        Path directory = Files.createTempDirectory("vitembp-test");
+        UuidStringStoreH2 instance = new UuidStringStoreH2(directory.resolve("store"));
+        try {
+            UUID first = UUID.randomUUID();
+            UUID second = UUID.randomUUID();
+            
+            // writes in a completed batch are committed
+            instance.batch(() -> {
+                instance.write(first, "First page.");
+                instance.batch(() -> instance.write(second, "Second page."));
+            });
+            assertEquals("First page.", instance.read(first));
+            assertEquals("Second page.", instance.read(second));
+            
+            // writes in a failed batch are rolled back
+            try {
+                instance.batch(() -> {
+                    instance.write(first, "Changed page.");
+                    instance.delete(second);
+                    throw new IOException("Failed batch.");
+                });
+                fail("Batch exception was not thrown.");
+            } catch (IOException ex) {
+                assertEquals("Failed batch.", ex.getMessage());
+            }
+            assertEquals("First page.", instance.read(first));
+            assertEquals("Second page.", instance.read(second));
+            
+            // compaction does not change the values
+            instance.compact();
+            assertEquals("First page.", instance.read(first));
+        } finally {
+            instance.close();
+            deleteDirectory(directory);
+        }
+    }
+    
+    /**
+     * Test of write method, of class UuidStringStoreH2, with values which are
+     * stored in each binary form.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testWriteBinary() throws Exception {
+        System.out.println("writeBinary");
+        Path directory = Files.createTempDirectory("vitembp-test");
+        UuidStringStoreH2 instance = new UuidStringStoreH2(directory.resolve("store"));
+        try {
+            // every 8-bit character as written by the compressing stores
+            StringBuilder bytes = new StringBuilder();
+            for (char c = 0; c < 256; c++) {
+                bytes.append(c);
+            }
+            UUID bytesKey = UUID.randomUUID();
+            instance.write(bytesKey, bytes.toString());
+            assertEquals(bytes.toString(), instance.read(bytesKey));
+            
+            // characters which need more than 8 bits
+            String unicode = "Brake \u00b0 \u2206 \ud83d\udeb5";
+            UUID unicodeKey = UUID.randomUUID();
+            instance.write(unicodeKey, unicode);
+            assertEquals(unicode, instance.read(unicodeKey));
+            
+            UUID emptyKey = UUID.randomUUID();
+            instance.write(emptyKey, "");
+            assertEquals("", instance.read(emptyKey));
+        } finally {
+            instance.close();
+            deleteDirectory(directory);
+        }
+    }
+    
+    /**
+     * Test of opening a database created with character values, of class
+     * UuidStringStoreH2.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testConvertClobData() throws Exception {
+        System.out.println("convertClobData");
+        Path directory = Files.createTempDirectory("vitembp-test");
+        Path dataFile = directory.resolve("store");
+        UUID key = UUID.randomUUID();
+        UUID location = UUID.randomUUID();
+        
+        // create a database in the previous format with a capture
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:file:" + dataFile.toAbsolutePath().toString(), "sa", "")) {
+            connection.createStatement().execute("CREATE CACHED TABLE DATA(ID UUID PRIMARY KEY, VALUE CLOB)");
+            connection.createStatement().execute("CREATE CACHED TABLE CAPTURES(LOCATION UUID PRIMARY KEY, SYSTEM_UUID UUID, CREATEDTIME VARCHAR, FREQUENCY DOUBLE)");
+            connection.createStatement().execute("INSERT INTO DATA VALUES('" + key.toString() + "', 'A test string.')");
+            connection.createStatement().execute("INSERT INTO DATA VALUES('" + location.toString() + "', '<capture/>')");
+            connection.createStatement().execute("INSERT INTO CAPTURES VALUES('" + location.toString() + "', '" + UUID.randomUUID().toString() + "', '" + Instant.now().toString() + "', '29.97')");
+        }
+        
+        UuidStringStoreH2 instance = new UuidStringStoreH2(dataFile);
+        try {
+            assertEquals("A test string.", instance.read(key));
+            assertEquals("<capture/>", instance.read(location));
+            assertNotNull(instance.getCaptureDescription(location));
+        } finally {
+            instance.close();
+            deleteDirectory(directory);
+        }
+    }
+    
+    /**
+     * Test of the integrity check when opening a database, of class
+     * UuidStringStoreH2.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testCheckIntegrity() throws Exception {
+        System.out.println("checkIntegrity");
+        Path directory = Files.createTempDirectory("vitembp-test");
+        Path dataFile = directory.resolve("store");
+        UUID saved = UUID.randomUUID();
+        UUID uploaded = UUID.randomUUID();
+        
+        // index one capture with data and one whose data was uploaded and
+        // deleted before its index entry was uploaded
+        UuidStringStoreH2 instance = new UuidStringStoreH2(dataFile);
+        instance.write(saved, "<capture/>");
+        instance.write(uploaded, "<capture/>");
+        instance.addCaptureDescription(new CaptureDescription(saved, UUID.randomUUID(), Instant.now(), 29.97));
+        instance.addCaptureDescription(new CaptureDescription(uploaded, UUID.randomUUID(), Instant.now(), 29.97));
+        instance.delete(uploaded);
+        instance.close();
+        
+        // both captures are still indexed when reopened so the index entry
+        // can still be uploaded
+        instance = new UuidStringStoreH2(dataFile);
+        try {
+            assertEquals("<capture/>", instance.read(saved));
+            assertNotNull(instance.getCaptureDescription(saved));
+            assertNotNull(instance.getCaptureDescription(uploaded));
+        } finally {
+            instance.close();
+            deleteDirectory(directory);
+        }
+    }
+    
+    /**
+     * Deletes a directory and all of the files in it.
+     * @param directory The directory to delete.
+     * @throws IOException If the directory cannot be read.
+     */
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
 }
@@ -20,7 +20,9 @@ package com.vitembp.embedded.datacollection;
 import com.vitembp.embedded.hardware.AccelerometerMock;
 import com.vitembp.embedded.hardware.Sensor;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -79,4 +81,37 @@ public class SensorSamplerTest {
         Assert.assertTrue((long)counter.get("samples") >= 29);
         Assert.assertTrue((long)counter.get("samples") < 32);
     }
+
+    /**
+     * Test of prepare and start methods, of class SensorSampler, taking the
+     * first sample at the requested time.
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testPrepareStart() throws InterruptedException {
+        System.out.println("prepareStart");
+        Map<String, Sensor> sensors = new HashMap<>();
+        sensors.put("Sensor 1", new AccelerometerMock());
+        
+        final List<Long> firstSamples = new CopyOnWriteArrayList<>();
+        final List<Map<String, String>> samples = new CopyOnWriteArrayList<>();
+        
+        SensorSampler instance = new SensorSampler(29.97, sensors, samples::add);
+        instance.prepare();
+        Thread.sleep(100);
+        
+        // a prepared sampler does not take samples until it is started
+        Assert.assertTrue(samples.isEmpty());
+        
+        long startTime = System.nanoTime() + 50000000L;
+        instance.start(startTime, firstSamples::add);
+        Thread.sleep(500);
+        instance.stop();
+        
+        // only the first sample is reported and it is taken at the start time
+        Assert.assertEquals(1, firstSamples.size());
+        Assert.assertTrue(firstSamples.get(0) >= startTime);
+        Assert.assertTrue(firstSamples.get(0) - startTime < 20000000L);
+        Assert.assertFalse(samples.isEmpty());
+    }
 }
@@ -0,0 +1,309 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.embedded.interfaces;
+
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.amazonaws.services.sqs.AbstractAmazonSQS;
+import com.amazonaws.services.sqs.model.CreateQueueRequest;
+import com.amazonaws.services.sqs.model.CreateQueueResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.GetQueueUrlRequest;
+import com.amazonaws.services.sqs.model.GetQueueUrlResult;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the AmazonSQSControl class.
+ */
+public class AmazonSQSControlTest {
+    /**
+     * The control under test.
+     */
+    private AmazonSQSControl instance;
+    
+    public AmazonSQSControlTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+        if (this.instance != null) {
+            this.instance.stop();
+        }
+    }
+    
+    /**
+     * Waits for a condition to become true.
+     * @param condition The condition to wait for.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > end) {
+                fail("Timed out waiting for condition.");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Tests that FROMUUID commands are read, completed, and answered in
+     * batches without blocking the receiving thread.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testBatchedCommands() throws Exception {
+        System.out.println("batchedCommands");
+        FakeSQS sqs = new FakeSQS();
+        FakeDynamoDB db = new FakeDynamoDB();
+        List<UUID> responses = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            UUID location = UUID.randomUUID();
+            UUID response = UUID.randomUUID();
+            responses.add(response);
+            db.data.put(location.toString(), response.toString() + " command " + Integer.toString(i));
+            sqs.send("FROMUUID " + location.toString());
+        }
+        
+        // commands complete only when released, as controller signals do
+        ConcurrentLinkedQueue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+        this.instance = new AmazonSQSControl("queue", (cmd, callback) -> {
+            waiting.add(() -> callback.accept("result of " + cmd));
+        }, sqs, db);
+        this.instance.start();
+        
+        // every command is started before any completes
+        waitFor(() -> waiting.size() == 25);
+        assertEquals(25, sqs.deleted.size());
+        assertTrue(db.data.isEmpty());
+        
+        Runnable complete;
+        while ((complete = waiting.poll()) != null) {
+            complete.run();
+        }
+        waitFor(() -> db.data.size() == 25);
+        for (int i = 0; i < 25; i++) {
+            assertEquals("result of command " + Integer.toString(i), db.data.get(responses.get(i).toString()));
+        }
+        
+        // reads, writes, and deletes are batched
+        assertTrue(sqs.receiveSizes.stream().allMatch(size -> size == AmazonSQSControl.RECEIVE_BATCH_SIZE));
+        assertTrue(db.readSizes.size() <= 6);
+        assertTrue(db.writeSizes.stream().allMatch(size -> size <= AmazonSQSControl.WRITE_BATCH_SIZE));
+        assertTrue(db.writeSizes.size() < 25);
+    }
+
+    /**
+     * Tests that a message parsed directly has its result written before
+     * parseMessage returns.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testParseMessage() throws Exception {
+        System.out.println("parseMessage");
+        FakeDynamoDB db = new FakeDynamoDB();
+        UUID location = UUID.randomUUID();
+        UUID response = UUID.randomUUID();
+        db.data.put(location.toString(), response.toString() + " status");
+        
+        AmazonSQSControl control = new AmazonSQSControl("queue", (cmd, callback) -> callback.accept(cmd + " done"), new FakeSQS(), db);
+        control.parseMessage("FROMUUID " + location.toString());
+        
+        assertFalse(db.data.containsKey(location.toString()));
+        assertEquals("status done", db.data.get(response.toString()));
+        
+        // plain commands are parsed without the database
+        List<String> parsed = Collections.synchronizedList(new ArrayList<>());
+        control = new AmazonSQSControl("queue", (cmd, callback) -> {
+            parsed.add(cmd);
+            callback.accept("");
+        }, new FakeSQS(), db);
+        control.parseMessage("LISTSENSORS");
+        assertEquals(Collections.singletonList("LISTSENSORS"), parsed);
+    }
+    
+    /**
+     * A fake SQS client holding a single queue in memory.
+     */
+    private static class FakeSQS extends AbstractAmazonSQS {
+        /**
+         * The messages waiting to be received.
+         */
+        final ConcurrentLinkedQueue<Message> messages = new ConcurrentLinkedQueue<>();
+        
+        /**
+         * The receipt handles of deleted messages.
+         */
+        final List<String> deleted = Collections.synchronizedList(new ArrayList<>());
+        
+        /**
+         * The number of messages requested by each receive.
+         */
+        final List<Integer> receiveSizes = Collections.synchronizedList(new ArrayList<>());
+        
+        /**
+         * The number of messages sent.
+         */
+        private int sent;
+        
+        /**
+         * Adds a message to the queue.
+         * @param body The body of the message.
+         */
+        void send(String body) {
+            String id = Integer.toString(this.sent++);
+            this.messages.add(new Message().withMessageId(id).withReceiptHandle("receipt " + id).withBody(body));
+        }
+
+        @Override
+        public CreateQueueResult createQueue(CreateQueueRequest request) {
+            return new CreateQueueResult().withQueueUrl("url");
+        }
+
+        @Override
+        public GetQueueUrlResult getQueueUrl(GetQueueUrlRequest request) {
+            return new GetQueueUrlResult().withQueueUrl("url");
+        }
+
+        @Override
+        public ReceiveMessageResult receiveMessage(ReceiveMessageRequest request) {
+            this.receiveSizes.add(request.getMaxNumberOfMessages());
+            List<Message> received = new ArrayList<>();
+            Message msg;
+            while (received.size() < request.getMaxNumberOfMessages() && (msg = this.messages.poll()) != null) {
+                received.add(msg);
+            }
+            
+            // stand in for the long poll when the queue is empty
+            if (received.isEmpty()) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            
+            return new ReceiveMessageResult().withMessages(received);
+        }
+
+        @Override
+        public DeleteMessageBatchResult deleteMessageBatch(DeleteMessageBatchRequest request) {
+            request.getEntries().forEach(entry -> this.deleted.add(entry.getReceiptHandle()));
+            return new DeleteMessageBatchResult();
+        }
+    }
+    
+    /**
+     * A fake DynamoDB client holding the DATA table in memory, which leaves
+     * part of each first batch unprocessed as DynamoDB may.
+     */
+    private static class FakeDynamoDB extends AbstractAmazonDynamoDB {
+        /**
+         * The VALUE of each item in the DATA table keyed by ID.
+         */
+        final Map<String, String> data = new ConcurrentHashMap<>();
+        
+        /**
+         * The number of keys in each batch read.
+         */
+        final List<Integer> readSizes = Collections.synchronizedList(new ArrayList<>());
+        
+        /**
+         * The number of writes in each batch write.
+         */
+        final List<Integer> writeSizes = Collections.synchronizedList(new ArrayList<>());
+        
+        @Override
+        public synchronized BatchGetItemResult batchGetItem(BatchGetItemRequest request) {
+            List<Map<String, AttributeValue>> keys = request.getRequestItems().get("DATA").getKeys();
+            this.readSizes.add(keys.size());
+            
+            // leave the last key unprocessed when reading more than one
+            List<Map<String, AttributeValue>> processed = keys.size() > 1 ? keys.subList(0, keys.size() - 1) : keys;
+            List<Map<String, AttributeValue>> items = new ArrayList<>();
+            for (Map<String, AttributeValue> key : processed) {
+                String id = key.get("ID").getS();
+                if (this.data.containsKey(id)) {
+                    Map<String, AttributeValue> item = new HashMap<>();
+                    item.put("ID", new AttributeValue().withS(id));
+                    item.put("VALUE", new AttributeValue().withS(this.data.get(id)));
+                    items.add(item);
+                }
+            }
+            
+            BatchGetItemResult result = new BatchGetItemResult().withResponses(Collections.singletonMap("DATA", items));
+            if (processed.size() < keys.size()) {
+                result.setUnprocessedKeys(Collections.singletonMap("DATA", new KeysAndAttributes()
+                        .withKeys(keys.subList(processed.size(), keys.size()))
+                        .withAttributesToGet(request.getRequestItems().get("DATA").getAttributesToGet())));
+            }
+            return result;
+        }
+
+        @Override
+        public synchronized BatchWriteItemResult batchWriteItem(BatchWriteItemRequest request) {
+            List<WriteRequest> writes = request.getRequestItems().get("DATA");
+            this.writeSizes.add(writes.size());
+            for (WriteRequest write : writes) {
+                if (write.getPutRequest() != null) {
+                    Map<String, AttributeValue> item = write.getPutRequest().getItem();
+                    this.data.put(item.get("ID").getS(), item.get("VALUE").getS());
+                } else {
+                    this.data.remove(write.getDeleteRequest().getKey().get("ID").getS());
+                }
+            }
+            return new BatchWriteItemResult();
+        }
+    }
+}
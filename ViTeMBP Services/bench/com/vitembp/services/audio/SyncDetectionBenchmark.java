@@ -0,0 +1,137 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.audio;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the signal processing and sync detection algorithms on the tone
+ * values of each video frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SyncDetectionBenchmark {
+    /**
+     * The frame rate of the generated video.
+     */
+    private static final double FRAME_RATE = 29.97;
+
+    /**
+     * The length of the sync signal in frames.
+     */
+    private static final int SIGNAL_FRAME_LENGTH = (int)Math.round(FRAME_RATE * 2.0);
+
+    /**
+     * The number of video frames of tone values, 30 seconds and 10 minutes.
+     */
+    @Param({"900", "18000"})
+    public int frames;
+
+    /**
+     * The tone values of each frame.
+     */
+    private double[] frameValues;
+
+    /**
+     * The tone values after the averaging window is applied.
+     */
+    private double[] averagedValues;
+
+    /**
+     * Generates tone values with noise and a single sync signal.
+     */
+    @Setup
+    public void setUp() {
+        Random random = new Random(0x56695465L);
+        this.frameValues = new double[this.frames];
+        for (int i = 0; i < this.frames; i++) {
+            this.frameValues[i] = random.nextDouble() * 0.2;
+        }
+
+        // place the sync signal a third of the way through
+        int start = this.frames / 3;
+        for (int i = start; i < Math.min(start + SIGNAL_FRAME_LENGTH, this.frames); i++) {
+            this.frameValues[i] += 0.8;
+        }
+
+        this.averagedValues = SignalProcessing.appplyAveragingWindow(this.frameValues, 6);
+    }
+
+    /**
+     * Applies the averaging window used before detection.
+     * @return The averaged values.
+     */
+    @Benchmark
+    public double[] averagingWindow() {
+        return SignalProcessing.appplyAveragingWindow(this.frameValues, 6);
+    }
+
+    /**
+     * Finds the candidates of all algorithms in one scan.
+     * @return The candidates found.
+     */
+    @Benchmark
+    public List<SyncCandidate> findSyncCandidates() {
+        return SyncDetectionAlgorithms.findSyncCandidates(this.averagedValues, SIGNAL_FRAME_LENGTH);
+    }
+
+    /**
+     * Finds the sync frame with the averaging window algorithm.
+     * @return The sync frames found.
+     */
+    @Benchmark
+    public Set<Integer> findByAveragingWindow() {
+        return SyncDetectionAlgorithms.findSyncFramesByAveragingWindow(this.averagedValues, SIGNAL_FRAME_LENGTH);
+    }
+
+    /**
+     * Finds the sync frame with the run length algorithm.
+     * @return The sync frames found.
+     */
+    @Benchmark
+    public Set<Integer> findByRunLength() {
+        return SyncDetectionAlgorithms.findSyncFramesByRunLength(this.averagedValues, SIGNAL_FRAME_LENGTH);
+    }
+
+    /**
+     * Finds the sync frame with the first close to maximum algorithm.
+     * @return The sync frames found.
+     */
+    @Benchmark
+    public Set<Integer> findByFirstCloseToMax() {
+        return SyncDetectionAlgorithms.findSyncFramesByFirstCloseToMax(this.averagedValues);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.audio;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks detecting the sync tone in the audio of each video frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ToneDetectorBenchmark {
+    /**
+     * The sample rate of the generated audio.
+     */
+    private static final double SAMPLE_RATE = 48000.0;
+
+    /**
+     * The frame rate of the generated video.
+     */
+    private static final double FRAME_RATE = 29.97;
+
+    /**
+     * The frequency of the sync tone.
+     */
+    private static final double TONE_FREQUENCY = 3000.0;
+
+    /**
+     * The length of the generated audio in seconds.
+     */
+    @Param({"10", "60"})
+    public int seconds;
+
+    /**
+     * The generated audio samples.
+     */
+    private double[] audio;
+
+    /**
+     * Generates noisy audio with a two second sync tone.
+     */
+    @Setup
+    public void setUp() {
+        Random random = new Random(0x56695465L);
+        this.audio = new double[(int)(SAMPLE_RATE * this.seconds)];
+        int toneStart = (int)SAMPLE_RATE;
+        int toneEnd = (int)(SAMPLE_RATE * 3);
+        for (int i = 0; i < this.audio.length; i++) {
+            double value = (random.nextDouble() - 0.5) * 0.1;
+            if (i >= toneStart && i < toneEnd) {
+                value += 0.5 * Math.sin(2.0 * Math.PI * TONE_FREQUENCY * i / SAMPLE_RATE);
+            }
+            this.audio[i] = value;
+        }
+    }
+
+    /**
+     * Detects the tone in every frame of the audio.
+     * @return The tone contrast of each frame.
+     */
+    @Benchmark
+    public double[] detect() {
+        ToneDetector detector = new ToneDetector(SAMPLE_RATE, FRAME_RATE, TONE_FREQUENCY);
+        for (double sample : this.audio) {
+            detector.accept(sample);
+        }
+        return detector.getToneContrast();
+    }
+}
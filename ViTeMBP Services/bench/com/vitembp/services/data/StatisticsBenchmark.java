@@ -0,0 +1,174 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.data;
+
+import com.vitembp.embedded.data.Capture;
+import com.vitembp.embedded.data.CaptureFactory;
+import com.vitembp.embedded.data.CaptureTypes;
+import com.vitembp.embedded.data.Sample;
+import com.vitembp.services.sensors.DecodedCapture;
+import com.vitembp.services.sensors.Sensor;
+import com.vitembp.services.sensors.SensorFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import static java.util.stream.Collectors.toList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks decoding capture data and calculating its statistics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatisticsBenchmark {
+    /**
+     * The type of the rotary encoder sensors.
+     */
+    private static final UUID ROTARY_TYPE = UUID.fromString("75d05ba8-639c-46e6-a940-591d920a2d86");
+
+    /**
+     * The type of the distance sensors.
+     */
+    private static final UUID DISTANCE_TYPE = UUID.fromString("3972d3a9-d55f-4e74-a61f-f2f8fe62f858");
+
+    /**
+     * The type of the accelerometer sensor.
+     */
+    private static final UUID ACCELEROMETER_TYPE = UUID.fromString("fe3c4af2-feb4-4c9b-a717-2d0db3052293");
+
+    /**
+     * The number of samples in the capture, 1 and 10 minutes at 29.97 Hz.
+     */
+    @Param({"1800", "18000"})
+    public int samples;
+
+    /**
+     * The generated capture.
+     */
+    private Capture capture;
+
+    /**
+     * The samples of the capture.
+     */
+    private List<Sample> sampleList;
+
+    /**
+     * The sensors of the capture.
+     */
+    private Map<String, Sensor> sensors;
+
+    /**
+     * The decoded capture data.
+     */
+    private DecodedCapture decoded;
+
+    /**
+     * Generates a capture with brake, shock, and accelerometer sensors.
+     * @throws InstantiationException If the capture cannot be created.
+     */
+    @Setup
+    public void setUp() throws InstantiationException {
+        Map<String, UUID> nameToIds = new HashMap<>();
+        nameToIds.put("Front Brake", ROTARY_TYPE);
+        nameToIds.put("Rear Brake", ROTARY_TYPE);
+        nameToIds.put("Frame Accelerometer", ACCELEROMETER_TYPE);
+        nameToIds.put("Front Shock", DISTANCE_TYPE);
+        nameToIds.put("Rear Shock", DISTANCE_TYPE);
+        this.capture = CaptureFactory.buildCapture(CaptureTypes.InMemory, 29.97, nameToIds, new HashMap<>());
+
+        Random random = new Random(0x56695465L);
+        for (int i = 0; i < this.samples; i++) {
+            Map<String, String> data = new HashMap<>();
+            data.put("Front Brake", Integer.toString(random.nextInt(128)));
+            data.put("Rear Brake", Integer.toString(random.nextInt(128)));
+            data.put("Front Shock", Integer.toString(random.nextInt(200)));
+
+            // the occasional sample is missing a reading
+            data.put("Rear Shock", random.nextInt(50) == 0 ? "" : Integer.toString(random.nextInt(200)));
+            data.put("Frame Accelerometer", "(" +
+                    Integer.toString(random.nextInt(8192) - 4096) + "," +
+                    Integer.toString(random.nextInt(8192) - 4096) + "," +
+                    Integer.toString(random.nextInt(8192) - 4096) + ")");
+            this.capture.addSample(data);
+        }
+
+        this.sampleList = this.capture.getSamples().collect(toList());
+        this.sensors = SensorFactory.getSensors(this.capture);
+        this.decoded = DecodedCapture.decode(this.sampleList.stream(), this.sensors);
+    }
+
+    /**
+     * Decodes the samples into columns.
+     * @return The decoded capture.
+     */
+    @Benchmark
+    public DecodedCapture decode() {
+        return DecodedCapture.decode(this.sampleList.stream(), this.sensors);
+    }
+
+    /**
+     * Calculates statistics decoding each sample.
+     * @return The statistics.
+     */
+    @Benchmark
+    public CaptureStatistics calculateFromSamples() {
+        return CaptureStatistics.calculate(this.sampleList.stream(), this.sensors, true);
+    }
+
+    /**
+     * Calculates statistics from already decoded columns.
+     * @return The statistics.
+     */
+    @Benchmark
+    public CaptureStatistics calculateFromDecoded() {
+        return CaptureStatistics.calculate(this.decoded, true);
+    }
+
+    /**
+     * Calculates statistics through the pipeline element as the overlay
+     * pipeline does, one sample at a time.
+     * @return The statistics.
+     */
+    @Benchmark
+    public Object pipelineElement() {
+        SampleStatisticsElement element = new SampleStatisticsElement(this.sensors, "Statistics", "Minimums", "Maximums", "Averages");
+        Map<String, Object> state = new HashMap<>();
+        for (Sample sample : this.sampleList) {
+            state.put("sample", sample);
+            state = element.accept(state);
+        }
+        return state.get("Statistics");
+    }
+}
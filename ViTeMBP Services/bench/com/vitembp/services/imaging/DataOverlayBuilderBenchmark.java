@@ -0,0 +1,111 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.imaging;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks creating overlays and drawing the elements of an overlay.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataOverlayBuilderBenchmark {
+    /**
+     * The width of the overlay, the height is chosen for a 16:9 frame.
+     */
+    @Param({"640", "1920"})
+    public int width;
+
+    /**
+     * The height of the overlay.
+     */
+    private int height;
+
+    /**
+     * The overlay the elements are drawn on.
+     */
+    private DataOverlayBuilder builder;
+
+    /**
+     * The progress of the drawn bars, changed each invocation so text and
+     * bars differ between frames.
+     */
+    private int frame;
+
+    /**
+     * Creates the overlay to draw on.
+     */
+    @Setup
+    public void setUp() {
+        this.height = this.width * 9 / 16;
+        this.builder = new DataOverlayBuilder(this.width, this.height);
+        this.frame = 0;
+    }
+
+    /**
+     * Creates a blank transparent overlay.
+     * @return The overlay image.
+     */
+    @Benchmark
+    public BufferedImage createBlank() {
+        return new DataOverlayBuilder(this.width, this.height).getImage();
+    }
+
+    /**
+     * Draws the elements of a four quadrant overlay for a frame.
+     * @return The overlay image.
+     */
+    @Benchmark
+    public BufferedImage drawElements() {
+        this.frame = (this.frame + 1) % 100;
+        float progress = this.frame / 100.0f;
+        int halfWidth = this.width / 2;
+        int halfHeight = this.height / 2;
+
+        // brakes in the top left
+        this.builder.addText("Front Brake: " + this.frame + "%", 20, 20);
+        this.builder.addHorizontalProgressBar(progress, 20, 30, halfWidth - 20, 60);
+        this.builder.addHorizontalProgressBar(1.0f - progress, 20, 70, halfWidth - 20, 100);
+        this.builder.addText("Rear Brake: " + (100 - this.frame) + "%", 20, 120);
+
+        // shocks in the top right
+        this.builder.addVerticalProgressBar(progress, halfWidth + 20, 20, halfWidth + 80, halfHeight - 40);
+        this.builder.addText("Shock: " + this.frame + "%", halfWidth + 20, halfHeight - 20);
+
+        // acceleration in the bottom left
+        this.builder.addHorizontalProgressBar(progress, 20, halfHeight + 20, halfWidth - 20, halfHeight + 50);
+        this.builder.addText("Acceleration Gs: " + progress, 20, halfHeight + 70);
+        return this.builder.getImage();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.imaging;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks building histograms of extracted video frames.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistogramBenchmark {
+    /**
+     * The width of the frame, the height is chosen for a 16:9 frame.
+     */
+    @Param({"640", "1920"})
+    public int width;
+
+    /**
+     * The type of the image, 3BYTE_BGR is what PNG frames decode to.
+     */
+    @Param({"3BYTE_BGR", "INT_RGB", "INT_ARGB"})
+    public String imageType;
+
+    /**
+     * The generated frame.
+     */
+    private BufferedImage image;
+
+    /**
+     * The generated frame encoded as a PNG as the frames are extracted.
+     */
+    private byte[] png;
+
+    /**
+     * Generates a noisy gradient frame.
+     * @throws IOException If the frame cannot be encoded.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        int height = this.width * 9 / 16;
+        int type;
+        switch (this.imageType) {
+            case "INT_RGB":
+                type = BufferedImage.TYPE_INT_RGB;
+                break;
+            case "INT_ARGB":
+                type = BufferedImage.TYPE_INT_ARGB;
+                break;
+            default:
+                type = BufferedImage.TYPE_3BYTE_BGR;
+                break;
+        }
+
+        Random random = new Random(0x56695465L);
+        this.image = new BufferedImage(this.width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < this.width; x++) {
+                int red = (x * 255 / this.width + random.nextInt(16)) & 0xFF;
+                int green = (y * 255 / height + random.nextInt(16)) & 0xFF;
+                int blue = random.nextInt(256);
+                this.image.setRGB(x, y, 0xFF000000 | (red << 16) | (green << 8) | blue);
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(this.image, "png", out);
+        this.png = out.toByteArray();
+    }
+
+    /**
+     * Builds the histogram of a decoded frame.
+     * @return The histogram.
+     */
+    @Benchmark
+    public Histogram fromImage() {
+        return new Histogram(this.image);
+    }
+
+    /**
+     * Decodes a PNG frame and builds its histogram.
+     * @return The histogram.
+     * @throws IOException If the frame cannot be decoded.
+     */
+    @Benchmark
+    public Histogram fromPng() throws IOException {
+        return new Histogram(new ByteArrayInputStream(this.png));
+    }
+}
@@ -18,9 +18,11 @@
 package com.vitembp.services;
 
 import com.vitembp.services.data.CaptureCalculations;
+import com.vitembp.services.data.CaptureExporter;
 import com.vitembp.services.data.CaptureOperations;
 import com.vitembp.services.video.Processing;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
@@ -52,13 +54,29 @@ public final class ApiFunctions {
      */
     private final FilenameGenerator fileGenerator;
     
+    /**
+     * The scheduler which runs the requests.
+     */
+    private final AsyncProcessing scheduler;
+    
     /**
      * Initializes a new instance of the ApiFunctions class.
      * @param fileGenerator The file name generator which provides cross context
      * names.
      */
     public ApiFunctions(FilenameGenerator fileGenerator) {
+        this(fileGenerator, AsyncProcessing.getInstance());
+    }
+    
+    /**
+     * Initializes a new instance of the ApiFunctions class.
+     * @param fileGenerator The file name generator which provides cross context
+     * names.
+     * @param scheduler The scheduler which runs the requests.
+     */
+    public ApiFunctions(FilenameGenerator fileGenerator, AsyncProcessing scheduler) {
         this.fileGenerator = fileGenerator;
+        this.scheduler = scheduler;
     }
     
     /**
@@ -71,7 +89,8 @@ public final class ApiFunctions {
      * video file.
      */
     public List<Integer> findChannelSyncFrames(String videoFile, COLOR_CHANNELS channel) throws IOException {
-        return Processing.findChannelSyncFrames(videoFile, channel, this.fileGenerator);
+        return this.scheduler.run(AsyncProcessing.JobClass.VIDEO, AsyncProcessing.Priority.NORMAL, null, null,
+                () -> Processing.findChannelSyncFrames(videoFile, channel, this.fileGenerator));
     }
     
     /**
@@ -85,7 +104,20 @@ public final class ApiFunctions {
      * video file.
      */
     public List<Integer> findChannelSyncFramesDiag(String videoFile, COLOR_CHANNELS channel, Path outputFile) throws IOException {
-        return Processing.findChannelSyncFrames(videoFile, channel, fileGenerator, outputFile);
+        return this.scheduler.run(AsyncProcessing.JobClass.VIDEO, AsyncProcessing.Priority.NORMAL, null, null,
+                () -> Processing.findChannelSyncFrames(videoFile, channel, this.fileGenerator, outputFile));
+    }
+    
+    /**
+     * Submits a job which finds the frames which have an outlier brightness
+     * in the given color channel and returns without waiting for it.
+     * @param videoFile The file to examine.
+     * @param channel The color channel to evaluate.
+     * @return The job which results in the frames found.
+     */
+    public AsyncProcessing.Job<List<Integer>> submitFindChannelSyncFrames(String videoFile, COLOR_CHANNELS channel) {
+        return this.scheduler.submit(AsyncProcessing.JobClass.VIDEO, AsyncProcessing.Priority.NORMAL, null, null,
+                () -> Processing.findChannelSyncFrames(videoFile, channel, this.fileGenerator));
     }
     
     /**
@@ -98,8 +130,12 @@ public final class ApiFunctions {
      * video file.
      */
     public void processCaptureVideo(UUID capture, String videoFile, String detinationBucket, String destinationFilename) throws IOException {
-        // this is a long running task, so enqueue it for async processing
-        Processing.processVideo(capture, videoFile, detinationBucket, destinationFilename);
+        // this is a long running task, so run it in the video pool where it
+        // does not hold up data requests, a repeated request joins the job
+        this.scheduler.run(AsyncProcessing.JobClass.VIDEO, AsyncProcessing.Priority.NORMAL, capture, "video " + detinationBucket + "/" + destinationFilename, () -> {
+            Processing.processVideo(capture, videoFile, detinationBucket, destinationFilename);
+            return null;
+        });
     }
     
     /**
@@ -110,8 +146,24 @@ public final class ApiFunctions {
      * @throws IOException If there is an IOException processing the data.
      */
     public String exportRaw(UUID capture, String destinationBucket) throws IOException {
+        return this.exportRaw(capture, destinationBucket, CaptureExporter.Format.CSV, false);
+    }
+    
+    /**
+     * Exports raw data to a file and outputs to the S3 bucket.
+     * @param capture The capture to process.
+     * @param destinationBucket The bucket to store the output in.
+     * @param format The format to export the data in.
+     * @param compress Whether the output is compressed with GZip.
+     * @return A string representing the result of the operation.
+     * @throws IOException If there is an IOException processing the data.
+     */
+    public String exportRaw(UUID capture, String destinationBucket, CaptureExporter.Format format, boolean compress) throws IOException {
         try {
-            Processing.exportRawData(capture, destinationBucket);
+            this.scheduler.run(AsyncProcessing.JobClass.DATA, AsyncProcessing.Priority.LOW, capture, "raw " + destinationBucket + " " + format.toString() + " " + Boolean.toString(compress), () -> {
+                Processing.exportRawData(capture, destinationBucket, format, compress);
+                return null;
+            });
         } catch (Exception ex) {
             LOGGER.error("Exception exporting raw capture data.", ex);
             return "Could not export raw capture data.";
@@ -127,8 +179,24 @@ public final class ApiFunctions {
      * @throws IOException If there is an IOException processing the data.
      */
     public String exportCal(UUID capture, String destinationBucket) throws IOException {
+        return this.exportCal(capture, destinationBucket, CaptureExporter.Format.CSV, false);
+    }
+    
+    /**
+     * Exports calibrated data to a file and outputs to the S3 bucket.
+     * @param capture The capture to process.
+     * @param destinationBucket The bucket to store the output in.
+     * @param format The format to export the data in.
+     * @param compress Whether the output is compressed with GZip.
+     * @return A string representing the result of the operation.
+     * @throws IOException If there is an IOException processing the data.
+     */
+    public String exportCal(UUID capture, String destinationBucket, CaptureExporter.Format format, boolean compress) throws IOException {
         try {
-            Processing.exportCalData(capture, destinationBucket);
+            this.scheduler.run(AsyncProcessing.JobClass.DATA, AsyncProcessing.Priority.LOW, capture, "cal " + destinationBucket + " " + format.toString() + " " + Boolean.toString(compress), () -> {
+                Processing.exportCalData(capture, destinationBucket, format, compress);
+                return null;
+            });
         } catch (Exception ex) {
             LOGGER.error("Exception exporting calibrated capture data.", ex);
             return "Could not export calibrated capture data.";
@@ -136,6 +204,24 @@ public final class ApiFunctions {
         return "Calibrated capture data successfully exported for download.";
     }
     
+    /**
+     * Streams the data of a capture to a destination as it is read.
+     * @param capture The capture to export.
+     * @param calibrated Whether calibrated values are exported instead of the
+     * raw sensor data.
+     * @param format The format to export the data in.
+     * @param compress Whether the output is compressed with GZip.
+     * @param destination The stream to write the data to, which is flushed but
+     * not closed when the export is finished.
+     * @throws IOException If there is an IOException exporting the data.
+     */
+    public void exportTo(UUID capture, boolean calibrated, CaptureExporter.Format format, boolean compress, OutputStream destination) throws IOException {
+        this.scheduler.run(AsyncProcessing.JobClass.DATA, AsyncProcessing.Priority.NORMAL, null, null, () -> {
+            CaptureExporter.export(CaptureOperations.getCaptureAtLocation(capture), calibrated, format, compress, destination);
+            return null;
+        });
+    }
+    
     /**
      * Deletes a capture and all of its associated data and index entries.
      * @param toDelete The UUID of the capture to delete.
@@ -143,7 +229,14 @@ public final class ApiFunctions {
      * @throws IOException If there is an error deleting form the data store.
      */
     public String deleteCapture(UUID toDelete) throws IOException {
-        return CaptureOperations.delete(toDelete);
+        // work still running on the capture would fail once it is deleted
+        int cancelled = this.scheduler.cancel(toDelete);
+        if (cancelled > 0) {
+            LOGGER.info("Cancelled " + Integer.toString(cancelled) + " jobs for deleted capture " + toDelete.toString() + ".");
+        }
+        
+        return this.scheduler.run(AsyncProcessing.JobClass.DATA, AsyncProcessing.Priority.HIGH, toDelete, "delete",
+                () -> CaptureOperations.delete(toDelete));
     }
     
     /**
@@ -153,7 +246,8 @@ public final class ApiFunctions {
      * @throws IOException If there is an error reading from the data store.
      */
     public String summarizeCapture(UUID toSummarize) throws IOException {
-        return CaptureCalculations.getSummaryData(toSummarize);
+        return this.scheduler.run(AsyncProcessing.JobClass.DATA, AsyncProcessing.Priority.HIGH, toSummarize, "summary",
+                () -> CaptureCalculations.getSummaryData(toSummarize));
     }
     
     /**
@@ -164,7 +258,8 @@ public final class ApiFunctions {
      * @throws IOException If there is an error reading from the data store.
      */
     public String calculageGraphData(UUID capture, int points) throws IOException {
-        return CaptureCalculations.buildGraphDataForCapture(capture, points);
+        return this.scheduler.run(AsyncProcessing.JobClass.DATA, AsyncProcessing.Priority.HIGH, capture, "graph json " + Integer.toString(points),
+                () -> CaptureCalculations.buildGraphDataForCapture(capture, points));
     }
     
     /**
@@ -175,7 +270,57 @@ public final class ApiFunctions {
      * @throws IOException If there is an error reading from the data store.
      */
     public String calculageGraphDataCsv(UUID capture, int points) throws IOException {
-        return CaptureCalculations.buildCsvGraphDataForCapture(capture, points);
+        return this.scheduler.run(AsyncProcessing.JobClass.DATA, AsyncProcessing.Priority.HIGH, capture, "graph csv " + Integer.toString(points),
+                () -> CaptureCalculations.buildCsvGraphDataForCapture(capture, points));
+    }
+    
+    /**
+     * Builds data for displaying graph of a time window of the sensor data.
+     * @param capture The capture to build data for.
+     * @param points The number of points to reduce the data to.
+     * @param startTime The start of the window in seconds from the start of
+     * the capture.
+     * @param endTime The end of the window in seconds from the start of the
+     * capture.
+     * @return The calculated data for graphing.
+     * @throws IOException If there is an error reading from the data store.
+     */
+    public String calculageGraphData(UUID capture, int points, double startTime, double endTime) throws IOException {
+        return this.scheduler.run(AsyncProcessing.JobClass.DATA, AsyncProcessing.Priority.HIGH, capture, "graph json " + Integer.toString(points) + " " + Double.toString(startTime) + " " + Double.toString(endTime),
+                () -> CaptureCalculations.buildGraphDataForCapture(capture, points, startTime, endTime));
+    }
+    
+    /**
+     * Builds data for displaying graph of a time window of the sensor data.
+     * @param capture The capture to build data for.
+     * @param points The number of points to reduce the data to.
+     * @param startTime The start of the window in seconds from the start of
+     * the capture.
+     * @param endTime The end of the window in seconds from the start of the
+     * capture.
+     * @return The calculated data for graphing.
+     * @throws IOException If there is an error reading from the data store.
+     */
+    public String calculageGraphDataCsv(UUID capture, int points, double startTime, double endTime) throws IOException {
+        return this.scheduler.run(AsyncProcessing.JobClass.DATA, AsyncProcessing.Priority.HIGH, capture, "graph csv " + Integer.toString(points) + " " + Double.toString(startTime) + " " + Double.toString(endTime),
+                () -> CaptureCalculations.buildCsvGraphDataForCapture(capture, points, startTime, endTime));
+    }
+    
+    /**
+     * Cancels the queued and running jobs for a capture.
+     * @param capture The capture to cancel the jobs of.
+     * @return A message indicating the disposition of the request.
+     */
+    public String cancelJobs(UUID capture) {
+        return "Cancelled " + Integer.toString(this.scheduler.cancel(capture)) + " jobs.";
+    }
+    
+    /**
+     * Gets the queue depth and latency of each class of jobs.
+     * @return A JSON string of the job class status.
+     */
+    public String getJobStatus() {
+        return this.scheduler.getStatus();
     }
     
     /**
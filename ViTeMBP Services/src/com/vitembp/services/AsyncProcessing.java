@@ -17,13 +17,35 @@
  */
 package com.vitembp.services;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.logging.log4j.LogManager;
 
 /**
  * This class provides asynchronous processing services for long-lived
- * operations.
+ * operations. Jobs are divided into classes which each have their own pool of
+ * worker threads, so a long video job never delays a quick data request.
+ * Within a class jobs run in priority order and each class limits how many
+ * FFmpeg processes its jobs may run at once and how much temporary disk space
+ * they may reserve. Jobs for the same capture and output are only run once at
+ * a time and jobs may be cancelled while queued or running.
  */
 public class AsyncProcessing {
     /**
@@ -32,22 +54,92 @@ public class AsyncProcessing {
     private static final org.apache.logging.log4j.Logger LOGGER = LogManager.getLogger();
     
     /**
-     * The thread which processes commands.
+     * The classes of jobs, each of which has its own worker pool and limits.
      */
-    private static final Thread PROCESSING_THREAD;
+    public static enum JobClass {
+        /**
+         * Light jobs which read and calculate capture data.
+         */
+        DATA,
+        
+        /**
+         * CPU heavy jobs which run FFmpeg to process video.
+         */
+        VIDEO
+    };
     
     /**
-     * The queue which holds commands waiting to be processed.
+     * The priorities jobs within a class are run in.
      */
-    private static final BlockingQueue<Runnable> TASK_QUEUE = new LinkedBlockingQueue<>();
+    public static enum Priority {
+        /**
+         * Interactive requests that a user is waiting on.
+         */
+        HIGH,
+        
+        /**
+         * Requests with no particular urgency.
+         */
+        NORMAL,
+        
+        /**
+         * Bulk requests which can wait behind everything else.
+         */
+        LOW
+    };
     
     /**
-     * Static class initializer.
+     * The job the current thread is running, if any.
      */
-    static {
-        PROCESSING_THREAD = new Thread(AsyncProcessing::runTask);
-        PROCESSING_THREAD.setName("Async Processing Thread");
-        PROCESSING_THREAD.start();
+    private static final ThreadLocal<Job<?>> CURRENT_JOB = new ThreadLocal<>();
+    
+    /**
+     * The instance shared by the service interfaces.
+     */
+    private static AsyncProcessing singleton;
+    
+    /**
+     * The worker pool of each job class.
+     */
+    private final Map<JobClass, ClassPool> pools = new EnumMap<>(JobClass.class);
+    
+    /**
+     * The queued and running jobs which have a capture and output, keyed by
+     * the capture and output.
+     */
+    private final Map<String, Job<?>> activeJobs = new ConcurrentHashMap<>();
+    
+    /**
+     * The sequence used to run jobs of the same priority in order.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+    
+    /**
+     * Initializes a new instance of the AsyncProcessing class.
+     * @param dataLimits The limits of the data job class.
+     * @param videoLimits The limits of the video job class.
+     */
+    public AsyncProcessing(ClassLimits dataLimits, ClassLimits videoLimits) {
+        this.pools.put(JobClass.DATA, new ClassPool(JobClass.DATA, dataLimits));
+        this.pools.put(JobClass.VIDEO, new ClassPool(JobClass.VIDEO, videoLimits));
+    }
+    
+    /**
+     * Gets the instance shared by the service interfaces, creating it with
+     * limits based on the number of processors the first time it is used.
+     * @return The shared instance.
+     */
+    public static synchronized AsyncProcessing getInstance() {
+        if (singleton == null) {
+            int processors = Runtime.getRuntime().availableProcessors();
+            
+            // data jobs are mostly waiting on the data store, video jobs
+            // each keep FFmpeg busy on all cores so only a few run at once
+            singleton = new AsyncProcessing(
+                    new ClassLimits(Math.max(2, processors), processors, 1L << 30),
+                    new ClassLimits(Math.max(1, processors / 4), Math.max(1, processors / 4), 16L << 30));
+        }
+        return singleton;
     }
     
     /**
@@ -55,26 +147,699 @@ public class AsyncProcessing {
      * @param toAdd The task to add.
      */
     public static void enqueue(Runnable toAdd) {
+        getInstance().submit(JobClass.DATA, Priority.NORMAL, null, null, () -> {
+            toAdd.run();
+            return null;
+        });
+    }
+    
+    /**
+     * Submits a job to run in the pool of its class. If a job for the same
+     * capture and output is already queued or running, that job is returned
+     * instead of queuing another.
+     * @param <T> The type of the result of the job.
+     * @param jobClass The class of the job.
+     * @param priority The priority of the job within its class.
+     * @param capture The capture the job operates on or null if the job
+     * should not be de-duplicated.
+     * @param output The output the job produces for the capture.
+     * @param task The task to run.
+     * @return The job, which may have been submitted earlier.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Job<T> submit(JobClass jobClass, Priority priority, UUID capture, String output, Callable<T> task) {
+        ClassPool pool = this.pools.get(jobClass);
+        Job<T> job = new Job<>(this, pool, priority, this.sequence.getAndIncrement(), capture, output, task);
+        
+        if (job.key != null) {
+            Job<?> existing = this.activeJobs.putIfAbsent(job.key, job);
+            if (existing != null) {
+                LOGGER.info("Joining existing job for " + job.key + ".");
+                return (Job<T>)existing;
+            }
+        }
+        
+        pool.queue.add(job);
+        return job;
+    }
+    
+    /**
+     * Submits a job and waits for its result.
+     * @param <T> The type of the result of the job.
+     * @param jobClass The class of the job.
+     * @param priority The priority of the job within its class.
+     * @param capture The capture the job operates on or null if the job
+     * should not be de-duplicated.
+     * @param output The output the job produces for the capture.
+     * @param task The task to run.
+     * @return The result of the job.
+     * @throws IOException If the job failed, was cancelled, or the wait was
+     * interrupted.
+     */
+    public <T> T run(JobClass jobClass, Priority priority, UUID capture, String output, Callable<T> task) throws IOException {
+        Job<T> job = this.submit(jobClass, priority, capture, output, task);
         try {
-            TASK_QUEUE.put(toAdd);
+            return job.get();
         } catch (InterruptedException ex) {
-            // something strange happened because this is an un-boudned queue
-            // it is unlikely to be recoverable so just log the error
-            LOGGER.error("Interrupted enqueuing video to process in unbounded queue.", ex);
+            throw new InterruptedIOException("Interrupted waiting for job " + job.toString() + ".");
+        } catch (CancellationException ex) {
+            throw new IOException("Job " + job.toString() + " was cancelled.", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException)ex.getCause();
+            }
+            throw new IOException("Job " + job.toString() + " failed.", ex.getCause());
+        }
+    }
+    
+    /**
+     * Cancels all queued and running jobs for a capture.
+     * @param capture The capture to cancel the jobs of.
+     * @return The number of jobs cancelled.
+     */
+    public int cancel(UUID capture) {
+        List<Job<?>> running = new ArrayList<>();
+        int cancelled = 0;
+        
+        // queued jobs are cancelled first so that a worker freed by
+        // cancelling a running job cannot start one of them
+        for (Job<?> job : new ArrayList<>(this.activeJobs.values())) {
+            if (capture.equals(job.capture)) {
+                if (job.isRunning()) {
+                    running.add(job);
+                } else if (job.cancel(true)) {
+                    cancelled++;
+                }
+            }
         }
+        
+        for (Job<?> job : running) {
+            if (job.cancel(true)) {
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+    
+    /**
+     * Stops the worker threads of all classes. Queued jobs are cancelled and
+     * running jobs are interrupted.
+     */
+    public void shutdown() {
+        this.pools.values().forEach(ClassPool::shutdown);
+    }
+    
+    /**
+     * Gets the number of jobs of a class waiting to run.
+     * @param jobClass The class of jobs.
+     * @return The number of jobs waiting to run.
+     */
+    public int getQueueDepth(JobClass jobClass) {
+        return this.pools.get(jobClass).queue.size();
     }
     
     /**
-     * Runs async tasks synchronously.
+     * Gets the number of jobs of a class which are running.
+     * @param jobClass The class of jobs.
+     * @return The number of jobs running.
      */
-    private static void runTask() {
-        while (true) {
+    public int getRunningCount(JobClass jobClass) {
+        return this.pools.get(jobClass).running.get();
+    }
+    
+    /**
+     * Gets the number of jobs of a class which have finished running.
+     * @param jobClass The class of jobs.
+     * @return The number of jobs which have finished.
+     */
+    public long getCompletedCount(JobClass jobClass) {
+        return this.pools.get(jobClass).completed.get();
+    }
+    
+    /**
+     * Gets the average time jobs of a class waited in the queue.
+     * @param jobClass The class of jobs.
+     * @return The average wait in milliseconds.
+     */
+    public double getAverageWaitMillis(JobClass jobClass) {
+        ClassPool pool = this.pools.get(jobClass);
+        long started = pool.started.get();
+        return started == 0 ? 0.0 : pool.waitNanos.get() / 1e6 / started;
+    }
+    
+    /**
+     * Gets the average time jobs of a class took to run.
+     * @param jobClass The class of jobs.
+     * @return The average run time in milliseconds.
+     */
+    public double getAverageRunMillis(JobClass jobClass) {
+        ClassPool pool = this.pools.get(jobClass);
+        long completed = pool.completed.get();
+        return completed == 0 ? 0.0 : pool.runNanos.get() / 1e6 / completed;
+    }
+    
+    /**
+     * Gets the temporary disk space reserved by running jobs of a class.
+     * @param jobClass The class of jobs.
+     * @return The reserved space in bytes.
+     */
+    public long getTemporaryBytesReserved(JobClass jobClass) {
+        ClassPool pool = this.pools.get(jobClass);
+        synchronized (pool) {
+            return pool.temporaryBytesReserved;
+        }
+    }
+    
+    /**
+     * Gets a JSON string describing the queue depth and latency of each
+     * class of jobs.
+     * @return The JSON status of the job classes.
+     */
+    public String getStatus() {
+        StringBuilder status = new StringBuilder("{");
+        for (JobClass jobClass : JobClass.values()) {
+            if (status.length() > 1) {
+                status.append(",");
+            }
+            status.append("\"").append(jobClass.toString()).append("\":{")
+                    .append("\"queued\":").append(this.getQueueDepth(jobClass))
+                    .append(",\"running\":").append(this.getRunningCount(jobClass))
+                    .append(",\"completed\":").append(this.getCompletedCount(jobClass))
+                    .append(",\"averageWaitMillis\":").append(this.getAverageWaitMillis(jobClass))
+                    .append(",\"averageRunMillis\":").append(this.getAverageRunMillis(jobClass))
+                    .append(",\"temporaryBytesReserved\":").append(this.getTemporaryBytesReserved(jobClass))
+                    .append("}");
+        }
+        return status.append("}").toString();
+    }
+    
+    /**
+     * Starts a process, waiting until the class of the job running on the
+     * current thread allows another process to run. The process is stopped
+     * if the job is cancelled. Processes started outside of a job are not
+     * limited.
+     * @param toStart The process to start.
+     * @return The started process which must be waited on with
+     * {@link #waitFor(java.lang.Process)}.
+     * @throws IOException If the process could not be started or the job
+     * was cancelled.
+     */
+    public static Process startProcess(ProcessBuilder toStart) throws IOException {
+        Job<?> job = CURRENT_JOB.get();
+        if (job == null) {
+            return toStart.start();
+        }
+        
+        try {
+            job.pool.processPermits.acquire();
+        } catch (InterruptedException ex) {
+            throw new InterruptedIOException("Interrupted waiting to start process.");
+        }
+        
+        try {
+            return job.addProcess(toStart.start());
+        } catch (IOException ex) {
+            job.pool.processPermits.release();
+            throw ex;
+        }
+    }
+    
+    /**
+     * Waits for a process started with
+     * {@link #startProcess(java.lang.ProcessBuilder)} to exit and releases
+     * its place in the process limit.
+     * @param toWaitFor The process to wait for.
+     * @return The exit value of the process.
+     * @throws InterruptedException If the wait was interrupted, in which case
+     * the process is stopped.
+     */
+    public static int waitFor(Process toWaitFor) throws InterruptedException {
+        Job<?> job = CURRENT_JOB.get();
+        try {
+            return toWaitFor.waitFor();
+        } catch (InterruptedException ex) {
+            toWaitFor.destroyForcibly();
+            throw ex;
+        } finally {
+            if (job != null && job.removeProcess(toWaitFor)) {
+                job.pool.processPermits.release();
+            }
+        }
+    }
+    
+    /**
+     * Reserves temporary disk space for the job running on the current
+     * thread, waiting until its class has the space available. A job larger
+     * than the limit of its class runs once no other job holds space. The
+     * space is released when the job completes.
+     * @param bytes The number of bytes to reserve.
+     * @throws IOException If the wait was interrupted or the job cancelled.
+     */
+    public static void reserveTemporarySpace(long bytes) throws IOException {
+        Job<?> job = CURRENT_JOB.get();
+        if (job == null) {
+            return;
+        }
+        
+        ClassPool pool = job.pool;
+        synchronized (pool) {
             try {
-                TASK_QUEUE.take().run();
+                while (pool.temporaryBytesReserved > 0 && pool.temporaryBytesReserved + bytes > pool.limits.temporaryBytes) {
+                    pool.wait();
+                }
             } catch (InterruptedException ex) {
-                LOGGER.error("Interrupted waiting for task.", ex);
-                return;
+                throw new InterruptedIOException("Interrupted waiting for temporary space.");
+            }
+            pool.temporaryBytesReserved += bytes;
+            job.temporaryBytes += bytes;
+        }
+    }
+    
+    /**
+     * The limits of a class of jobs.
+     */
+    public static class ClassLimits {
+        /**
+         * The number of jobs of the class which run at once.
+         */
+        private final int workers;
+        
+        /**
+         * The number of processes jobs of the class may run at once.
+         */
+        private final int processes;
+        
+        /**
+         * The temporary disk space jobs of the class may reserve at once.
+         */
+        private final long temporaryBytes;
+        
+        /**
+         * Initializes a new instance of the ClassLimits class.
+         * @param workers The number of jobs of the class which run at once.
+         * @param processes The number of processes jobs of the class may run
+         * at once.
+         * @param temporaryBytes The temporary disk space jobs of the class
+         * may reserve at once.
+         */
+        public ClassLimits(int workers, int processes, long temporaryBytes) {
+            if (workers < 1 || processes < 1) {
+                throw new IllegalArgumentException("A job class must have at least one worker and process.");
+            }
+            
+            this.workers = workers;
+            this.processes = processes;
+            this.temporaryBytes = temporaryBytes;
+        }
+    }
+    
+    /**
+     * The queue, worker threads, and limits of a class of jobs.
+     */
+    private static class ClassPool {
+        /**
+         * The limits of the class.
+         */
+        private final ClassLimits limits;
+        
+        /**
+         * The jobs waiting to run, ordered by priority then submission.
+         */
+        private final PriorityBlockingQueue<Job<?>> queue = new PriorityBlockingQueue<>();
+        
+        /**
+         * The worker threads.
+         */
+        private final List<Thread> workers = new ArrayList<>();
+        
+        /**
+         * The permits for processes run by jobs of the class.
+         */
+        private final Semaphore processPermits;
+        
+        /**
+         * The temporary disk space reserved by running jobs.
+         */
+        private long temporaryBytesReserved = 0;
+        
+        /**
+         * The number of jobs running.
+         */
+        private final AtomicInteger running = new AtomicInteger();
+        
+        /**
+         * The number of jobs which have started running.
+         */
+        private final AtomicLong started = new AtomicLong();
+        
+        /**
+         * The number of jobs which have finished running.
+         */
+        private final AtomicLong completed = new AtomicLong();
+        
+        /**
+         * The total time jobs which started waited in the queue.
+         */
+        private final AtomicLong waitNanos = new AtomicLong();
+        
+        /**
+         * The total time jobs which finished took to run.
+         */
+        private final AtomicLong runNanos = new AtomicLong();
+        
+        /**
+         * Flag indicating whether the workers are running.
+         */
+        private volatile boolean isRunning = true;
+        
+        /**
+         * Initializes a new instance of the ClassPool class and starts its
+         * worker threads.
+         * @param jobClass The class of jobs run by the pool.
+         * @param limits The limits of the class.
+         */
+        ClassPool(JobClass jobClass, ClassLimits limits) {
+            this.limits = limits;
+            this.processPermits = new Semaphore(limits.processes, true);
+            
+            for (int i = 0; i < limits.workers; i++) {
+                Thread worker = new Thread(this::runTasks);
+                worker.setName("Async Processing " + jobClass.toString() + " " + Integer.toString(i));
+                worker.setDaemon(true);
+                this.workers.add(worker);
+                worker.start();
             }
         }
+        
+        /**
+         * Runs queued jobs until the pool is shut down.
+         */
+        private void runTasks() {
+            while (this.isRunning) {
+                Job<?> job;
+                try {
+                    job = this.queue.take();
+                } catch (InterruptedException ex) {
+                    // interrupts are expected when shutting down
+                    if (this.isRunning) {
+                        LOGGER.error("Interrupted waiting for task.", ex);
+                    }
+                    return;
+                }
+                
+                job.run();
+            }
+        }
+        
+        /**
+         * Releases temporary space reserved by a job.
+         * @param bytes The number of bytes to release.
+         */
+        private synchronized void releaseTemporarySpace(long bytes) {
+            if (bytes > 0) {
+                this.temporaryBytesReserved -= bytes;
+                this.notifyAll();
+            }
+        }
+        
+        /**
+         * Stops the worker threads and cancels queued jobs.
+         */
+        private void shutdown() {
+            this.isRunning = false;
+            this.workers.forEach(Thread::interrupt);
+            List<Job<?>> queued = new ArrayList<>();
+            this.queue.drainTo(queued);
+            queued.forEach(job -> job.cancel(true));
+        }
+    }
+    
+    /**
+     * A job which has been submitted for processing.
+     * @param <T> The type of the result of the job.
+     */
+    public static class Job<T> implements Future<T>, Comparable<Job<?>> {
+        /**
+         * The scheduler the job was submitted to.
+         */
+        private final AsyncProcessing scheduler;
+        
+        /**
+         * The pool of the class of the job.
+         */
+        private final ClassPool pool;
+        
+        /**
+         * The priority of the job.
+         */
+        private final Priority priority;
+        
+        /**
+         * The order the job was submitted in.
+         */
+        private final long sequence;
+        
+        /**
+         * The capture the job operates on or null.
+         */
+        private final UUID capture;
+        
+        /**
+         * The key the job is de-duplicated with or null.
+         */
+        private final String key;
+        
+        /**
+         * The task to run.
+         */
+        private final Callable<T> task;
+        
+        /**
+         * The result of the job.
+         */
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        
+        /**
+         * The time the job was submitted.
+         */
+        private final long submitted = System.nanoTime();
+        
+        /**
+         * The processes the job is running.
+         */
+        private final List<Process> processes = new ArrayList<>();
+        
+        /**
+         * The thread running the job or null if it is not running.
+         */
+        private Thread runner;
+        
+        /**
+         * Whether the task has returned and the job is completing its result,
+         * after which it can no longer be cancelled.
+         */
+        private boolean finishing = false;
+        
+        /**
+         * The temporary disk space reserved by the job.
+         */
+        private long temporaryBytes = 0;
+        
+        /**
+         * Initializes a new instance of the Job class.
+         * @param scheduler The scheduler the job was submitted to.
+         * @param pool The pool of the class of the job.
+         * @param priority The priority of the job.
+         * @param sequence The order the job was submitted in.
+         * @param capture The capture the job operates on or null.
+         * @param output The output the job produces for the capture.
+         * @param task The task to run.
+         */
+        private Job(AsyncProcessing scheduler, ClassPool pool, Priority priority, long sequence, UUID capture, String output, Callable<T> task) {
+            this.scheduler = scheduler;
+            this.pool = pool;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.capture = capture;
+            this.key = capture == null ? null : capture.toString() + " " + output;
+            this.task = task;
+        }
+        
+        /**
+         * Runs the job on the current worker thread.
+         */
+        private void run() {
+            synchronized (this) {
+                // cancelled while queued
+                if (this.result.isDone()) {
+                    return;
+                }
+                this.runner = Thread.currentThread();
+            }
+            
+            long start = System.nanoTime();
+            this.pool.started.incrementAndGet();
+            this.pool.waitNanos.addAndGet(start - this.submitted);
+            this.pool.running.incrementAndGet();
+            CURRENT_JOB.set(this);
+            T value = null;
+            Throwable failure = null;
+            try {
+                value = this.task.call();
+            } catch (Throwable ex) {
+                if (!this.result.isCancelled()) {
+                    LOGGER.error("Exception running job " + this.toString() + ".", ex);
+                }
+                failure = ex;
+            } finally {
+                CURRENT_JOB.remove();
+                synchronized (this) {
+                    this.runner = null;
+                    this.finishing = true;
+                    this.destroyProcesses();
+                }
+                
+                // clear an interrupt from a cancellation so it does not
+                // affect the next job run on this thread
+                Thread.interrupted();
+                
+                this.pool.releaseTemporarySpace(this.temporaryBytes);
+                this.pool.running.decrementAndGet();
+                this.pool.completed.incrementAndGet();
+                this.pool.runNanos.addAndGet(System.nanoTime() - start);
+                this.finish();
+            }
+            
+            // the result is set once the job is counted so callers waiting
+            // on it see the pool counts updated, cancel does not race it as
+            // the job was marked finishing under the lock that cleared runner
+            if (failure == null) {
+                this.result.complete(value);
+            } else {
+                this.result.completeExceptionally(failure);
+            }
+        }
+        
+        /**
+         * Gets whether the job is running on a worker thread.
+         * @return Whether the job is running.
+         */
+        public synchronized boolean isRunning() {
+            return this.runner != null;
+        }
+        
+        /**
+         * Removes the job from the active jobs of the scheduler.
+         */
+        private void finish() {
+            if (this.key != null) {
+                this.scheduler.activeJobs.remove(this.key, this);
+            }
+        }
+        
+        /**
+         * Records a process started by the job so that it can be stopped if
+         * the job is cancelled.
+         * @param toAdd The process to add.
+         * @return The process.
+         * @throws IOException If the job was cancelled.
+         */
+        private synchronized Process addProcess(Process toAdd) throws IOException {
+            if (this.result.isCancelled()) {
+                toAdd.destroyForcibly();
+                this.pool.processPermits.release();
+                throw new IOException("Job " + this.toString() + " was cancelled.");
+            }
+            this.processes.add(toAdd);
+            return toAdd;
+        }
+        
+        /**
+         * Removes a process which has exited from the job.
+         * @param toRemove The process to remove.
+         * @return Whether the process was held by the job.
+         */
+        private synchronized boolean removeProcess(Process toRemove) {
+            return this.processes.remove(toRemove);
+        }
+        
+        /**
+         * Stops all processes of the job and releases their permits.
+         */
+        private synchronized void destroyProcesses() {
+            this.processes.forEach(Process::destroyForcibly);
+            this.pool.processPermits.release(this.processes.size());
+            this.processes.clear();
+        }
+        
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            synchronized (this) {
+                if (this.finishing || !this.result.cancel(mayInterruptIfRunning)) {
+                    return false;
+                }
+                
+                // a running job is stopped, a queued job is removed
+                if (this.runner != null) {
+                    if (mayInterruptIfRunning) {
+                        this.runner.interrupt();
+                    }
+                    this.destroyProcesses();
+                } else {
+                    this.pool.queue.remove(this);
+                }
+            }
+            
+            LOGGER.info("Cancelled job " + this.toString() + ".");
+            this.finish();
+            return true;
+        }
+        
+        @Override
+        public boolean isCancelled() {
+            return this.result.isCancelled();
+        }
+        
+        @Override
+        public boolean isDone() {
+            return this.result.isDone();
+        }
+        
+        @Override
+        public T get() throws InterruptedException, ExecutionException {
+            return this.result.get();
+        }
+        
+        @Override
+        public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return this.result.get(timeout, unit);
+        }
+        
+        /**
+         * Gets the priority of the job.
+         * @return The priority of the job.
+         */
+        public Priority getPriority() {
+            return this.priority;
+        }
+        
+        /**
+         * Gets the capture the job operates on.
+         * @return The capture the job operates on or null.
+         */
+        public UUID getCapture() {
+            return this.capture;
+        }
+
+        @Override
+        public int compareTo(Job<?> other) {
+            int byPriority = this.priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(this.sequence, other.sequence);
+        }
+
+        @Override
+        public String toString() {
+            return this.key == null ? "#" + Long.toString(this.sequence) : this.key;
+        }
     }
 }
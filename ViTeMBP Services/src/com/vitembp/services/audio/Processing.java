@@ -17,14 +17,14 @@
  */
 package com.vitembp.services.audio;
 
-import com.vitembp.services.video.VideoFileInfo;
+import com.vitembp.services.video.MediaProbe;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -56,27 +56,34 @@ public class Processing {
         // get data frame chunks of data
         File fileIn = localTempOutput.toFile();
         
-        // provides video file information, such as frame rate
-        VideoFileInfo videoInfo = new VideoFileInfo(new File(sourceFile));
+        // the exact frame rate keeps audio frame boundaries aligned with the
+        // video frames for the whole file
+        double frameRate = MediaProbe.probe(Paths.get(sourceFile)).getFrameRate();
         
-        // performs an SignalProcessing on the audio of each video frame and gets the value
-        // at the target signal frequency
-        List<Double> frameValues = SignalProcessing.getFrameFFTValues(fileIn, videoInfo, signalFrequency);
+        // detect the tone in the audio of each video frame as it is read
+        double[] frameValues = ToneDetector.detect(fileIn, frameRate, signalFrequency).getToneContrast();
         
         // perform an averaging window to remove noise
-        List<Double> averagedValues = SignalProcessing.appplyAveragingWindow(frameValues, 6);
+        double[] averagedValues = SignalProcessing.appplyAveragingWindow(frameValues, 6);
         
         // calculate the length of the audio signal in frames
         double signalTimeInSeconds = 2.0;
-        int signalFrameLength = (int)Math.round(videoInfo.getFrameRate() * signalTimeInSeconds);
+        int signalFrameLength = (int)Math.round(frameRate * signalTimeInSeconds);
         
-        // find the sync frames
-        Set<Integer> syncFramesAvg = SyncDetectionAlgorithms.findSyncFramesByAveragingWindow(averagedValues, signalFrameLength);
+        // find the candidates of all algorithms in one scan, the averaging
+        // window candidate is used as the sync frame
+        List<Integer> syncFramesAvg = new ArrayList<>();
+        for (SyncCandidate candidate : SyncDetectionAlgorithms.findSyncCandidates(averagedValues, signalFrameLength)) {
+            LOGGER.debug("Sync candidate " + candidate.toString() + " in " + sourceFile + ".");
+            if (candidate.getMethod() == SyncCandidate.Method.AVERAGING_WINDOW) {
+                syncFramesAvg.add(candidate.getFrame());
+            }
+        }
         
         // remove temp file
         localTempOutput.toFile().delete();
         
         // return frames
-        return new ArrayList<>(syncFramesAvg);
+        return syncFramesAvg;
     }
 }
@@ -0,0 +1,103 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.audio;
+
+/**
+ * A sync frame found by one of the detection algorithms along with a score
+ * of how clearly the signal stands out from the rest of the audio.
+ */
+class SyncCandidate {
+    /**
+     * The algorithms which can produce a candidate.
+     */
+    static enum Method {
+        /**
+         * The window with the largest average value.
+         */
+        AVERAGING_WINDOW,
+        
+        /**
+         * The longest run of values close to the peak value.
+         */
+        RUN_LENGTH,
+        
+        /**
+         * The first value close to the peak value.
+         */
+        FIRST_CLOSE_TO_MAX
+    };
+    
+    /**
+     * The algorithm which found the candidate.
+     */
+    private final Method method;
+    
+    /**
+     * The frame the signal starts at.
+     */
+    private final int frame;
+    
+    /**
+     * The confidence score on the interval [0, 1].
+     */
+    private final double confidence;
+    
+    /**
+     * Initializes a new instance of the SyncCandidate class.
+     * @param method The algorithm which found the candidate.
+     * @param frame The frame the signal starts at.
+     * @param confidence The confidence score on the interval [0, 1].
+     */
+    SyncCandidate(Method method, int frame, double confidence) {
+        this.method = method;
+        this.frame = frame;
+        this.confidence = confidence;
+    }
+    
+    /**
+     * Gets the algorithm which found the candidate.
+     * @return The algorithm which found the candidate.
+     */
+    Method getMethod() {
+        return this.method;
+    }
+    
+    /**
+     * Gets the frame the signal starts at.
+     * @return The frame the signal starts at.
+     */
+    int getFrame() {
+        return this.frame;
+    }
+    
+    /**
+     * Gets the confidence score, which is one minus the ratio of the mean
+     * value outside of the signal window to the mean value inside of it. A
+     * clean tone over silence scores close to one and a candidate that does
+     * not stand out from the rest of the audio scores zero.
+     * @return The confidence score on the interval [0, 1].
+     */
+    double getConfidence() {
+        return this.confidence;
+    }
+
+    @Override
+    public String toString() {
+        return this.method.toString() + " frame " + Integer.toString(this.frame) + " confidence " + Double.toString(this.confidence);
+    }
+}
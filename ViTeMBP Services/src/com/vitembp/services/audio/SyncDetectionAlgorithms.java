@@ -17,153 +17,285 @@
  */
 package com.vitembp.services.audio;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.TreeMap;
 
 /**
- * This class contains algorithms for finding synchronization frames for FFT
- * amplitude data.
+ * This class contains algorithms for finding synchronization frames in the
+ * per video frame tone contrast values from the ToneDetector. All algorithms
+ * operate on primitive arrays in linear time.
  */
 class SyncDetectionAlgorithms {
+    /**
+     * The fraction of the peak value a frame must reach to be part of a run.
+     */
+    private static final double RUN_TARGET = 0.8;
+    
+    /**
+     * The fraction of the peak value the first close to max frame must reach.
+     */
+    private static final double CLOSE_TO_MAX_TARGET = 0.9;
+    
+    /**
+     * The fraction of the signal length the longest run must exceed.
+     */
+    private static final double MIN_RUN_LENGTH = 0.25;
+    
+    /**
+     * The fraction of the signal length the longest run must be below.
+     */
+    private static final double MAX_RUN_LENGTH = 1.25;
+    
     /**
      * Finds sync frames by finding the average value of a sliding window and
      * selecting the maximum average value.
-     * @param frameValues The frame FFT values.
+     * @param frameValues The frame tone contrast values.
      * @param signalFrameLength The length of the signal to find.
      * @return A set containing the frame which was found, if any.
      */
-    static Set<Integer> findSyncFramesByAveragingWindow(List<Double> frameValues, int signalFrameLength) {
+    static Set<Integer> findSyncFramesByAveragingWindow(double[] frameValues, int signalFrameLength) {
         // holds the sync frame to return
         Set<Integer> syncFramesFound = new HashSet<>();
         
-        // cannot operate if the data length is less than the window
-        if (frameValues.size() < signalFrameLength) {
-            return syncFramesFound;
+        int frame = bestWindow(frameValues, SignalProcessing.prefixSums(frameValues), signalFrameLength);
+        if (frame >= 0) {
+            syncFramesFound.add(frame);
         }
         
-        // stores a sorted map of window average value to start frame
-        TreeMap<Double, Integer> averages = new TreeMap<>(Double::compare);
+        return syncFramesFound;
+    }
+    
+    /**
+     * Finds sync frames by finding the maximum value and then the longest run
+     * within a percentage of this value of a reasonable length.
+     * @param frameValues The frame tone contrast values.
+     * @param signalFrameLength The length of the signal to find.
+     * @return A set containing the frame which was found, if any.
+     */
+    static Set<Integer> findSyncFramesByRunLength(double[] frameValues, int signalFrameLength) {
+        Set<Integer> syncFramesFound = new HashSet<>();
         
-        // step through all values
-        for (int startFrame = 0; startFrame < frameValues.size() - signalFrameLength; startFrame++) {
-            // average the window
-            double average = 0.0;
-            for (int offset = 0; offset < signalFrameLength; offset++) {
-                average += frameValues.get(startFrame + offset) / signalFrameLength;
-            }
-            
-            // save the value if it doesn't collide, this prefers earlier frames
-            if (!averages.containsKey(average)) {
-                averages.put(average, startFrame);
+        int frame = longestRun(frameValues, signalFrameLength, peak(frameValues));
+        if (frame >= 0) {
+            syncFramesFound.add(frame);
+        }
+        
+        return syncFramesFound;
+    }
+    
+    /**
+     * Finds sync frames by finding the maximum value and then the first frame
+     * within a percentage of this value.
+     * @param frameValues The frame tone contrast values.
+     * @return A set containing the frame which was found, if any.
+     */
+    static Set<Integer> findSyncFramesByFirstCloseToMax(double[] frameValues) {
+        Set<Integer> syncFramesFound = new HashSet<>();
+        
+        // find first value within %10 of peak
+        double target = CLOSE_TO_MAX_TARGET * peak(frameValues);
+        int firstFrame = -1;
+        for (int i = 0; i < frameValues.length; i++) {
+            if (frameValues[i] >= target) {
+                firstFrame = i;
+                break;
             }
         }
         
-        // find the largest average
-        syncFramesFound.add(averages.lastEntry().getValue());
+        // add this frame to the list of sync frames
+        syncFramesFound.add(firstFrame);
         
         return syncFramesFound;
     }
     
     /**
-     * Finds sync frames by finding the maximum value and then the longest run
-     * within a percentage of this value of a reasonable length.
-     * @param frameValues The frame FFT values.
+     * Finds the sync frame candidates of all of the algorithms with a single
+     * scan of the values. The scan builds the prefix sums, tracks the best
+     * averaging window, the peak value, and the first frame close to the
+     * peak. Runs are measured against the final peak so they take one more
+     * pass over the array.
+     * @param frameValues The frame tone contrast values.
      * @param signalFrameLength The length of the signal to find.
-     * @return A set containing the frame which was found, if any.
+     * @return The candidates found ordered by descending confidence.
      */
-    static Set<Integer> findSyncFramesByRunLength(List<Double> frameValues, int signalFrameLength) {
-        Set<Integer> syncFramesFound = new HashSet<>();
+    static List<SyncCandidate> findSyncCandidates(double[] frameValues, int signalFrameLength) {
+        int length = frameValues.length;
+        double[] prefix = new double[length + 1];
         
-        // find peak FFT value
+        // the best window start and its sum, windows start before the last
+        // possible start to match findSyncFramesByAveragingWindow
+        int bestWindow = -1;
+        double bestSum = 0.0;
+        
+        // a monotonic queue of the frames which set a new peak, the head is
+        // the first frame close to the largest peak seen so far, frames that
+        // fall out of range of a new peak can never come back into range
+        int[] peaks = new int[Math.max(length, 1)];
+        int head = 0;
+        int tail = 0;
         double max = Double.MIN_VALUE;
-        for (int i = 0; i < frameValues.size(); i++) {
-            double val = frameValues.get(i);
-            if (val > max) {
-                max = val;
+        
+        for (int i = 0; i < length; i++) {
+            double value = frameValues[i];
+            prefix[i + 1] = prefix[i] + value;
+            
+            // evaluate the window that ends at this frame
+            int start = i - signalFrameLength + 1;
+            if (start >= 0 && start < length - signalFrameLength) {
+                double sum = prefix[i + 1] - prefix[start];
+                if (bestWindow < 0 || sum > bestSum) {
+                    bestWindow = start;
+                    bestSum = sum;
+                }
+            }
+            
+            // track the peak and drop frames no longer close to it
+            if (value > max || (tail == 0 && value >= max)) {
+                max = Math.max(max, value);
+                peaks[tail++] = i;
+                double target = CLOSE_TO_MAX_TARGET * max;
+                while (frameValues[peaks[head]] < target) {
+                    head++;
+                }
             }
         }
-
+        
+        List<SyncCandidate> candidates = new ArrayList<>(3);
+        if (bestWindow >= 0) {
+            candidates.add(new SyncCandidate(SyncCandidate.Method.AVERAGING_WINDOW, bestWindow, confidence(prefix, bestWindow, signalFrameLength)));
+        }
+        
+        int run = longestRun(frameValues, signalFrameLength, max);
+        if (run >= 0) {
+            candidates.add(new SyncCandidate(SyncCandidate.Method.RUN_LENGTH, run, confidence(prefix, run, signalFrameLength)));
+        }
+        
+        if (head < tail) {
+            candidates.add(new SyncCandidate(SyncCandidate.Method.FIRST_CLOSE_TO_MAX, peaks[head], confidence(prefix, peaks[head], signalFrameLength)));
+        }
+        
+        candidates.sort((a, b) -> Double.compare(b.getConfidence(), a.getConfidence()));
+        return candidates;
+    }
+    
+    /**
+     * Finds the start of the window with the largest sum, preferring earlier
+     * frames when sums are equal.
+     * @param frameValues The frame tone contrast values.
+     * @param prefix The prefix sums of the frame values.
+     * @param signalFrameLength The length of the window.
+     * @return The start of the best window or -1 if there are no windows.
+     */
+    private static int bestWindow(double[] frameValues, double[] prefix, int signalFrameLength) {
+        int best = -1;
+        double bestSum = 0.0;
+        for (int startFrame = 0; startFrame < frameValues.length - signalFrameLength; startFrame++) {
+            double sum = prefix[startFrame + signalFrameLength] - prefix[startFrame];
+            if (best < 0 || sum > bestSum) {
+                best = startFrame;
+                bestSum = sum;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Finds the longest run of frames close to the peak value which ends
+     * before the end of the data, checked for a reasonable length.
+     * @param frameValues The frame tone contrast values.
+     * @param signalFrameLength The length of the signal to find.
+     * @param max The peak value of the frame values.
+     * @return The frame which was found or -1 if none was found.
+     */
+    private static int longestRun(double[] frameValues, int signalFrameLength, double max) {
         // find first frame with the next 25% of pulse is within %20 of peak
-        double target = 0.8 * max;
+        double target = RUN_TARGET * max;
         
         // the target minimum run length, serves as a reality check
-        int minRunLength = (int)Math.round(signalFrameLength * 0.25);
+        int minRunLength = (int)Math.round(signalFrameLength * MIN_RUN_LENGTH);
         
         // the target maximum run length, serves as a reality check
-        int maxRunLength = (int)Math.round(signalFrameLength * 1.25);
+        int maxRunLength = (int)Math.round(signalFrameLength * MAX_RUN_LENGTH);
         
-        // stores a map of run length to first frame the length was found at
-        TreeMap<Integer, Integer> values = new TreeMap<>(Integer::compare);
+        // the longest run and the first frame it was found at, this prefers
+        // earlier frames of the same length
+        int longest = 0;
+        int longestStart = -1;
         
         // step through all values
-        for (int startFrame = 0; startFrame < frameValues.size(); startFrame++) {
-            // if the value is in the target check the run length
-            if (frameValues.get(startFrame) >= target) {
-                for (int runLength = 1; runLength < frameValues.size(); runLength++) {
-                    if (frameValues.get(startFrame + runLength) < target) {
-                        // record run length if not already found
-                        // this prefers earlier frames of same length
-                        if (!values.containsKey(runLength)) {
-                            values.put(runLength, startFrame);
-                        }
-                        
-                        // no need to check before this value
-                        startFrame = startFrame + runLength + 1;
-                        break;
-                    }
+        int startFrame = 0;
+        while (startFrame < frameValues.length) {
+            if (frameValues[startFrame] >= target) {
+                int end = startFrame + 1;
+                while (end < frameValues.length && frameValues[end] >= target) {
+                    end++;
                 }
+                
+                // a run which reaches the end of the data was not measured
+                if (end == frameValues.length) {
+                    break;
+                }
+                
+                if (end - startFrame > longest) {
+                    longest = end - startFrame;
+                    longestStart = startFrame;
+                }
+                
+                // the frame which ended the run is below the target
+                startFrame = end + 1;
+            } else {
+                startFrame++;
             }
         }
         
-        // if we found any valid runs
-        if (values.size() > 0) {
-            // find the longest run, we only check the longest to be in range,
-            // if it is not we likely either have no signal or our signal to
-            // noise ratio is too low
-            int largestRun = values.lastEntry().getValue();
-            
-            // if the run was within the sanity check range, record it
-            if (largestRun > minRunLength && largestRun < maxRunLength) {
-                syncFramesFound.add(values.get(largestRun));
-            }
+        // only the longest run is checked to be in range, if it is not we
+        // likely either have no signal or our signal to noise ratio is too low
+        if (longest > minRunLength && longest < maxRunLength) {
+            return longestStart;
         }
         
-        return syncFramesFound;
+        return -1;
     }
     
     /**
-     * Finds sync frames by finding the maximum value and then the first frame
-     * within a percentage of this value.
-     * @param frameValues The frame FFT values.
-     * @return A set containing the frame which was found, if any.
+     * Finds the peak value of the frame values.
+     * @param frameValues The frame tone contrast values.
+     * @return The peak value, at least the smallest positive double.
      */
-    static Set<Integer> findSyncFramesByFirstCloseToMax(List<Double> frameValues) {
-        Set<Integer> syncFramesFound = new HashSet<>();
-        
-        // find peak FFT value
+    private static double peak(double[] frameValues) {
         double max = Double.MIN_VALUE;
-        for (int i = 0; i < frameValues.size(); i++) {
-            double val = frameValues.get(i);
+        for (double val : frameValues) {
             if (val > max) {
                 max = val;
             }
         }
-        
-        // find first value within %10 of peak
-        double target = 0.9 * max;
-        int firstFrame = -1;
-        for (int i = 0; i < frameValues.size(); i++) {
-            if (frameValues.get(i) >= target) {
-                firstFrame = i;
-                break;
-            }
+        return max;
+    }
+    
+    /**
+     * Scores how clearly the window starting at a frame stands out from the
+     * rest of the values.
+     * @param prefix The prefix sums of the frame values.
+     * @param frame The first frame of the window.
+     * @param signalFrameLength The length of the window.
+     * @return The confidence score on the interval [0, 1].
+     */
+    private static double confidence(double[] prefix, int frame, int signalFrameLength) {
+        int length = prefix.length - 1;
+        int end = Math.min(frame + signalFrameLength, length);
+        int outsideCount = length - (end - frame);
+        if (end <= frame || outsideCount <= 0) {
+            return 0.0;
         }
         
-        // add this frame to the list of sync frames
-        syncFramesFound.add(firstFrame);
+        double inside = (prefix[end] - prefix[frame]) / (end - frame);
+        double outside = (prefix[length] - (prefix[end] - prefix[frame])) / outsideCount;
+        if (inside <= 0.0) {
+            return 0.0;
+        }
         
-        return syncFramesFound;
+        return Math.max(0.0, Math.min(1.0, 1.0 - outside / inside));
     }
 }
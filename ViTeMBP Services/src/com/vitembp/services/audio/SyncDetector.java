@@ -0,0 +1,571 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.audio;
+
+import com.vitembp.services.ApiFunctions;
+import com.vitembp.services.AsyncProcessing;
+import com.vitembp.services.video.MediaInfo;
+import com.vitembp.services.video.MediaProbe;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Finds the sync signal of a video from its audio and video in one decode.
+ * FFmpeg decodes the file once into a stream holding a tiny thumbnail of
+ * each frame and the audio, which are read as they arrive so the search
+ * stops as soon as the start of the signal is confidently found. The start
+ * is then measured to a fraction of a frame from the rise of the tone.
+ */
+public class SyncDetector {
+    /**
+     * Class logger instance.
+     */
+    private static final Logger LOGGER = LogManager.getLogger();
+    
+    /**
+     * The maximum number of seconds searched for the sync signal.
+     */
+    private static final double SEARCH_SECONDS = 60.0;
+    
+    /**
+     * The sample rate the audio is decoded at.
+     */
+    private static final int SAMPLE_RATE = 48000;
+    
+    /**
+     * The full scale value of a decoded audio sample.
+     */
+    private static final double FULL_SCALE = 32768.0;
+    
+    /**
+     * The width and height frames are reduced to, which averages the picture
+     * in FFmpeg so little data is read for each frame.
+     */
+    private static final int THUMBNAIL_SIZE = 4;
+    
+    /**
+     * The seconds of recent audio kept for measuring the start of the tone.
+     */
+    private static final double HISTORY_SECONDS = 5.0;
+    
+    /**
+     * The length of the audio windows used to measure the start of the tone.
+     */
+    private static final double REFINE_WINDOW_SECONDS = 0.005;
+    
+    /**
+     * The spacing of the audio windows used to measure the start of the tone.
+     */
+    private static final double REFINE_STEP_SECONDS = 0.0005;
+    
+    /**
+     * The AVI list which holds the stream data.
+     */
+    private static final byte[] MOVI = new byte[] { 'm', 'o', 'v', 'i' };
+    
+    /**
+     * The frame rate of the video.
+     */
+    private final double frameRate;
+    
+    /**
+     * The frequency of the sync tone.
+     */
+    private final double toneFrequency;
+    
+    /**
+     * The index of the byte of the sync light channel in each pixel.
+     */
+    private final int channelIndex;
+    
+    /**
+     * The maximum number of frames searched.
+     */
+    private final int maximumFrames;
+    
+    /**
+     * The detector of the tone in each frame or null if there is no audio.
+     */
+    private final ToneDetector tone;
+    
+    /**
+     * The tone level of a full scale tone over a frame.
+     */
+    private final double toneFullScale;
+    
+    /**
+     * The combination of the signals.
+     */
+    private final SyncFusion fusion;
+    
+    /**
+     * The most recent audio samples, indexed by sample number modulo length.
+     */
+    private final double[] history;
+    
+    /**
+     * The number of audio samples read.
+     */
+    private long sampleCount = 0;
+    
+    /**
+     * The brightness of the sync light channel of each frame read.
+     */
+    private double[] brightness = new double[1024];
+    
+    /**
+     * The number of video frames read.
+     */
+    private int videoFrameCount = 0;
+    
+    /**
+     * The frame with the highest score when the start time was measured.
+     */
+    private int measuredFrame = -1;
+    
+    /**
+     * The start time measured from the tone or NaN if it could not be.
+     */
+    private double measuredTime = Double.NaN;
+    
+    /**
+     * Initializes a new instance of the SyncDetector class.
+     * @param frameRate The frame rate of the video.
+     * @param toneFrequency The frequency of the sync tone.
+     * @param channel The color channel of the sync light.
+     * @param useAudio Whether the video has audio.
+     * @param maximumFrames The maximum number of frames searched.
+     */
+    SyncDetector(double frameRate, double toneFrequency, ApiFunctions.COLOR_CHANNELS channel, boolean useAudio, int maximumFrames) {
+        this.frameRate = frameRate;
+        this.toneFrequency = toneFrequency;
+        this.maximumFrames = maximumFrames;
+        
+        // thumbnails are decoded as blue, green, red bytes
+        switch (channel) {
+            case RED:
+                this.channelIndex = 2;
+                break;
+            case GREEN:
+                this.channelIndex = 1;
+                break;
+            case BLUE:
+                this.channelIndex = 0;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown color channel specified.");
+        }
+        
+        this.tone = useAudio ? new ToneDetector(SAMPLE_RATE, frameRate, toneFrequency) : null;
+        this.toneFullScale = FULL_SCALE * (SAMPLE_RATE / frameRate) / 2.0;
+        this.fusion = new SyncFusion(frameRate, useAudio, true);
+        this.history = new double[useAudio ? (int)(SAMPLE_RATE * HISTORY_SECONDS) : 0];
+    }
+    
+    /**
+     * Finds the start of the sync signal in a video.
+     * @param videoFile The video to search.
+     * @param toneFrequency The frequency of the sync tone.
+     * @param channel The color channel of the sync light.
+     * @return The start of the sync signal or an empty result if it was not
+     * found.
+     * @throws IOException If the video cannot be decoded.
+     */
+    public static Optional<SyncResult> detect(String videoFile, double toneFrequency, ApiFunctions.COLOR_CHANNELS channel) throws IOException {
+        MediaInfo info = MediaProbe.probe(Paths.get(videoFile));
+        if (!info.hasVideo()) {
+            throw new IOException("No video stream found in file: " + videoFile);
+        }
+        
+        boolean useAudio = !info.getAudioStreams().isEmpty();
+        if (!useAudio) {
+            LOGGER.info("No audio stream in " + videoFile + ", detecting sync from video only.");
+        }
+        
+        SyncDetector detector = new SyncDetector(
+                info.getFrameRate(),
+                toneFrequency,
+                channel,
+                useAudio,
+                (int)Math.ceil(SEARCH_SECONDS * info.getFrameRate()));
+        
+        // build the FFmpeg process that decodes thumbnails and audio into one
+        // AVI stream on its output
+        List<String> command = new ArrayList<>(Arrays.asList(
+                "ffmpeg",
+                "-v",
+                "error",
+                "-i",
+                videoFile,
+                "-t",
+                String.format(Locale.ROOT, "%.3f", SEARCH_SECONDS),
+                "-map",
+                "0:v:0",
+                "-vf",
+                "scale=" + THUMBNAIL_SIZE + ":" + THUMBNAIL_SIZE + ":flags=area,format=bgr24",
+                "-c:v",
+                "rawvideo"));
+        if (useAudio) {
+            command.addAll(Arrays.asList(
+                    "-map",
+                    "0:a:0",
+                    "-ac",
+                    "1",
+                    "-ar",
+                    Integer.toString(SAMPLE_RATE),
+                    "-c:a",
+                    "pcm_s16le"));
+        }
+        command.addAll(Arrays.asList("-f", "avi", "pipe:1"));
+        ProcessBuilder pb = new ProcessBuilder(command);
+        
+        LOGGER.info("Executing command: " + Arrays.toString(pb.command().toArray()));
+        
+        // execute the command
+        Process proc = AsyncProcessing.startProcess(pb);
+        
+        boolean stopped;
+        try {
+            stopped = detector.read(proc.getInputStream());
+        } catch (IOException ex) {
+            proc.destroy();
+            waitFor(proc);
+            throw ex;
+        }
+        
+        // the rest of the file is not needed once the signal is found
+        if (stopped) {
+            proc.destroy();
+        }
+        
+        int result = waitFor(proc);
+        if (!stopped && result != 0) {
+            // result is exit level, log anything > 0 as an error
+            LOGGER.error("Sync signal decoding completed with exit level: " + Integer.toString(result));
+            BufferedReader br = new BufferedReader(new InputStreamReader(proc.getErrorStream()));
+            String line = br.readLine();
+            while (line != null) {
+                LOGGER.error(line);
+                line = br.readLine();
+            }
+            throw new IOException("Could not decode " + videoFile + " to find the sync signal.");
+        }
+        
+        Optional<SyncResult> found = detector.getResult();
+        LOGGER.info("Sync signal search of " + videoFile + ": " + (found.isPresent() ? found.get().toString() : "not found") + ".");
+        return found;
+    }
+    
+    /**
+     * Reads the decoded AVI stream until the start of the signal is found or
+     * the stream ends.
+     * @param avi The AVI stream with the thumbnails in the first stream and
+     * audio, if used, in the second.
+     * @return Whether reading stopped because the search was complete before
+     * the end of the stream.
+     * @throws IOException If the stream cannot be read.
+     */
+    boolean read(InputStream avi) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(avi));
+        
+        // the headers describe the streams which are known from the command,
+        // so skip to the stream data
+        if (!skipPast(in, MOVI)) {
+            return false;
+        }
+        
+        byte[] id = new byte[4];
+        byte[] data = new byte[4096];
+        try {
+            while (true) {
+                in.readFully(id);
+                int size = Integer.reverseBytes(in.readInt());
+                
+                // lists are entered, their sizes are not known when streamed
+                if (isId(id, "LIST") || isId(id, "RIFF")) {
+                    in.readFully(id);
+                    continue;
+                }
+                
+                if (size < 0) {
+                    throw new IOException("Invalid AVI chunk size: " + Integer.toString(size));
+                }
+                if (data.length < size) {
+                    data = new byte[size];
+                }
+                in.readFully(data, 0, size);
+                
+                // chunks are padded to an even length
+                if ((size & 1) == 1) {
+                    in.readByte();
+                }
+                
+                // other chunks such as indexes and padding are skipped
+                if (id[2] == 'w' && id[3] == 'b') {
+                    this.acceptAudio(data, size);
+                } else if (id[2] == 'd' && (id[3] == 'b' || id[3] == 'c')) {
+                    this.acceptVideo(data, size);
+                } else {
+                    continue;
+                }
+                
+                if (this.fuse()) {
+                    return true;
+                }
+            }
+        } catch (EOFException ex) {
+            // the stream ended
+            return false;
+        }
+    }
+    
+    /**
+     * Gets the start of the sync signal found in the data read.
+     * @return The start of the sync signal or an empty result if it was not
+     * found.
+     */
+    Optional<SyncResult> getResult() {
+        int frame = this.fusion.getStartFrame();
+        if (frame < 0) {
+            return Optional.empty();
+        }
+        
+        // the measured start is used with the frame nearest to it
+        if (frame == this.measuredFrame && !Double.isNaN(this.measuredTime)) {
+            return Optional.of(new SyncResult(
+                    (int)Math.round(this.measuredTime * this.frameRate),
+                    this.measuredTime,
+                    this.frameRate,
+                    this.fusion.getScore(),
+                    this.fusion.getFrameCount()));
+        }
+        
+        return Optional.of(new SyncResult(
+                frame,
+                frame / this.frameRate,
+                this.frameRate,
+                this.fusion.getScore(),
+                this.fusion.getFrameCount()));
+    }
+    
+    /**
+     * Accepts the samples of an audio chunk.
+     * @param data The chunk data of 16 bit little endian samples.
+     * @param length The length of the chunk data.
+     */
+    private void acceptAudio(byte[] data, int length) {
+        if (this.tone == null) {
+            return;
+        }
+        
+        for (int i = 0; i + 1 < length; i += 2) {
+            double sample = ToneDetector.decodeSample(data, i, 2, true, false);
+            this.history[(int)(this.sampleCount % this.history.length)] = sample;
+            this.sampleCount++;
+            this.tone.accept(sample);
+        }
+    }
+    
+    /**
+     * Accepts the thumbnail of a video frame.
+     * @param data The chunk data of blue, green, red pixels.
+     * @param length The length of the chunk data.
+     */
+    private void acceptVideo(byte[] data, int length) {
+        double sum = 0.0;
+        int count = 0;
+        for (int i = this.channelIndex; i < length; i += 3) {
+            sum += data[i] & 0xff;
+            count++;
+        }
+        
+        if (this.videoFrameCount == this.brightness.length) {
+            this.brightness = Arrays.copyOf(this.brightness, this.brightness.length * 2);
+        }
+        this.brightness[this.videoFrameCount] = count > 0 ? sum / count / 255.0 : 0.0;
+        this.videoFrameCount++;
+    }
+    
+    /**
+     * Passes the frames which have been read from every signal to the
+     * fusion.
+     * @return Whether the search is complete.
+     */
+    private boolean fuse() {
+        int available = this.tone == null ?
+                this.videoFrameCount :
+                Math.min(this.videoFrameCount, this.tone.getFrameCount());
+        
+        while (this.fusion.getFrameCount() < available) {
+            int frame = this.fusion.getFrameCount();
+            double audio = this.tone == null ? 0.0 : this.tone.getToneContrast(frame) / this.toneFullScale;
+            boolean confident = this.fusion.accept(audio, this.brightness[frame]);
+            
+            // measure the start while the audio around it is still kept
+            if (this.fusion.getBestFrame() != this.measuredFrame) {
+                this.measuredFrame = this.fusion.getBestFrame();
+                this.measuredTime = this.measureToneStart(this.measuredFrame);
+            }
+            
+            if (confident || this.fusion.getFrameCount() >= this.maximumFrames) {
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Measures the time the tone starts near a frame from the level of the
+     * tone in short windows of the audio around the frame.
+     * @param frame The frame the signal starts in.
+     * @return The time the tone starts or NaN if the tone does not clearly
+     * start near the frame.
+     */
+    private double measureToneStart(int frame) {
+        if (this.tone == null) {
+            return Double.NaN;
+        }
+        
+        // search from the frame before to the end of the frame after
+        long first = Math.max(0, Math.round((frame - 1) * SAMPLE_RATE / this.frameRate));
+        long last = Math.min(this.sampleCount, Math.round((frame + 2) * SAMPLE_RATE / this.frameRate));
+        if (first < this.sampleCount - this.history.length || last <= first) {
+            return Double.NaN;
+        }
+        
+        double[] samples = new double[(int)(last - first)];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = this.history[(int)((first + i) % this.history.length)];
+        }
+        
+        return findToneStart(samples, SAMPLE_RATE, this.toneFrequency) + first / (double)SAMPLE_RATE;
+    }
+    
+    /**
+     * Finds the time a tone starts in audio which is quiet and then has the
+     * tone. A window is half full of the tone when its middle reaches the
+     * start of the tone, so the start is found where the level crosses half
+     * way from quiet to the tone.
+     * @param samples The audio samples.
+     * @param sampleRate The sample rate of the audio.
+     * @param toneFrequency The frequency of the tone.
+     * @return The time the tone starts from the first sample or NaN if the
+     * tone does not clearly start in the samples.
+     */
+    static double findToneStart(double[] samples, double sampleRate, double toneFrequency) {
+        int window = (int)Math.round(sampleRate * REFINE_WINDOW_SECONDS);
+        int step = Math.max(1, (int)Math.round(sampleRate * REFINE_STEP_SECONDS));
+        if (samples.length < window * 2) {
+            return Double.NaN;
+        }
+        
+        int positions = (samples.length - window) / step + 1;
+        double[] levels = new double[positions];
+        int quietest = 0;
+        int loudest = 0;
+        for (int i = 0; i < positions; i++) {
+            levels[i] = ToneDetector.getMagnitude(samples, i * step, window, sampleRate, toneFrequency);
+            if (levels[i] < levels[quietest]) {
+                quietest = i;
+            }
+            if (levels[i] > levels[loudest]) {
+                loudest = i;
+            }
+        }
+        
+        // the tone must rise well above the quiet part after it
+        if (loudest <= quietest || levels[loudest] < 4.0 * levels[quietest] || levels[loudest] < FULL_SCALE * window / 2.0 * 0.002) {
+            return Double.NaN;
+        }
+        
+        double half = (levels[quietest] + levels[loudest]) / 2.0;
+        int crossed = quietest + 1;
+        while (levels[crossed] < half) {
+            crossed++;
+        }
+        double fraction = (half - levels[crossed - 1]) / (levels[crossed] - levels[crossed - 1]);
+        return ((crossed - 1 + fraction) * step + window / 2.0) / sampleRate;
+    }
+    
+    /**
+     * Reads from a stream until just past a sequence of bytes.
+     * @param in The stream to read.
+     * @param marker The sequence of bytes to read past.
+     * @return Whether the sequence was found before the end of the stream.
+     * @throws IOException If the stream cannot be read.
+     */
+    private static boolean skipPast(InputStream in, byte[] marker) throws IOException {
+        int matched = 0;
+        int read;
+        while ((read = in.read()) >= 0) {
+            if (read == (marker[matched] & 0xff)) {
+                matched++;
+                if (matched == marker.length) {
+                    return true;
+                }
+            } else {
+                matched = read == (marker[0] & 0xff) ? 1 : 0;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Gets whether a chunk ID matches a name.
+     * @param id The chunk ID.
+     * @param name The name to match.
+     * @return Whether the chunk ID matches the name.
+     */
+    private static boolean isId(byte[] id, String name) {
+        for (int i = 0; i < id.length; i++) {
+            if (id[i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Waits for the decoding process to exit.
+     * @param proc The process to wait for.
+     * @return The exit value of the process.
+     * @throws IOException If the wait was interrupted.
+     */
+    private static int waitFor(Process proc) throws IOException {
+        try {
+            return AsyncProcessing.waitFor(proc);
+        } catch (InterruptedException ex) {
+            throw new InterruptedIOException("Interrupted while waiting for sync signal decoding.");
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.audio;
+
+import java.util.Arrays;
+
+/**
+ * Finds the start of the sync signal by combining the tone level of the audio
+ * and the brightness of the sync light in the video as frames arrive. Each
+ * frame is scored as the start of the signal by how far the frames after it
+ * rise above the frames before it in each signal, in standard deviations of
+ * the frames before it. The scores of the signals are combined so that the
+ * sync signal, which appears in both, stands out further than noise in
+ * either one alone.
+ */
+class SyncFusion {
+    /**
+     * The seconds after the start of the signal compared with the frames
+     * before it, which is shorter than the signal so it is found before the
+     * signal ends.
+     */
+    private static final double EVIDENCE_SECONDS = 0.5;
+    
+    /**
+     * The seconds before the start of the signal used as the baseline.
+     */
+    private static final double BASELINE_SECONDS = 1.0;
+    
+    /**
+     * The fewest seconds of baseline a frame must have to be scored.
+     */
+    private static final double MINIMUM_BASELINE_SECONDS = 0.25;
+    
+    /**
+     * The score at which the start of the signal is certain enough to stop.
+     */
+    static final double CONFIDENT_SCORE = 8.0;
+    
+    /**
+     * The lowest score of a start of the signal which is reported.
+     */
+    static final double MINIMUM_SCORE = 4.0;
+    
+    /**
+     * The number of frames after a confident start which must score lower
+     * before the search stops, so the start is at the peak of the scores.
+     */
+    private static final int SETTLE_FRAMES = 3;
+    
+    /**
+     * The smallest standard deviation of the audio baseline as a fraction of
+     * the full scale tone level, so a tiny tone in silence is not certain.
+     */
+    private static final double AUDIO_FLOOR = 0.002;
+    
+    /**
+     * The smallest standard deviation of the video baseline as a fraction of
+     * full brightness.
+     */
+    private static final double VIDEO_FLOOR = 0.004;
+    
+    /**
+     * The number of frames after the start of the signal which are compared.
+     */
+    private final int evidenceFrames;
+    
+    /**
+     * The number of frames before the start of the signal used as the
+     * baseline.
+     */
+    private final int baselineFrames;
+    
+    /**
+     * The fewest frames of baseline a frame must have to be scored.
+     */
+    private final int minimumBaselineFrames;
+    
+    /**
+     * Whether the audio signal is used.
+     */
+    private final boolean useAudio;
+    
+    /**
+     * Whether the video signal is used.
+     */
+    private final boolean useVideo;
+    
+    /**
+     * The running sums of the audio values with a leading zero, so the sum
+     * of any range of frames is a difference.
+     */
+    private double[] audioSums = new double[1024];
+    
+    /**
+     * The running sums of the squares of the audio values.
+     */
+    private double[] audioSquares = new double[1024];
+    
+    /**
+     * The running sums of the video values.
+     */
+    private double[] videoSums = new double[1024];
+    
+    /**
+     * The running sums of the squares of the video values.
+     */
+    private double[] videoSquares = new double[1024];
+    
+    /**
+     * The number of frames accepted.
+     */
+    private int frameCount = 0;
+    
+    /**
+     * The frame with the highest score or -1 if no frame was scored.
+     */
+    private int bestFrame = -1;
+    
+    /**
+     * The highest score of a frame.
+     */
+    private double bestScore = Double.NEGATIVE_INFINITY;
+    
+    /**
+     * Initializes a new instance of the SyncFusion class.
+     * @param frameRate The frame rate of the video.
+     * @param useAudio Whether the audio signal is used.
+     * @param useVideo Whether the video signal is used.
+     */
+    SyncFusion(double frameRate, boolean useAudio, boolean useVideo) {
+        if (!useAudio && !useVideo) {
+            throw new IllegalArgumentException("At least one signal must be used.");
+        }
+        
+        this.evidenceFrames = Math.max(2, (int)Math.round(frameRate * EVIDENCE_SECONDS));
+        this.baselineFrames = Math.max(2, (int)Math.round(frameRate * BASELINE_SECONDS));
+        this.minimumBaselineFrames = Math.max(2, (int)Math.round(frameRate * MINIMUM_BASELINE_SECONDS));
+        this.useAudio = useAudio;
+        this.useVideo = useVideo;
+    }
+    
+    /**
+     * Accepts the signal values of the next frame and scores the frame which
+     * now has enough frames after it.
+     * @param audio The tone level as a fraction of full scale, ignored if the
+     * audio signal is not used.
+     * @param video The brightness of the sync light channel as a fraction of
+     * full brightness, ignored if the video signal is not used.
+     * @return Whether the start of the signal was confidently found and no
+     * more frames are needed.
+     */
+    boolean accept(double audio, double video) {
+        if (this.frameCount + 1 == this.audioSums.length) {
+            int length = this.audioSums.length * 2;
+            this.audioSums = Arrays.copyOf(this.audioSums, length);
+            this.audioSquares = Arrays.copyOf(this.audioSquares, length);
+            this.videoSums = Arrays.copyOf(this.videoSums, length);
+            this.videoSquares = Arrays.copyOf(this.videoSquares, length);
+        }
+        
+        int index = this.frameCount;
+        double a = this.useAudio ? audio : 0.0;
+        double v = this.useVideo ? video : 0.0;
+        this.audioSums[index + 1] = this.audioSums[index] + a;
+        this.audioSquares[index + 1] = this.audioSquares[index] + a * a;
+        this.videoSums[index + 1] = this.videoSums[index] + v;
+        this.videoSquares[index + 1] = this.videoSquares[index] + v * v;
+        this.frameCount++;
+        
+        // score the frame whose evidence window just completed
+        int candidate = this.frameCount - this.evidenceFrames;
+        if (candidate >= this.minimumBaselineFrames) {
+            double score = this.score(candidate);
+            if (score > this.bestScore) {
+                this.bestScore = score;
+                this.bestFrame = candidate;
+            }
+        }
+        
+        return this.isConfident();
+    }
+    
+    /**
+     * Gets whether the start of the signal was confidently found.
+     * @return Whether the start of the signal was confidently found.
+     */
+    boolean isConfident() {
+        int lastScored = this.frameCount - this.evidenceFrames;
+        return this.bestScore >= CONFIDENT_SCORE && lastScored - this.bestFrame >= SETTLE_FRAMES;
+    }
+    
+    /**
+     * Gets the frame the signal starts on.
+     * @return The frame the signal starts on or -1 if no frame scored at
+     * least the minimum score.
+     */
+    int getStartFrame() {
+        return this.bestScore >= MINIMUM_SCORE ? this.bestFrame : -1;
+    }
+    
+    /**
+     * Gets the frame with the highest score so far, whether or not it scored
+     * the minimum.
+     * @return The frame with the highest score or -1 if no frame was scored.
+     */
+    int getBestFrame() {
+        return this.bestFrame;
+    }
+    
+    /**
+     * Gets the score of the start of the signal.
+     * @return The highest score of a frame.
+     */
+    double getScore() {
+        return this.bestScore;
+    }
+    
+    /**
+     * Gets the number of frames accepted.
+     * @return The number of frames accepted.
+     */
+    int getFrameCount() {
+        return this.frameCount;
+    }
+    
+    /**
+     * Scores a frame as the start of the signal.
+     * @param frame The frame to score.
+     * @return The combined score of the signals.
+     */
+    private double score(int frame) {
+        double total = 0.0;
+        int signals = 0;
+        if (this.useAudio) {
+            total += this.score(this.audioSums, this.audioSquares, frame, AUDIO_FLOOR);
+            signals++;
+        }
+        if (this.useVideo) {
+            total += this.score(this.videoSums, this.videoSquares, frame, VIDEO_FLOOR);
+            signals++;
+        }
+        
+        // independent scores add in quadrature, so the sum is scaled back
+        return total / Math.sqrt(signals);
+    }
+    
+    /**
+     * Scores a frame as the start of the signal in one signal.
+     * @param sums The running sums of the signal.
+     * @param squares The running sums of the squares of the signal.
+     * @param frame The frame to score.
+     * @param floor The smallest standard deviation of the baseline.
+     * @return The number of baseline standard deviations the frames after
+     * the frame are above the frames before it.
+     */
+    private double score(double[] sums, double[] squares, int frame, double floor) {
+        int baselineStart = Math.max(0, frame - this.baselineFrames);
+        int baselineCount = frame - baselineStart;
+        double baselineMean = (sums[frame] - sums[baselineStart]) / baselineCount;
+        double baselineVariance = (squares[frame] - squares[baselineStart]) / baselineCount - baselineMean * baselineMean;
+        double deviation = Math.max(floor, Math.sqrt(Math.max(0.0, baselineVariance)));
+        
+        double evidenceMean = (sums[frame + this.evidenceFrames] - sums[frame]) / this.evidenceFrames;
+        return (evidenceMean - baselineMean) / deviation;
+    }
+}
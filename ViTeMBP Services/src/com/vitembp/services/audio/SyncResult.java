@@ -0,0 +1,121 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.audio;
+
+import java.util.Locale;
+
+/**
+ * The start of the sync signal found in a video.
+ */
+public class SyncResult {
+    /**
+     * The frame the sync signal starts on.
+     */
+    private final int frame;
+    
+    /**
+     * The time the sync signal starts in seconds.
+     */
+    private final double time;
+    
+    /**
+     * The frame rate of the video.
+     */
+    private final double frameRate;
+    
+    /**
+     * The confidence score of the start of the signal.
+     */
+    private final double score;
+    
+    /**
+     * The number of frames examined to find the signal.
+     */
+    private final int framesExamined;
+    
+    /**
+     * Initializes a new instance of the SyncResult class.
+     * @param frame The frame the sync signal starts on.
+     * @param time The time the sync signal starts in seconds.
+     * @param frameRate The frame rate of the video.
+     * @param score The confidence score of the start of the signal.
+     * @param framesExamined The number of frames examined to find the signal.
+     */
+    SyncResult(int frame, double time, double frameRate, double score, int framesExamined) {
+        this.frame = frame;
+        this.time = time;
+        this.frameRate = frameRate;
+        this.score = score;
+        this.framesExamined = framesExamined;
+    }
+    
+    /**
+     * Gets the frame the sync signal starts on.
+     * @return The frame the sync signal starts on.
+     */
+    public int getFrame() {
+        return this.frame;
+    }
+    
+    /**
+     * Gets the time the sync signal starts. This is measured from the audio
+     * to a fraction of a frame when the tone is present, otherwise it is the
+     * start of the frame.
+     * @return The time the sync signal starts in seconds.
+     */
+    public double getTime() {
+        return this.time;
+    }
+    
+    /**
+     * Gets the position of the start of the sync signal in frames including
+     * the fraction of the frame.
+     * @return The position of the start of the sync signal in frames.
+     */
+    public double getFramePosition() {
+        return this.time * this.frameRate;
+    }
+    
+    /**
+     * Gets the confidence score of the start of the signal, which is the
+     * number of standard deviations the signal rose above the frames before
+     * it.
+     * @return The confidence score.
+     */
+    public double getScore() {
+        return this.score;
+    }
+    
+    /**
+     * Gets the number of frames examined to find the signal.
+     * @return The number of frames examined.
+     */
+    public int getFramesExamined() {
+        return this.framesExamined;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "frame %d (%.3f s, position %.2f), score %.1f after %d frames",
+                this.frame,
+                this.time,
+                this.getFramePosition(),
+                this.score,
+                this.framesExamined);
+    }
+}
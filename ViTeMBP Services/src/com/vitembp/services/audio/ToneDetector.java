@@ -0,0 +1,371 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.audio;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Detects a tone in audio by calculating the magnitude at the tone frequency
+ * for the audio of each video frame with the Goertzel algorithm. Samples are
+ * processed as they are read so only the filter state is kept for the frame
+ * being processed. The magnitudes at frequencies on either side of the tone
+ * are calculated as well so broadband noise, which raises all of them, can be
+ * separated from the tone, which raises only the target.
+ */
+class ToneDetector {
+    /**
+     * The number of audio frames read from the stream at a time.
+     */
+    private static final int BLOCK_FRAMES = 4096;
+    
+    /**
+     * The offsets of the neighbour frequencies from the tone in multiples of
+     * the frequency resolution of a video frame. These are far enough from
+     * the tone that little of it leaks into them.
+     */
+    private static final int[] NEIGHBOUR_OFFSETS = new int[] { -4, -3, 3, 4 };
+    
+    /**
+     * The sample rate of the audio.
+     */
+    private final double sampleRate;
+    
+    /**
+     * The frame rate of the video.
+     */
+    private final double frameRate;
+    
+    /**
+     * The Goertzel coefficient of each frequency with the tone first.
+     */
+    private final double[] coefficients;
+    
+    /**
+     * The previous filter output of each frequency.
+     */
+    private final double[] previous;
+    
+    /**
+     * The filter output before the previous of each frequency.
+     */
+    private final double[] beforePrevious;
+    
+    /**
+     * The magnitude of the tone in each completed video frame.
+     */
+    private double[] toneMagnitudes = new double[1024];
+    
+    /**
+     * The average magnitude of the neighbour frequencies in each completed
+     * video frame.
+     */
+    private double[] neighbourMagnitudes = new double[1024];
+    
+    /**
+     * The number of completed video frames.
+     */
+    private int frameCount = 0;
+    
+    /**
+     * The number of audio samples accepted.
+     */
+    private long sampleCount = 0;
+    
+    /**
+     * The index of the audio sample which starts the next video frame.
+     */
+    private long frameEnd;
+    
+    /**
+     * Initializes a new instance of the ToneDetector class.
+     * @param sampleRate The sample rate of the audio.
+     * @param frameRate The frame rate of the video.
+     * @param toneFrequency The frequency of the tone to detect.
+     */
+    ToneDetector(double sampleRate, double frameRate, double toneFrequency) {
+        this.sampleRate = sampleRate;
+        this.frameRate = frameRate;
+        
+        // the frequency resolution of a video frame of audio is the frame
+        // rate, so the neighbours are spaced by it
+        this.coefficients = new double[NEIGHBOUR_OFFSETS.length + 1];
+        this.coefficients[0] = getCoefficient(toneFrequency);
+        for (int i = 0; i < NEIGHBOUR_OFFSETS.length; i++) {
+            this.coefficients[i + 1] = getCoefficient(toneFrequency + NEIGHBOUR_OFFSETS[i] * frameRate);
+        }
+        
+        this.previous = new double[this.coefficients.length];
+        this.beforePrevious = new double[this.coefficients.length];
+        this.frameEnd = this.getFrameStart(1);
+    }
+    
+    /**
+     * Detects the tone in each video frame of a wave file.
+     * @param waveFile The wave file to read.
+     * @param frameRate The frame rate of the video.
+     * @param toneFrequency The frequency of the tone to detect.
+     * @return The detector containing the results for each video frame.
+     * @throws IOException If the file cannot be read.
+     */
+    static ToneDetector detect(File waveFile, double frameRate, double toneFrequency) throws IOException {
+        try (AudioInputStream audio = AudioSystem.getAudioInputStream(new BufferedInputStream(Files.newInputStream(waveFile.toPath())))) {
+            return detect(audio, frameRate, toneFrequency);
+        } catch (UnsupportedAudioFileException ex) {
+            throw new IOException("Unsupported audio file: " + waveFile.toString(), ex);
+        }
+    }
+    
+    /**
+     * Detects the tone in each video frame of an audio stream using the
+     * first channel of the audio.
+     * @param audio The audio stream to read, which must be PCM encoded.
+     * @param frameRate The frame rate of the video.
+     * @param toneFrequency The frequency of the tone to detect.
+     * @return The detector containing the results for each video frame.
+     * @throws IOException If the stream cannot be read.
+     */
+    static ToneDetector detect(AudioInputStream audio, double frameRate, double toneFrequency) throws IOException {
+        AudioFormat format = audio.getFormat();
+        boolean signed = AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding());
+        if (!signed && !AudioFormat.Encoding.PCM_UNSIGNED.equals(format.getEncoding())) {
+            throw new IOException("Unsupported audio encoding: " + format.getEncoding().toString());
+        }
+        
+        int bytesPerFrame = format.getFrameSize();
+        int bytesPerSample = (format.getSampleSizeInBits() + 7) / 8;
+        boolean bigEndian = format.isBigEndian();
+        ToneDetector detector = new ToneDetector(format.getSampleRate(), frameRate, toneFrequency);
+        
+        // read whole audio frames in fixed blocks
+        byte[] block = new byte[BLOCK_FRAMES * bytesPerFrame];
+        int filled = 0;
+        int read;
+        while ((read = readBlock(audio, block, filled)) > 0) {
+            filled += read;
+            int frames = filled / bytesPerFrame;
+            for (int i = 0; i < frames; i++) {
+                detector.accept(decodeSample(block, i * bytesPerFrame, bytesPerSample, signed, bigEndian));
+            }
+            
+            // keep a partially read audio frame for the next block
+            int remainder = filled - frames * bytesPerFrame;
+            System.arraycopy(block, frames * bytesPerFrame, block, 0, remainder);
+            filled = remainder;
+        }
+        
+        return detector;
+    }
+    
+    /**
+     * Accepts the next audio sample.
+     * @param sample The value of the sample.
+     */
+    void accept(double sample) {
+        for (int i = 0; i < this.coefficients.length; i++) {
+            double current = sample + this.coefficients[i] * this.previous[i] - this.beforePrevious[i];
+            this.beforePrevious[i] = this.previous[i];
+            this.previous[i] = current;
+        }
+        
+        this.sampleCount++;
+        if (this.sampleCount == this.frameEnd) {
+            this.completeFrame();
+        }
+    }
+    
+    /**
+     * Gets the number of completed video frames.
+     * @return The number of completed video frames.
+     */
+    int getFrameCount() {
+        return this.frameCount;
+    }
+    
+    /**
+     * Gets the magnitude of the tone in each completed video frame.
+     * @return The magnitude of the tone in each completed video frame.
+     */
+    double[] getToneMagnitudes() {
+        return Arrays.copyOf(this.toneMagnitudes, this.frameCount);
+    }
+    
+    /**
+     * Gets the average magnitude of the neighbour frequencies in each
+     * completed video frame.
+     * @return The average magnitude of the neighbour frequencies.
+     */
+    double[] getNeighbourMagnitudes() {
+        return Arrays.copyOf(this.neighbourMagnitudes, this.frameCount);
+    }
+    
+    /**
+     * Gets the amount the magnitude of the tone exceeds the average magnitude
+     * of its neighbour frequencies in each completed video frame.
+     * @return The contrast of the tone in each completed video frame.
+     */
+    double[] getToneContrast() {
+        double[] contrast = new double[this.frameCount];
+        for (int i = 0; i < contrast.length; i++) {
+            contrast[i] = Math.max(0.0, this.toneMagnitudes[i] - this.neighbourMagnitudes[i]);
+        }
+        return contrast;
+    }
+    
+    /**
+     * Gets the amount the magnitude of the tone exceeds the average magnitude
+     * of its neighbour frequencies in a completed video frame.
+     * @param frame The index of the completed video frame.
+     * @return The contrast of the tone in the video frame.
+     */
+    double getToneContrast(int frame) {
+        if (frame >= this.frameCount) {
+            throw new IndexOutOfBoundsException("Video frame " + Integer.toString(frame) + " is not complete.");
+        }
+        return Math.max(0.0, this.toneMagnitudes[frame] - this.neighbourMagnitudes[frame]);
+    }
+    
+    /**
+     * Calculates the magnitude of a frequency in a range of samples with the
+     * Goertzel algorithm.
+     * @param samples The audio samples.
+     * @param offset The index of the first sample of the range.
+     * @param length The number of samples in the range.
+     * @param sampleRate The sample rate of the audio.
+     * @param frequency The frequency to calculate the magnitude of.
+     * @return The magnitude of the frequency in the range.
+     */
+    static double getMagnitude(double[] samples, int offset, int length, double sampleRate, double frequency) {
+        double coefficient = 2.0 * Math.cos(2.0 * Math.PI * frequency / sampleRate);
+        double previous = 0.0;
+        double beforePrevious = 0.0;
+        for (int i = offset; i < offset + length; i++) {
+            double current = samples[i] + coefficient * previous - beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+        }
+        
+        double power = previous * previous + beforePrevious * beforePrevious - coefficient * previous * beforePrevious;
+        return Math.sqrt(Math.max(0.0, power));
+    }
+    
+    /**
+     * Records the magnitudes of the video frame which was completed and resets
+     * the filters for the next frame.
+     */
+    private void completeFrame() {
+        if (this.frameCount == this.toneMagnitudes.length) {
+            this.toneMagnitudes = Arrays.copyOf(this.toneMagnitudes, this.frameCount * 2);
+            this.neighbourMagnitudes = Arrays.copyOf(this.neighbourMagnitudes, this.frameCount * 2);
+        }
+        
+        double neighbours = 0.0;
+        for (int i = 0; i < this.coefficients.length; i++) {
+            double power = this.previous[i] * this.previous[i] +
+                    this.beforePrevious[i] * this.beforePrevious[i] -
+                    this.coefficients[i] * this.previous[i] * this.beforePrevious[i];
+            double magnitude = Math.sqrt(Math.max(0.0, power));
+            if (i == 0) {
+                this.toneMagnitudes[this.frameCount] = magnitude;
+            } else {
+                neighbours += magnitude / NEIGHBOUR_OFFSETS.length;
+            }
+            this.previous[i] = 0.0;
+            this.beforePrevious[i] = 0.0;
+        }
+        this.neighbourMagnitudes[this.frameCount] = neighbours;
+        
+        this.frameCount++;
+        this.frameEnd = this.getFrameStart(this.frameCount + 1);
+    }
+    
+    /**
+     * Gets the index of the first audio sample of a video frame. Frame
+     * boundaries are calculated from the frame index rather than by adding a
+     * rounded frame length so they do not drift over long recordings.
+     * @param frame The index of the video frame.
+     * @return The index of the first audio sample of the video frame.
+     */
+    private long getFrameStart(int frame) {
+        return Math.round(frame * this.sampleRate / this.frameRate);
+    }
+    
+    /**
+     * Gets the Goertzel coefficient for a frequency.
+     * @param frequency The frequency.
+     * @return The Goertzel coefficient for the frequency.
+     */
+    private double getCoefficient(double frequency) {
+        return 2.0 * Math.cos(2.0 * Math.PI * frequency / this.sampleRate);
+    }
+    
+    /**
+     * Reads from a stream until the buffer is full or the stream ends.
+     * @param in The stream to read from.
+     * @param buffer The buffer to read into.
+     * @param offset The offset in the buffer to start reading at.
+     * @return The number of bytes read or 0 if the stream has ended.
+     * @throws IOException If the stream cannot be read.
+     */
+    private static int readBlock(InputStream in, byte[] buffer, int offset) throws IOException {
+        int total = 0;
+        while (offset + total < buffer.length) {
+            int read = in.read(buffer, offset + total, buffer.length - offset - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+    
+    /**
+     * Decodes a PCM sample.
+     * @param data The audio data.
+     * @param index The index of the first byte of the sample.
+     * @param bytesPerSample The number of bytes in a sample.
+     * @param signed Whether the samples are two's complement signed values.
+     * @param bigEndian Whether the samples are stored big endian.
+     * @return The value of the sample.
+     */
+    static double decodeSample(byte[] data, int index, int bytesPerSample, boolean signed, boolean bigEndian) {
+        long value = 0;
+        for (int i = 0; i < bytesPerSample; i++) {
+            int b = data[index + (bigEndian ? i : bytesPerSample - 1 - i)] & 0xff;
+            value = (value << 8) | b;
+        }
+        
+        int bits = bytesPerSample * 8;
+        if (signed) {
+            // sign extend from the most significant bit of the sample
+            value = (value << (64 - bits)) >> (64 - bits);
+        } else {
+            // center unsigned samples on zero
+            value -= 1L << (bits - 1);
+        }
+        return value;
+    }
+}
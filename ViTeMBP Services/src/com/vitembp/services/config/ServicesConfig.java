@@ -28,6 +28,7 @@ import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.stream.Collectors;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamConstants;
@@ -230,9 +231,9 @@ public class ServicesConfig {
             LOGGER.info("Loading config from path: " + configFile.toAbsolutePath().toString());
             
             // read in all lines in file and combine them to a single string
-            config = Files
-                    .lines(configFile)
-                    .reduce("", (a, b) -> a + b);
+            try (BufferedReader reader = Files.newBufferedReader(configFile)) {
+                config = reader.lines().collect(Collectors.joining());
+            }
         } else {
             // read in all lines from assembly file and combine them to a single string
             // replace the system path seperator with '/' to support operating
@@ -241,10 +242,11 @@ public class ServicesConfig {
             
             LOGGER.info("Loading config from path: " + pathToResource);
             
-            InputStream in = this.getClass().getResourceAsStream(pathToResource);
-            config = new BufferedReader(new InputStreamReader(in))
-                    .lines()
-                    .reduce("", (a, b) -> a + b);
+            try (InputStream in = this.getClass().getResourceAsStream(pathToResource)) {
+                config = new BufferedReader(new InputStreamReader(in))
+                        .lines()
+                        .collect(Collectors.joining());
+            }
         }
         
         // create an XMLStreamReader for the string read in using a filter to
@@ -18,18 +18,10 @@
 package com.vitembp.services.data;
 
 import com.vitembp.embedded.data.Capture;
-import com.vitembp.embedded.data.Sample;
-import com.vitembp.services.sensors.Sensor;
 import com.vitembp.services.sensors.SensorFactory;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
-import static java.util.stream.Collectors.toMap;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -88,72 +80,70 @@ public class CaptureCalculations {
         data.append(",\"isComplete\":");
         data.append(Boolean.toString(toProcess.isComplete()));
         
+        // sensor statistics calculated in a single pass over the samples
+        CaptureStatistics stats = CaptureStatistics.calculate(
+                toProcess.getSamples(),
+                SensorFactory.getSensors(toProcess),
+                true);
+        data.append(",\"sensorStatistics\":{");
+        stats.getSensors().keySet().forEach(name -> {
+            data.append("\"");
+            data.append(name);
+            data.append("\":");
+            appendStatistics(data, stats.getStatistics(name).get());
+            
+            // accelerometers also provide per axis statistics
+            if (stats.getStatistics(name, CaptureStatistics.Channel.X_AXIS).isPresent()) {
+                data.setCharAt(data.length() - 1, ',');
+                data.append("\"axes\":{\"x\":");
+                appendStatistics(data, stats.getStatistics(name, CaptureStatistics.Channel.X_AXIS).get());
+                data.append(",\"y\":");
+                appendStatistics(data, stats.getStatistics(name, CaptureStatistics.Channel.Y_AXIS).get());
+                data.append(",\"z\":");
+                appendStatistics(data, stats.getStatistics(name, CaptureStatistics.Channel.Z_AXIS).get());
+                data.append("}}");
+            }
+            data.append(",");
+        });
+        if (data.charAt(data.length() - 1) == ',') {
+            data.setLength(data.length() - 1);
+        }
+        data.append("}");
+        
         data.append("}");
         
         return data.toString();
     }
     
     /**
-     * Calculates and returns summary information about the capture.
+     * Calculates and returns graph data for the capture as JSON.
      * @param captureLocation The location of the capture in the data store.
      * @param points The number of points to reduce the data to.
-     * @return The summarized data about the capture.
+     * @return The graph data for the capture.
      * @throws java.io.IOException If an error occurs reading from data store.
      */
-    @SuppressWarnings("unchecked")
     public static String buildGraphDataForCapture(UUID captureLocation, int points) throws IOException {
+        return buildGraphDataForCapture(captureLocation, points, 0.0, Double.POSITIVE_INFINITY);
+    }
+    
+    /**
+     * Calculates and returns graph data for a time window of the capture as
+     * JSON.
+     * @param captureLocation The location of the capture in the data store.
+     * @param points The number of points to reduce the data to.
+     * @param startTime The start of the window in seconds from the start of
+     * the capture.
+     * @param endTime The end of the window in seconds from the start of the
+     * capture.
+     * @return The graph data for the capture.
+     * @throws java.io.IOException If an error occurs reading from data store.
+     */
+    public static String buildGraphDataForCapture(UUID captureLocation, int points, double startTime, double endTime) throws IOException {
         // load the capture
         Capture toProcess = CaptureOperations.getCaptureAtLocation(captureLocation);
         
-        // build pipeline to get statistics
-        Pipeline statsPipe = StandardPipelines.captureStatisticsPipeline(
-                toProcess,
-                SensorFactory.getSensors(toProcess));
-        
-        // find number of samples per point
-        int samplesPerPoint = (int)Math.ceil(
-                ((double)toProcess.getSampleCount()) / ((double)points));
-        
-        // create maps for final results
-        List<Map<String, Double>> min = new ArrayList<>();
-        List<Map<String, Double>> max = new ArrayList<>();
-        List<Map<String, Double>> avg = new ArrayList<>();
-                
-        // step through data and calculate the results
-        Iterator<Sample> iter = toProcess.getSamples().iterator();
-        List<Sample> toProc = new ArrayList<>();
-        
-        while (iter.hasNext()) {
-            toProc.add(iter.next());
-            if (toProc.size() >= samplesPerPoint) {
-                Map<String, Object> stats = CaptureProcessor.process(toProc.stream(), statsPipe);
-                
-                // get maps
-                Map<Sensor, Double> mins, maxs, avgs;
-                mins = (Map<Sensor, Double>)stats.get(StandardPipelines.MIN_BINDING);
-                maxs = (Map<Sensor, Double>)stats.get(StandardPipelines.MAX_BINDING);
-                avgs = (Map<Sensor, Double>)stats.get(StandardPipelines.AVERAGE_BINDING);
-                
-                // get specific results changing map key to sensor name
-                if (mins != null) {
-                    min.add(mins.entrySet().stream()
-                        .collect(toMap(e -> e.getKey().getName(), Entry::getValue)));
-                }
-                
-                if (maxs != null) {
-                    max.add(maxs.entrySet().stream()
-                        .collect(toMap(e -> e.getKey().getName(), Entry::getValue)));
-                }
-                
-                if (avgs != null) {
-                    avg.add(avgs.entrySet().stream()
-                        .collect(toMap(e -> e.getKey().getName(), Entry::getValue)));
-                }
-                
-                // clear the Items
-                toProc.clear();
-            }
-        }
+        // reduce the window from the nearest level of the graph pyramid
+        GraphSeries series = getGraphSeries(toProcess, points, startTime, endTime);
         
         // build return string
         StringBuilder toReturn = new StringBuilder();
@@ -171,13 +161,13 @@ public class CaptureCalculations {
         toReturn.setCharAt(toReturn.length() - 1, ']');
         toReturn.append(",");
         
-        for (int i = 0; i < avg.size(); i++) {
-            Map<String, Double> pt = avg.get(i);
+        for (int i = 0; i < series.getPointCount(); i++) {
+            int point = i;
             toReturn.append("[");
             toReturn.append(i);
             toReturn.append(",");
             sensorNames.forEach(sensorName -> {
-                toReturn.append(pt.get(sensorName));
+                toReturn.append(formatValue(series, sensorName, point));
                 toReturn.append(",");
             });
             toReturn.setCharAt(toReturn.length() - 1, ']');
@@ -189,66 +179,34 @@ public class CaptureCalculations {
     }
 
     /**
-     * Calculates and returns summary information about the capture.
+     * Calculates and returns graph data for the capture as CSV.
      * @param captureLocation The location of the capture in the data store.
      * @param points The number of points to reduce the data to.
-     * @return The summarized data about the capture.
+     * @return The graph data for the capture.
      * @throws java.io.IOException If an error occurs reading from data store.
      */
-    @SuppressWarnings("unchecked")
     public static String buildCsvGraphDataForCapture(UUID captureLocation, int points) throws IOException {
+        return buildCsvGraphDataForCapture(captureLocation, points, 0.0, Double.POSITIVE_INFINITY);
+    }
+    
+    /**
+     * Calculates and returns graph data for a time window of the capture as
+     * CSV.
+     * @param captureLocation The location of the capture in the data store.
+     * @param points The number of points to reduce the data to.
+     * @param startTime The start of the window in seconds from the start of
+     * the capture.
+     * @param endTime The end of the window in seconds from the start of the
+     * capture.
+     * @return The graph data for the capture.
+     * @throws java.io.IOException If an error occurs reading from data store.
+     */
+    public static String buildCsvGraphDataForCapture(UUID captureLocation, int points, double startTime, double endTime) throws IOException {
         // load the capture
         Capture toProcess = CaptureOperations.getCaptureAtLocation(captureLocation);
         
-        // build pipeline to get statistics
-        Pipeline statsPipe = StandardPipelines.captureStatisticsPipeline(
-                toProcess,
-                SensorFactory.getSensors(toProcess));
-        
-        // find number of samples per point
-        int samplesPerPoint = (int)Math.ceil(
-                ((double)toProcess.getSampleCount()) / ((double)points));
-        
-        // create maps for final results
-        List<Map<String, Double>> min = new ArrayList<>();
-        List<Map<String, Double>> max = new ArrayList<>();
-        List<Map<String, Double>> avg = new ArrayList<>();
-                
-        // step through data and calculate the results
-        Iterator<Sample> iter = toProcess.getSamples().iterator();
-        List<Sample> toProc = new ArrayList<>();
-        
-        while (iter.hasNext()) {
-            toProc.add(iter.next());
-            if (toProc.size() >= samplesPerPoint) {
-                Map<String, Object> stats = CaptureProcessor.process(toProc.stream(), statsPipe);
-                
-                // get maps
-                Map<Sensor, Double> mins, maxs, avgs;
-                mins = (Map<Sensor, Double>)stats.get(StandardPipelines.MIN_BINDING);
-                maxs = (Map<Sensor, Double>)stats.get(StandardPipelines.MAX_BINDING);
-                avgs = (Map<Sensor, Double>)stats.get(StandardPipelines.AVERAGE_BINDING);
-                
-                // get specific results changing map key to sensor name
-                if (mins != null) {
-                    min.add(mins.entrySet().stream()
-                        .collect(toMap(e -> e.getKey().getName(), Entry::getValue)));
-                }
-                
-                if (maxs != null) {
-                    max.add(maxs.entrySet().stream()
-                        .collect(toMap(e -> e.getKey().getName(), Entry::getValue)));
-                }
-                
-                if (avgs != null) {
-                    avg.add(avgs.entrySet().stream()
-                        .collect(toMap(e -> e.getKey().getName(), Entry::getValue)));
-                }
-                
-                // clear the Items
-                toProc.clear();
-            }
-        }
+        // reduce the window from the nearest level of the graph pyramid
+        GraphSeries series = getGraphSeries(toProcess, points, startTime, endTime);
         
         // build return string
         StringBuilder toReturn = new StringBuilder();
@@ -264,18 +222,100 @@ public class CaptureCalculations {
         
         toReturn.setCharAt(toReturn.length() - 1, '\n');
         
-        for (int i = 0; i < avg.size(); i++) {
-            Map<String, Double> pt = avg.get(i);
+        for (int i = 0; i < series.getPointCount(); i++) {
+            int point = i;
             toReturn.append(i);
             toReturn.append(",");
             sensorNames.forEach(sensorName -> {
-                toReturn.append(pt.get(sensorName));
+                toReturn.append(formatValue(series, sensorName, point));
                 toReturn.append(",");
             });
             toReturn.setCharAt(toReturn.length() - 1, '\n');
         }
-        toReturn.substring(0, toReturn.length() - 1);
         
         return toReturn.toString();
     }
+    
+    /**
+     * Reduces a time window of a capture to points using its graph pyramid.
+     * @param toProcess The capture to process.
+     * @param points The number of points to reduce the data to.
+     * @param startTime The start of the window in seconds from the start of
+     * the capture.
+     * @param endTime The end of the window in seconds from the start of the
+     * capture.
+     * @return The reduced series.
+     * @throws java.io.IOException If an error occurs accessing the data store.
+     */
+    static GraphSeries getGraphSeries(Capture toProcess, int points, double startTime, double endTime) throws IOException {
+        if (endTime < startTime) {
+            throw new IllegalArgumentException("The end of the window must not be before its start.");
+        }
+        
+        // convert the window to sample indexes
+        double frequency = toProcess.getSampleFrequency();
+        int startSample = (int)Math.min(Integer.MAX_VALUE, Math.max(0.0, Math.floor(startTime * frequency)));
+        int endSample = (int)Math.min(Integer.MAX_VALUE, Math.max(0.0, Math.ceil(endTime * frequency)));
+        
+        return GraphPyramid.getPyramid(toProcess).getSeries(startSample, endSample, points);
+    }
+    
+    /**
+     * Formats the average value of a sensor at a point of a series for output.
+     * @param series The series containing the value.
+     * @param sensorName The name of the sensor to format the value for.
+     * @param point The index of the point.
+     * @return The formatted value or "null" if there is no value.
+     */
+    private static String formatValue(GraphSeries series, String sensorName, int point) {
+        if (!series.hasSensor(sensorName)) {
+            return "null";
+        }
+        return formatValue(series.getMean(sensorName, point));
+    }
+    
+    /**
+     * Formats a value for output.
+     * @param value The value to format.
+     * @return The formatted value or "null" if the value is not a number.
+     */
+    private static String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return "null";
+        }
+        return Double.toString(value);
+    }
+    
+    /**
+     * Appends statistics as a JSON object.
+     * @param data The string being built.
+     * @param stats The statistics to append.
+     */
+    private static void appendStatistics(StringBuilder data, ValueStatistics stats) {
+        data.append("{\"count\":");
+        data.append(Long.toString(stats.getCount()));
+        data.append(",\"missing\":");
+        data.append(Long.toString(stats.getMissingCount()));
+        data.append(",\"minimum\":");
+        data.append(formatValue(stats.getMinimum()));
+        data.append(",\"maximum\":");
+        data.append(formatValue(stats.getMaximum()));
+        data.append(",\"average\":");
+        data.append(formatValue(stats.getMean()));
+        data.append(",\"standardDeviation\":");
+        data.append(formatValue(stats.getStandardDeviation()));
+        data.append(",\"absoluteAverage\":");
+        data.append(formatValue(stats.getAbsoluteMean()));
+        data.append(",\"absoluteMaximum\":");
+        data.append(formatValue(stats.getAbsoluteMaximum()));
+        if (stats.hasPercentiles()) {
+            data.append(",\"percentile5\":");
+            data.append(formatValue(stats.getPercentile(0.05)));
+            data.append(",\"median\":");
+            data.append(formatValue(stats.getPercentile(0.5)));
+            data.append(",\"percentile95\":");
+            data.append(formatValue(stats.getPercentile(0.95)));
+        }
+        data.append("}");
+    }
 }
@@ -0,0 +1,294 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.data;
+
+import com.vitembp.embedded.data.Capture;
+import com.vitembp.embedded.data.Sample;
+import com.vitembp.services.sensors.AccelerometerThreeAxis;
+import com.vitembp.services.sensors.DistanceSensor;
+import com.vitembp.services.sensors.RotarySensor;
+import com.vitembp.services.sensors.Sensor;
+import com.vitembp.services.sensors.SensorFactory;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Exports the samples of a capture as CSV or JSON. Each sample is encoded
+ * and written as it is read so the memory used does not depend on the size
+ * of the capture.
+ */
+public class CaptureExporter {
+    /**
+     * Class logger instance.
+     */
+    private static final Logger LOGGER = LogManager.getLogger();
+    
+    /**
+     * The size of the buffers used when writing output.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    /**
+     * The formats data can be exported in.
+     */
+    public static enum Format {
+        /**
+         * Comma separated values with a header line of sensor names.
+         */
+        CSV(".csv"),
+        
+        /**
+         * A JSON array with an object for each sample.
+         */
+        JSON(".json");
+        
+        /**
+         * The file extension of the format.
+         */
+        private final String extension;
+        
+        /**
+         * Initializes a new instance of the Format enumeration.
+         * @param extension The file extension of the format.
+         */
+        private Format(String extension) {
+            this.extension = extension;
+        }
+        
+        /**
+         * Gets the file extension of the format.
+         * @return The file extension of the format.
+         */
+        public String getExtension() {
+            return this.extension;
+        }
+    };
+    
+    /**
+     * Exports the data of a capture to a stream. The stream is flushed but
+     * not closed so the caller can close it if the export succeeds or discard
+     * the partial output if it fails.
+     * @param toExport The capture to export.
+     * @param calibrated Whether calibrated values are exported instead of the
+     * raw sensor data.
+     * @param format The format to export the data in.
+     * @param compress Whether the output is compressed with GZip.
+     * @param destination The stream to write the data to.
+     * @throws IOException If an error occurs writing the data.
+     */
+    public static void export(Capture toExport, boolean calibrated, Format format, boolean compress, OutputStream destination) throws IOException {
+        GZIPOutputStream gzip = compress ? new GZIPOutputStream(destination, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(compress ? gzip : destination, StandardCharsets.UTF_8), BUFFER_SIZE);
+        write(toExport, calibrated, format, writer);
+        writer.flush();
+        
+        // write the GZip trailer without closing the destination
+        if (compress) {
+            gzip.finish();
+        }
+        destination.flush();
+    }
+    
+    /**
+     * Writes the data of a capture to a writer.
+     * @param toExport The capture to export.
+     * @param calibrated Whether calibrated values are exported instead of the
+     * raw sensor data.
+     * @param format The format to export the data in.
+     * @param writer The writer to write the data to.
+     * @throws IOException If an error occurs writing the data.
+     */
+    public static void write(Capture toExport, boolean calibrated, Format format, Writer writer) throws IOException {
+        String[] names = toExport.getSensorNames().toArray(new String[0]);
+        
+        // resolve how each sensor is encoded once rather than for each sample
+        Map<String, Sensor> sensors = calibrated ? SensorFactory.getSensors(toExport) : null;
+        List<Function<Sample, String>> encoders = new ArrayList<>(names.length);
+        for (String name : names) {
+            if (calibrated) {
+                encoders.add(getCalibratedEncoder(sensors.get(name), format));
+            } else if (format == Format.JSON) {
+                encoders.add(sample -> jsonString(sample.getSensorData().get(name)));
+            } else {
+                encoders.add(sample -> sample.getSensorData().get(name));
+            }
+        }
+        
+        if (format == Format.JSON) {
+            writeJson(toExport, names, encoders, writer);
+        } else {
+            writeCsv(toExport, names, encoders, writer);
+        }
+    }
+    
+    /**
+     * Writes samples as CSV.
+     * @param toExport The capture to export.
+     * @param names The names of the sensors.
+     * @param encoders The encoder of each sensor.
+     * @param writer The writer to write the data to.
+     * @throws IOException If an error occurs writing the data.
+     */
+    private static void writeCsv(Capture toExport, String[] names, List<Function<Sample, String>> encoders, Writer writer) throws IOException {
+        // write out header
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(names[i]);
+        }
+        writer.write('\n');
+        
+        // process the data
+        Iterator<Sample> samples = toExport.getSamples().iterator();
+        while (samples.hasNext()) {
+            Sample toWrite = samples.next();
+            boolean first = true;
+            for (int i = 0; i < names.length; i++) {
+                if (toWrite.getSensorData().containsKey(names[i])) {
+                    if (!first) {
+                        writer.write(',');
+                    }
+                    writer.write('"');
+                    writer.write(encoders.get(i).apply(toWrite));
+                    writer.write('"');
+                    first = false;
+                }
+            }
+            
+            // only lines with sensor data are written
+            if (!first) {
+                writer.write('\n');
+            }
+        }
+    }
+    
+    /**
+     * Writes samples as a JSON array of objects.
+     * @param toExport The capture to export.
+     * @param names The names of the sensors.
+     * @param encoders The encoder of each sensor.
+     * @param writer The writer to write the data to.
+     * @throws IOException If an error occurs writing the data.
+     */
+    private static void writeJson(Capture toExport, String[] names, List<Function<Sample, String>> encoders, Writer writer) throws IOException {
+        // the keys are encoded once
+        String[] keys = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            keys[i] = jsonString(names[i]) + ":";
+        }
+        
+        writer.write('[');
+        boolean firstSample = true;
+        Iterator<Sample> samples = toExport.getSamples().iterator();
+        while (samples.hasNext()) {
+            Sample toWrite = samples.next();
+            writer.write(firstSample ? "\n{\"index\":" : ",\n{\"index\":");
+            writer.write(Integer.toString(toWrite.getIndex()));
+            for (int i = 0; i < names.length; i++) {
+                if (toWrite.getSensorData().containsKey(names[i])) {
+                    writer.write(',');
+                    writer.write(keys[i]);
+                    writer.write(encoders.get(i).apply(toWrite));
+                }
+            }
+            writer.write('}');
+            firstSample = false;
+        }
+        writer.write("\n]\n");
+    }
+    
+    /**
+     * Gets a function which encodes the calibrated value of a sensor. Missing
+     * readings are encoded as an empty string in CSV and null in JSON.
+     * @param sensor The sensor to encode values for.
+     * @param format The format the values are encoded for.
+     * @return The function which encodes the calibrated value of the sensor.
+     */
+    private static Function<Sample, String> getCalibratedEncoder(Sensor sensor, Format format) {
+        Function<Sample, Optional<Double>> value;
+        if (sensor instanceof RotarySensor) {
+            value = ((RotarySensor)sensor)::getPositionPercentage;
+        } else if (sensor instanceof DistanceSensor) {
+            value = ((DistanceSensor)sensor)::getDistancePercent;
+        } else if (sensor instanceof AccelerometerThreeAxis) {
+            // decode the axes with a single parse of the sample data
+            double[] axes = new double[sensor.getChannelCount()];
+            value = sample -> {
+                sensor.decode(sample, axes);
+                double x = axes[AccelerometerThreeAxis.X_AXIS];
+                double y = axes[AccelerometerThreeAxis.Y_AXIS];
+                double z = axes[AccelerometerThreeAxis.Z_AXIS];
+                if (Double.isNaN(x) || Double.isNaN(y) || Double.isNaN(z)) {
+                    return Optional.empty();
+                }
+                return Optional.of(Math.sqrt(
+                        Math.pow(x, 2) + Math.pow(y, 2) + Math.pow(z, 2)));
+            };
+        } else {
+            LOGGER.error("Unknown sensor type exporting calibrated data.");
+            value = sample -> Optional.empty();
+        }
+        
+        String missing = format == Format.JSON ? "null" : "";
+        return sample -> {
+            Optional<Double> result = value.apply(sample);
+            return result.isPresent() ? Double.toString(result.get()) : missing;
+        };
+    }
+    
+    /**
+     * Encodes a string as a quoted JSON string.
+     * @param value The string to encode.
+     * @return The quoted JSON string or null if the value is null.
+     */
+    private static String jsonString(String value) {
+        if (value == null) {
+            return "null";
+        }
+        
+        StringBuilder toReturn = new StringBuilder(value.length() + 2);
+        toReturn.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                toReturn.append('\\');
+                toReturn.append(c);
+            } else if (c < 0x20) {
+                toReturn.append(String.format("\\u%04x", (int)c));
+            } else {
+                toReturn.append(c);
+            }
+        }
+        toReturn.append('"');
+        return toReturn.toString();
+    }
+}
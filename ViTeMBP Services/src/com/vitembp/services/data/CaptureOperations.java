@@ -35,8 +35,10 @@ public class CaptureOperations {
      * @throws IOException If there is an error deleting form the data store.
      */
     public static String delete(UUID toDelete) throws IOException {
-        // get and delete the capture
-        getCaptureAtLocation(toDelete).delete();
+        // get and delete the capture and the data derived from it
+        Capture capture = getCaptureAtLocation(toDelete);
+        GraphPyramid.delete(capture);
+        capture.delete();
         return "Capture successfully deleted.";
     }
 
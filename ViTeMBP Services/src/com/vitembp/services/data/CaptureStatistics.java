@@ -0,0 +1,379 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.data;
+
+import com.vitembp.embedded.data.Sample;
+import com.vitembp.services.sensors.AccelerometerThreeAxis;
+import com.vitembp.services.sensors.DecodedCapture;
+import com.vitembp.services.sensors.DistanceSensor;
+import com.vitembp.services.sensors.RotarySensor;
+import com.vitembp.services.sensors.Sensor;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+/**
+ * Calculates statistics for every sensor and axis of a capture in a single
+ * pass over the samples. Each sample is decoded once per sensor, or read from
+ * the columns of a decoded capture, and the values are fed to primitive
+ * accumulators. Instances built for the
+ * same sensors can be merged so results for ranges of a capture can be
+ * combined into results for the whole capture.
+ */
+public class CaptureStatistics {
+    /**
+     * The channels of data that statistics are calculated for.
+     */
+    public static enum Channel {
+        /**
+         * The primary value of the sensor. This is the position percentage
+         * for rotary sensors, the distance percentage for distance sensors,
+         * and the vector magnitude for accelerometers.
+         */
+        VALUE,
+
+        /**
+         * The X axis of an accelerometer.
+         */
+        X_AXIS,
+
+        /**
+         * The Y axis of an accelerometer.
+         */
+        Y_AXIS,
+
+        /**
+         * The Z axis of an accelerometer.
+         */
+        Z_AXIS
+    };
+
+    /**
+     * The accumulators for each sensor keyed by sensor name.
+     */
+    private final Map<String, SensorAccumulator> accumulators;
+
+    /**
+     * Whether percentiles are tracked by these statistics.
+     */
+    private final boolean trackPercentiles;
+
+    /**
+     * The number of samples accepted.
+     */
+    private long sampleCount = 0;
+
+    /**
+     * Initializes a new instance of the CaptureStatistics class.
+     * @param sensors The sensors used to decode the capture data.
+     * @param trackPercentiles Whether percentiles should be tracked, which
+     * requires keeping all decoded values in memory.
+     */
+    public CaptureStatistics(Map<String, Sensor> sensors, boolean trackPercentiles) {
+        this.trackPercentiles = trackPercentiles;
+        this.accumulators = new LinkedHashMap<>();
+        sensors.values().forEach(sensor -> {
+            SensorAccumulator acc = SensorAccumulator.build(sensor, trackPercentiles);
+            if (acc != null) {
+                this.accumulators.put(sensor.getName(), acc);
+            }
+        });
+    }
+
+    /**
+     * Calculates statistics for all of the samples in the stream.
+     * @param samples The samples to calculate statistics for.
+     * @param sensors The sensors used to decode the capture data.
+     * @param trackPercentiles Whether percentiles should be tracked.
+     * @return The calculated statistics.
+     */
+    public static CaptureStatistics calculate(Stream<Sample> samples, Map<String, Sensor> sensors, boolean trackPercentiles) {
+        CaptureStatistics stats = new CaptureStatistics(sensors, trackPercentiles);
+        Iterator<Sample> iter = samples.iterator();
+        while (iter.hasNext()) {
+            stats.accept(iter.next());
+        }
+        return stats;
+    }
+
+    /**
+     * Calculates statistics for all of the samples of a decoded capture,
+     * reading the values from its columns.
+     * @param decoded The decoded capture to calculate statistics for.
+     * @param trackPercentiles Whether percentiles should be tracked.
+     * @return The calculated statistics.
+     */
+    public static CaptureStatistics calculate(DecodedCapture decoded, boolean trackPercentiles) {
+        CaptureStatistics stats = new CaptureStatistics(decoded.getSensors(), trackPercentiles);
+        stats.sampleCount = decoded.getSampleCount();
+        for (SensorAccumulator acc : stats.accumulators.values()) {
+            double[][] columns = new double[acc.sensor.getChannelCount()][];
+            for (int channel = 0; channel < columns.length; channel++) {
+                columns[channel] = decoded.getColumn(acc.sensor, channel);
+            }
+            
+            for (int i = 0; i < decoded.getSampleCount(); i++) {
+                for (int channel = 0; channel < columns.length; channel++) {
+                    acc.values[channel] = columns[channel][i];
+                }
+                acc.accept(acc.values);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Accepts a sample, decoding it once for each sensor.
+     * @param toAccept The sample to accept.
+     */
+    public void accept(Sample toAccept) {
+        this.sampleCount++;
+        for (SensorAccumulator acc : this.accumulators.values()) {
+            acc.accept(toAccept);
+        }
+    }
+
+    /**
+     * Merges the statistics from another instance into this instance.
+     * @param other The statistics to merge which must have been built for the
+     * same sensors.
+     * @return This instance.
+     */
+    public CaptureStatistics merge(CaptureStatistics other) {
+        if (!this.accumulators.keySet().equals(other.accumulators.keySet())) {
+            throw new IllegalArgumentException("Statistics must be calculated for the same sensors to be merged.");
+        }
+
+        this.sampleCount += other.sampleCount;
+        this.accumulators.forEach((name, acc) -> acc.merge(other.accumulators.get(name)));
+        return this;
+    }
+
+    /**
+     * Gets the number of samples accepted.
+     * @return The number of samples accepted.
+     */
+    public long getSampleCount() {
+        return this.sampleCount;
+    }
+
+    /**
+     * Gets whether percentiles are tracked by these statistics.
+     * @return Whether percentiles are tracked by these statistics.
+     */
+    public boolean hasPercentiles() {
+        return this.trackPercentiles;
+    }
+
+    /**
+     * Gets the sensors statistics are calculated for keyed by name.
+     * @return The sensors statistics are calculated for keyed by name.
+     */
+    public Map<String, Sensor> getSensors() {
+        Map<String, Sensor> toReturn = new LinkedHashMap<>();
+        this.accumulators.forEach((name, acc) -> toReturn.put(name, acc.sensor));
+        return toReturn;
+    }
+
+    /**
+     * Gets the statistics for the primary value of a sensor.
+     * @param sensorName The name of the sensor.
+     * @return The statistics for the sensor or an empty Optional if the
+     * sensor is not known.
+     */
+    public Optional<ValueStatistics> getStatistics(String sensorName) {
+        return this.getStatistics(sensorName, Channel.VALUE);
+    }
+
+    /**
+     * Gets the statistics for a channel of a sensor.
+     * @param sensorName The name of the sensor.
+     * @param channel The channel of the sensor.
+     * @return The statistics for the sensor channel or an empty Optional if
+     * the sensor does not provide that channel.
+     */
+    public Optional<ValueStatistics> getStatistics(String sensorName, Channel channel) {
+        SensorAccumulator acc = this.accumulators.get(sensorName);
+        if (acc == null || channel.ordinal() >= acc.channels.length) {
+            return Optional.empty();
+        }
+        return Optional.of(acc.channels[channel.ordinal()]);
+    }
+
+    /**
+     * Gets a live view of the minimum primary value of each sensor.
+     * Sensors without any readings are left out.
+     * @return The minimum primary value of each sensor.
+     */
+    public Map<Sensor, Double> getMinimums() {
+        return this.toSensorMap(ValueStatistics::getMinimum);
+    }
+
+    /**
+     * Gets a live view of the maximum primary value of each sensor.
+     * Sensors without any readings are left out.
+     * @return The maximum primary value of each sensor.
+     */
+    public Map<Sensor, Double> getMaximums() {
+        return this.toSensorMap(ValueStatistics::getMaximum);
+    }
+
+    /**
+     * Gets a live view of the average primary value of each sensor.
+     * Sensors without any readings are left out.
+     * @return The average primary value of each sensor.
+     */
+    public Map<Sensor, Double> getAverages() {
+        return this.toSensorMap(ValueStatistics::getMean);
+    }
+
+    /**
+     * Builds a read only view mapping sensors to a statistic of their primary
+     * value. The view reflects samples accepted after it was created. Sensors
+     * without any readings are left out, as their statistics are undefined.
+     * @param statistic The function which gets the statistic.
+     * @return A map of sensors to a statistic of their primary value.
+     */
+    private Map<Sensor, Double> toSensorMap(ToDoubleFunction<ValueStatistics> statistic) {
+        return new AbstractMap<Sensor, Double>() {
+            @Override
+            public Set<Entry<Sensor, Double>> entrySet() {
+                Set<Entry<Sensor, Double>> entries = new LinkedHashSet<>();
+                accumulators.values().forEach(acc -> {
+                    ValueStatistics value = acc.channels[Channel.VALUE.ordinal()];
+                    if (value.getCount() > 0) {
+                        entries.add(new SimpleImmutableEntry<>(acc.sensor, statistic.applyAsDouble(value)));
+                    }
+                });
+                return entries;
+            }
+        };
+    }
+
+    /**
+     * Decodes samples for a single sensor and accumulates each of its
+     * channels.
+     */
+    private static abstract class SensorAccumulator {
+        /**
+         * The sensor that decodes the data.
+         */
+        protected final Sensor sensor;
+
+        /**
+         * The statistics for each channel the sensor provides, indexed by
+         * the channel ordinal.
+         */
+        protected final ValueStatistics[] channels;
+        
+        /**
+         * The values decoded from the current sample.
+         */
+        protected final double[] values;
+
+        /**
+         * Initializes a new instance of the SensorAccumulator class.
+         * @param sensor The sensor that decodes the data.
+         * @param channelCount The number of channels the sensor provides.
+         * @param trackPercentiles Whether percentiles should be tracked.
+         */
+        protected SensorAccumulator(Sensor sensor, int channelCount, boolean trackPercentiles) {
+            this.sensor = sensor;
+            this.channels = new ValueStatistics[channelCount];
+            this.values = new double[sensor.getChannelCount()];
+            for (int i = 0; i < channelCount; i++) {
+                this.channels[i] = new ValueStatistics(trackPercentiles);
+            }
+        }
+
+        /**
+         * Builds an accumulator appropriate for the type of sensor.
+         * @param sensor The sensor to build an accumulator for.
+         * @param trackPercentiles Whether percentiles should be tracked.
+         * @return The accumulator or null if the sensor type has no
+         * statistics.
+         */
+        static SensorAccumulator build(Sensor sensor, boolean trackPercentiles) {
+            if (sensor instanceof RotarySensor) {
+                return new SensorAccumulator(sensor, 1, trackPercentiles) {
+                    @Override
+                    void accept(double[] decoded) {
+                        this.channels[0].accept(decoded[RotarySensor.PERCENTAGE]);
+                    }
+                };
+            } else if (sensor instanceof DistanceSensor) {
+                return new SensorAccumulator(sensor, 1, trackPercentiles) {
+                    @Override
+                    void accept(double[] decoded) {
+                        this.channels[0].accept(decoded[DistanceSensor.PERCENT]);
+                    }
+                };
+            } else if (sensor instanceof AccelerometerThreeAxis) {
+                return new SensorAccumulator(sensor, 4, trackPercentiles) {
+                    @Override
+                    void accept(double[] decoded) {
+                        double x = decoded[AccelerometerThreeAxis.X_AXIS];
+                        double y = decoded[AccelerometerThreeAxis.Y_AXIS];
+                        double z = decoded[AccelerometerThreeAxis.Z_AXIS];
+
+                        // a missing axis makes the magnitude meaningless,
+                        // NaN propagates and is counted as missing
+                        this.channels[Channel.VALUE.ordinal()].accept(Math.sqrt(x * x + y * y + z * z));
+                        this.channels[Channel.X_AXIS.ordinal()].accept(x);
+                        this.channels[Channel.Y_AXIS.ordinal()].accept(y);
+                        this.channels[Channel.Z_AXIS.ordinal()].accept(z);
+                    }
+                };
+            }
+
+            return null;
+        }
+
+        /**
+         * Decodes the sample once and accumulates each channel.
+         * @param toAccept The sample to accept.
+         */
+        void accept(Sample toAccept) {
+            this.sensor.decode(toAccept, this.values);
+            this.accept(this.values);
+        }
+        
+        /**
+         * Accumulates each channel from the decoded values of a sample.
+         * @param decoded The calibrated values of the sensor with NaN for
+         * missing readings.
+         */
+        abstract void accept(double[] decoded);
+
+        /**
+         * Merges the channel statistics of another accumulator into this one.
+         * @param other The accumulator to merge.
+         */
+        void merge(SensorAccumulator other) {
+            for (int i = 0; i < this.channels.length; i++) {
+                this.channels[i].merge(other.channels[i]);
+            }
+        }
+    }
+}
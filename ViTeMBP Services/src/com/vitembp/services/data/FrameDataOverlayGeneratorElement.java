@@ -21,12 +21,10 @@ import com.vitembp.embedded.data.Capture;
 import com.vitembp.embedded.data.Sample;
 import com.vitembp.services.imaging.Overlay;
 import com.vitembp.services.imaging.OverlayFactory;
-import com.vitembp.services.sensors.Sensor;
-import com.vitembp.services.sensors.SensorFactory;
+import com.vitembp.services.sensors.DecodedCapture;
 import com.vitembp.services.video.VideoFileInfo;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.Map;
 import org.apache.logging.log4j.LogManager;
 
@@ -55,23 +53,22 @@ class FrameDataOverlayGeneratorElement implements PipelineElement {
      * @throws InstantiationException If sensor instances cannot be built for
      * all sensors in the capture.
      */
-    @SuppressWarnings("unchecked")
     FrameDataOverlayGeneratorElement(Capture toBuildFor, VideoFileInfo videoInfo, String overlayDefinition, String framePathBinding) throws InstantiationException {
         // save parameters
         this.framePathBinding = framePathBinding;
         
-        // build sensors used to decode the data from the capture
-        Map<String, Sensor> sensors = SensorFactory.getSensors(toBuildFor);
+        // decode the capture once, the statistics and every frame of the
+        // overlay read from the decoded values
+        DecodedCapture decoded = DecodedCapture.decode(toBuildFor);
         
         // calculate basic statistics for capture
-        Pipeline statsPipe = StandardPipelines.captureStatisticsPipeline(toBuildFor, sensors);
-        Map<String, Object> stats = CaptureProcessor.process(toBuildFor.getSamples(), statsPipe);
+        CaptureStatistics stats = CaptureStatistics.calculate(decoded, false);
         
         this.overlay = OverlayFactory.buildOverlay(
                 overlayDefinition,
-                new ArrayList<>(((Map<String, Sensor>)stats.get(StandardPipelines.SENSORS_BINDING)).values()),
-                (Map<Sensor, Double>)stats.get(StandardPipelines.MIN_BINDING),
-                (Map<Sensor, Double>)stats.get(StandardPipelines.MAX_BINDING),
+                decoded,
+                stats.getMinimums(),
+                stats.getMaximums(),
                 videoInfo);
     }
     
@@ -0,0 +1,720 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.data;
+
+import com.vitembp.embedded.data.Capture;
+import com.vitembp.embedded.data.Sample;
+import com.vitembp.embedded.data.XMLStreams;
+import com.vitembp.services.sensors.Sensor;
+import com.vitembp.services.sensors.SensorFactory;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A persistent multi-resolution pyramid of the minimum, maximum, and mean
+ * values of each sensor of a capture. The lowest level holds a bucket for
+ * every few samples and each level above it combines a fixed number of the
+ * buckets below. The levels are stored in segments next to the capture so a
+ * graph of any resolution or time window is served by reading only the
+ * buckets of the nearest level. Samples added to a capture after the pyramid
+ * was built are added incrementally the next time the pyramid is requested.
+ */
+public class GraphPyramid {
+    /**
+     * Class logger instance.
+     */
+    private static final Logger LOGGER = LogManager.getLogger();
+    
+    /**
+     * The number of samples in each bucket of the lowest level.
+     */
+    static final int BUCKET_SIZE = 8;
+    
+    /**
+     * The number of buckets of a level combined into a bucket of the next.
+     */
+    static final int LEVEL_FACTOR = 4;
+    
+    /**
+     * The number of buckets stored together in a segment.
+     */
+    static final int SEGMENT_SIZE = 256;
+    
+    /**
+     * The number of fields stored for each sensor of a bucket.
+     */
+    static final int FIELD_COUNT = 4;
+    
+    /**
+     * The offset of the count of values field.
+     */
+    static final int COUNT_FIELD = 0;
+    
+    /**
+     * The offset of the minimum value field.
+     */
+    static final int MINIMUM_FIELD = 1;
+    
+    /**
+     * The offset of the maximum value field.
+     */
+    static final int MAXIMUM_FIELD = 2;
+    
+    /**
+     * The offset of the sum of values field.
+     */
+    static final int SUM_FIELD = 3;
+    
+    /**
+     * The name the pyramid index is stored under with the capture.
+     */
+    private static final String INDEX_NAME = "graphpyramid";
+    
+    /**
+     * Striped locks so only one pyramid is built or updated for a capture at
+     * a time, captures share a lock when their IDs hash to the same stripe.
+     */
+    private static final Object[] LOCKS = new Object[64];
+    
+    static {
+        for (int i = 0; i < LOCKS.length; i++) {
+            LOCKS[i] = new Object();
+        }
+    }
+    
+    /**
+     * The capture the pyramid is built for.
+     */
+    private final Capture capture;
+    
+    /**
+     * The names of the sensors in the pyramid in the order they are stored.
+     */
+    private final List<String> sensorNames;
+    
+    /**
+     * The number of samples of the capture the pyramid contains.
+     */
+    private int sampleCount;
+    
+    /**
+     * The number of levels in the pyramid.
+     */
+    private int levelCount;
+    
+    /**
+     * Initializes a new instance of the GraphPyramid class.
+     * @param capture The capture the pyramid is built for.
+     * @param sensorNames The names of the sensors in the pyramid.
+     * @param sampleCount The number of samples the pyramid contains.
+     * @param levelCount The number of levels in the pyramid.
+     */
+    private GraphPyramid(Capture capture, List<String> sensorNames, int sampleCount, int levelCount) {
+        this.capture = capture;
+        this.sensorNames = sensorNames;
+        this.sampleCount = sampleCount;
+        this.levelCount = levelCount;
+    }
+    
+    /**
+     * Gets the pyramid for a capture, building it if it does not exist and
+     * adding any samples which were added to the capture since it was built.
+     * @param capture The capture to get the pyramid for.
+     * @return The pyramid for the capture.
+     * @throws IOException If there is an error reading from or writing to the
+     * data store.
+     */
+    public static GraphPyramid getPyramid(Capture capture) throws IOException {
+        synchronized (GraphPyramid.getLock(capture)) {
+            Map<String, Sensor> sensors = SensorFactory.getSensors(capture);
+            List<String> names = new ArrayList<>(new CaptureStatistics(sensors, false).getSensors().keySet());
+            
+            // rebuild if there is no usable pyramid for the current data
+            GraphPyramid pyramid = GraphPyramid.read(capture);
+            if (pyramid == null ||
+                    !pyramid.sensorNames.equals(names) ||
+                    pyramid.sampleCount > capture.getSampleCount()) {
+                if (pyramid != null) {
+                    LOGGER.info("Rebuilding graph pyramid for capture " + capture.getId().toString() + ".");
+                    pyramid.deleteData();
+                }
+                pyramid = new GraphPyramid(capture, names, 0, 0);
+            }
+            
+            pyramid.update(sensors);
+            return pyramid;
+        }
+    }
+    
+    /**
+     * Deletes the pyramid of a capture from the data store if one exists.
+     * @param capture The capture to delete the pyramid of.
+     * @throws IOException If there is an error accessing the data store.
+     */
+    public static void delete(Capture capture) throws IOException {
+        synchronized (GraphPyramid.getLock(capture)) {
+            GraphPyramid pyramid = GraphPyramid.read(capture);
+            if (pyramid != null) {
+                pyramid.deleteData();
+            }
+        }
+    }
+    
+    /**
+     * Gets the lock guarding the pyramid of a capture.
+     * @param capture The capture to get the lock for.
+     * @return The lock for the capture.
+     */
+    private static Object getLock(Capture capture) {
+        return LOCKS[(capture.getId().hashCode() & 0x7fffffff) % LOCKS.length];
+    }
+    
+    /**
+     * Gets the number of samples of the capture the pyramid contains.
+     * @return The number of samples of the capture the pyramid contains.
+     */
+    public int getSampleCount() {
+        return this.sampleCount;
+    }
+    
+    /**
+     * Gets the number of levels in the pyramid.
+     * @return The number of levels in the pyramid.
+     */
+    public int getLevelCount() {
+        return this.levelCount;
+    }
+    
+    /**
+     * Gets the names of the sensors in the pyramid.
+     * @return The names of the sensors in the pyramid.
+     */
+    public List<String> getSensorNames() {
+        return this.sensorNames;
+    }
+    
+    /**
+     * Reduces a range of samples to at most the requested number of points
+     * using the level of the pyramid nearest the requested resolution. Window
+     * edges are aligned to the buckets of that level. When the lowest level is
+     * coarser than the requested resolution the points are calculated from the
+     * samples, which are bounded by the number of points requested.
+     * @param startSample The index of the first sample of the window.
+     * @param endSample The index after the last sample of the window.
+     * @param points The maximum number of points to reduce the window to.
+     * @return The reduced series.
+     * @throws IOException If there is an error reading from the data store.
+     */
+    public GraphSeries getSeries(int startSample, int endSample, int points) throws IOException {
+        if (points < 1) {
+            throw new IllegalArgumentException("The number of points must be positive.");
+        }
+        
+        // clamp the window to the available samples
+        int start = Math.max(0, Math.min(startSample, this.sampleCount));
+        int end = Math.max(start, Math.min(endSample, this.sampleCount));
+        if (start == end) {
+            return new GraphSeries(this.sensorNames, new long[0], new ArrayList<>());
+        }
+        
+        // too few samples for the lowest level so use the samples directly
+        double samplesPerPoint = ((double)(end - start)) / points;
+        if (samplesPerPoint < BUCKET_SIZE) {
+            return this.getSeriesFromSamples(start, end, points);
+        }
+        
+        // find the coarsest level which still provides enough buckets
+        int level = 0;
+        while (level + 1 < this.levelCount && getBucketSize(level + 1) <= samplesPerPoint) {
+            level++;
+        }
+        
+        long bucketSize = getBucketSize(level);
+        int first = (int)(start / bucketSize);
+        int last = (int)Math.min((end + bucketSize - 1) / bucketSize, this.getBucketCount(level));
+        List<double[]> buckets = this.readBuckets(level, first, last);
+        
+        // combine consecutive buckets into each point
+        int outputCount = Math.min(points, buckets.size());
+        long[] indexes = new long[outputCount];
+        List<double[]> values = new ArrayList<>(outputCount);
+        for (int i = 0; i < outputCount; i++) {
+            int from = (int)((long)i * buckets.size() / outputCount);
+            int to = (int)((long)(i + 1) * buckets.size() / outputCount);
+            double[] point = this.createBucket();
+            for (int j = from; j < to; j++) {
+                mergeBucket(point, buckets.get(j));
+            }
+            indexes[i] = (first + from) * bucketSize;
+            values.add(point);
+        }
+        
+        return new GraphSeries(this.sensorNames, indexes, values);
+    }
+    
+    /**
+     * Reduces a range of samples to points by reading the samples directly.
+     * @param start The index of the first sample of the window.
+     * @param end The index after the last sample of the window.
+     * @param points The maximum number of points to reduce the window to.
+     * @return The reduced series.
+     */
+    private GraphSeries getSeriesFromSamples(int start, int end, int points) {
+        Map<String, Sensor> sensors = SensorFactory.getSensors(this.capture);
+        int samplesPerPoint = Math.max(1, (int)Math.ceil(((double)(end - start)) / points));
+        
+        List<Long> indexes = new ArrayList<>();
+        List<double[]> values = new ArrayList<>();
+        CaptureStatistics current = null;
+        Iterator<Sample> iter = this.capture.getSamples().skip(start).limit(end - start).iterator();
+        for (long index = start; iter.hasNext(); index++) {
+            if (current == null || current.getSampleCount() >= samplesPerPoint) {
+                if (current != null) {
+                    values.add(this.toBucket(current));
+                }
+                current = new CaptureStatistics(sensors, false);
+                indexes.add(index);
+            }
+            current.accept(iter.next());
+        }
+        if (current != null) {
+            values.add(this.toBucket(current));
+        }
+        
+        return new GraphSeries(this.sensorNames, indexes.stream().mapToLong(l -> l).toArray(), values);
+    }
+    
+    /**
+     * Adds any samples of the capture which are not yet in the pyramid. The
+     * last bucket of each level may be partial so it is recalculated along
+     * with the new buckets, and only the segments which changed are written.
+     * @param sensors The sensors used to decode the capture data.
+     * @throws IOException If there is an error accessing the data store.
+     */
+    private void update(Map<String, Sensor> sensors) throws IOException {
+        if (this.sampleCount == this.capture.getSampleCount()) {
+            return;
+        }
+        
+        // recalculate the lowest level from its last partial bucket
+        int first = this.sampleCount / BUCKET_SIZE;
+        int processed = first * BUCKET_SIZE;
+        List<double[]> changed = new ArrayList<>();
+        CaptureStatistics current = null;
+        Iterator<Sample> iter = this.capture.getSamples().skip(processed).iterator();
+        while (iter.hasNext()) {
+            if (current == null || current.getSampleCount() >= BUCKET_SIZE) {
+                if (current != null) {
+                    changed.add(this.toBucket(current));
+                }
+                current = new CaptureStatistics(sensors, false);
+            }
+            current.accept(iter.next());
+            processed++;
+        }
+        if (current != null) {
+            changed.add(this.toBucket(current));
+        }
+        
+        if (processed == 0) {
+            return;
+        }
+        
+        this.writeBuckets(0, first, changed);
+        
+        // combine the changed buckets of each level into the level above
+        // until a level has a single bucket
+        int level = 0;
+        int count = first + changed.size();
+        while (count > 1) {
+            int parentFirst = first / LEVEL_FACTOR;
+            
+            // the first changed parent may include unchanged children
+            List<double[]> children = this.readBuckets(level, parentFirst * LEVEL_FACTOR, first);
+            children.addAll(changed);
+            
+            List<double[]> parents = new ArrayList<>();
+            for (int i = 0; i < children.size(); i += LEVEL_FACTOR) {
+                double[] parent = this.createBucket();
+                for (int j = i; j < Math.min(i + LEVEL_FACTOR, children.size()); j++) {
+                    mergeBucket(parent, children.get(j));
+                }
+                parents.add(parent);
+            }
+            
+            level++;
+            this.writeBuckets(level, parentFirst, parents);
+            first = parentFirst;
+            changed = parents;
+            count = parentFirst + parents.size();
+        }
+        
+        this.levelCount = level + 1;
+        this.sampleCount = processed;
+        this.writeIndex();
+    }
+    
+    /**
+     * Gets the number of samples in a bucket of a level.
+     * @param level The level of the pyramid.
+     * @return The number of samples in a bucket of the level.
+     */
+    private static long getBucketSize(int level) {
+        long size = BUCKET_SIZE;
+        for (int i = 0; i < level; i++) {
+            size *= LEVEL_FACTOR;
+        }
+        return size;
+    }
+    
+    /**
+     * Gets the number of buckets in a level.
+     * @param level The level of the pyramid.
+     * @return The number of buckets in the level.
+     */
+    private int getBucketCount(int level) {
+        long size = getBucketSize(level);
+        return (int)((this.sampleCount + size - 1) / size);
+    }
+    
+    /**
+     * Creates an empty bucket.
+     * @return An empty bucket.
+     */
+    private double[] createBucket() {
+        double[] bucket = new double[this.sensorNames.size() * FIELD_COUNT];
+        for (int i = 0; i < bucket.length; i += FIELD_COUNT) {
+            bucket[i + MINIMUM_FIELD] = Double.NaN;
+            bucket[i + MAXIMUM_FIELD] = Double.NaN;
+        }
+        return bucket;
+    }
+    
+    /**
+     * Creates a bucket from the statistics of a group of samples.
+     * @param stats The statistics of the samples.
+     * @return The bucket for the samples.
+     */
+    private double[] toBucket(CaptureStatistics stats) {
+        double[] bucket = this.createBucket();
+        for (int i = 0; i < this.sensorNames.size(); i++) {
+            ValueStatistics value = stats.getStatistics(this.sensorNames.get(i)).get();
+            if (value.getCount() > 0) {
+                int offset = i * FIELD_COUNT;
+                bucket[offset + COUNT_FIELD] = value.getCount();
+                bucket[offset + MINIMUM_FIELD] = value.getMinimum();
+                bucket[offset + MAXIMUM_FIELD] = value.getMaximum();
+                bucket[offset + SUM_FIELD] = value.getMean() * value.getCount();
+            }
+        }
+        return bucket;
+    }
+    
+    /**
+     * Merges the values of a bucket into another.
+     * @param target The bucket to merge values into.
+     * @param source The bucket whose values are merged.
+     */
+    private static void mergeBucket(double[] target, double[] source) {
+        for (int i = 0; i < target.length; i += FIELD_COUNT) {
+            if (source[i + COUNT_FIELD] == 0) {
+                continue;
+            }
+            
+            if (target[i + COUNT_FIELD] == 0) {
+                target[i + MINIMUM_FIELD] = source[i + MINIMUM_FIELD];
+                target[i + MAXIMUM_FIELD] = source[i + MAXIMUM_FIELD];
+            } else {
+                target[i + MINIMUM_FIELD] = Math.min(target[i + MINIMUM_FIELD], source[i + MINIMUM_FIELD]);
+                target[i + MAXIMUM_FIELD] = Math.max(target[i + MAXIMUM_FIELD], source[i + MAXIMUM_FIELD]);
+            }
+            target[i + COUNT_FIELD] += source[i + COUNT_FIELD];
+            target[i + SUM_FIELD] += source[i + SUM_FIELD];
+        }
+    }
+    
+    /**
+     * Reads a range of buckets of a level from the data store.
+     * @param level The level to read from.
+     * @param from The index of the first bucket to read.
+     * @param to The index after the last bucket to read.
+     * @return The buckets which were read.
+     * @throws IOException If there is an error reading from the data store.
+     */
+    private List<double[]> readBuckets(int level, int from, int to) throws IOException {
+        List<double[]> buckets = new ArrayList<>(Math.max(0, to - from));
+        int index = from;
+        while (index < to) {
+            int segment = index / SEGMENT_SIZE;
+            List<double[]> stored = this.readSegment(level, segment);
+            int end = Math.min(to - segment * SEGMENT_SIZE, stored.size());
+            int begin = index - segment * SEGMENT_SIZE;
+            if (end <= begin) {
+                throw new IOException("Graph pyramid segment " + Integer.toString(segment) + " of level " + Integer.toString(level) + " is incomplete.");
+            }
+            buckets.addAll(stored.subList(begin, end));
+            index = segment * SEGMENT_SIZE + end;
+        }
+        return buckets;
+    }
+    
+    /**
+     * Writes buckets of a level to the data store, replacing any buckets
+     * stored at or after the first index.
+     * @param level The level to write to.
+     * @param from The index of the first bucket to write.
+     * @param buckets The buckets to write.
+     * @throws IOException If there is an error accessing the data store.
+     */
+    private void writeBuckets(int level, int from, List<double[]> buckets) throws IOException {
+        int segment = from / SEGMENT_SIZE;
+        
+        // keep the unchanged start of a segment which is partially rewritten
+        List<double[]> pending = new ArrayList<>();
+        if (from % SEGMENT_SIZE != 0) {
+            pending.addAll(this.readSegment(level, segment).subList(0, from % SEGMENT_SIZE));
+        }
+        
+        for (double[] bucket : buckets) {
+            pending.add(bucket);
+            if (pending.size() == SEGMENT_SIZE) {
+                this.writeSegment(level, segment, pending);
+                pending.clear();
+                segment++;
+            }
+        }
+        
+        if (!pending.isEmpty()) {
+            this.writeSegment(level, segment, pending);
+        }
+    }
+    
+    /**
+     * Reads a segment of buckets from the data store.
+     * @param level The level of the segment.
+     * @param segment The index of the segment.
+     * @return The buckets stored in the segment.
+     * @throws IOException If there is an error reading from the data store.
+     */
+    private List<double[]> readSegment(int level, int segment) throws IOException {
+        String data = this.capture.readAssociatedData(getSegmentName(level, segment));
+        if (data == null) {
+            throw new IOException("Graph pyramid segment " + Integer.toString(segment) + " of level " + Integer.toString(level) + " not found.");
+        }
+        
+        List<double[]> buckets = new ArrayList<>(SEGMENT_SIZE);
+        int width = this.sensorNames.size() * FIELD_COUNT;
+        for (String line : data.split("\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            
+            String[] fields = line.split(",", -1);
+            if (fields.length != width) {
+                throw new IOException("Graph pyramid segment " + Integer.toString(segment) + " of level " + Integer.toString(level) + " is malformed.");
+            }
+            
+            double[] bucket = new double[width];
+            for (int i = 0; i < width; i++) {
+                bucket[i] = Double.parseDouble(fields[i]);
+            }
+            buckets.add(bucket);
+        }
+        return buckets;
+    }
+    
+    /**
+     * Writes a segment of buckets to the data store.
+     * @param level The level of the segment.
+     * @param segment The index of the segment.
+     * @param buckets The buckets of the segment.
+     * @throws IOException If there is an error writing to the data store.
+     */
+    private void writeSegment(int level, int segment, List<double[]> buckets) throws IOException {
+        StringBuilder data = new StringBuilder();
+        for (double[] bucket : buckets) {
+            for (int i = 0; i < bucket.length; i++) {
+                if (i % FIELD_COUNT == COUNT_FIELD) {
+                    data.append(Long.toString((long)bucket[i]));
+                } else {
+                    data.append(Double.toString(bucket[i]));
+                }
+                data.append(',');
+            }
+            data.setCharAt(data.length() - 1, '\n');
+        }
+        this.capture.writeAssociatedData(getSegmentName(level, segment), data.toString());
+    }
+    
+    /**
+     * Gets the name a segment is stored under with the capture.
+     * @param level The level of the segment.
+     * @param segment The index of the segment.
+     * @return The name the segment is stored under.
+     */
+    private static String getSegmentName(int level, int segment) {
+        return INDEX_NAME + "/" + Integer.toString(level) + "/" + Integer.toString(segment);
+    }
+    
+    /**
+     * Deletes the index and all segments of the pyramid from the data store.
+     * @throws IOException If there is an error accessing the data store.
+     */
+    private void deleteData() throws IOException {
+        deleteData(this.capture, BUCKET_SIZE, LEVEL_FACTOR, SEGMENT_SIZE, this.sampleCount, this.levelCount);
+        this.sampleCount = 0;
+        this.levelCount = 0;
+    }
+    
+    /**
+     * Deletes the index and all segments of a pyramid built with the given
+     * parameters from the data store.
+     * @param capture The capture the pyramid was built for.
+     * @param bucketSize The number of samples in each bucket of the lowest
+     * level.
+     * @param levelFactor The number of buckets of a level combined into a
+     * bucket of the next.
+     * @param segmentSize The number of buckets stored together in a segment.
+     * @param sampleCount The number of samples the pyramid contains.
+     * @param levelCount The number of levels in the pyramid.
+     * @throws IOException If there is an error accessing the data store.
+     */
+    private static void deleteData(Capture capture, int bucketSize, int levelFactor, int segmentSize, int sampleCount, int levelCount) throws IOException {
+        long size = bucketSize;
+        for (int level = 0; level < levelCount; level++) {
+            long buckets = (sampleCount + size - 1) / size;
+            long segments = (buckets + segmentSize - 1) / segmentSize;
+            for (int segment = 0; segment < segments; segment++) {
+                capture.deleteAssociatedData(getSegmentName(level, segment));
+            }
+            size *= levelFactor;
+        }
+        capture.deleteAssociatedData(INDEX_NAME);
+    }
+    
+    /**
+     * Writes the index of the pyramid to the data store.
+     * @throws IOException If there is an error writing to the data store.
+     */
+    private void writeIndex() throws IOException {
+        StringWriter sw = new StringWriter();
+        try {
+            XMLStreamWriter toWriteTo = XMLStreams.createWriter(sw);
+            toWriteTo.writeStartDocument();
+            toWriteTo.writeStartElement(INDEX_NAME);
+            writeElement(toWriteTo, "bucketsize", Integer.toString(BUCKET_SIZE));
+            writeElement(toWriteTo, "levelfactor", Integer.toString(LEVEL_FACTOR));
+            writeElement(toWriteTo, "segmentsize", Integer.toString(SEGMENT_SIZE));
+            writeElement(toWriteTo, "samplecount", Integer.toString(this.sampleCount));
+            writeElement(toWriteTo, "levelcount", Integer.toString(this.levelCount));
+            toWriteTo.writeStartElement("sensors");
+            for (String name : this.sensorNames) {
+                writeElement(toWriteTo, "sensor", name);
+            }
+            toWriteTo.writeEndElement();
+            toWriteTo.writeEndElement();
+            toWriteTo.writeEndDocument();
+            toWriteTo.flush();
+        } catch (XMLStreamException ex) {
+            throw new IOException("XMLStreamException occured writing graph pyramid index.", ex);
+        }
+        this.capture.writeAssociatedData(INDEX_NAME, sw.toString());
+    }
+    
+    /**
+     * Writes a single text element to an XMLStreamWriter.
+     * @param toWriteTo The writer to write to.
+     * @param name The name of the element.
+     * @param value The text of the element.
+     * @throws XMLStreamException If an exception occurs writing to the stream.
+     */
+    private static void writeElement(XMLStreamWriter toWriteTo, String name, String value) throws XMLStreamException {
+        toWriteTo.writeStartElement(name);
+        toWriteTo.writeCharacters(value);
+        toWriteTo.writeEndElement();
+    }
+    
+    /**
+     * Reads the pyramid index of a capture from the data store.
+     * @param capture The capture to read the pyramid of.
+     * @return The pyramid or null if the capture has no pyramid or it was
+     * built with different parameters.
+     * @throws IOException If there is an error reading from the data store.
+     */
+    private static GraphPyramid read(Capture capture) throws IOException {
+        String data = capture.readAssociatedData(INDEX_NAME);
+        if (data == null) {
+            return null;
+        }
+        
+        try {
+            XMLStreamReader toReadFrom = XMLStreams.createReader(data);
+            toReadFrom.nextTag();
+            if (!INDEX_NAME.equals(toReadFrom.getLocalName())) {
+                throw new XMLStreamException("Expected <" + INDEX_NAME + "> element not found.", toReadFrom.getLocation());
+            }
+            toReadFrom.next();
+            
+            int[] parameters = new int[] {
+                Integer.parseInt(XMLStreams.readElement("bucketsize", toReadFrom)),
+                Integer.parseInt(XMLStreams.readElement("levelfactor", toReadFrom)),
+                Integer.parseInt(XMLStreams.readElement("segmentsize", toReadFrom))
+            };
+            int samples = Integer.parseInt(XMLStreams.readElement("samplecount", toReadFrom));
+            int levels = Integer.parseInt(XMLStreams.readElement("levelcount", toReadFrom));
+            
+            if (toReadFrom.getEventType() != XMLStreamConstants.START_ELEMENT || !"sensors".equals(toReadFrom.getLocalName())) {
+                throw new XMLStreamException("Expected <sensors> element not found.", toReadFrom.getLocation());
+            }
+            toReadFrom.next();
+            
+            List<String> names = new ArrayList<>();
+            while (toReadFrom.getEventType() == XMLStreamConstants.START_ELEMENT) {
+                names.add(XMLStreams.readElement("sensor", toReadFrom));
+            }
+            
+            if (parameters[0] < 1 || parameters[1] < 1 || parameters[2] < 1) {
+                throw new XMLStreamException("Graph pyramid parameters must be positive.", toReadFrom.getLocation());
+            }
+            
+            // a pyramid built with other parameters cannot be updated, its
+            // segments are laid out differently so they are deleted using its
+            // own parameters before it is rebuilt
+            if (!Arrays.equals(parameters, new int[] { BUCKET_SIZE, LEVEL_FACTOR, SEGMENT_SIZE })) {
+                LOGGER.info("Discarding graph pyramid built with different parameters for capture " + capture.getId().toString() + ".");
+                deleteData(capture, parameters[0], parameters[1], parameters[2], samples, levels);
+                return null;
+            }
+            
+            return new GraphPyramid(capture, names, samples, levels);
+        } catch (XMLStreamException | NumberFormatException ex) {
+            throw new IOException("Could not read graph pyramid index.", ex);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.data;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Minimum, maximum, and mean values of each sensor of a capture reduced to a
+ * number of points for graphing.
+ */
+public class GraphSeries {
+    /**
+     * The names of the sensors in the series.
+     */
+    private final List<String> sensorNames;
+    
+    /**
+     * The index of the first sample of each point.
+     */
+    private final long[] sampleIndexes;
+    
+    /**
+     * The values of each point, which hold the count, minimum, maximum, and
+     * sum of the values of each sensor in the order of the sensor names.
+     */
+    private final List<double[]> values;
+    
+    /**
+     * Initializes a new instance of the GraphSeries class.
+     * @param sensorNames The names of the sensors in the series.
+     * @param sampleIndexes The index of the first sample of each point.
+     * @param values The values of each point.
+     */
+    GraphSeries(List<String> sensorNames, long[] sampleIndexes, List<double[]> values) {
+        this.sensorNames = Collections.unmodifiableList(sensorNames);
+        this.sampleIndexes = sampleIndexes;
+        this.values = values;
+    }
+    
+    /**
+     * Gets the names of the sensors in the series.
+     * @return The names of the sensors in the series.
+     */
+    public List<String> getSensorNames() {
+        return this.sensorNames;
+    }
+    
+    /**
+     * Gets the number of points in the series.
+     * @return The number of points in the series.
+     */
+    public int getPointCount() {
+        return this.values.size();
+    }
+    
+    /**
+     * Gets the index of the first sample represented by a point.
+     * @param point The index of the point.
+     * @return The index of the first sample represented by the point.
+     */
+    public long getSampleIndex(int point) {
+        return this.sampleIndexes[point];
+    }
+    
+    /**
+     * Gets the number of values a sensor had in a point.
+     * @param sensorName The name of the sensor.
+     * @param point The index of the point.
+     * @return The number of values the sensor had in the point.
+     */
+    public long getCount(String sensorName, int point) {
+        return (long)this.getField(sensorName, point, GraphPyramid.COUNT_FIELD);
+    }
+    
+    /**
+     * Gets the minimum value of a sensor in a point.
+     * @param sensorName The name of the sensor.
+     * @param point The index of the point.
+     * @return The minimum value or NaN if the sensor had no values.
+     */
+    public double getMinimum(String sensorName, int point) {
+        return this.getField(sensorName, point, GraphPyramid.MINIMUM_FIELD);
+    }
+    
+    /**
+     * Gets the maximum value of a sensor in a point.
+     * @param sensorName The name of the sensor.
+     * @param point The index of the point.
+     * @return The maximum value or NaN if the sensor had no values.
+     */
+    public double getMaximum(String sensorName, int point) {
+        return this.getField(sensorName, point, GraphPyramid.MAXIMUM_FIELD);
+    }
+    
+    /**
+     * Gets the mean value of a sensor in a point.
+     * @param sensorName The name of the sensor.
+     * @param point The index of the point.
+     * @return The mean value or NaN if the sensor had no values.
+     */
+    public double getMean(String sensorName, int point) {
+        double count = this.getField(sensorName, point, GraphPyramid.COUNT_FIELD);
+        if (count == 0) {
+            return Double.NaN;
+        }
+        return this.getField(sensorName, point, GraphPyramid.SUM_FIELD) / count;
+    }
+    
+    /**
+     * Gets whether the series contains values for a sensor.
+     * @param sensorName The name of the sensor.
+     * @return Whether the series contains values for the sensor.
+     */
+    public boolean hasSensor(String sensorName) {
+        return this.sensorNames.contains(sensorName);
+    }
+    
+    /**
+     * Gets a field of a point for a sensor.
+     * @param sensorName The name of the sensor.
+     * @param point The index of the point.
+     * @param field The offset of the field.
+     * @return The value of the field.
+     */
+    private double getField(String sensorName, int point, int field) {
+        int index = this.sensorNames.indexOf(sensorName);
+        if (index < 0) {
+            throw new IllegalArgumentException("The series does not contain the sensor: " + sensorName + ".");
+        }
+        return this.values.get(point)[index * GraphPyramid.FIELD_COUNT + field];
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.data;
+
+import com.vitembp.embedded.data.Sample;
+import com.vitembp.services.sensors.Sensor;
+import java.util.Map;
+
+/**
+ * Calculates statistics for all sensors of the elements that went through the
+ * pipeline in a single pass.
+ */
+class SampleStatisticsElement implements PipelineElement {
+    /**
+     * The sensors used to decode the sample data.
+     */
+    private final Map<String, Sensor> sensors;
+
+    /**
+     * The binding of the statistics in the data collection.
+     */
+    private final String statisticsBinding;
+
+    /**
+     * The binding of the minimum values in the data collection.
+     */
+    private final String minimumBinding;
+
+    /**
+     * The binding of the maximum values in the data collection.
+     */
+    private final String maximumBinding;
+
+    /**
+     * The binding of the average values in the data collection.
+     */
+    private final String averageBinding;
+
+    /**
+     * Initializes a new instance of the SampleStatisticsElement class.
+     * @param sensors The sensors used to decode the sample data.
+     * @param statisticsBinding The binding of the statistics in the data collection.
+     * @param minimumBinding The binding of the minimum values in the data collection.
+     * @param maximumBinding The binding of the maximum values in the data collection.
+     * @param averageBinding The binding of the average values in the data collection.
+     */
+    SampleStatisticsElement(Map<String, Sensor> sensors, String statisticsBinding, String minimumBinding, String maximumBinding, String averageBinding) {
+        this.sensors = sensors;
+        this.statisticsBinding = statisticsBinding;
+        this.minimumBinding = minimumBinding;
+        this.maximumBinding = maximumBinding;
+        this.averageBinding = averageBinding;
+    }
+
+    @Override
+    public Map<String, Object> accept(Map<String, Object> state) {
+        // do not process data if the pipeline is flushing
+        if (state.containsKey("Flush")) {
+            return state;
+        }
+
+        // the first time this is executed there will be no statistics on the
+        // data element, the result maps are views so they are only added once
+        CaptureStatistics stats = (CaptureStatistics)state.get(this.statisticsBinding);
+        if (stats == null) {
+            stats = new CaptureStatistics(this.sensors, false);
+            state.put(this.statisticsBinding, stats);
+            state.put(this.minimumBinding, stats.getMinimums());
+            state.put(this.maximumBinding, stats.getMaximums());
+            state.put(this.averageBinding, stats.getAverages());
+        }
+
+        stats.accept((Sample)state.get("sample"));
+
+        return state;
+    }
+}
@@ -18,10 +18,6 @@
 package com.vitembp.services.data;
 
 import com.vitembp.embedded.data.Capture;
-import com.vitembp.embedded.data.Sample;
-import com.vitembp.services.sensors.AccelerometerThreeAxis;
-import com.vitembp.services.sensors.DistanceSensor;
-import com.vitembp.services.sensors.RotarySensor;
 import com.vitembp.services.sensors.Sensor;
 import com.vitembp.services.FilenameGenerator;
 import com.vitembp.services.video.VideoFileInfo;
@@ -31,8 +27,6 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.function.Function;
 import org.apache.logging.log4j.LogManager;
 
 /**
@@ -59,6 +53,11 @@ public class StandardPipelines {
      */
     public static final String AVERAGE_BINDING = "averages";
     
+    /**
+     * The binding location on the data object of the CaptureStatistics results.
+     */
+    public static final String STATISTICS_BINDING = "statistics";
+    
     /**
      * The binding location on the data object of the sensors list.
      */
@@ -69,30 +68,6 @@ public class StandardPipelines {
      */
     private static final org.apache.logging.log4j.Logger LOGGER = LogManager.getLogger();
     
-    /**
-     * Function that returns a vector absolute value function for a three axis
-     * accelerometer.
-     */
-    private static Function<AccelerometerThreeAxis, Function<Sample, Optional<Double>>> absoluteValue = (sensor) -> {
-        return (sample) -> {
-            // read out x, y, z values
-            Optional<Double> x = ((AccelerometerThreeAxis)sensor).getXAxisG(sample);
-            Optional<Double> y = ((AccelerometerThreeAxis)sensor).getYAxisG(sample);
-            Optional<Double> z = ((AccelerometerThreeAxis)sensor).getZAxisG(sample);
-
-            // if any values are not present calculation is meaningless, so return empty
-            if (!x.isPresent() || !y.isPresent() || !z.isPresent()) {
-                return Optional.empty();
-            }
-
-            // return the vector absolute value of the reading
-            return Optional.of(Math.sqrt(
-                    Math.pow(x.get(), 2) +
-                    Math.pow(y.get(), 2) +
-                    Math.pow(z.get(), 2)));
-        };
-    };
-    
     /**
      * Creates a video overlay generation pipeline.
      * @param capture The capture to build an overlay generator for.
@@ -153,83 +128,9 @@ public class StandardPipelines {
         // add a count for number of elements
         toBuild.add(new CountElement(ELEMENT_COUNT_BINDING));
                 
-        // for each sensor calculate min, max, and average elements
-        sensors.values().forEach((sensor) -> addAverages(sensor, toBuild));
-        sensors.values().forEach((sensor) -> addMaximums(sensor, toBuild));
-        sensors.values().forEach((sensor) -> addMinimums(sensor, toBuild));
+        // calculate min, max, and average for all sensors in a single pass
+        toBuild.add(new SampleStatisticsElement(sensors, STATISTICS_BINDING, MIN_BINDING, MAX_BINDING, AVERAGE_BINDING));
         
         return new Pipeline(toBuild);
     }
-    
-    /**
-     * Adds average elements to a pipeline being built for various sensor types.
-     * @param sensor The sensor to add the average for.
-     * @param toBuild The pipeline being built.
-     */
-    private static void addAverages(Sensor sensor, List<PipelineElement> toBuild) {
-        // add averaging elements based on sensor type
-        if (RotarySensor.class.isAssignableFrom(sensor.getClass())) {
-            toBuild.add(new SampleAverageElement(
-                    ((RotarySensor)sensor)::getPositionPercentage,
-                    ELEMENT_COUNT_BINDING,
-                    AVERAGE_BINDING,
-                    sensor));
-        } else if (DistanceSensor.class.isAssignableFrom(sensor.getClass())) {
-            toBuild.add(new SampleAverageElement(
-                    ((DistanceSensor)sensor)::getDistancePercent,
-                    ELEMENT_COUNT_BINDING,
-                    AVERAGE_BINDING,
-                    sensor));
-        } else if (AccelerometerThreeAxis.class.isAssignableFrom(sensor.getClass())) {
-            toBuild.add(new SampleAverageElement(
-                    StandardPipelines.absoluteValue.apply((AccelerometerThreeAxis)sensor),
-                    ELEMENT_COUNT_BINDING,
-                    AVERAGE_BINDING,
-                    sensor));
-        }
-    }
-
-    /**
-     * Adds maximum elements to a pipeline being built for various sensor types.
-     * @param sensor The sensor to add the average for.
-     * @param toBuild The pipeline being built.
-     */
-    private static void addMaximums(Sensor sensor, List<PipelineElement> toBuild) {
-        // add maximum calculating elements based on type
-        if (RotarySensor.class.isAssignableFrom(sensor.getClass())) {
-            toBuild.add(new SampleMaxValueElement(
-                    ((RotarySensor)sensor)::getPositionPercentage,
-                    MAX_BINDING, sensor));
-        } else if (DistanceSensor.class.isAssignableFrom(sensor.getClass())) {
-            toBuild.add(new SampleMaxValueElement(
-                    ((DistanceSensor)sensor)::getDistancePercent,
-                    MAX_BINDING, sensor));
-        } else if (AccelerometerThreeAxis.class.isAssignableFrom(sensor.getClass())) {
-            toBuild.add(new SampleMaxValueElement(
-                    StandardPipelines.absoluteValue.apply((AccelerometerThreeAxis)sensor),
-                    MAX_BINDING, sensor));
-        }
-    }
-    
-    /**
-     * Adds minimum elements to a pipeline being built for various sensor types.
-     * @param sensor The sensor to add the average for.
-     * @param toBuild The pipeline being built.
-     */
-    private static void addMinimums(Sensor sensor, List<PipelineElement> toBuild) {
-        // add minimum calculating elements based on type
-        if (RotarySensor.class.isAssignableFrom(sensor.getClass())) {
-            toBuild.add(new SampleMinValueElement(
-                    ((RotarySensor)sensor)::getPositionPercentage,
-                    MIN_BINDING, sensor));
-        } else if (DistanceSensor.class.isAssignableFrom(sensor.getClass())) {
-            toBuild.add(new SampleMinValueElement(
-                    ((DistanceSensor)sensor)::getDistancePercent,
-                    MIN_BINDING, sensor));
-        } else if (AccelerometerThreeAxis.class.isAssignableFrom(sensor.getClass())) {
-            toBuild.add(new SampleMinValueElement(
-                    StandardPipelines.absoluteValue.apply((AccelerometerThreeAxis)sensor),
-                    MIN_BINDING, sensor));
-        }
-    }
 }
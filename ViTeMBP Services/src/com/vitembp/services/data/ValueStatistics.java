@@ -0,0 +1,331 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.data;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates running statistics for a stream of primitive values in a
+ * single pass. Instances can be merged so that partial results calculated
+ * over separate ranges of a capture can be combined.
+ */
+public class ValueStatistics {
+    /**
+     * The initial capacity of the percentile value buffer.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The number of values accepted.
+     */
+    private long count = 0;
+
+    /**
+     * The number of samples which did not contain a value.
+     */
+    private long missing = 0;
+
+    /**
+     * The running mean of the accepted values.
+     */
+    private double mean = 0.0;
+
+    /**
+     * The running sum of squared differences from the mean.
+     */
+    private double sumSquares = 0.0;
+
+    /**
+     * The smallest value accepted.
+     */
+    private double minimum = Double.NaN;
+
+    /**
+     * The largest value accepted.
+     */
+    private double maximum = Double.NaN;
+
+    /**
+     * The running mean of the absolute values accepted.
+     */
+    private double absoluteMean = 0.0;
+
+    /**
+     * The smallest absolute value accepted.
+     */
+    private double absoluteMinimum = Double.NaN;
+
+    /**
+     * The largest absolute value accepted.
+     */
+    private double absoluteMaximum = Double.NaN;
+
+    /**
+     * The values accepted, kept for calculating percentiles or null if
+     * percentiles are not tracked.
+     */
+    private double[] values;
+
+    /**
+     * Whether the values buffer is currently sorted.
+     */
+    private boolean sorted = true;
+
+    /**
+     * Initializes a new instance of the ValueStatistics class.
+     * @param trackPercentiles Whether accepted values should be kept so that
+     * percentiles can be calculated.
+     */
+    public ValueStatistics(boolean trackPercentiles) {
+        this.values = trackPercentiles ? new double[INITIAL_CAPACITY] : null;
+    }
+
+    /**
+     * Accepts a value into the statistics. A NaN value is counted as a missing
+     * reading.
+     * @param value The value to accept.
+     */
+    public void accept(double value) {
+        if (Double.isNaN(value)) {
+            this.missing++;
+            return;
+        }
+
+        this.count++;
+
+        // Welford's running mean and variance
+        double delta = value - this.mean;
+        this.mean += delta / this.count;
+        this.sumSquares += delta * (value - this.mean);
+
+        double abs = Math.abs(value);
+        this.absoluteMean += (abs - this.absoluteMean) / this.count;
+
+        if (this.count == 1) {
+            this.minimum = value;
+            this.maximum = value;
+            this.absoluteMinimum = abs;
+            this.absoluteMaximum = abs;
+        } else {
+            if (value < this.minimum) {
+                this.minimum = value;
+            } else if (value > this.maximum) {
+                this.maximum = value;
+            }
+
+            if (abs < this.absoluteMinimum) {
+                this.absoluteMinimum = abs;
+            } else if (abs > this.absoluteMaximum) {
+                this.absoluteMaximum = abs;
+            }
+        }
+
+        if (this.values != null) {
+            this.ensureCapacity(this.count);
+            this.values[(int)this.count - 1] = value;
+            this.sorted = false;
+        }
+    }
+
+    /**
+     * Merges the statistics from another instance into this instance.
+     * @param other The statistics to merge into this instance.
+     * @return This instance.
+     */
+    public ValueStatistics merge(ValueStatistics other) {
+        this.missing += other.missing;
+
+        if (other.count == 0) {
+            return this;
+        }
+
+        if (this.count == 0) {
+            this.minimum = other.minimum;
+            this.maximum = other.maximum;
+            this.absoluteMinimum = other.absoluteMinimum;
+            this.absoluteMaximum = other.absoluteMaximum;
+        } else {
+            this.minimum = Math.min(this.minimum, other.minimum);
+            this.maximum = Math.max(this.maximum, other.maximum);
+            this.absoluteMinimum = Math.min(this.absoluteMinimum, other.absoluteMinimum);
+            this.absoluteMaximum = Math.max(this.absoluteMaximum, other.absoluteMaximum);
+        }
+
+        // parallel combination of mean and variance
+        long total = this.count + other.count;
+        double delta = other.mean - this.mean;
+        this.sumSquares += other.sumSquares + delta * delta * ((double)this.count * other.count / total);
+        this.mean += delta * other.count / total;
+        this.absoluteMean += (other.absoluteMean - this.absoluteMean) * other.count / total;
+
+        // combine values kept for percentiles, which are only meaningful if
+        // both instances kept them
+        if (this.values != null && other.values != null) {
+            this.ensureCapacity(total);
+            System.arraycopy(other.values, 0, this.values, (int)this.count, (int)other.count);
+            this.sorted = false;
+        } else {
+            this.values = null;
+        }
+
+        this.count = total;
+        return this;
+    }
+
+    /**
+     * Gets the number of values accepted.
+     * @return The number of values accepted.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Gets the number of samples which did not contain a value.
+     * @return The number of samples which did not contain a value.
+     */
+    public long getMissingCount() {
+        return this.missing;
+    }
+
+    /**
+     * Gets the smallest value accepted.
+     * @return The smallest value accepted or NaN if no values were accepted.
+     */
+    public double getMinimum() {
+        return this.minimum;
+    }
+
+    /**
+     * Gets the largest value accepted.
+     * @return The largest value accepted or NaN if no values were accepted.
+     */
+    public double getMaximum() {
+        return this.maximum;
+    }
+
+    /**
+     * Gets the mean of the values accepted.
+     * @return The mean of the values accepted or NaN if no values were
+     * accepted.
+     */
+    public double getMean() {
+        return this.count == 0 ? Double.NaN : this.mean;
+    }
+
+    /**
+     * Gets the population variance of the values accepted.
+     * @return The population variance of the values accepted or NaN if no
+     * values were accepted.
+     */
+    public double getVariance() {
+        return this.count == 0 ? Double.NaN : this.sumSquares / this.count;
+    }
+
+    /**
+     * Gets the population standard deviation of the values accepted.
+     * @return The population standard deviation of the values accepted or NaN
+     * if no values were accepted.
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(this.getVariance());
+    }
+
+    /**
+     * Gets the mean of the absolute values accepted.
+     * @return The mean of the absolute values accepted or NaN if no values
+     * were accepted.
+     */
+    public double getAbsoluteMean() {
+        return this.count == 0 ? Double.NaN : this.absoluteMean;
+    }
+
+    /**
+     * Gets the smallest absolute value accepted.
+     * @return The smallest absolute value accepted or NaN if no values were
+     * accepted.
+     */
+    public double getAbsoluteMinimum() {
+        return this.absoluteMinimum;
+    }
+
+    /**
+     * Gets the largest absolute value accepted.
+     * @return The largest absolute value accepted or NaN if no values were
+     * accepted.
+     */
+    public double getAbsoluteMaximum() {
+        return this.absoluteMaximum;
+    }
+
+    /**
+     * Gets whether this instance can calculate percentiles.
+     * @return Whether this instance can calculate percentiles.
+     */
+    public boolean hasPercentiles() {
+        return this.values != null;
+    }
+
+    /**
+     * Gets the value at the requested percentile using linear interpolation
+     * between the closest ranks.
+     * @param percentile The percentile to calculate on the interval [0, 1].
+     * @return The value at the requested percentile or NaN if no values were
+     * accepted.
+     */
+    public double getPercentile(double percentile) {
+        if (this.values == null) {
+            throw new IllegalStateException("Percentiles were not tracked for these statistics.");
+        }
+
+        if (percentile < 0.0 || percentile > 1.0) {
+            throw new IllegalArgumentException("The percentile must be between 0 and 1, it was " + Double.toString(percentile) + ".");
+        }
+
+        if (this.count == 0) {
+            return Double.NaN;
+        }
+
+        // sort lazily so repeated percentile queries only sort once
+        if (!this.sorted) {
+            Arrays.sort(this.values, 0, (int)this.count);
+            this.sorted = true;
+        }
+
+        double rank = percentile * (this.count - 1);
+        int lower = (int)Math.floor(rank);
+        int upper = (int)Math.ceil(rank);
+        return this.values[lower] + (this.values[upper] - this.values[lower]) * (rank - lower);
+    }
+
+    /**
+     * Grows the percentile value buffer so it can hold the required number
+     * of values.
+     * @param required The number of values the buffer must hold.
+     */
+    private void ensureCapacity(long required) {
+        if (required > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many values to track percentiles.");
+        }
+
+        if (required > this.values.length) {
+            long newLength = Math.max(required, (long)this.values.length * 2);
+            this.values = Arrays.copyOf(this.values, (int)Math.min(newLength, Integer.MAX_VALUE - 8));
+        }
+    }
+}
@@ -19,6 +19,7 @@ package com.vitembp.services.imaging;
 
 import com.vitembp.embedded.data.Sample;
 import com.vitembp.services.data.PipelineExecutionException;
+import com.vitembp.services.sensors.DecodedCapture;
 import com.vitembp.services.sensors.RotarySensor;
 import java.text.DecimalFormat;
 
@@ -76,6 +77,11 @@ class BrakeSensorOverlayElement extends OverlayElement {
      */
     private final RotarySensor rightSensor;
     
+    /**
+     * The decoded values of the capture the sensor reads from.
+     */
+    private final DecodedCapture decoded;
+    
     /**
      * Used to format the text value display.
      */
@@ -93,8 +99,9 @@ class BrakeSensorOverlayElement extends OverlayElement {
      * @param maxValue The maximum possible value of the sensor data in Gs.
      * @param leftBrakeSensor The sensor which will read data from the sample.
      * @param rightBrakeSensor The sensor which will read data from the sample.
+     * @param decoded The decoded values of the capture the sensors read from.
      */
-    BrakeSensorOverlayElement(int upperLeftX, int upperLeftY, int lowerRightX, int lowerRightY, ElementLocation location, double leftMinValue, double leftMaxValue, RotarySensor leftBrakeSensor, double rightMinValue, double rightMaxValue, RotarySensor rightBrakeSensor) {
+    BrakeSensorOverlayElement(int upperLeftX, int upperLeftY, int lowerRightX, int lowerRightY, ElementLocation location, double leftMinValue, double leftMaxValue, RotarySensor leftBrakeSensor, double rightMinValue, double rightMaxValue, RotarySensor rightBrakeSensor, DecodedCapture decoded) {
         super(upperLeftX, upperLeftY, lowerRightX, lowerRightY, location);
         this.leftMinValue = leftMinValue;
         this.leftMaxValue = leftMaxValue;
@@ -102,13 +109,20 @@ class BrakeSensorOverlayElement extends OverlayElement {
         this.rightMaxValue = rightMaxValue;
         this.leftSensor = leftBrakeSensor;
         this.rightSensor = rightBrakeSensor;
+        this.decoded = decoded;
     }
     
     @Override
     public void apply(DataOverlayBuilder builder, Sample data) {
         // get the data to render
-        double leftPercent = this.leftSensor.getPositionPercentage(data).orElse(leftMinValue);
-        double rightPercent = this.rightSensor.getPositionPercentage(data).orElse(rightMinValue);
+        double leftPercent = this.decoded.getValue(this.leftSensor, RotarySensor.PERCENTAGE, data.getIndex());
+        if (Double.isNaN(leftPercent)) {
+            leftPercent = this.leftMinValue;
+        }
+        double rightPercent = this.decoded.getValue(this.rightSensor, RotarySensor.PERCENTAGE, data.getIndex());
+        if (Double.isNaN(rightPercent)) {
+            rightPercent = this.rightMinValue;
+        }
         
         // calculate the upper left origin point of the element
         int topLeftX, topLeftY;
@@ -18,6 +18,7 @@
 package com.vitembp.services.imaging;
 
 import com.vitembp.embedded.data.Sample;
+import com.vitembp.services.sensors.DecodedCapture;
 import com.vitembp.services.sensors.Sensor;
 import java.io.IOException;
 import java.nio.file.Path;
@@ -62,9 +63,10 @@ class FourQuadrantOveraly implements Overlay {
      * Initializes a new instance of the FourQuadrantOveralyCreator class.
      * @param width The width of the overlay.
      * @param height The height of the overlay.
+     * @param decoded The decoded values of the capture to overlay.
      * @param elements Element definitions.
      */
-    FourQuadrantOveraly(int width, int height, List<Sensor> sensors, Map<Sensor, Double> minimumValues, Map<Sensor, Double> maximumValues, List<ElementDefinition> elements) throws InstantiationException {
+    FourQuadrantOveraly(int width, int height, DecodedCapture decoded, Map<Sensor, Double> minimumValues, Map<Sensor, Double> maximumValues, List<ElementDefinition> elements) throws InstantiationException {
         // save elements
         this.width = width;
         this.height = height;
@@ -99,7 +101,7 @@ class FourQuadrantOveraly implements Overlay {
         this.upperLeft = OverlayElementFactory.buildElement(
                 topLeft,
                 ElementLocation.TopLeft,
-                sensors,
+                decoded,
                 minimumValues,
                 maximumValues,
                 0,
@@ -110,7 +112,7 @@ class FourQuadrantOveraly implements Overlay {
         this.upperRight = OverlayElementFactory.buildElement(
                 topRight,
                 ElementLocation.TopRight,
-                sensors,
+                decoded,
                 minimumValues,
                 maximumValues,
                 centerXLong,
@@ -121,7 +123,7 @@ class FourQuadrantOveraly implements Overlay {
         this.lowerLeft = OverlayElementFactory.buildElement(
                 bottomLeft,
                 ElementLocation.BottomLeft,
-                sensors,
+                decoded,
                 minimumValues,
                 maximumValues,
                 0,
@@ -132,7 +134,7 @@ class FourQuadrantOveraly implements Overlay {
         this.lowerRight = OverlayElementFactory.buildElement(
                 bottomRight,
                 ElementLocation.BottomRight,
-                sensors,
+                decoded,
                 minimumValues,
                 maximumValues,
                 centerXLong,
@@ -18,6 +18,13 @@
 package com.vitembp.services.imaging;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
@@ -27,28 +34,60 @@ import java.util.List;
 import javax.imageio.ImageIO;
 
 /**
- * Class which creates a histogram for a bitmap.
+ * Class which creates a histogram for a bitmap. The common image types are
+ * read directly from the raster data into primitive bins; other types are
+ * read through their color model.
  */
 public class Histogram {
     /**
-     * Histogram data for the blue channel.
+     * The number of values of an 8 bit channel.
      */
-    private List<Double> blueValues;
+    private static final int BINS = 256;
     
     /**
-     * Histogram data for the green channel.
+     * The number of pixels with each value of the blue channel.
      */
-    private List<Double> greenValues;
+    private final int[] blues = new int[BINS];
     
     /**
-     * Histogram data for the red channel.
+     * The number of pixels with each value of the green channel.
      */
-    private List<Double> redValues;
+    private final int[] greens = new int[BINS];
     
     /**
-     * Histogram data for the alpha channel.
+     * The number of pixels with each value of the red channel.
      */
-    private List<Double> alphaValues;
+    private final int[] reds = new int[BINS];
+    
+    /**
+     * The number of pixels with each value of the alpha channel.
+     */
+    private final int[] alphas = new int[BINS];
+    
+    /**
+     * The factor which normalizes the counts by the number of pixels.
+     */
+    private double factor;
+    
+    /**
+     * The average brightness of the blue channel.
+     */
+    private double blueBrightness;
+    
+    /**
+     * The average brightness of the green channel.
+     */
+    private double greenBrightness;
+    
+    /**
+     * The average brightness of the red channel.
+     */
+    private double redBrightness;
+    
+    /**
+     * The average brightness of the alpha channel.
+     */
+    private double alphaBrightness;
         
     /**
      * Initializes a new instance of the Histogram class from a file.
@@ -75,12 +114,20 @@ public class Histogram {
         buildHistogram(bi);
     }
     
+    /**
+     * Initializes a new instance of the Histogram class from an image.
+     * @param image The image to build the histogram for.
+     */
+    public Histogram(BufferedImage image) {
+        buildHistogram(image);
+    }
+    
     /**
      * Gets the immutable normalized histogram of the blue channel.
      * @return The immutable normalized histogram of the blue channel.
      */
     public List<Double> getBlueValues() {
-        return Collections.unmodifiableList(this.blueValues);
+        return this.toNormalizedList(this.blues);
     }
     
     /**
@@ -88,7 +135,7 @@ public class Histogram {
      * @return The immutable normalized histogram of the green channel.
      */
     public List<Double> getGreenValues() {
-        return Collections.unmodifiableList(this.greenValues);
+        return this.toNormalizedList(this.greens);
     }
     
     /**
@@ -96,7 +143,7 @@ public class Histogram {
      * @return The immutable normalized histogram of the red channel.
      */
     public List<Double> getRedValues() {
-        return Collections.unmodifiableList(this.redValues);
+        return this.toNormalizedList(this.reds);
     }
     
     /**
@@ -104,7 +151,39 @@ public class Histogram {
      * @return The immutable normalized histogram of the alpha channel.
      */
     public List<Double> getAlphaValues() {
-        return Collections.unmodifiableList(this.alphaValues);
+        return this.toNormalizedList(this.alphas);
+    }
+    
+    /**
+     * Gets the number of pixels with each value of the blue channel.
+     * @return The number of pixels with each value of the blue channel.
+     */
+    public int[] getBlueCounts() {
+        return this.blues.clone();
+    }
+    
+    /**
+     * Gets the number of pixels with each value of the green channel.
+     * @return The number of pixels with each value of the green channel.
+     */
+    public int[] getGreenCounts() {
+        return this.greens.clone();
+    }
+    
+    /**
+     * Gets the number of pixels with each value of the red channel.
+     * @return The number of pixels with each value of the red channel.
+     */
+    public int[] getRedCounts() {
+        return this.reds.clone();
+    }
+    
+    /**
+     * Gets the number of pixels with each value of the alpha channel.
+     * @return The number of pixels with each value of the alpha channel.
+     */
+    public int[] getAlphaCounts() {
+        return this.alphas.clone();
     }
     
     /**
@@ -112,7 +191,7 @@ public class Histogram {
      * @return The average brightness of the blue channel.
      */
     public Double getBlueBrightness() {
-        return this.ExpectedValue(this.blueValues);
+        return this.blueBrightness;
     }
     
     /**
@@ -120,7 +199,7 @@ public class Histogram {
      * @return The average brightness of the green channel.
      */
     public Double getGreenBrightness() {
-        return this.ExpectedValue(this.greenValues);
+        return this.greenBrightness;
     }
 
     /**
@@ -128,7 +207,7 @@ public class Histogram {
      * @return The average brightness of the red channel.
      */
     public Double getRedBrightness() {
-        return this.ExpectedValue(this.redValues);
+        return this.redBrightness;
     }
     
     /**
@@ -136,21 +215,23 @@ public class Histogram {
      * @return The average brightness of the alpha channel.
      */
     public Double getAlphaBrightness() {
-        return this.ExpectedValue(this.alphaValues);
+        return this.alphaBrightness;
     }
     
     /**
-     * Calculates and returns the expected value of the index given a list of
-     * probabilities for each index.
-     * When applied to normalized channel data this value indicates the average
+     * Calculates and returns the expected value of the index given the count
+     * of each index. The counts are normalized and summed in the same order as
+     * the normalized histogram values so the result is the same as if it were
+     * calculated from them.
+     * When applied to channel data this value indicates the average
      * brightness of the channel because the index represents the color value.
-     * @param values The probabilities of each index.
+     * @param counts The number of times each index was seen.
      * @return The expected value of the index.
      */
-    private double ExpectedValue(List<Double> values) {
+    private double expectedValue(int[] counts) {
         double value = 0.0;
-        for (int i = 1; i < values.size(); i++) {
-            value += i * values.get(i);
+        for (int i = 1; i < counts.length; i++) {
+            value += i * (counts[i] * this.factor);
         }
         return value;
     }
@@ -164,12 +245,28 @@ public class Histogram {
         int height = image.getHeight();
         int width = image.getWidth();
         
-        // counter arrays for the times the channel value has been seen
-        int[] blues = new int[256];
-        int[] greens = new int[256];
-        int[] reds = new int[256];
-        int[] alphas = new int[256];
-
+        // count the channel values from the raster when its layout is known
+        if (!this.countRaster(image)) {
+            this.countRgb(image);
+        }
+        
+        // normalize the data by dividing the counts by the number of pixels
+        this.factor = 1 / ((double)width * (double)height);
+        this.blueBrightness = this.expectedValue(this.blues);
+        this.greenBrightness = this.expectedValue(this.greens);
+        this.redBrightness = this.expectedValue(this.reds);
+        this.alphaBrightness = this.expectedValue(this.alphas);
+    }
+    
+    /**
+     * Counts the channel values of each pixel through the color model of the
+     * image. This supports any image type.
+     * @param image The image to count the values of.
+     */
+    private void countRgb(BufferedImage image) {
+        int height = image.getHeight();
+        int width = image.getWidth();
+        
         // process each pixel in the image
         for (int y = 0; y < height; y++) {
             for (int x = 0; x < width; x++) {
@@ -177,35 +274,119 @@ public class Histogram {
                 int value = image.getRGB(x, y);
                 
                 // increment the appropriate histogram counter
-                blues[value & 0xff]++;
-                greens[(value >> 8) & 0xff]++;
-                reds[(value >> 16) & 0xff]++;
-                alphas[(value >> 24) & 0xff]++;
+                this.blues[value & 0xff]++;
+                this.greens[(value >> 8) & 0xff]++;
+                this.reds[(value >> 16) & 0xff]++;
+                this.alphas[(value >> 24) & 0xff]++;
             }
         }
+    }
+    
+    /**
+     * Counts the channel values of each pixel directly from the raster data
+     * for image types whose data holds the 8 bit sRGB channel values.
+     * @param image The image to count the values of.
+     * @return Whether the image type is supported and the values were
+     * counted.
+     */
+    private boolean countRaster(BufferedImage image) {
+        Raster raster = image.getRaster();
         
-        // normalize the data by dividing the counts by the number of pixels
-        double factor = 1 / ((double)width * (double)height);
-        this.blueValues = ToNormalizedList(blues, factor);
-        this.greenValues = ToNormalizedList(greens, factor);
-        this.redValues = ToNormalizedList(reds, factor);
-        this.alphaValues = ToNormalizedList(alphas, factor);
+        // child rasters do not start at the beginning of the data
+        if (raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0) {
+            return false;
+        }
+        
+        int height = image.getHeight();
+        int width = image.getWidth();
+        SampleModel model = raster.getSampleModel();
+        DataBuffer buffer = raster.getDataBuffer();
+        if (buffer.getNumBanks() != 1) {
+            return false;
+        }
+        
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_RGB: {
+                if (!(model instanceof SinglePixelPackedSampleModel)) {
+                    return false;
+                }
+                
+                int[] data = ((DataBufferInt)buffer).getData();
+                int stride = ((SinglePixelPackedSampleModel)model).getScanlineStride();
+                boolean hasAlpha = image.getType() == BufferedImage.TYPE_INT_ARGB;
+                for (int y = 0; y < height; y++) {
+                    int index = buffer.getOffset() + y * stride;
+                    for (int x = 0; x < width; x++, index++) {
+                        int value = data[index];
+                        this.blues[value & 0xff]++;
+                        this.greens[(value >> 8) & 0xff]++;
+                        this.reds[(value >> 16) & 0xff]++;
+                        if (hasAlpha) {
+                            this.alphas[(value >>> 24)]++;
+                        }
+                    }
+                }
+                
+                // pixels without alpha data are opaque
+                if (!hasAlpha) {
+                    this.alphas[BINS - 1] += width * height;
+                }
+                return true;
+            }
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_4BYTE_ABGR: {
+                if (!(model instanceof PixelInterleavedSampleModel)) {
+                    return false;
+                }
+                
+                // the bands are ordered red, green, blue, then alpha
+                PixelInterleavedSampleModel interleaved = (PixelInterleavedSampleModel)model;
+                byte[] data = ((DataBufferByte)buffer).getData();
+                int stride = interleaved.getScanlineStride();
+                int pixelStride = interleaved.getPixelStride();
+                int[] offsets = interleaved.getBandOffsets();
+                int red = offsets[0];
+                int green = offsets[1];
+                int blue = offsets[2];
+                boolean hasAlpha = image.getType() == BufferedImage.TYPE_4BYTE_ABGR;
+                int alpha = hasAlpha ? offsets[3] : 0;
+                for (int y = 0; y < height; y++) {
+                    int index = buffer.getOffset() + y * stride;
+                    for (int x = 0; x < width; x++, index += pixelStride) {
+                        this.reds[data[index + red] & 0xff]++;
+                        this.greens[data[index + green] & 0xff]++;
+                        this.blues[data[index + blue] & 0xff]++;
+                        if (hasAlpha) {
+                            this.alphas[data[index + alpha] & 0xff]++;
+                        }
+                    }
+                }
+                
+                // pixels without alpha data are opaque
+                if (!hasAlpha) {
+                    this.alphas[BINS - 1] += width * height;
+                }
+                return true;
+            }
+            default:
+                return false;
+        }
     }
 
     /**
-     * Creates a List of normalized double values from an array of integers and
-     * a normalizing factor.
+     * Creates an immutable List of normalized double values from an array of
+     * counts.
      * @param values The values to normalize.
-     * @param normFactor The factor which normalizes the values.
      * @return A List of normalized double values.
      */
-    private List<Double> ToNormalizedList(int[] values, double normFactor) {
-       Double[] toInit = new Double[values.length];
+    private List<Double> toNormalizedList(int[] values) {
+        Double[] toInit = new Double[values.length];
         
         for (int i = 0; i < values.length; i++) {
-            toInit[i] = values[i] * normFactor;
+            toInit[i] = values[i] * this.factor;
         }
         
-        return Arrays.asList(toInit);
+        return Collections.unmodifiableList(Arrays.asList(toInit));
     }
 }
@@ -45,19 +45,7 @@ public class HistogramList extends ArrayList<Histogram> {
      * the collection by the selector function.
      */
     public double getAverage(Function<Histogram, Double> selector) {
-        // accumulator for average calculation
-        double average = 0.0;
-        
-        // keeps track of number of elements in the average
-        int count = 1;
-        
-        // calculate in a 
-        for (Histogram element : this) {
-            average += (selector.apply(element) - average) / count;
-            count++;
-        }
-        
-        return average;
+        return getAverage(this.getValues(selector));
     }
     
     /**
@@ -70,24 +58,8 @@ public class HistogramList extends ArrayList<Histogram> {
      * Histograms in the collection by the selector function provided.
      */
     public double getPosStdev(Function<Histogram, Double> selector) {
-        // average value of the elements
-        double average = getAverage(selector);
-        
-        // accumulator for the stdev
-        double stdev = 0.0;
-        
-        // keeps track of number of elements in the average
-        int count = 1;
-        
-        for (Histogram element : this) {
-            double dev = selector.apply(element) - average;
-            if (dev > 0) {
-                stdev += (dev - stdev) / count;
-                count++;
-            }
-        }
-        
-        return stdev;
+        double[] values = this.getValues(selector);
+        return getPosStdev(values, getAverage(values));
     }
     
     /**
@@ -99,15 +71,17 @@ public class HistogramList extends ArrayList<Histogram> {
      * Histograms in the collection by the selector function provided.
      */
     public double getMaxDev(Function<Histogram, Double> selector) {
+        double[] values = this.getValues(selector);
+        
         // average value of the elements
-        double average = getAverage(selector);
+        double average = getAverage(values);
         
         // currently found maximum deviation
         double max = Double.MIN_VALUE;
         
-        for (Histogram element : this) {
+        for (double value : values) {
             // calculate deviation and save it if it is a new maximum
-            double dev = selector.apply(element) - average;
+            double dev = value - average;
             if (dev > max) {
                 max = dev;
             }
@@ -133,13 +107,14 @@ public class HistogramList extends ArrayList<Histogram> {
         List<Integer> outliers = new ArrayList<>();
         
         // calculate the target value defining an outlier as
-        double average = this.getAverage(selector);
-        double stdev = this.getPosStdev(selector);
+        double[] values = this.getValues(selector);
+        double average = getAverage(values);
+        double stdev = getPosStdev(values, average);
         double target = (deviations * stdev) + average;
         
         // find all outlier histograms
-        for (int i = 0; i < this.size(); i++) {
-            if(selector.apply(this.get(i)) > target) {
+        for (int i = 0; i < values.length; i++) {
+            if(values[i] > target) {
                 outliers.add(i);
             }
         }
@@ -147,6 +122,66 @@ public class HistogramList extends ArrayList<Histogram> {
         return outliers;
     }
     
+    /**
+     * Selects the value of each Histogram in the collection once so the
+     * statistics can be calculated from primitive values.
+     * @param selector A function which selects the value from the Histogram.
+     * @return The value selected from each Histogram in collection order.
+     */
+    public double[] getValues(Function<Histogram, Double> selector) {
+        double[] values = new double[this.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = selector.apply(this.get(i));
+        }
+        return values;
+    }
+    
+    /**
+     * Calculates the running average of values.
+     * @param values The values to average.
+     * @return The average of the values.
+     */
+    public static double getAverage(double[] values) {
+        // accumulator for average calculation
+        double average = 0.0;
+        
+        // keeps track of number of elements in the average
+        int count = 1;
+        
+        // calculate in a 
+        for (double value : values) {
+            average += (value - average) / count;
+            count++;
+        }
+        
+        return average;
+    }
+    
+    /**
+     * Calculates the running average of the positive deviations of values
+     * from their average.
+     * @param values The values to evaluate.
+     * @param average The average of the values.
+     * @return The average positive deviation of the values.
+     */
+    public static double getPosStdev(double[] values, double average) {
+        // accumulator for the stdev
+        double stdev = 0.0;
+        
+        // keeps track of number of elements in the average
+        int count = 1;
+        
+        for (double value : values) {
+            double dev = value - average;
+            if (dev > 0) {
+                stdev += (dev - stdev) / count;
+                count++;
+            }
+        }
+        
+        return stdev;
+    }
+    
     /**
      * Loads sequentially named image files from a directory into a new
      * HistogramList instance using the supplied name generation function.
@@ -160,11 +195,27 @@ public class HistogramList extends ArrayList<Histogram> {
      * files in the supplied directory.
      */
     public static HistogramList loadFromDirectory(Path directory, FilenameGenerator nameGenerator) {
+        return HistogramList.loadFromDirectory(directory, nameGenerator, 1);
+    }
+    
+    /**
+     * Loads sequentially named image files from a directory into a new
+     * HistogramList instance starting at a file number, so frames extracted
+     * in batches into one directory can be loaded as each batch completes.
+     * @param directory The Path object pointing to the directory containing
+     * the images to load.
+     * @param nameGenerator The function that will be used by the function to
+     * generate the sequential file names to be loaded.
+     * @param firstFile The number of the first file to load.
+     * @return A new HistogramList instance representing sequentially named
+     * files in the supplied directory.
+     */
+    public static HistogramList loadFromDirectory(Path directory, FilenameGenerator nameGenerator, int firstFile) {
         LOGGER.info("Building histograms from: " + directory.toString());
         
         HistogramList histograms = new HistogramList();
         boolean cont = true;
-        int fileCount = 1;
+        int fileCount = firstFile;
         
         // loop until we no longer detect image files to open
         while (cont) {
@@ -18,9 +18,11 @@
 package com.vitembp.services.imaging;
 
 import com.vitembp.services.sensors.AccelerometerThreeAxis;
+import com.vitembp.services.sensors.DecodedCapture;
 import com.vitembp.services.sensors.DistanceSensor;
 import com.vitembp.services.sensors.RotarySensor;
 import com.vitembp.services.sensors.Sensor;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import org.apache.logging.log4j.LogManager;
@@ -39,7 +41,9 @@ class OverlayElementFactory {
      * Builds an overlay element.
      * @return The overlay element.
      */
-    static OverlayElement buildElement(ElementDefinition definition, ElementLocation layoutLocation, List<Sensor> sensors, Map<Sensor, Double> minimumValues, Map<Sensor, Double> maximumValues, int upperLeftX, int upperLeftY, int lowerRightX, int lowerRightY) throws InstantiationException {
+    static OverlayElement buildElement(ElementDefinition definition, ElementLocation layoutLocation, DecodedCapture decoded, Map<Sensor, Double> minimumValues, Map<Sensor, Double> maximumValues, int upperLeftX, int upperLeftY, int lowerRightX, int lowerRightY) throws InstantiationException {
+        List<Sensor> sensors = new ArrayList<>(decoded.getSensors().values());
+        
         // this checks that all sensors described in the definition are
         // in the list of sensors
         if (!definition.getSensors().stream()
@@ -107,7 +111,8 @@ class OverlayElementFactory {
                         (RotarySensor)leftBinding,
                         minimumValues.get(rightBinding),
                         maximumValues.get(rightBinding),
-                        (RotarySensor)rightBinding);
+                        (RotarySensor)rightBinding,
+                        decoded);
             case ShockSensor:
                 // only uses a single sensor
                 if (definition.getSensors().size() != 1) {
@@ -139,7 +144,8 @@ class OverlayElementFactory {
                         layoutLocation,
                         minimumValues.get(shockBinding),
                         maximumValues.get(shockBinding),
-                        (DistanceSensor)shockBinding);
+                        (DistanceSensor)shockBinding,
+                        decoded);
             case ThreeAxisG:
                 // only uses a single sensor
                 if (definition.getSensors().size() != 1) {
@@ -171,7 +177,8 @@ class OverlayElementFactory {
                         layoutLocation,
                         minimumValues.get(accelBinding),
                         maximumValues.get(accelBinding),
-                        (AccelerometerThreeAxis)accelBinding);
+                        (AccelerometerThreeAxis)accelBinding,
+                        decoded);
         }
         
         throw new InstantiationException("Unknown sensor type.");
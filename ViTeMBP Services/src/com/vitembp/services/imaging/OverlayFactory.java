@@ -17,10 +17,10 @@
  */
 package com.vitembp.services.imaging;
 
+import com.vitembp.services.sensors.DecodedCapture;
 import com.vitembp.services.sensors.Sensor;
 import com.vitembp.services.video.VideoFileInfo;
 import java.io.IOException;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -31,8 +31,8 @@ public class OverlayFactory {
      * Builds an overlay for the given definition and parameters.
      * @param definition A String containing the definition of the overlay to
      * create in XML format.
-     * @param sensors The list sensors that can decode the data in samples to
-     * values that will be used in generating the overlay.
+     * @param decoded The decoded values of the capture that will be used in
+     * generating the overlay, along with the sensors that decoded them.
      * @param minimumValues The minimum values in the data that the overlay can
      * use to determine the range of values it needs to display.
      * @param maximumValues The maximum values in the data that the overlay can
@@ -43,7 +43,7 @@ public class OverlayFactory {
      * overlay to images.
      * @throws InstantiationException If the Overlay cannot be created.
      */
-    public static Overlay buildOverlay(String definition, List<Sensor> sensors, Map<Sensor, Double> minimumValues, Map<Sensor, Double> maximumValues, VideoFileInfo videoInfo) throws InstantiationException {
+    public static Overlay buildOverlay(String definition, DecodedCapture decoded, Map<Sensor, Double> minimumValues, Map<Sensor, Double> maximumValues, VideoFileInfo videoInfo) throws InstantiationException {
         // load the overlay from the xml string
         OverlayDefinition def;
         try {
@@ -58,7 +58,7 @@ public class OverlayFactory {
                 return new FourQuadrantOveraly(
                         videoInfo.getHorizontalResolution(),
                         videoInfo.getVerticalResolution(),
-                        sensors,
+                        decoded,
                         minimumValues,
                         maximumValues,
                         def.getElementDefinitions());
@@ -19,11 +19,11 @@ package com.vitembp.services.imaging;
 
 import com.vitembp.embedded.data.Sample;
 import com.vitembp.services.data.PipelineExecutionException;
+import com.vitembp.services.sensors.DecodedCapture;
 import com.vitembp.services.sensors.DistanceSensor;
 import java.text.DecimalFormat;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * Creates an overlay for a linear shock sensor.
@@ -74,6 +74,11 @@ public class ShockSensorOverlayElement extends OverlayElement {
      */
     private final LinkedList<Double> previousValues = new LinkedList<>();
     
+    /**
+     * The decoded values of the capture the sensor reads from.
+     */
+    private final DecodedCapture decoded;
+    
     /**
      * Used to format the text value display.
      */
@@ -90,12 +95,14 @@ public class ShockSensorOverlayElement extends OverlayElement {
      * @param minValue The minimum possible value of the sensor data in Gs.
      * @param maxValue The maximum possible value of the sensor data in Gs.
      * @param sensor The sensor which will read data from the sample.
+     * @param decoded The decoded values of the capture the sensor reads from.
      */
-    ShockSensorOverlayElement(int upperLeftX, int upperLeftY, int lowerRightX, int lowerRightY, ElementLocation location, double minValue, double maxValue, DistanceSensor sensor) {
+    ShockSensorOverlayElement(int upperLeftX, int upperLeftY, int lowerRightX, int lowerRightY, ElementLocation location, double minValue, double maxValue, DistanceSensor sensor, DecodedCapture decoded) {
         super(upperLeftX, upperLeftY, lowerRightX, lowerRightY, location);
         this.minValue = minValue;
         this.maxValue = maxValue;
         this.sensor = sensor;
+        this.decoded = decoded;
         
         // seed averaging data
         while (previousValues.size() < SMOOTHING_DEPTH) {
@@ -107,11 +114,8 @@ public class ShockSensorOverlayElement extends OverlayElement {
     void apply(DataOverlayBuilder builder, Sample data) {
         // read in new data failing to an average of previous data if
         // none is available
-        double percentage;
-        Optional<Double> reading = this.sensor.getDistancePercent(data);
-        if (reading.isPresent()) {
-            percentage= reading.get();
-        } else {
+        double percentage = this.decoded.getValue(this.sensor, DistanceSensor.PERCENT, data.getIndex());
+        if (Double.isNaN(percentage)) {
             percentage = this.average(this.previousValues);
         }
 
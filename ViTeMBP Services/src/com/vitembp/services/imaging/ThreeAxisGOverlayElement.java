@@ -20,8 +20,8 @@ package com.vitembp.services.imaging;
 import com.vitembp.embedded.data.Sample;
 import com.vitembp.services.data.PipelineExecutionException;
 import com.vitembp.services.sensors.AccelerometerThreeAxis;
+import com.vitembp.services.sensors.DecodedCapture;
 import java.text.DecimalFormat;
-import java.util.Optional;
 
 /**
  * Class creating an overlay for a three-axis accelerometer.
@@ -62,6 +62,11 @@ class ThreeAxisGOverlayElement extends OverlayElement {
      */
     private final AccelerometerThreeAxis sensor;
     
+    /**
+     * The decoded values of the capture the sensor reads from.
+     */
+    private final DecodedCapture decoded;
+    
     /**
      * Used to format the text value display.
      */
@@ -78,12 +83,14 @@ class ThreeAxisGOverlayElement extends OverlayElement {
      * @param minValue The minimum possible value of the sensor data in Gs.
      * @param maxValue The maximum possible value of the sensor data in Gs.
      * @param sensor The sensor which will read data from the sample.
+     * @param decoded The decoded values of the capture the sensor reads from.
      */
-    ThreeAxisGOverlayElement(int upperLeftX, int upperLeftY, int lowerRightX, int lowerRightY, ElementLocation location, double minValue, double maxValue, AccelerometerThreeAxis sensor) {
+    ThreeAxisGOverlayElement(int upperLeftX, int upperLeftY, int lowerRightX, int lowerRightY, ElementLocation location, double minValue, double maxValue, AccelerometerThreeAxis sensor, DecodedCapture decoded) {
         super(upperLeftX, upperLeftY, lowerRightX, lowerRightY, location);
         this.minValue = minValue;
         this.maxValue = maxValue;
         this.sensor = sensor;
+        this.decoded = decoded;
     }    
 
     @Override
@@ -116,18 +123,18 @@ class ThreeAxisGOverlayElement extends OverlayElement {
         }
         
         // get data to render
-        Optional<Double> xValue = this.sensor.getXAxisG(data);
-        Optional<Double> yValue = this.sensor.getYAxisG(data);
-        Optional<Double> zValue = this.sensor.getZAxisG(data);
+        double xValue = this.decoded.getValue(this.sensor, AccelerometerThreeAxis.X_AXIS, data.getIndex());
+        double yValue = this.decoded.getValue(this.sensor, AccelerometerThreeAxis.Y_AXIS, data.getIndex());
+        double zValue = this.decoded.getValue(this.sensor, AccelerometerThreeAxis.Z_AXIS, data.getIndex());
         
         double magnitude;
-        if (!xValue.isPresent() || !yValue.isPresent() || !zValue.isPresent()){
+        if (Double.isNaN(xValue) || Double.isNaN(yValue) || Double.isNaN(zValue)){
             magnitude = this.minValue;
         } else {
             magnitude = Math.sqrt(
-                Math.pow(xValue.get(), 2) +
-                        Math.pow(yValue.get(), 2) +
-                        Math.pow(zValue.get(), 2));
+                Math.pow(xValue, 2) +
+                        Math.pow(yValue, 2) +
+                        Math.pow(zValue, 2));
         }
         
         // render a bar
@@ -45,6 +45,21 @@ public class AmazonSimpleStorageService {
      */
     private final String bucketName;
     
+    /**
+     * The size of the parts of streamed uploads.
+     */
+    private static final int UPLOAD_PART_SIZE = S3MultipartOutputStream.MINIMUM_PART_SIZE;
+    
+    /**
+     * The number of parts of a streamed upload which may upload at once.
+     */
+    private static final int UPLOAD_PARTS_IN_FLIGHT = 2;
+    
+    /**
+     * The client for the bucket.
+     */
+    private final AmazonS3 client;
+    
     /**
      * The file transfer manager for the bucket.
      */
@@ -56,15 +71,24 @@ public class AmazonSimpleStorageService {
      */
     public AmazonSimpleStorageService(
             String bucketName) {
+        // builds a client with credentials
+        this(bucketName, AmazonS3Client.builder().build());
+    }
+    
+    /**
+     * Initializes a new instance of the AmazonSimpleStorageService class.
+     * @param bucketName The name of the bucket to connect to.
+     * @param client The client used to access the bucket.
+     */
+    public AmazonSimpleStorageService(
+            String bucketName, AmazonS3 client) {
         // save parameters
         this.bucketName = bucketName;
-        
-        // builds a client with credentials
-        AmazonS3 client = AmazonS3Client.builder().build();
+        this.client = client;
         
         // builds a transfer manager from the client
         this.transferManager  = TransferManagerBuilder.standard()
-                .withS3Client(client)
+                .withS3Client(this.client)
                 .build();
     }
     
@@ -93,6 +117,39 @@ public class AmazonSimpleStorageService {
         }
     }
     
+    /**
+     * Opens a stream which uploads the data written to it to S3 storage and
+     * sets its ACL to allow public access. The upload is completed when the
+     * stream is closed.
+     * @param destination The destination in the bucket to store the data.
+     * @return The stream to write the data to.
+     */
+    public S3MultipartOutputStream openPublicUpload(String destination) {
+        return new S3MultipartOutputStream(
+                this.client,
+                this.bucketName,
+                destination,
+                CannedAccessControlList.PublicRead,
+                UPLOAD_PART_SIZE,
+                UPLOAD_PARTS_IN_FLIGHT);
+    }
+    
+    /**
+     * Gets the size of an item in S3 storage.
+     * @param source The item in the bucket to get the size of.
+     * @return The size of the item in bytes.
+     * @throws java.io.IOException If an I/O exception occurs while reading
+     * the item metadata.
+     */
+    public long getSize(String source) throws IOException {
+        try {
+            return this.client.getObjectMetadata(this.bucketName, source).getContentLength();
+        } catch (AmazonClientException ex) {
+            LOGGER.error("Exception reading metadata of " + source, ex);
+            throw new IOException("Exception reading metadata of " + source, ex);
+        }
+    }
+    
     /**
      * Downloads a file from S3 storage to the local file system.
      * @param source The item in the bucket to download to the file.
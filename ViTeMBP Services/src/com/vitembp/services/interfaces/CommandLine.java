@@ -19,7 +19,10 @@ package com.vitembp.services.interfaces;
 
 import com.vitembp.services.ApiFunctions;
 import com.vitembp.services.ApiFunctions.COLOR_CHANNELS;
+import com.vitembp.services.AsyncProcessing;
 import com.vitembp.services.config.ServicesConfig;
+import com.vitembp.services.simulation.LoadGenerator;
+import com.vitembp.services.simulation.SimulatedDevice;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
@@ -192,6 +195,43 @@ public class CommandLine {
                 }
 
                 // no exceptions, return success
+                return true;
+            }
+        } else if (args[0].toUpperCase().equals("-LG")) {
+            // command: -lg <devices> <captures> <seconds> [h2|ddb] [video]
+            if (args.length >= 4) {
+                int devices = Integer.parseInt(args[1]);
+                int captures = Integer.parseInt(args[2]);
+                double seconds = Double.parseDouble(args[3]);
+                boolean useH2 = args.length >= 5 && args[4].toUpperCase().equals("H2");
+                boolean useVideo = args.length >= 6 && args[5].toUpperCase().equals("VIDEO");
+                
+                Path tempDir = ServicesConfig.getConfig().getTemporaryDirectory();
+                SimulatedDevice.Destination destination;
+                try {
+                    // the fake dynamodb adds a typical service round trip
+                    destination = useH2 ?
+                            SimulatedDevice.Destination.createH2(tempDir.resolve("loadgen-" + UUID.randomUUID().toString())) :
+                            SimulatedDevice.Destination.createFakeDynamoDB(20);
+                } catch (InstantiationException ex) {
+                    LOGGER.error("Could not create load generator destination.", ex);
+                    return true;
+                }
+                
+                try {
+                    LoadGenerator generator = new LoadGenerator(devices, captures, seconds, destination, AsyncProcessing.getInstance());
+                    if (useVideo) {
+                        generator.setVideo(tempDir, 4);
+                    }
+                    
+                    // display results to console
+                    System.out.println(generator.run().toString());
+                } catch (IOException ex) {
+                    LOGGER.error("IOException running load generator.", ex);
+                } finally {
+                    destination.close();
+                }
+                
                 return true;
             }
         }
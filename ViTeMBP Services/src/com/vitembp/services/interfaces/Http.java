@@ -22,22 +22,39 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import com.vitembp.services.ApiFunctions;
+import com.vitembp.services.AsyncProcessing;
+import com.vitembp.services.data.CaptureExporter;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 
 /**
- * Provides a user interface accepting HTTP requests.
+ * Provides a user interface accepting HTTP requests. Requests are handled on
+ * a bounded pool of worker threads so a slow request does not hold up the
+ * others. Long running work can be submitted as a job which is polled for its
+ * status and result, and large responses are streamed.
  */
 public class Http {
     /**
@@ -45,11 +62,48 @@ public class Http {
      */
     private static final org.apache.logging.log4j.Logger LOGGER = LogManager.getLogger();
     
+    /**
+     * The number of threads handling requests.
+     */
+    private static final int WORKER_THREADS = 16;
+    
+    /**
+     * The number of requests which can wait for a worker before the server
+     * handles them on the accepting thread.
+     */
+    private static final int WORKER_QUEUE_SIZE = 256;
+    
+    /**
+     * The size of the buffer used when reading and writing bodies.
+     */
+    private static final int BUFFER_SIZE = 8192;
+    
+    /**
+     * The number of submitted jobs remembered for status requests.
+     */
+    private static final int MAX_JOBS = 1000;
+    
     /**
      * The HTTP server instance this object operates.
      */
     private final HttpServer server;
     
+    /**
+     * The executor which handles requests.
+     */
+    private final ThreadPoolExecutor executor;
+    
+    /**
+     * The submitted jobs keyed by job ID, the oldest are forgotten first.
+     */
+    private final Map<UUID, AsyncProcessing.Job<List<Integer>>> jobs = Collections.synchronizedMap(
+            new LinkedHashMap<UUID, AsyncProcessing.Job<List<Integer>>>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, AsyncProcessing.Job<List<Integer>>> eldest) {
+                    return this.size() > MAX_JOBS;
+                }
+            });
+    
     /**
      * Initializes a new instance of the Http class.
      * @param port The port to run the HTTP server on.
@@ -58,12 +112,51 @@ public class Http {
      */
     public Http(int port, ApiFunctions functions) throws IOException {
         this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        
+        // when every worker is busy and the queue is full the accepting
+        // thread handles the request, which slows down accepting more
+        this.executor = new ThreadPoolExecutor(
+                WORKER_THREADS,
+                WORKER_THREADS,
+                60,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(WORKER_QUEUE_SIZE),
+                (r) -> {
+                    Thread thread = new Thread(r);
+                    thread.setName("HTTP Worker");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.server.setExecutor(this.executor);
+        
         this.server.createContext("/findsyncframes", this.getHandler(functions));
         this.server.createContext("/getHashes", this.getHandler(functions));
         this.server.createContext("/healthcheck", this.getHealthCheckHandler());
+        this.server.createContext("/jobs", this.getJobsHandler(functions));
+        this.server.createContext("/export", this.getExportHandler(functions));
         this.server.start();
     }
     
+    /**
+     * Gets the port the server is listening on.
+     * @return The port the server is listening on.
+     */
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+    
+    /**
+     * Stops the server, waiting up to the given time for requests being
+     * handled to complete.
+     * @param delay The time in seconds to wait for requests to complete.
+     */
+    public void stop(int delay) {
+        this.server.stop(delay);
+        this.executor.shutdown();
+    }
+    
     /**
      * Returns a HttpHandler instance which can process HTTP service requests.
      * @param functions 
@@ -71,80 +164,23 @@ public class Http {
      */
     private HttpHandler getHandler(final ApiFunctions functions) {
         return (HttpExchange he) -> {
-            // get path url
-            Headers headers = he.getRequestHeaders();
-            URI uri = null;
-            
             System.out.println("Request from: " + he.getRemoteAddress().getHostString());
-            for(String key : headers.keySet()) {
-                System.out.println("Header: (" + key + "," + headers.getFirst(key) +")");
+            for(String key : he.getRequestHeaders().keySet()) {
+                System.out.println("Header: (" + key + "," + he.getRequestHeaders().getFirst(key) +")");
             }
             
-            if (headers.containsKey("path")) {
-                String path = headers.getFirst("path");
-                try {                    
-                    uri = new URI(path);
-                } catch (URISyntaxException ex) {
-                    LOGGER.warn("Unable to parse path: " + path, ex);
-                }
-            }
-            
-            boolean outputDebug = false;
-            if (headers.containsKey("debug")) {
-                outputDebug = Boolean.parseBoolean(headers.getFirst("debug"));
-            }
-            
-            StringBuilder request = new StringBuilder();
-            InputStream requestStream = he.getRequestBody();
-            int requestChar = requestStream.read();
-            while (requestChar >= 0) {
-                request.append((char)requestChar);
-                requestChar = requestStream.read();
-            }
-            
-            System.out.println(request.toString());
+            System.out.println(readBody(he));
             
-            if (uri == null) {
-                URI req = he.getRequestURI();
-                List<String> query = Arrays.asList(req.getQuery().split("&"));
-                Map<String, String> posts = new HashMap<>();
-                for (String qry : query) {
-                    String[] elms = qry.split("=");
-                    if (elms.length == 2) {
-                        posts.put(elms[0].toLowerCase(), elms[1]);
-                    }
-                }
-                
-                String path = null;
-                
-                if (posts.containsKey("path")) {
-                    String pathStr = posts.get("path");
-                    try {
-                        uri = new URI(pathStr);
-                    } catch (URISyntaxException ex) {
-                        LOGGER.warn("Bad path found in request: " + pathStr, ex);
-                    }
-                }
-                
-                if (posts.containsKey("debug")) {
-                    outputDebug = Boolean.parseBoolean(posts.get("debug"));
-                }
-            }
+            Map<String, String> posts = getQuery(he);
+            URI uri = getPath(he, posts);
+            boolean outputDebug = getDebug(he, posts);
             
             if (uri == null) {
                 //todo: Only sends success response, must send error resp as well.
-                byte[] toSend = "Failed, no path specified.".getBytes();
-                he.sendResponseHeaders(400, toSend.length);
-                try (OutputStream os = he.getResponseBody()){
-                    os.write(toSend);
-                }
+                sendResponse(he, 400, "Failed, no path specified.");
             } else if (!"https".equals(uri.getScheme())) {
                 //todo: Only sends success response, must send error resp as well.
-                byte[] toSend = "Failed, invalid path.".getBytes();
-                he.sendResponseHeaders(400, toSend.length);
-                try (OutputStream os = he.getResponseBody()){
-                    os.write(toSend);
-                }
+                sendResponse(he, 400, "Failed, invalid path.");
             } else {
                 System.out.println("Request to process URI: " + uri.toString());
                 // call to functions
@@ -166,11 +202,7 @@ public class Http {
                     }
                 } catch (Exception ex) {
                     LOGGER.error("IO error processing URI.", ex);
-                    byte[] toSend = "Error processing request".getBytes();
-                    he.sendResponseHeaders(500, toSend.length);
-                    try (OutputStream os = he.getResponseBody()){
-                        os.write(toSend);
-                    }
+                    sendResponse(he, 500, "Error processing request");
                     return;
                 }
 
@@ -191,23 +223,122 @@ public class Http {
                     toReturn.append("</a></p>");
                 }
                 
-                byte[] toSend = toReturn.toString().getBytes();
-                he.sendResponseHeaders(200, toSend.length);
-                try (OutputStream os = he.getResponseBody()){
-                    os.write(toSend);
+                sendResponse(he, 200, toReturn.toString());
+            }
+        };
+    }
+    
+    /**
+     * Returns a HttpHandler instance which submits jobs and reports their
+     * status. A POST to /jobs/findsyncframes with a path submits a job and
+     * returns its ID, a GET of /jobs/[id] returns the status and result of
+     * the job, and a DELETE of /jobs/[id] cancels it. A job which has already
+     * finished cannot be cancelled and its status is returned with a 409.
+     * @param functions The API functions used to run the jobs.
+     * @return The handler.
+     */
+    private HttpHandler getJobsHandler(final ApiFunctions functions) {
+        return (HttpExchange he) -> {
+            // the body is read so the connection can be reused
+            readBody(he);
+            
+            String[] path = he.getRequestURI().getPath().split("/");
+            if (path.length != 3) {
+                sendResponse(he, 404, "Unknown job request.");
+                return;
+            }
+            
+            if ("findsyncframes".equals(path[2])) {
+                if (!"POST".equals(he.getRequestMethod())) {
+                    he.getResponseHeaders().set("Allow", "POST");
+                    sendResponse(he, 405, "Jobs must be submitted with a POST.");
+                    return;
+                }
+                
+                Map<String, String> query = getQuery(he);
+                URI uri = getPath(he, query);
+                if (uri == null || !"https".equals(uri.getScheme())) {
+                    sendResponse(he, 400, "Failed, invalid path.");
+                    return;
                 }
+                
+                UUID id = UUID.randomUUID();
+                this.jobs.put(id, functions.submitFindChannelSyncFrames(uri.toString(), ApiFunctions.COLOR_CHANNELS.GREEN));
+                he.getResponseHeaders().set("Location", "/jobs/" + id.toString());
+                sendResponse(he, 202, "{\"id\":\"" + id.toString() + "\"}");
                 return;
             }
             
-            LOGGER.error("Unknown error processing request.");
-            byte[] toSend = "Invalid request".getBytes();
-            he.sendResponseHeaders(500, toSend.length);
-            try (OutputStream os = he.getResponseBody()){
-                os.write(toSend);
+            AsyncProcessing.Job<List<Integer>> job = null;
+            UUID id = null;
+            try {
+                id = UUID.fromString(path[2]);
+                job = this.jobs.get(id);
+            } catch (IllegalArgumentException ex) {
+                LOGGER.info("Invalid job ID requested: " + path[2]);
+            }
+            
+            if (job == null) {
+                sendResponse(he, 404, "Unknown job.");
+            } else if ("DELETE".equals(he.getRequestMethod())) {
+                if (job.cancel(true)) {
+                    sendResponse(he, 200, "{\"id\":\"" + id.toString() + "\",\"status\":\"cancelled\"}");
+                } else {
+                    sendJobStatus(he, 409, id, job);
+                }
+            } else {
+                sendJobStatus(he, 200, id, job);
             }
         };
     }
     
+    /**
+     * Returns a HttpHandler instance which streams the data of a capture. The
+     * capture is given by the capture query parameter, calibrated=true
+     * exports calibrated values, and format=json exports JSON instead of CSV.
+     * The data is compressed when the client accepts GZip encoding.
+     * @param functions The API functions used to export the data.
+     * @return The handler.
+     */
+    private HttpHandler getExportHandler(final ApiFunctions functions) {
+        return (HttpExchange he) -> {
+            readBody(he);
+            
+            Map<String, String> query = getQuery(he);
+            UUID capture;
+            CaptureExporter.Format format;
+            try {
+                capture = UUID.fromString(query.get("capture"));
+                format = query.containsKey("format") ? CaptureExporter.Format.valueOf(query.get("format").toUpperCase()) : CaptureExporter.Format.CSV;
+            } catch (IllegalArgumentException | NullPointerException ex) {
+                sendResponse(he, 400, "Export request must be of form: \"/export?capture=[capture uuid]&calibrated=[true|false]&format=[csv|json]\".");
+                return;
+            }
+            
+            boolean calibrated = Boolean.parseBoolean(query.get("calibrated"));
+            String encodings = he.getRequestHeaders().getFirst("Accept-Encoding");
+            boolean compress = encodings != null && encodings.contains("gzip");
+            
+            he.getResponseHeaders().set("Content-Type", format == CaptureExporter.Format.JSON ? "application/json" : "text/csv");
+            if (compress) {
+                he.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            
+            // a length of zero sends the response in chunks as it is written
+            he.sendResponseHeaders(200, 0);
+            try {
+                functions.exportTo(capture, calibrated, format, compress, he.getResponseBody());
+            } catch (IOException | RuntimeException ex) {
+                // the headers are already sent, so the exchange is not closed
+                // and the exception is rethrown, which makes the server drop
+                // the connection without the final chunk of the response
+                LOGGER.error("Exception streaming capture export.", ex);
+                throw ex;
+            }
+            he.close();
+        };
+    }
+    
     /**
      * Returns a HttpHandler instance which can process HTTP service requests.
      * @return 
@@ -215,11 +346,137 @@ public class Http {
     private HttpHandler getHealthCheckHandler() {
         return (HttpExchange he) -> {
             //todo: Sends success response, must send error resp as well.
-            byte[] toSend = "Services Healthy.".getBytes();
-            he.sendResponseHeaders(200, toSend.length);
-            try (OutputStream os = he.getResponseBody()){
-                os.write(toSend);
-            }
+            sendResponse(he, 200, "Services Healthy.");
         };
     }
+    
+    /**
+     * Streams the status of a job and its result if it has completed.
+     * @param he The exchange to respond to.
+     * @param status The HTTP status of the response.
+     * @param id The ID of the job.
+     * @param job The job.
+     * @throws IOException If the response could not be sent.
+     */
+    private static void sendJobStatus(HttpExchange he, int status, UUID id, AsyncProcessing.Job<List<Integer>> job) throws IOException {
+        he.getResponseHeaders().set("Content-Type", "application/json");
+        he.sendResponseHeaders(status, 0);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(he.getResponseBody(), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            writer.write("{\"id\":\"");
+            writer.write(id.toString());
+            writer.write("\",\"status\":\"");
+            if (job.isCancelled()) {
+                writer.write("cancelled\"");
+            } else if (!job.isDone()) {
+                writer.write(job.isRunning() ? "running\"" : "queued\"");
+            } else {
+                try {
+                    List<Integer> result = job.get();
+                    writer.write("done\",\"result\":[");
+                    for (int i = 0; i < result.size(); i++) {
+                        if (i > 0) {
+                            writer.write(',');
+                        }
+                        writer.write(result.get(i).toString());
+                    }
+                    writer.write(']');
+                } catch (ExecutionException ex) {
+                    writer.write("failed\"");
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    writer.write("failed\"");
+                }
+            }
+            writer.write('}');
+        }
+    }
+    
+    /**
+     * Reads the request body into a string.
+     * @param he The exchange to read the body of.
+     * @return The request body.
+     * @throws IOException If the body could not be read.
+     */
+    private static String readBody(HttpExchange he) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream requestStream = he.getRequestBody()) {
+            int read;
+            while ((read = requestStream.read(buffer)) >= 0) {
+                body.write(buffer, 0, read);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+    
+    /**
+     * Parses the query parameters of a request.
+     * @param he The exchange to parse the query of.
+     * @return The query parameters keyed by lower case name.
+     */
+    private static Map<String, String> getQuery(HttpExchange he) {
+        Map<String, String> posts = new HashMap<>();
+        String query = he.getRequestURI().getQuery();
+        if (query == null) {
+            return posts;
+        }
+        
+        for (String qry : query.split("&")) {
+            String[] elms = qry.split("=");
+            if (elms.length == 2) {
+                posts.put(elms[0].toLowerCase(), elms[1]);
+            }
+        }
+        return posts;
+    }
+    
+    /**
+     * Gets the path of the video to process from the path header or the path
+     * query parameter.
+     * @param he The exchange to get the path of.
+     * @param posts The query parameters.
+     * @return The path or null if none was valid.
+     */
+    private static URI getPath(HttpExchange he, Map<String, String> posts) {
+        for (String path : new String[] { he.getRequestHeaders().getFirst("path"), posts.get("path") }) {
+            if (path != null) {
+                try {
+                    return new URI(path);
+                } catch (URISyntaxException ex) {
+                    LOGGER.warn("Unable to parse path: " + path, ex);
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Gets whether debug output was requested by the debug header or the
+     * debug query parameter.
+     * @param he The exchange to check.
+     * @param posts The query parameters.
+     * @return Whether debug output was requested.
+     */
+    private static boolean getDebug(HttpExchange he, Map<String, String> posts) {
+        Headers headers = he.getRequestHeaders();
+        if (headers.containsKey("debug")) {
+            return Boolean.parseBoolean(headers.getFirst("debug"));
+        }
+        return Boolean.parseBoolean(posts.get("debug"));
+    }
+    
+    /**
+     * Sends a complete response.
+     * @param he The exchange to respond to.
+     * @param status The HTTP status code.
+     * @param response The response body.
+     * @throws IOException If the response could not be sent.
+     */
+    private static void sendResponse(HttpExchange he, int status, String response) throws IOException {
+        byte[] toSend = response.getBytes(StandardCharsets.UTF_8);
+        he.sendResponseHeaders(status, toSend.length);
+        try (OutputStream os = he.getResponseBody()){
+            os.write(toSend);
+        }
+    }
 }
@@ -0,0 +1,338 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.interfaces;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CannedAccessControlList;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * An output stream which uploads the data written to it to an object in S3
+ * using a multipart upload. Data is collected into part sized buffers which
+ * are uploaded in the background while more data is written. The number of
+ * buffers is bounded so a writer which is faster than the upload blocks
+ * rather than using memory in proportion to the size of the object. Data
+ * which fits in a single part is uploaded with a single request.
+ */
+public class S3MultipartOutputStream extends OutputStream {
+    /**
+     * Class logger instance.
+     */
+    private static final org.apache.logging.log4j.Logger LOGGER = LogManager.getLogger();
+    
+    /**
+     * The smallest size S3 accepts for any part but the last.
+     */
+    public static final int MINIMUM_PART_SIZE = 5 * 1024 * 1024;
+    
+    /**
+     * The client used to upload the data.
+     */
+    private final AmazonS3 client;
+    
+    /**
+     * The name of the bucket to upload to.
+     */
+    private final String bucketName;
+    
+    /**
+     * The key of the object in the bucket.
+     */
+    private final String key;
+    
+    /**
+     * The access control list applied to the object.
+     */
+    private final CannedAccessControlList acl;
+    
+    /**
+     * The size of each part uploaded.
+     */
+    private final int partSize;
+    
+    /**
+     * The maximum number of buffers which may be allocated.
+     */
+    private final int maxBuffers;
+    
+    /**
+     * Buffers which have finished uploading and can be reused.
+     */
+    private final BlockingQueue<byte[]> freeBuffers;
+    
+    /**
+     * Executes the part uploads.
+     */
+    private final ExecutorService uploader;
+    
+    /**
+     * The results of the parts which have been started in part number order.
+     */
+    private final List<Future<PartETag>> parts = new ArrayList<>();
+    
+    /**
+     * The number of buffers which have been allocated.
+     */
+    private int allocatedBuffers = 0;
+    
+    /**
+     * The buffer being filled with data.
+     */
+    private byte[] buffer;
+    
+    /**
+     * The number of bytes in the current buffer.
+     */
+    private int position = 0;
+    
+    /**
+     * The ID of the multipart upload or null if it has not been started.
+     */
+    private String uploadId = null;
+    
+    /**
+     * Whether the stream has been closed or aborted.
+     */
+    private boolean closed = false;
+    
+    /**
+     * Initializes a new instance of the S3MultipartOutputStream class.
+     * @param client The client used to upload the data.
+     * @param bucketName The name of the bucket to upload to.
+     * @param key The key of the object in the bucket.
+     * @param acl The access control list applied to the object.
+     * @param partSize The size of each part uploaded.
+     * @param partsInFlight The number of parts which may upload while the
+     * next part is being filled.
+     */
+    public S3MultipartOutputStream(AmazonS3 client, String bucketName, String key, CannedAccessControlList acl, int partSize, int partsInFlight) {
+        if (partSize < 1) {
+            throw new IllegalArgumentException("The part size must be positive.");
+        }
+        if (partsInFlight < 1) {
+            throw new IllegalArgumentException("At least one part must be allowed to upload.");
+        }
+        
+        this.client = client;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.acl = acl;
+        this.partSize = partSize;
+        this.maxBuffers = partsInFlight + 1;
+        this.freeBuffers = new ArrayBlockingQueue<>(this.maxBuffers);
+        this.uploader = Executors.newFixedThreadPool(partsInFlight);
+        this.buffer = new byte[partSize];
+        this.allocatedBuffers = 1;
+    }
+    
+    @Override
+    public void write(int b) throws IOException {
+        this.ensureOpen();
+        this.buffer[this.position++] = (byte)b;
+        if (this.position == this.partSize) {
+            this.uploadBuffer();
+        }
+    }
+    
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        this.ensureOpen();
+        while (len > 0) {
+            int toCopy = Math.min(len, this.partSize - this.position);
+            System.arraycopy(b, off, this.buffer, this.position, toCopy);
+            this.position += toCopy;
+            off += toCopy;
+            len -= toCopy;
+            if (this.position == this.partSize) {
+                this.uploadBuffer();
+            }
+        }
+    }
+    
+    /**
+     * Uploads any remaining data and completes the upload. If the upload
+     * fails it is aborted so no partial object is created.
+     * @throws IOException If the upload fails.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        
+        try {
+            if (this.uploadId == null) {
+                // all data fit in one part so upload it with a single request
+                ObjectMetadata metadata = new ObjectMetadata();
+                metadata.setContentLength(this.position);
+                PutObjectRequest req = new PutObjectRequest(
+                        this.bucketName,
+                        this.key,
+                        new ByteArrayInputStream(this.buffer, 0, this.position),
+                        metadata);
+                req.setCannedAcl(this.acl);
+                this.client.putObject(req);
+            } else {
+                if (this.position > 0) {
+                    this.uploadBuffer();
+                }
+                
+                // wait for every part to finish in order
+                List<PartETag> tags = new ArrayList<>();
+                for (Future<PartETag> part : this.parts) {
+                    tags.add(part.get());
+                }
+                
+                this.client.completeMultipartUpload(new CompleteMultipartUploadRequest(
+                        this.bucketName, this.key, this.uploadId, tags));
+            }
+            this.closed = true;
+            this.uploader.shutdown();
+        } catch (AmazonClientException | ExecutionException ex) {
+            LOGGER.error("Exception uploading " + this.key, ex);
+            this.abort();
+            throw new IOException("Exception uploading " + this.key, ex);
+        } catch (InterruptedException ex) {
+            // keep the interrupt for the caller after discarding the upload
+            this.abort();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted uploading " + this.key);
+        } catch (IOException ex) {
+            this.abort();
+            throw ex;
+        }
+    }
+    
+    /**
+     * Stops the upload and discards any data which has been uploaded.
+     */
+    public void abort() {
+        if (this.closed) {
+            return;
+        }
+        
+        this.closed = true;
+        this.uploader.shutdownNow();
+        if (this.uploadId != null) {
+            try {
+                this.client.abortMultipartUpload(new AbortMultipartUploadRequest(
+                        this.bucketName, this.key, this.uploadId));
+            } catch (AmazonClientException ex) {
+                LOGGER.error("Exception aborting upload of " + this.key, ex);
+            }
+        }
+    }
+    
+    /**
+     * Starts uploading the current buffer as the next part and gets a buffer
+     * to continue writing to, waiting for an upload to finish if all of the
+     * buffers are in use.
+     * @throws IOException If the upload could not be started or a previous
+     * part failed to upload.
+     */
+    private void uploadBuffer() throws IOException {
+        try {
+            if (this.uploadId == null) {
+                InitiateMultipartUploadRequest req = new InitiateMultipartUploadRequest(this.bucketName, this.key);
+                req.setCannedACL(this.acl);
+                this.uploadId = this.client.initiateMultipartUpload(req).getUploadId();
+            }
+        } catch (AmazonClientException ex) {
+            LOGGER.error("Exception starting upload of " + this.key, ex);
+            throw new IOException("Exception starting upload of " + this.key, ex);
+        }
+        
+        // stop writing as soon as any part has failed
+        for (Future<PartETag> part : this.parts) {
+            if (part.isDone()) {
+                try {
+                    part.get();
+                } catch (ExecutionException ex) {
+                    throw new IOException("Exception uploading " + this.key, ex);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted uploading " + this.key);
+                }
+            }
+        }
+        
+        byte[] data = this.buffer;
+        int length = this.position;
+        UploadPartRequest req = new UploadPartRequest()
+                .withBucketName(this.bucketName)
+                .withKey(this.key)
+                .withUploadId(this.uploadId)
+                .withPartNumber(this.parts.size() + 1)
+                .withInputStream(new ByteArrayInputStream(data, 0, length))
+                .withPartSize(length);
+        this.parts.add(this.uploader.submit(() -> {
+            try {
+                return this.client.uploadPart(req).getPartETag();
+            } finally {
+                this.freeBuffers.offer(data);
+            }
+        }));
+        
+        // reuse a finished buffer, allocate one if under the limit, or wait
+        byte[] next = this.freeBuffers.poll();
+        if (next == null && this.allocatedBuffers < this.maxBuffers) {
+            next = new byte[this.partSize];
+            this.allocatedBuffers++;
+        }
+        if (next == null) {
+            try {
+                next = this.freeBuffers.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for upload of " + this.key);
+            }
+        }
+        this.buffer = next;
+        this.position = 0;
+    }
+    
+    /**
+     * Throws an exception if the stream has been closed.
+     * @throws IOException If the stream has been closed.
+     */
+    private void ensureOpen() throws IOException {
+        if (this.closed) {
+            throw new IOException("The upload stream is closed.");
+        }
+    }
+}
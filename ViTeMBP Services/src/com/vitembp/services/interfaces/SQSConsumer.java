@@ -0,0 +1,382 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.interfaces;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.amazonaws.services.sqs.model.CreateQueueRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Consumes messages from an Amazon SQS queue in batches. Each receive long
+ * polls for up to ten messages, which are handed to handler threads that
+ * submit their work to the job scheduler. The visibility timeout of messages
+ * being handled is extended periodically so long running jobs are not
+ * delivered again, and handled messages are deleted in batches.
+ */
+public class SQSConsumer {
+    /**
+     * Class logger instance.
+     */
+    private static final Logger LOGGER = LogManager.getLogger();
+    
+    /**
+     * The largest number of messages SQS returns or accepts in one request.
+     */
+    static final int BATCH_SIZE = 10;
+    
+    /**
+     * The time in seconds a receive waits for messages to arrive.
+     */
+    private static final int WAIT_TIME_SECONDS = 20;
+    
+    /**
+     * The client used to access the queue.
+     */
+    private final AmazonSQS sqsClient;
+    
+    /**
+     * The name of the queue to consume.
+     */
+    private final String queueName;
+    
+    /**
+     * The function which handles message bodies.
+     */
+    private final Consumer<String> handler;
+    
+    /**
+     * The visibility timeout in seconds of received messages.
+     */
+    private final int visibilityTimeout;
+    
+    /**
+     * Limits the number of messages being handled at once.
+     */
+    private final Semaphore inFlightPermits;
+    
+    /**
+     * The receipt handles of the messages being handled. Receipt handles are
+     * used rather than message IDs as a message which is delivered again
+     * while it is being handled has the same ID but a new receipt handle.
+     */
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * The receipt handles of handled messages waiting to be deleted.
+     */
+    private final ConcurrentLinkedQueue<String> toDelete = new ConcurrentLinkedQueue<>();
+    
+    /**
+     * Lock held while deleting handled messages. This is separate from the
+     * instance lock held by stop while it waits for the handlers, which
+     * delete the messages they handled.
+     */
+    private final Object deleteLock = new Object();
+    
+    /**
+     * The threads which handle messages.
+     */
+    private final ExecutorService handlers;
+    
+    /**
+     * Runs the periodic visibility extension and delete flushes.
+     */
+    private final ScheduledExecutorService maintenance;
+    
+    /**
+     * The thread which receives messages.
+     */
+    private Thread receiveThread;
+    
+    /**
+     * The URL to use when accessing the queue.
+     */
+    private String queueUrl = null;
+    
+    /**
+     * Flag indicating whether the instance is running.
+     */
+    private volatile boolean isRunning = false;
+    
+    /**
+     * Initializes a new instance of the SQSConsumer class.
+     * @param sqsClient The client used to access the queue.
+     * @param queueName The name of the queue to consume.
+     * @param handler The function which handles message bodies.
+     * @param maxInFlight The largest number of messages handled at once.
+     * @param visibilityTimeout The visibility timeout in seconds of received
+     * messages, which is extended while they are being handled.
+     */
+    public SQSConsumer(AmazonSQS sqsClient, String queueName, Consumer<String> handler, int maxInFlight, int visibilityTimeout) {
+        this.sqsClient = sqsClient;
+        this.queueName = queueName;
+        this.handler = handler;
+        this.visibilityTimeout = visibilityTimeout;
+        this.inFlightPermits = new Semaphore(maxInFlight);
+        this.handlers = Executors.newFixedThreadPool(maxInFlight, (r) -> {
+            Thread thread = new Thread(r);
+            thread.setName("SQS Consumer Handler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maintenance = Executors.newSingleThreadScheduledExecutor((r) -> {
+            Thread thread = new Thread(r);
+            thread.setName("SQS Consumer Maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Starts consuming messages.
+     */
+    public synchronized void start() {
+        if (!this.isRunning) {
+            this.isRunning = true;
+            
+            // extend visibility well before it runs out
+            long period = Math.max(100, this.visibilityTimeout * 1000L / 3);
+            this.maintenance.scheduleWithFixedDelay(this::maintain, period, period, TimeUnit.MILLISECONDS);
+            
+            this.receiveThread = new Thread(this::receiveMessages);
+            this.receiveThread.setName("SQS Consumer Receive");
+            this.receiveThread.start();
+            LOGGER.info("SQSConsumer service started.");
+        }
+    }
+    
+    /**
+     * Stops receiving messages, waits for messages being handled to complete,
+     * and deletes them.
+     */
+    public synchronized void stop() {
+        if (this.isRunning) {
+            this.isRunning = false;
+            try {
+                this.receiveThread.join();
+                this.handlers.shutdown();
+                this.handlers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                LOGGER.error("Interrupted waiting for message handling to complete.", ex);
+            }
+            this.maintenance.shutdown();
+            this.flushDeletes(true);
+            LOGGER.info("SQSConsumer service stopped.");
+        }
+    }
+    
+    /**
+     * Gets the number of messages being handled.
+     * @return The number of messages being handled.
+     */
+    public int getInFlightCount() {
+        return this.inFlight.size();
+    }
+    
+    /**
+     * Attempts to create the queue to consume.
+     */
+    private void createQueue() {
+        // if the queue was not yet created
+        if (this.queueUrl == null) {
+            this.sqsClient.createQueue(new CreateQueueRequest().withQueueName(this.queueName).addAttributesEntry("ReceiveMessageWaitTimeSeconds", Integer.toString(WAIT_TIME_SECONDS)));
+            this.queueUrl = this.sqsClient.getQueueUrl(this.queueName).getQueueUrl();
+        }
+    }
+    
+    /**
+     * Receives messages and dispatches them to the handlers until stopped.
+     */
+    private void receiveMessages() {
+        // parameters of an increasing backoff in case of errors to
+        // prevent excessive retry rate
+        int startErrorBackoff = 200;
+        int errorBackoff = startErrorBackoff;
+        float errorFactor = 2;
+        int errorMax = 5000;
+        
+        while (this.isRunning) {
+            int permits = 0;
+            try {
+                // only receive as many messages as can be handled
+                this.inFlightPermits.acquire();
+                permits = 1 + this.inFlightPermits.drainPermits();
+                if (!this.isRunning) {
+                    this.inFlightPermits.release(permits);
+                    return;
+                }
+                if (permits > BATCH_SIZE) {
+                    this.inFlightPermits.release(permits - BATCH_SIZE);
+                    permits = BATCH_SIZE;
+                }
+                
+                // create the queue in this try-block so if the service starts
+                // when a connection is not available it will cleanly retry
+                this.createQueue();
+                
+                List<Message> messages = this.sqsClient.receiveMessage(new ReceiveMessageRequest(this.queueUrl)
+                        .withMaxNumberOfMessages(permits)
+                        .withVisibilityTimeout(this.visibilityTimeout)
+                        .withWaitTimeSeconds(WAIT_TIME_SECONDS)).getMessages();
+                
+                // return permits for messages which were not received
+                this.inFlightPermits.release(permits - messages.size());
+                permits = 0;
+                
+                for (Message msg : messages) {
+                    this.inFlight.add(msg.getReceiptHandle());
+                    this.handlers.execute(() -> this.handle(msg));
+                }
+                
+                // reset error backoff on success
+                errorBackoff = startErrorBackoff;
+            } catch (InterruptedException ex) {
+                LOGGER.error("Interrupted waiting for message handlers.", ex);
+                return;
+            } catch (Exception e) {
+                this.inFlightPermits.release(permits);
+                LOGGER.error("Unexpected Exception processing SQS queue.", e);
+                
+                // wait for the backoff period to prevent retry flooding
+                try {
+                    LOGGER.error("Backing off for " + Integer.toString(errorBackoff) + "ms.");
+                    Thread.sleep(errorBackoff);
+                } catch (InterruptedException ex) {
+                    LOGGER.error("Interrupted while waiting for backoff on SQS queue failure.", ex);
+                }
+                
+                // increase backoff factor until it is at the max value
+                errorBackoff *= errorFactor;
+                if (errorBackoff > errorMax) {
+                    errorBackoff = errorMax;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Handles a message and queues it for deletion.
+     * @param msg The message to handle.
+     */
+    private void handle(Message msg) {
+        try {
+            this.handler.accept(msg.getBody());
+        } catch (Exception ex) {
+            LOGGER.error("Unexpected exception handling SQS message: " + msg.getBody(), ex);
+        } finally {
+            // failed messages are deleted as well, as they would fail again
+            this.inFlight.remove(msg.getReceiptHandle());
+            this.toDelete.add(msg.getReceiptHandle());
+            this.inFlightPermits.release();
+            
+            // full batches are sent right away and a partial batch is sent
+            // once nothing else is being handled
+            this.flushDeletes(this.inFlight.isEmpty());
+        }
+    }
+    
+    /**
+     * Extends the visibility of messages being handled and deletes handled
+     * messages.
+     */
+    private void maintain() {
+        try {
+            this.extendVisibility();
+            this.flushDeletes(true);
+        } catch (Exception ex) {
+            LOGGER.error("Unexpected exception maintaining SQS messages.", ex);
+        }
+    }
+    
+    /**
+     * Resets the visibility timeout of all messages being handled.
+     */
+    private void extendVisibility() {
+        List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>();
+        for (String receipt : this.inFlight) {
+            entries.add(new ChangeMessageVisibilityBatchRequestEntry(Integer.toString(entries.size()), receipt).withVisibilityTimeout(this.visibilityTimeout));
+            if (entries.size() == BATCH_SIZE) {
+                this.changeVisibility(entries);
+                entries.clear();
+            }
+        }
+        
+        if (!entries.isEmpty()) {
+            this.changeVisibility(entries);
+        }
+    }
+    
+    /**
+     * Sends a batch of visibility changes.
+     * @param entries The visibility changes.
+     */
+    private void changeVisibility(List<ChangeMessageVisibilityBatchRequestEntry> entries) {
+        ChangeMessageVisibilityBatchResult result = this.sqsClient.changeMessageVisibilityBatch(this.queueUrl, entries);
+        for (BatchResultErrorEntry error : result.getFailed()) {
+            LOGGER.error("Could not extend visibility of message: " + error.getMessage());
+        }
+    }
+    
+    /**
+     * Deletes handled messages in batches.
+     * @param partial Whether a batch smaller than the batch size should be
+     * sent.
+     */
+    private void flushDeletes(boolean partial) {
+        synchronized (this.deleteLock) {
+            while (this.toDelete.size() >= BATCH_SIZE || (partial && !this.toDelete.isEmpty())) {
+                List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>();
+                String receipt;
+                while (entries.size() < BATCH_SIZE && (receipt = this.toDelete.poll()) != null) {
+                    entries.add(new DeleteMessageBatchRequestEntry(Integer.toString(entries.size()), receipt));
+                }
+                
+                try {
+                    DeleteMessageBatchResult result = this.sqsClient.deleteMessageBatch(this.queueUrl, entries);
+                    for (BatchResultErrorEntry error : result.getFailed()) {
+                        LOGGER.error("Could not delete message: " + error.getMessage());
+                    }
+                } catch (Exception ex) {
+                    // the messages are put back to be retried with the next batch
+                    LOGGER.error("Exception deleting SQS messages.", ex);
+                    entries.forEach(entry -> this.toDelete.add(entry.getReceiptHandle()));
+                    return;
+                }
+            }
+        }
+    }
+}
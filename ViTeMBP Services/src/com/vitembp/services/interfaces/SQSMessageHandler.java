@@ -0,0 +1,196 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.interfaces;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.vitembp.services.ApiFunctions;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Handles the bodies of messages from the services SQS queue. A message is
+ * either a command, or "FROMUUID [location]" where the location in the DATA
+ * table holds "[response location] [command]" and the result of the command
+ * is written to the response location.
+ */
+public class SQSMessageHandler implements Consumer<String> {
+    /**
+     * Class logger instance.
+     */
+    private static final Logger LOGGER = LogManager.getLogger();
+    
+    /**
+     * The function which processes commands and returns their results.
+     */
+    private final Function<String, String> parser;
+    
+    /**
+     * The client for the store where commands are located.
+     */
+    private final AmazonDynamoDB client;
+    
+    /**
+     * Initializes a new instance of the SQSMessageHandler class.
+     * @param functions The API functions used to process commands.
+     */
+    public SQSMessageHandler(ApiFunctions functions) {
+        this((cmd) -> SQSTarget.parseCommand(cmd, functions), AmazonDynamoDBClient.builder().build());
+    }
+    
+    /**
+     * Initializes a new instance of the SQSMessageHandler class.
+     * @param parser The function which processes commands and returns their
+     * results.
+     * @param client The client for the store where commands are located.
+     */
+    SQSMessageHandler(Function<String, String> parser, AmazonDynamoDB client) {
+        this.parser = parser;
+        this.client = client;
+    }
+    
+    @Override
+    public void accept(String toProcess) {
+        LOGGER.info("Processing services queue message: " + toProcess);
+        
+        if (!toProcess.toUpperCase().startsWith("FROMUUID")) {
+            LOGGER.info("Command result: " + this.parser.apply(toProcess));
+            return;
+        }
+        
+        // from must be "FROMUUID [UUID LOCATION]"
+        String[] split = toProcess.split(" ");
+        if (split.length != 2) {
+            LOGGER.error("Invalid format processing FROMUUID command.");
+            return;
+        }
+        
+        UUID location;
+        try {
+            location = UUID.fromString(split[1]);
+        } catch (IllegalArgumentException ex) {
+            LOGGER.error("UUID location is not valid.", ex);
+            return;
+        }
+        
+        String uuidCommand;
+        try {
+            uuidCommand = this.readData(location);
+            if (uuidCommand == null) {
+                LOGGER.error("Could not get value from database for location: " + location.toString());
+                return;
+            }
+            this.deleteData(location);
+        } catch (IOException ex) {
+            LOGGER.error("Could not read command from database store while processing FROMUUID command.", ex);
+            return;
+        }
+        
+        LOGGER.info("Processing command from database: " + uuidCommand);
+        if (uuidCommand.length() < 37) {
+            LOGGER.error("Command not of form: \"[UUID] [COMMAND]\".");
+            return;
+        }
+        
+        UUID responseLocation;
+        try {
+            responseLocation = UUID.fromString(uuidCommand.substring(0, 36));
+        } catch (IllegalArgumentException ex) {
+            LOGGER.error("UUID location is not valid.", ex);
+            return;
+        }
+        
+        String result = this.parser.apply(uuidCommand.substring(37));
+        LOGGER.info("Command result: " + result);
+        try {
+            this.writeData(responseLocation, result);
+        } catch (IOException ex) {
+            LOGGER.error("Could not write result of proccsing FROMUUID command.", ex);
+        }
+    }
+    
+    /**
+     * Reads a value from the DATA table.
+     * @param location The location to read VALUE from in the table.
+     * @return The value or null if the location has no value.
+     * @throws IOException If an error occurs reading the data.
+     */
+    private String readData(UUID location) throws IOException {
+        try {
+            GetItemResult result = this.client.getItem(new GetItemRequest()
+                    .withTableName("DATA")
+                    .withKey(key(location))
+                    .withAttributesToGet("VALUE"));
+            if (result == null || result.getItem() == null || !result.getItem().containsKey("VALUE")) {
+                return null;
+            }
+            return result.getItem().get("VALUE").getS();
+        } catch (Exception ex) {
+            throw new IOException("Unexpected exception reading from location: " + location.toString(), ex);
+        }
+    }
+    
+    /**
+     * Deletes a value from the DATA table.
+     * @param location The location to delete in the table.
+     * @throws IOException If an error occurs deleting the data.
+     */
+    private void deleteData(UUID location) throws IOException {
+        try {
+            this.client.deleteItem("DATA", key(location));
+        } catch (Exception ex) {
+            throw new IOException("Unexpected exception deleting data from location: " + location.toString(), ex);
+        }
+    }
+    
+    /**
+     * Writes a value to the DATA table.
+     * @param location The location to write in the table.
+     * @param toWrite The data to write to the table row.
+     * @throws IOException If an error occurs writing the data.
+     */
+    private void writeData(UUID location, String toWrite) throws IOException {
+        try {
+            Map<String, AttributeValue> item = key(location);
+            item.put("VALUE", new AttributeValue().withS(toWrite));
+            this.client.putItem("DATA", item);
+        } catch (Exception ex) {
+            throw new IOException("Unexpected exception writing to location: " + location.toString(), ex);
+        }
+    }
+    
+    /**
+     * Builds the key of a location in the DATA table.
+     * @param location The location.
+     * @return The key of the location.
+     */
+    private static Map<String, AttributeValue> key(UUID location) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("ID", new AttributeValue().withS(location.toString()));
+        return key;
+    }
+}
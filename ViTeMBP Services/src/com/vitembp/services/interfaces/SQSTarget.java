@@ -18,6 +18,7 @@
 package com.vitembp.services.interfaces;
 
 import com.vitembp.services.ApiFunctions;
+import com.vitembp.services.data.CaptureExporter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -44,28 +45,38 @@ public class SQSTarget {
         LOGGER.info("Processing SQS message: " + cmd);
         
         if (cmd.toUpperCase().startsWith("CAPTUREGRAPHDATACSV")) {
-            if (cmd.length() != 56) {
-                return "Capture summary command must be of form: \"capturesummarycsv [capture uuid]\".";
+            String[] splitCmd = cmd.split(" ");
+            if (cmd.length() < 56 || (splitCmd.length != 2 && splitCmd.length != 3 && splitCmd.length != 5)) {
+                return "Capture graph data command must be of form: \"capturegraphdatacsv [capture uuid] [points] [start seconds] [end seconds]\" where the points and window are optional.";
             }
             
-            UUID capture = UUID.fromString(cmd.substring(20));
+            UUID capture = UUID.fromString(splitCmd[1]);
             
             try {
-                return functions.calculageGraphDataCsv(capture, 400);
+                int points = splitCmd.length > 2 ? Integer.parseInt(splitCmd[2]) : 400;
+                if (splitCmd.length == 5) {
+                    return functions.calculageGraphDataCsv(capture, points, Double.parseDouble(splitCmd[3]), Double.parseDouble(splitCmd[4]));
+                }
+                return functions.calculageGraphDataCsv(capture, points);
             } catch (Exception ex) {
                 LOGGER.error("Exception while calculating graph data for capture.", ex);
                 return "Could not create graph data for capture.";
             }
             
         } else if (cmd.toUpperCase().startsWith("CAPTUREGRAPHDATA")) {
-            if (cmd.length() != 53) {
-                return "Capture summary command must be of form: \"capturesummary [capture uuid]\".";
+            String[] splitCmd = cmd.split(" ");
+            if (cmd.length() < 53 || (splitCmd.length != 2 && splitCmd.length != 3 && splitCmd.length != 5)) {
+                return "Capture graph data command must be of form: \"capturegraphdata [capture uuid] [points] [start seconds] [end seconds]\" where the points and window are optional.";
             }
             
-            UUID capture = UUID.fromString(cmd.substring(17));
+            UUID capture = UUID.fromString(splitCmd[1]);
             
             try {
-                return functions.calculageGraphData(capture, 400);
+                int points = splitCmd.length > 2 ? Integer.parseInt(splitCmd[2]) : 400;
+                if (splitCmd.length == 5) {
+                    return functions.calculageGraphData(capture, points, Double.parseDouble(splitCmd[3]), Double.parseDouble(splitCmd[4]));
+                }
+                return functions.calculageGraphData(capture, points);
             } catch (Exception ex) {
                 LOGGER.error("Exception while calculating graph data for capture.", ex);
                 return "Could not create graph data for capture.";
@@ -84,6 +95,19 @@ public class SQSTarget {
                 LOGGER.error("Exception while summarizing capture.", ex);
                 return "Could not summarize capture.";
             }
+        } else if (cmd.toUpperCase().startsWith("JOBSTATUS")) {
+            return functions.getJobStatus();
+        } else if (cmd.toUpperCase().startsWith("CANCEL")) {
+            if (cmd.length() != 43) {
+                return "Cancel command must be of form: \"cancel [capture uuid]\".";
+            }
+            
+            try {
+                return functions.cancelJobs(UUID.fromString(cmd.substring(7)));
+            } catch (Exception ex) {
+                LOGGER.error("Exception while cancelling capture jobs.", ex);
+                return "Could not cancel capture jobs.";
+            }
         } else if (cmd.toUpperCase().startsWith("DELETE")) {
             if (cmd.length() != 43) {
                 return "Delete command must be of form: \"delete [capture uuid]\".";
@@ -99,38 +123,44 @@ public class SQSTarget {
             }
         } else if (cmd.toUpperCase().startsWith("EXPORTRAW")) {
             if (cmd.length() < 48) {
-                return "Export raw command must be of form: \"exportraw [capture uuid] [outputbucket]\".";
+                return "Export raw command must be of form: \"exportraw [capture uuid] [outputbucket] [csv|json] [gzip]\" where the format and compression are optional.";
             }
             
             String[] splitCmd = cmd.split(" ");
             
             if (splitCmd.length < 3) {
-                return "Export raw command must be of form: \"exportraw [capture uuid] [outputbucket]\".";
+                return "Export raw command must be of form: \"exportraw [capture uuid] [outputbucket] [csv|json] [gzip]\" where the format and compression are optional.";
             }
             
             UUID toProcess = UUID.fromString(splitCmd[1]);
             
             try {
-                return functions.exportRaw(toProcess, splitCmd[2]);
+                // the format and compression are optional
+                CaptureExporter.Format format = splitCmd.length > 3 ? CaptureExporter.Format.valueOf(splitCmd[3].toUpperCase()) : CaptureExporter.Format.CSV;
+                boolean compress = splitCmd.length > 4 && "GZIP".equals(splitCmd[4].toUpperCase());
+                return functions.exportRaw(toProcess, splitCmd[2], format, compress);
             } catch (Exception ex) {
                 LOGGER.error("Exception while exporting raw capture data.", ex);
                 return "Could not export raw capture data.";
             }
         } else if (cmd.toUpperCase().startsWith("EXPORTCAL")) {
             if (cmd.length() < 48) {
-                return "Export cal command must be of form: \"exportcal [capture uuid] [outputbucket]\".";
+                return "Export cal command must be of form: \"exportcal [capture uuid] [outputbucket] [csv|json] [gzip]\" where the format and compression are optional.";
             }
             
             String[] splitCmd = cmd.split(" ");
             
             if (splitCmd.length < 3) {
-                return "Export cal command must be of form: \"exportcal [capture uuid] [outputbucket]\".";
+                return "Export cal command must be of form: \"exportcal [capture uuid] [outputbucket] [csv|json] [gzip]\" where the format and compression are optional.";
             }
             
             UUID toProcess = UUID.fromString(splitCmd[1]);
             
             try {
-                return functions.exportCal(toProcess, splitCmd[2]);
+                // the format and compression are optional
+                CaptureExporter.Format format = splitCmd.length > 3 ? CaptureExporter.Format.valueOf(splitCmd[3].toUpperCase()) : CaptureExporter.Format.CSV;
+                boolean compress = splitCmd.length > 4 && "GZIP".equals(splitCmd[4].toUpperCase());
+                return functions.exportCal(toProcess, splitCmd[2], format, compress);
             } catch (Exception ex) {
                 LOGGER.error("Exception while exporting cal capture data.", ex);
                 return "Could not export cal capture data.";
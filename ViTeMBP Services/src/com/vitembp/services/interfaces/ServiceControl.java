@@ -17,7 +17,7 @@
  */
 package com.vitembp.services.interfaces;
 
-import com.vitembp.embedded.interfaces.AmazonSQSControl;
+import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
 import com.vitembp.services.ApiFunctions;
 import com.vitembp.services.config.ServicesConfig;
 import java.io.IOException;
@@ -60,11 +60,14 @@ public class ServiceControl {
      */
     private static boolean startSqsService(final ApiFunctions functions, String name) {
         try {
-            // create the SQS interface
-            AmazonSQSControl sqs = new AmazonSQSControl(
+            // the handler parses commands, including those stored in the
+            // database, while the consumer receives and acknowledges them
+            SQSConsumer sqs = new SQSConsumer(
+                    AmazonSQSClientBuilder.defaultClient(),
                     name,
-                    (cmd) -> SQSTarget.parseCommand(cmd, functions),
-                    4);
+                    new SQSMessageHandler(functions),
+                    16,
+                    120);
             sqs.start();
         } catch (Exception ex) {
             LOGGER.error("Unexpected exception starting SQS service.", ex);
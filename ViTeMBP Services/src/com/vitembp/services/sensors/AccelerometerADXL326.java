@@ -20,7 +20,7 @@ package com.vitembp.services.sensors;
 import com.vitembp.embedded.data.Sample;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.function.Function;
+import java.util.function.DoubleUnaryOperator;
 
 /**
  * Sensor driver for the ADXL326 16G accelerometer.
@@ -39,17 +39,17 @@ public class AccelerometerADXL326 extends AccelerometerThreeAxis {
     /**
      * The function which applies the calibration data.
      */
-    private final Function<Double, Double> calFunctionX;
+    private final DoubleUnaryOperator calFunctionX;
     
     /**
      * The function which applies the calibration data.
      */
-    private final Function<Double, Double> calFunctionY;
+    private final DoubleUnaryOperator calFunctionY;
     
     /**
      * The function which applies the calibration data.
      */
-    private final Function<Double, Double> calFunctionZ;
+    private final DoubleUnaryOperator calFunctionZ;
     
     /**
      * Initializes a new instance of the AccelerometerADXL326 class.
@@ -94,62 +94,41 @@ public class AccelerometerADXL326 extends AccelerometerThreeAxis {
 
     @Override
     public Optional<Double> getXAxisG(Sample toDecode) {
-        String data = this.getData(toDecode);
-        
-        // handle missing samples
-        if (data == null || "".equals(data)) {
-            return Optional.empty();
-        }
-        
-        String[] values = data.split(",");
-        if (values.length < 3) {
-            throw new IllegalStateException("Invalid data found parsing ADXL326 X axis, \"" + data + "\"");
-        }
-        String trimmed = values[0].trim().substring(1);
-        double value = Double.parseDouble(trimmed);
-        
-        // return calibrated value
-        return Optional.of(this.calFunctionX.apply(value));
+        return this.decodeChannel(toDecode, X_AXIS);
     }
 
     @Override
     public Optional<Double> getYAxisG(Sample toDecode) {
-        String data = this.getData(toDecode);
-        
-        // handle missing samples
-        if (data == null || "".equals(data)) {
-            return Optional.empty();
-        }
-        
-        String[] values = data.split(",");
-        if (values.length < 3) {
-            throw new IllegalStateException("Invalid data found parsing ADXL326 Y axis, \"" + data + "\"");
-        }
-        String trimmed = values[1].trim();
-        double value = Double.parseDouble(trimmed);
-        
-        // return calibrated value
-        return Optional.of(this.calFunctionY.apply(value));
+        return this.decodeChannel(toDecode, Y_AXIS);
     }
 
     @Override
     public Optional<Double> getZAxisG(Sample toDecode) {
+        return this.decodeChannel(toDecode, Z_AXIS);
+    }
+
+    @Override
+    public void decode(Sample toDecode, double[] values) {
         String data = this.getData(toDecode);
         
         // handle missing samples
         if (data == null || "".equals(data)) {
-            return Optional.empty();
+            values[X_AXIS] = Double.NaN;
+            values[Y_AXIS] = Double.NaN;
+            values[Z_AXIS] = Double.NaN;
+            return;
         }
         
-        String[] values = data.split(",");
-        if (values.length < 3) {
-            throw new IllegalStateException("Invalid data found parsing ADXL326 Z axis, \"" + data + "\"");
+        // data is of the form "(x,y,z)"
+        String[] split = data.split(",");
+        if (split.length < 3) {
+            throw new IllegalStateException("Invalid data found parsing ADXL326 axes, \"" + data + "\"");
         }
-        String trimmed = values[2].trim();
-        trimmed = trimmed.substring(0, trimmed.length() - 1);
-        double value = Double.parseDouble(trimmed);
+        String trimmed = split[2].trim();
         
-        // return calibrated value
-        return Optional.of(this.calFunctionZ.apply(value));
+        // store calibrated values
+        values[X_AXIS] = this.calFunctionX.applyAsDouble(Double.parseDouble(split[0].trim().substring(1)));
+        values[Y_AXIS] = this.calFunctionY.applyAsDouble(Double.parseDouble(split[1].trim()));
+        values[Z_AXIS] = this.calFunctionZ.applyAsDouble(Double.parseDouble(trimmed.substring(0, trimmed.length() - 1)));
     }
 }
@@ -47,47 +47,36 @@ class AccelerometerFXOS8700CQSerial extends AccelerometerThreeAxis {
 
     @Override
     public Optional<Double> getXAxisG(Sample toDecode) {
-        String data = this.getData(toDecode);
-        
-        // handle missing samples
-        if (data == null || "".equals(data)) {
-            return Optional.empty();
-        }
-        
-        String[] values = data.split(",");
-        String trimmed = values[0].trim().substring(1);
-        double value = Double.parseDouble(trimmed);
-        return Optional.of(value);
+        return this.decodeChannel(toDecode, X_AXIS);
     }
 
     @Override
     public Optional<Double> getYAxisG(Sample toDecode) {
-        String data = this.getData(toDecode);
-        
-        // handle missing samples
-        if (data == null || "".equals(data)) {
-            return Optional.empty();
-        }
-        
-        String[] values = data.split(",");
-        String trimmed = values[1].trim();
-        double value = Double.parseDouble(trimmed);
-        return Optional.of(value);
+        return this.decodeChannel(toDecode, Y_AXIS);
     }
 
     @Override
     public Optional<Double> getZAxisG(Sample toDecode) {
+        return this.decodeChannel(toDecode, Z_AXIS);
+    }
+
+    @Override
+    public void decode(Sample toDecode, double[] values) {
         String data = this.getData(toDecode);
         
         // handle missing samples
         if (data == null || "".equals(data)) {
-            return Optional.empty();
+            values[X_AXIS] = Double.NaN;
+            values[Y_AXIS] = Double.NaN;
+            values[Z_AXIS] = Double.NaN;
+            return;
         }
         
-        String[] values = data.split(",");
-        String trimmed = values[2].trim();
-        trimmed = trimmed.substring(0, trimmed.length() - 1);
-        double value = Double.parseDouble(trimmed);
-        return Optional.of(value);
+        // data is of the form "(x,y,z)"
+        String[] split = data.split(",");
+        values[X_AXIS] = Double.parseDouble(split[0].trim().substring(1));
+        values[Y_AXIS] = Double.parseDouble(split[1].trim());
+        String trimmed = split[2].trim();
+        values[Z_AXIS] = Double.parseDouble(trimmed.substring(0, trimmed.length() - 1));
     }
 }
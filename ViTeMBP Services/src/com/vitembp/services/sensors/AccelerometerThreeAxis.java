@@ -24,6 +24,21 @@ import java.util.Optional;
  * A class providing an interface to a three axis accelerometer sensor.
  */
 public abstract class AccelerometerThreeAxis extends Sensor {
+    /**
+     * The channel of the X axis acceleration in Gs.
+     */
+    public static final int X_AXIS = 0;
+    
+    /**
+     * The channel of the Y axis acceleration in Gs.
+     */
+    public static final int Y_AXIS = 1;
+    
+    /**
+     * The channel of the Z axis acceleration in Gs.
+     */
+    public static final int Z_AXIS = 2;
+    
     /**
      * Initializes a new instance of the AccelerometerThreeAxis class.
      * @param name The name of the sensor.
@@ -31,6 +46,12 @@ public abstract class AccelerometerThreeAxis extends Sensor {
     protected AccelerometerThreeAxis(String name) {
         super(name);
     }
+    
+    @Override
+    public int getChannelCount() {
+        return 3;
+    }
+    
     /**
      * Gets the acceleration in the X axis in Gs.
      * @param toDecode The sample containing data to decode.
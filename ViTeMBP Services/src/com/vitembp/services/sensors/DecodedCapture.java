@@ -0,0 +1,166 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.sensors;
+
+import com.vitembp.embedded.data.Capture;
+import com.vitembp.embedded.data.Sample;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * The calibrated values of a capture decoded once into primitive columns.
+ * Each sensor has a column for each of its channels holding the value of
+ * every sample, with NaN for missing readings. Consumers which read values
+ * several times, such as overlays and statistics, read them from the columns
+ * instead of parsing the sample data again.
+ */
+public class DecodedCapture {
+    /**
+     * The initial capacity of the columns.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+    
+    /**
+     * The sensors which decoded the data keyed by name.
+     */
+    private final Map<String, Sensor> sensors;
+    
+    /**
+     * The columns of each sensor keyed by sensor name and indexed by channel.
+     */
+    private final Map<String, double[][]> columns;
+    
+    /**
+     * The number of samples decoded.
+     */
+    private int sampleCount = 0;
+    
+    /**
+     * Initializes a new instance of the DecodedCapture class.
+     * @param sensors The sensors which decode the data keyed by name.
+     */
+    private DecodedCapture(Map<String, Sensor> sensors) {
+        this.sensors = Collections.unmodifiableMap(new LinkedHashMap<>(sensors));
+        this.columns = new LinkedHashMap<>();
+        sensors.forEach((name, sensor) -> {
+            double[][] sensorColumns = new double[sensor.getChannelCount()][];
+            for (int i = 0; i < sensorColumns.length; i++) {
+                sensorColumns[i] = new double[INITIAL_CAPACITY];
+            }
+            this.columns.put(name, sensorColumns);
+        });
+    }
+    
+    /**
+     * Decodes all of the samples of a capture with the sensors it was
+     * recorded with.
+     * @param capture The capture to decode.
+     * @return The decoded capture.
+     * @throws InstantiationException If the sensors of the capture could not
+     * be built.
+     */
+    public static DecodedCapture decode(Capture capture) throws InstantiationException {
+        return DecodedCapture.decode(capture.getSamples(), SensorFactory.getSensors(capture));
+    }
+    
+    /**
+     * Decodes the samples in the stream, parsing the data of each sensor in
+     * each sample once.
+     * @param samples The samples to decode in index order.
+     * @param sensors The sensors which decode the data keyed by name.
+     * @return The decoded samples.
+     */
+    public static DecodedCapture decode(Stream<Sample> samples, Map<String, Sensor> sensors) {
+        DecodedCapture decoded = new DecodedCapture(sensors);
+        
+        // values are decoded into a scratch array then stored in the columns
+        double[] values = new double[sensors.values().stream().mapToInt(Sensor::getChannelCount).max().orElse(0)];
+        Iterator<Sample> iter = samples.iterator();
+        while (iter.hasNext()) {
+            Sample sample = iter.next();
+            int index = decoded.sampleCount++;
+            for (Map.Entry<String, double[][]> entry : decoded.columns.entrySet()) {
+                double[][] sensorColumns = entry.getValue();
+                decoded.sensors.get(entry.getKey()).decode(sample, values);
+                for (int channel = 0; channel < sensorColumns.length; channel++) {
+                    if (index == sensorColumns[channel].length) {
+                        sensorColumns[channel] = Arrays.copyOf(sensorColumns[channel], index * 2);
+                    }
+                    sensorColumns[channel][index] = values[channel];
+                }
+            }
+        }
+        
+        // trim the columns to the number of samples
+        decoded.columns.values().forEach(sensorColumns -> {
+            for (int channel = 0; channel < sensorColumns.length; channel++) {
+                sensorColumns[channel] = Arrays.copyOf(sensorColumns[channel], decoded.sampleCount);
+            }
+        });
+        
+        return decoded;
+    }
+    
+    /**
+     * Gets the number of samples decoded.
+     * @return The number of samples decoded.
+     */
+    public int getSampleCount() {
+        return this.sampleCount;
+    }
+    
+    /**
+     * Gets the sensors which decoded the data keyed by name.
+     * @return The sensors which decoded the data keyed by name.
+     */
+    public Map<String, Sensor> getSensors() {
+        return this.sensors;
+    }
+    
+    /**
+     * Gets the column of a channel of a sensor. The column is shared by all
+     * readers and must not be modified.
+     * @param sensor The sensor to get the column for.
+     * @param channel The channel of the sensor.
+     * @return The value of each sample with NaN for missing readings.
+     */
+    public double[] getColumn(Sensor sensor, int channel) {
+        double[][] sensorColumns = this.columns.get(sensor.getName());
+        if (sensorColumns == null) {
+            throw new IllegalArgumentException("The sensor " + sensor.getName() + " was not decoded.");
+        }
+        return sensorColumns[channel];
+    }
+    
+    /**
+     * Gets the value of a channel of a sensor for a sample.
+     * @param sensor The sensor to get the value for.
+     * @param channel The channel of the sensor.
+     * @param index The index of the sample.
+     * @return The value or NaN if the reading is missing or the index is
+     * outside of the capture.
+     */
+    public double getValue(Sensor sensor, int channel, int index) {
+        double[] column = this.getColumn(sensor, channel);
+        return index >= 0 && index < column.length ? column[index] : Double.NaN;
+    }
+}
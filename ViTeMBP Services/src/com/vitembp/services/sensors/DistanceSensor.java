@@ -24,6 +24,16 @@ import java.util.Optional;
  * Base class providing an interface to distance based sensors.
  */
 public abstract class DistanceSensor extends Sensor {
+    /**
+     * The channel of the distance as a percentage of sensor travel.
+     */
+    public static final int PERCENT = 0;
+    
+    /**
+     * The channel of the distance in millimeters.
+     */
+    public static final int MILLIMETERS = 1;
+    
     /**
      * Initializes a new instance of the DistanceSensor class.
      * @param name The name of the sensor.
@@ -32,6 +42,11 @@ public abstract class DistanceSensor extends Sensor {
         super(name);
     }
     
+    @Override
+    public int getChannelCount() {
+        return 2;
+    }
+    
     /**
      * Gets the distance the sensor is reading in millimeters.
      * @param toDecode The sample containing the data to decode.
@@ -20,7 +20,7 @@ package com.vitembp.services.sensors;
 import com.vitembp.embedded.data.Sample;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.function.Function;
+import java.util.function.DoubleUnaryOperator;
 
 /**
  * Class providing an interface to the VL53L0X sensor.
@@ -34,12 +34,12 @@ class DistanceVL53L0X extends DistanceSensor {
     /**
      * The function which applies the calibration data.
      */
-    private Function<Double, Double> calFunction;
+    private DoubleUnaryOperator calFunction;
     
     /**
      * The function which applies the calibration data and returns data as a percentage.
      */
-    private Function<Double, Double> calPercentageFunction;
+    private DoubleUnaryOperator calPercentageFunction;
     
     /**
      * Initializes a new instance of the DistanceVL53L0X class.
@@ -94,13 +94,27 @@ class DistanceVL53L0X extends DistanceSensor {
         return this.decodeData(toDecode, this.calPercentageFunction);
     }
     
+    @Override
+    public void decode(Sample toDecode, double[] values) {
+        String data = this.getData(toDecode);
+        if (data == null || "".equals(data)) {
+            values[PERCENT] = Double.NaN;
+            values[MILLIMETERS] = Double.NaN;
+        } else {
+            // parse the reading once for both calibrated values
+            double value = Double.parseDouble(data);
+            values[PERCENT] = this.calPercentageFunction.applyAsDouble(value);
+            values[MILLIMETERS] = this.calFunction.applyAsDouble(value);
+        }
+    }
+    
     /**
      * Decodes the sample data and applies the given calibration function.
      * @param toDecode The sample to decode.
      * @param calFunc The function which applies calibration data.
      * @return Decoded and calibrated data from the sample.
      */
-    private Optional<Double> decodeData(Sample toDecode, Function<Double, Double> calFunc) {
+    private Optional<Double> decodeData(Sample toDecode, DoubleUnaryOperator calFunc) {
         String data = this.getData(toDecode);
         if (data == null || "".equals(data)) {
             return Optional.empty();
@@ -109,7 +123,7 @@ class DistanceVL53L0X extends DistanceSensor {
             double value = Double.parseDouble(data);
 
             // return calibrated value
-            return Optional.of(calFunc.apply(value));
+            return Optional.of(calFunc.applyAsDouble(value));
         }
     }
 }
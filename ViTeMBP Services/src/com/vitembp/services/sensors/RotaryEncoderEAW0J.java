@@ -20,7 +20,7 @@ package com.vitembp.services.sensors;
 import com.vitembp.embedded.data.Sample;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.function.Function;
+import java.util.function.DoubleUnaryOperator;
 
 /**
  * Sensor implementation for EAW0J rotary encoder.
@@ -39,7 +39,7 @@ class RotaryEncoderEAW0J extends RotarySensor {
     /**
      * The function which applies the calibration data.
      */
-    private Function<Double, Double> calFunction;
+    private DoubleUnaryOperator calFunction;
     
     /**
      * Instantiates a new instance of the RotaryEncoderEAW0J class.
@@ -109,7 +109,7 @@ class RotaryEncoderEAW0J extends RotarySensor {
             // add bounds checking to keep cal funtion between 0 and 1.
             this.calFunction = 
                     this.calFunction
-                    .andThen((Function<Double, Double>)(v -> (v < 0) ? 0 : (v > 1) ? 1 : v));
+                    .andThen(v -> (v < 0) ? 0 : (v > 1) ? 1 : v);
         } else {
             // no cal data so just return original value
             this.calFunction = d -> d;
@@ -136,21 +136,23 @@ class RotaryEncoderEAW0J extends RotarySensor {
     
     @Override
     public Optional<Double> getPositionPercentage(Sample toDecode) {
+        return this.decodeChannel(toDecode, PERCENTAGE);
+    }
+    
+    @Override
+    public void decode(Sample toDecode, double[] values) {
         String data = this.getData(toDecode);
         
         // handle missing samples
         if (data == null || "".equals(data)) {
-            return Optional.empty();
+            values[PERCENTAGE] = Double.NaN;
+            return;
         }
         
         // get data
         int position = Integer.parseInt(data);
         
         // apply calibration
-        double calibrated = this.calFunction.apply((double)position);
-        
-        
-        // convert to percent
-        return Optional.of(calibrated);
+        values[PERCENTAGE] = this.calFunction.applyAsDouble(position);
     }
 }
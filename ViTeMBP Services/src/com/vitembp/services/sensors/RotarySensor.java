@@ -24,6 +24,11 @@ import java.util.Optional;
  * Provides an implementation for rotary sensors.
  */
 public abstract class RotarySensor extends Sensor {
+    /**
+     * The channel of the position as a value from 0 to 1.
+     */
+    public static final int PERCENTAGE = 0;
+    
     /**
      * Instantiates a new instance of the RotarySensor class.
      * @param name The name of the sensor.
@@ -32,6 +37,11 @@ public abstract class RotarySensor extends Sensor {
         super(name);
     }
     
+    @Override
+    public int getChannelCount() {
+        return 1;
+    }
+    
     /**
      * Gets the position of the sensor in degrees.
      * @param toDecode The sample containing the data to decode.
@@ -18,6 +18,7 @@
 package com.vitembp.services.sensors;
 
 import com.vitembp.embedded.data.Sample;
+import java.util.Optional;
 
 /**
  * A base class providing an interface for sensors.
@@ -44,6 +45,34 @@ public abstract class Sensor {
         return this.name;
     }
     
+    /**
+     * Gets the number of calibrated values decoded from each sample.
+     * @return The number of calibrated values decoded from each sample.
+     */
+    public abstract int getChannelCount();
+    
+    /**
+     * Decodes all of the calibrated values of this sensor from a sample with
+     * a single parse of its data. Missing readings are decoded as NaN.
+     * @param toDecode The sample containing data to decode.
+     * @param values The array to store the values in, which must hold at
+     * least the channel count of values.
+     */
+    public abstract void decode(Sample toDecode, double[] values);
+    
+    /**
+     * Decodes a single calibrated value of this sensor from a sample.
+     * @param toDecode The sample containing data to decode.
+     * @param channel The channel of the value to decode.
+     * @return The calibrated value or an empty Optional if the reading is
+     * missing.
+     */
+    protected Optional<Double> decodeChannel(Sample toDecode, int channel) {
+        double[] values = new double[this.getChannelCount()];
+        this.decode(toDecode, values);
+        return Double.isNaN(values[channel]) ? Optional.empty() : Optional.of(values[channel]);
+    }
+    
     /**
      * Gets the data for this sensor from a sample.
      * @param toDecode The sample containing data to decode.
@@ -0,0 +1,408 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.simulation;
+
+import com.vitembp.embedded.data.Capture;
+import com.vitembp.services.ApiFunctions;
+import com.vitembp.services.AsyncProcessing;
+import com.vitembp.services.audio.SyncDetector;
+import com.vitembp.services.audio.SyncResult;
+import com.vitembp.services.data.CaptureProcessor;
+import com.vitembp.services.data.CaptureStatistics;
+import com.vitembp.services.data.Pipeline;
+import com.vitembp.services.data.StandardOverlayDefinitions;
+import com.vitembp.services.data.StandardPipelines;
+import com.vitembp.services.sensors.SensorFactory;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Puts a fleet worth of load on the back-end. Simulated devices record
+ * synthetic captures and upload them to a destination, then each uploaded
+ * capture has its statistics calculated and, when video is enabled, its sync
+ * frame found and data overlay rendered on the job scheduler. The end-to-end
+ * latency of each stage is collected into a report.
+ */
+public class LoadGenerator {
+    /**
+     * Class logger instance.
+     */
+    private static final Logger LOGGER = LogManager.getLogger();
+    
+    /**
+     * The sample frequency of captures and frame rate of videos.
+     */
+    private static final double FREQUENCY = 29.97;
+    
+    /**
+     * The seconds into the video the sync signals start, used in turn by
+     * each capture so only a few videos need to be generated.
+     */
+    private static final double[] SYNC_OFFSETS = { 1.0, 1.5, 2.0, 2.5 };
+    
+    /**
+     * The milliseconds between checks of whether a capture was uploaded.
+     */
+    private static final long UPLOAD_POLL = 100;
+    
+    /**
+     * The number of simulated devices.
+     */
+    private final int deviceCount;
+    
+    /**
+     * The number of captures each device records.
+     */
+    private final int captureCount;
+    
+    /**
+     * The length of each capture in seconds.
+     */
+    private final double captureSeconds;
+    
+    /**
+     * The destination the devices upload captures to.
+     */
+    private final SimulatedDevice.Destination destination;
+    
+    /**
+     * The scheduler processing jobs are submitted to.
+     */
+    private final AsyncProcessing scheduler;
+    
+    /**
+     * The standard deviation of the noise added to sensor readings.
+     */
+    private double noise = 0.01;
+    
+    /**
+     * Whether devices record samples at the rate of the sample frequency.
+     */
+    private boolean realTime = false;
+    
+    /**
+     * The generator of capture videos or null if video jobs are not run.
+     */
+    private SyntheticVideo video = null;
+    
+    /**
+     * The directory videos are generated and rendered in.
+     */
+    private Path videoDirectory = null;
+    
+    /**
+     * The overlay is rendered for every capture with an index that is a
+     * multiple of this, or never if it is 0.
+     */
+    private int overlayInterval = 0;
+    
+    /**
+     * Initializes a new instance of the LoadGenerator class.
+     * @param deviceCount The number of simulated devices.
+     * @param captureCount The number of captures each device records.
+     * @param captureSeconds The length of each capture in seconds.
+     * @param destination The destination the devices upload captures to.
+     * @param scheduler The scheduler processing jobs are submitted to.
+     */
+    public LoadGenerator(int deviceCount, int captureCount, double captureSeconds, SimulatedDevice.Destination destination, AsyncProcessing scheduler) {
+        this.deviceCount = deviceCount;
+        this.captureCount = captureCount;
+        this.captureSeconds = captureSeconds;
+        this.destination = destination;
+        this.scheduler = scheduler;
+    }
+    
+    /**
+     * Sets the standard deviation of the noise added to sensor readings.
+     * @param noise The standard deviation as a fraction of the full scale of
+     * each sensor.
+     */
+    public void setNoise(double noise) {
+        this.noise = noise;
+    }
+    
+    /**
+     * Sets whether devices record samples at the rate of the sample
+     * frequency or as fast as possible.
+     * @param realTime Whether devices record in real time.
+     */
+    public void setRealTime(boolean realTime) {
+        this.realTime = realTime;
+    }
+    
+    /**
+     * Enables sync and overlay jobs on synthetic videos. FFmpeg must be
+     * installed to generate the videos.
+     * @param directory The directory videos are generated and rendered in.
+     * @param overlayInterval The overlay is rendered for every capture with an
+     * index that is a multiple of this, or never if it is 0.
+     */
+    public void setVideo(Path directory, int overlayInterval) {
+        double longestOffset = SYNC_OFFSETS[SYNC_OFFSETS.length - 1];
+        this.video = new SyntheticVideo(640, 360, FREQUENCY, longestOffset + this.captureSeconds + 1.0);
+        this.videoDirectory = directory;
+        this.overlayInterval = overlayInterval;
+    }
+    
+    /**
+     * Runs the devices until all of their captures are uploaded and processed.
+     * @return The report of the run.
+     * @throws IOException If the run was interrupted or a device could not be
+     * created.
+     */
+    public LoadReport run() throws IOException {
+        LoadReport report = new LoadReport();
+        List<AsyncProcessing.Job<?>> jobs = Collections.synchronizedList(new ArrayList<>());
+        long start = System.nanoTime();
+        
+        // each device records and uploads on its own thread
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < this.deviceCount; i++) {
+            SimulatedDevice device;
+            try {
+                device = new SimulatedDevice("device-" + Integer.toString(i), this.destination);
+            } catch (InstantiationException ex) {
+                throw new IOException("Could not create simulated device.", ex);
+            }
+            
+            int deviceIndex = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    this.runDevice(device, deviceIndex, report, jobs);
+                } catch (IOException | InstantiationException ex) {
+                    LOGGER.error("Simulated device " + device.getName() + " failed.", ex);
+                    report.addFailure(LoadReport.Stage.UPLOAD);
+                } finally {
+                    device.stopUpload();
+                }
+            }, device.getName());
+            threads.add(thread);
+            thread.start();
+        }
+        
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            
+            // failures were recorded by the jobs themselves
+            for (AsyncProcessing.Job<?> job : new ArrayList<>(jobs)) {
+                try {
+                    job.get();
+                } catch (ExecutionException | CancellationException ex) {
+                    LOGGER.debug("Load generator job failed.", ex);
+                }
+            }
+        } catch (InterruptedException ex) {
+            threads.forEach(Thread::interrupt);
+            throw new InterruptedIOException("Interrupted while waiting for the load generator.");
+        }
+        
+        report.setElapsedMillis(millisSince(start));
+        LOGGER.info("Load generator completed:" + System.lineSeparator() + report.toString());
+        return report;
+    }
+    
+    /**
+     * Records the captures of a device, waits for each to upload and then
+     * submits its processing jobs.
+     * @param device The device to record with.
+     * @param deviceIndex The index of the device.
+     * @param report The report to add results to.
+     * @param jobs The jobs which were submitted.
+     * @throws IOException If a capture cannot be saved or read.
+     * @throws InstantiationException If a capture cannot be created.
+     */
+    private void runDevice(SimulatedDevice device, int deviceIndex, LoadReport report, List<AsyncProcessing.Job<?>> jobs) throws IOException, InstantiationException {
+        device.startUpload();
+        
+        for (int i = 0; i < this.captureCount; i++) {
+            int index = deviceIndex * this.captureCount + i;
+            SyntheticCapture synthetic = SyntheticCapture.createStandard(FREQUENCY, this.captureSeconds, this.noise, index);
+            Capture capture = device.createCapture(FREQUENCY, synthetic.getSensorTypes(), new HashMap<>());
+            
+            // record the samples, pacing them as a device would if requested
+            long recordStart = System.nanoTime();
+            int sample = 0;
+            for (Iterator<Map<String, String>> samples = synthetic.getSamples().iterator(); samples.hasNext(); sample++) {
+                if (this.realTime) {
+                    long wait = Math.round(sample * 1000.0 / FREQUENCY - millisSince(recordStart));
+                    if (wait > 0) {
+                        sleep(wait);
+                    }
+                }
+                capture.addSample(samples.next());
+            }
+            capture.complete();
+            report.addSamples(synthetic.getSampleCount());
+            
+            // the upload completes when the transporter has copied everything
+            long completed = System.nanoTime();
+            while (!device.isUploaded()) {
+                sleep(UPLOAD_POLL);
+            }
+            report.addLatency(LoadReport.Stage.UPLOAD, millisSince(completed));
+            
+            this.submitJobs(capture.getId(), index, report, jobs);
+        }
+    }
+    
+    /**
+     * Submits the processing jobs of an uploaded capture. Each job reads the
+     * capture from the destination itself as the service would.
+     * @param id The ID of the capture.
+     * @param index The index of the capture across all devices.
+     * @param report The report to add results to.
+     * @param jobs The jobs which were submitted.
+     */
+    private void submitJobs(UUID id, int index, LoadReport report, List<AsyncProcessing.Job<?>> jobs) {
+        jobs.add(this.submitTimed(AsyncProcessing.JobClass.DATA, LoadReport.Stage.STATISTICS, id, report, () -> {
+            Capture capture = this.readCapture(id);
+            return CaptureStatistics.calculate(capture.getSamples(), SensorFactory.getSensors(capture), true);
+        }));
+        
+        if (this.video == null) {
+            return;
+        }
+        
+        double offset = SYNC_OFFSETS[index % SYNC_OFFSETS.length];
+        int expected = this.video.getSyncFrame(offset);
+        jobs.add(this.submitTimed(AsyncProcessing.JobClass.VIDEO, LoadReport.Stage.SYNC, id, report, () -> {
+            SyncResult sync = findSync(this.video.getVideo(this.videoDirectory, offset));
+            report.addSyncResult(sync.getFramePosition(), offset * FREQUENCY);
+            return sync.getFrame();
+        }));
+        
+        if (this.overlayInterval > 0 && index % this.overlayInterval == 0) {
+            jobs.add(this.submitTimed(AsyncProcessing.JobClass.VIDEO, LoadReport.Stage.OVERLAY, id, report, () -> {
+                this.renderOverlay(this.readCapture(id), this.video.getVideo(this.videoDirectory, offset), expected);
+                return null;
+            }));
+        }
+    }
+    
+    /**
+     * Submits a job which records its latency from submission to completion
+     * or its failure in the report.
+     * @param <T> The type of the result of the job.
+     * @param jobClass The class of the job.
+     * @param stage The stage the job performs.
+     * @param capture The capture the job operates on.
+     * @param report The report to add results to.
+     * @param task The task to run.
+     * @return The job which was submitted.
+     */
+    private <T> AsyncProcessing.Job<T> submitTimed(AsyncProcessing.JobClass jobClass, LoadReport.Stage stage, UUID capture, LoadReport report, Callable<T> task) {
+        long submitted = System.nanoTime();
+        return this.scheduler.submit(jobClass, AsyncProcessing.Priority.NORMAL, capture, "loadgen-" + stage.name(), () -> {
+            try {
+                T result = task.call();
+                report.addLatency(stage, millisSince(submitted));
+                return result;
+            } catch (Exception ex) {
+                LOGGER.error("Load generator " + stage.name() + " job failed for " + capture.toString() + ".", ex);
+                report.addFailure(stage);
+                throw ex;
+            }
+        });
+    }
+    
+    /**
+     * Reads a capture from the destination.
+     * @param id The ID of the capture.
+     * @return The capture.
+     * @throws IOException If the capture cannot be read or is not in the
+     * destination.
+     */
+    private Capture readCapture(UUID id) throws IOException {
+        Capture capture = this.destination.getCapture(id);
+        if (capture == null) {
+            throw new IOException("Capture " + id.toString() + " is not in the destination.");
+        }
+        return capture;
+    }
+    
+    /**
+     * Finds the start of the sync signal of a video the way processing a
+     * capture video does.
+     * @param video The video to find the sync signal of.
+     * @return The start of the sync signal.
+     * @throws IOException If the sync signal was not found.
+     */
+    private static SyncResult findSync(Path video) throws IOException {
+        return SyncDetector.detect(video.toString(), SyntheticVideo.SYNC_FREQUENCY, ApiFunctions.COLOR_CHANNELS.GREEN)
+                .orElseThrow(() -> new IOException("No sync signal detected in " + video.toString() + "."));
+    }
+    
+    /**
+     * Renders the data overlay of a capture onto its video.
+     * @param capture The capture to render.
+     * @param video The video of the capture.
+     * @param syncFrame The sync frame of the video.
+     * @throws IOException If the overlay cannot be rendered.
+     */
+    private void renderOverlay(Capture capture, Path video, int syncFrame) throws IOException {
+        Path output = Files.createTempFile(this.videoDirectory, "overlay", ".mp4");
+        output.toFile().delete();
+        
+        try {
+            Pipeline pipeline = StandardPipelines.captureVideoOverlayPipeline(capture, video, output, StandardOverlayDefinitions.getStandardFourQuadrant());
+            CaptureProcessor.processUntilFlush(capture, pipeline, syncFrame);
+        } catch (InstantiationException ex) {
+            throw new IOException("Could not create overlay pipeline.", ex);
+        } finally {
+            Files.deleteIfExists(output);
+        }
+    }
+    
+    /**
+     * Sleeps the current thread.
+     * @param millis The milliseconds to sleep.
+     * @throws InterruptedIOException If the sleep was interrupted.
+     */
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            throw new InterruptedIOException("Interrupted while simulating device.");
+        }
+    }
+    
+    /**
+     * Gets the milliseconds since a time.
+     * @param start The time from System.nanoTime().
+     * @return The milliseconds since the time.
+     */
+    private static double millisSince(long start) {
+        return (System.nanoTime() - start) / 1000000.0;
+    }
+}
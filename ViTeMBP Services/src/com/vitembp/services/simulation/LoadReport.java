@@ -0,0 +1,219 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.simulation;
+
+import com.vitembp.services.data.ValueStatistics;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The results of a load generator run: the end-to-end latency of each stage
+ * captures go through and the throughput of the whole run.
+ */
+public class LoadReport {
+    /**
+     * The stages a capture goes through.
+     */
+    public static enum Stage {
+        /**
+         * Transferring a completed capture from a device to the destination.
+         */
+        UPLOAD,
+        
+        /**
+         * Calculating the statistics of an uploaded capture.
+         */
+        STATISTICS,
+        
+        /**
+         * Finding the sync frame of the video of a capture.
+         */
+        SYNC,
+        
+        /**
+         * Rendering the data overlay onto the video of a capture.
+         */
+        OVERLAY
+    };
+    
+    /**
+     * The latency of each stage in milliseconds.
+     */
+    private final Map<Stage, ValueStatistics> latencies = new EnumMap<>(Stage.class);
+    
+    /**
+     * The number of failures of each stage.
+     */
+    private final Map<Stage, Long> failures = new EnumMap<>(Stage.class);
+    
+    /**
+     * The difference between the detected and expected sync frames.
+     */
+    private final ValueStatistics syncError = new ValueStatistics(true);
+    
+    /**
+     * The number of samples recorded by all devices.
+     */
+    private long sampleCount = 0;
+    
+    /**
+     * The length of the run in milliseconds.
+     */
+    private double elapsedMillis = 0;
+    
+    /**
+     * Initializes a new instance of the LoadReport class.
+     */
+    LoadReport() {
+        for (Stage stage : Stage.values()) {
+            this.latencies.put(stage, new ValueStatistics(true));
+            this.failures.put(stage, 0L);
+        }
+    }
+    
+    /**
+     * Records a stage which completed.
+     * @param stage The stage which completed.
+     * @param latencyMillis The latency of the stage in milliseconds.
+     */
+    synchronized void addLatency(Stage stage, double latencyMillis) {
+        this.latencies.get(stage).accept(latencyMillis);
+    }
+    
+    /**
+     * Records a stage which failed.
+     * @param stage The stage which failed.
+     */
+    synchronized void addFailure(Stage stage) {
+        this.failures.put(stage, this.failures.get(stage) + 1);
+    }
+    
+    /**
+     * Records the result of a sync detection.
+     * @param detected The position of the sync signal in frames which was
+     * detected.
+     * @param expected The position of the sync signal in frames the video was
+     * generated with.
+     */
+    synchronized void addSyncResult(double detected, double expected) {
+        this.syncError.accept(detected - expected);
+    }
+    
+    /**
+     * Records samples which were recorded.
+     * @param count The number of samples.
+     */
+    synchronized void addSamples(long count) {
+        this.sampleCount += count;
+    }
+    
+    /**
+     * Sets the length of the run.
+     * @param elapsedMillis The length of the run in milliseconds.
+     */
+    synchronized void setElapsedMillis(double elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+    
+    /**
+     * Gets the latency of a stage in milliseconds.
+     * @param stage The stage to get the latency of.
+     * @return The latency statistics of the stage.
+     */
+    public synchronized ValueStatistics getLatency(Stage stage) {
+        return this.latencies.get(stage);
+    }
+    
+    /**
+     * Gets the number of failures of a stage.
+     * @param stage The stage to get the failures of.
+     * @return The number of failures of the stage.
+     */
+    public synchronized long getFailureCount(Stage stage) {
+        return this.failures.get(stage);
+    }
+    
+    /**
+     * Gets the difference between the detected and expected sync frames.
+     * @return The sync frame error statistics.
+     */
+    public synchronized ValueStatistics getSyncError() {
+        return this.syncError;
+    }
+    
+    /**
+     * Gets the number of samples recorded by all devices.
+     * @return The number of samples recorded.
+     */
+    public synchronized long getSampleCount() {
+        return this.sampleCount;
+    }
+    
+    /**
+     * Gets the length of the run in milliseconds.
+     * @return The length of the run in milliseconds.
+     */
+    public synchronized double getElapsedMillis() {
+        return this.elapsedMillis;
+    }
+    
+    /**
+     * Gets the number of completions of a stage per second of the run.
+     * @param stage The stage to get the throughput of.
+     * @return The completions per second.
+     */
+    public synchronized double getThroughput(Stage stage) {
+        return this.elapsedMillis > 0 ? this.latencies.get(stage).getCount() * 1000.0 / this.elapsedMillis : 0;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "Elapsed: %.1f s, samples: %d (%.1f/s)%n",
+                this.elapsedMillis / 1000.0,
+                this.sampleCount,
+                this.elapsedMillis > 0 ? this.sampleCount * 1000.0 / this.elapsedMillis : 0));
+        sb.append(String.format(Locale.ROOT, "%-10s %6s %6s %8s %10s %10s %10s %10s%n",
+                "Stage", "Done", "Failed", "Per min", "Mean ms", "p50 ms", "p95 ms", "Max ms"));
+        for (Stage stage : Stage.values()) {
+            ValueStatistics latency = this.latencies.get(stage);
+            if (latency.getCount() == 0 && this.failures.get(stage) == 0) {
+                continue;
+            }
+            
+            sb.append(String.format(Locale.ROOT, "%-10s %6d %6d %8.2f %10.1f %10.1f %10.1f %10.1f%n",
+                    stage.name(),
+                    latency.getCount(),
+                    this.failures.get(stage),
+                    this.getThroughput(stage) * 60,
+                    latency.getMean(),
+                    latency.getPercentile(0.5),
+                    latency.getPercentile(0.95),
+                    latency.getMaximum()));
+        }
+        
+        if (this.syncError.getCount() > 0) {
+            sb.append(String.format(Locale.ROOT, "Sync frame error: mean %.2f, max absolute %.2f%n",
+                    this.syncError.getMean(),
+                    this.syncError.getAbsoluteMaximum()));
+        }
+        
+        return sb.toString();
+    }
+}
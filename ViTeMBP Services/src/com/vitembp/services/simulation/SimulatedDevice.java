@@ -0,0 +1,222 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.simulation;
+
+import com.vitembp.embedded.data.Capture;
+import com.vitembp.embedded.data.CaptureDescription;
+import com.vitembp.embedded.data.CaptureFactory;
+import com.vitembp.embedded.data.UuidStringStore;
+import com.vitembp.embedded.data.UuidStringStoreH2;
+import com.vitembp.embedded.data.UuidStringStoreHashMap;
+import com.vitembp.embedded.data.UuidStringTransporter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A simulated device which records captures into its own in-memory store and
+ * uploads them to a shared destination with a UuidStringTransporter as a
+ * device does. Used to put load on the capture storage and processing paths
+ * without hardware.
+ */
+public class SimulatedDevice {
+    /**
+     * The name of the device.
+     */
+    private final String name;
+    
+    /**
+     * The local store of the device.
+     */
+    private final UuidStringStore store = new UuidStringStoreHashMap();
+    
+    /**
+     * The destination captures are uploaded to.
+     */
+    private final Destination destination;
+    
+    /**
+     * The transporter which uploads the local store to the destination.
+     */
+    private final UuidStringTransporter transporter;
+    
+    /**
+     * Initializes a new instance of the SimulatedDevice class.
+     * @param name The name of the device.
+     * @param destination The destination captures are uploaded to.
+     * @throws InstantiationException If the transporter cannot be created.
+     */
+    public SimulatedDevice(String name, Destination destination) throws InstantiationException {
+        this.name = name;
+        this.destination = destination;
+        
+        // transferred data is removed as a device does to free its storage
+        this.transporter = new UuidStringTransporter(this.store, destination.store, true);
+    }
+    
+    /**
+     * Gets the name of the device.
+     * @return The name of the device.
+     */
+    public String getName() {
+        return this.name;
+    }
+    
+    /**
+     * Creates a new capture in the local store of the device.
+     * @param frequency The sample frequency of the capture.
+     * @param nameToIds A map of the Sensor names to types.
+     * @param calData Calibration data for sensors.
+     * @return The capture which was created.
+     * @throws InstantiationException If the capture cannot be created.
+     */
+    public Capture createCapture(double frequency, Map<String, UUID> nameToIds, Map<String, String> calData) throws InstantiationException {
+        return CaptureFactory.buildCapture(this.store, frequency, nameToIds, calData);
+    }
+    
+    /**
+     * Starts uploading the local store to the destination.
+     */
+    public void startUpload() {
+        this.transporter.startSync();
+    }
+    
+    /**
+     * Stops uploading the local store to the destination.
+     */
+    public void stopUpload() {
+        this.transporter.stopSync();
+    }
+    
+    /**
+     * Gets whether all data in the local store has been uploaded to the
+     * destination.
+     * @return Whether all data in the local store has been uploaded.
+     * @throws IOException If the stores cannot be read.
+     */
+    public boolean isUploaded() throws IOException {
+        // every capture description must be in the destination
+        for (CaptureDescription desc : (Iterable<CaptureDescription>)this.store.getCaptureLocations()::iterator) {
+            if (this.destination.store.getCaptureDescription(desc.getLocation()) == null) {
+                return false;
+            }
+        }
+        
+        // and every value must match the destination
+        List<UUID> keys = this.store.getKeys().collect(toList());
+        if (keys.isEmpty()) {
+            return true;
+        }
+        
+        Map<UUID, String> local = this.store.getHashes(keys);
+        Map<UUID, String> remote = this.destination.store.getHashes(keys);
+        for (UUID key : keys) {
+            // a missing or blank local value was deleted after it was
+            // transferred
+            String hash = local.get(key);
+            if (hash != null && !"".equals(hash) && !hash.equals(remote.get(key))) {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * The store simulated devices upload captures to.
+     */
+    public static class Destination {
+        /**
+         * The store captures are uploaded to.
+         */
+        private final UuidStringStore store;
+        
+        /**
+         * The database backing the store or null if it is not a database.
+         */
+        private final UuidStringStoreH2 database;
+        
+        /**
+         * Initializes a new instance of the Destination class.
+         * @param store The store captures are uploaded to.
+         * @param database The database backing the store or null if it is not
+         * a database.
+         */
+        private Destination(UuidStringStore store, UuidStringStoreH2 database) {
+            this.store = store;
+            this.database = database;
+        }
+        
+        /**
+         * Creates a destination backed by a local H2 database.
+         * @param dataFile The file to store the database to.
+         * @return The destination.
+         * @throws InstantiationException If the database cannot be created.
+         */
+        public static Destination createH2(Path dataFile) throws InstantiationException {
+            try {
+                UuidStringStoreH2 database = new UuidStringStoreH2(dataFile);
+                return new Destination(database, database);
+            } catch (SQLException ex) {
+                throw new InstantiationException("Could not create database file. " + ex.getLocalizedMessage());
+            }
+        }
+        
+        /**
+         * Creates an in-memory destination standing in for DynamoDB where each
+         * request is delayed to simulate the round trip to the service.
+         * @param latencyMillis The delay added to each request in milliseconds.
+         * @return The destination.
+         */
+        public static Destination createFakeDynamoDB(long latencyMillis) {
+            return new Destination(new UuidStringStoreLatency(new UuidStringStoreHashMap(), latencyMillis), null);
+        }
+        
+        /**
+         * Gets the captures which have been uploaded to the destination.
+         * @return The captures in the destination.
+         * @throws IOException If the captures cannot be read.
+         */
+        public List<Capture> getCaptures() throws IOException {
+            return CaptureFactory.getCaptures(this.store);
+        }
+        
+        /**
+         * Gets a capture which has been uploaded to the destination.
+         * @param id The ID of the capture.
+         * @return The capture or null if it has not been uploaded.
+         * @throws IOException If the capture cannot be read.
+         */
+        public Capture getCapture(UUID id) throws IOException {
+            return CaptureFactory.getCapture(this.store, id);
+        }
+        
+        /**
+         * Closes the destination, releasing the database if it has one.
+         */
+        public void close() {
+            if (this.database != null) {
+                this.database.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.simulation;
+
+import com.vitembp.embedded.data.Capture;
+import com.vitembp.embedded.data.CaptureFactory;
+import com.vitembp.embedded.data.CaptureTypes;
+import com.vitembp.services.sensors.AccelerometerThreeAxis;
+import com.vitembp.services.sensors.DistanceSensor;
+import com.vitembp.services.sensors.RotarySensor;
+import com.vitembp.services.sensors.Sensor;
+import com.vitembp.services.sensors.SensorFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Generates realistic sensor data for a ride. The bike is at rest while the
+ * device flashes the sync light and sounds the buzzer at the start of the
+ * capture, then terrain bumps compress the shocks and shake the frame while
+ * the rider squeezes the brakes from time to time.
+ */
+public class SyntheticCapture {
+    /**
+     * The seconds the bike is at rest at the start of the capture while the
+     * sync light and buzzer are on.
+     */
+    public static final double SYNC_DURATION = 2.0;
+    
+    /**
+     * The raw reading of a fully squeezed brake lever.
+     */
+    private static final int ROTARY_FULL_SCALE = 127;
+    
+    /**
+     * The distance reading of a fully extended shock in millimeters.
+     */
+    private static final double SHOCK_EXTENDED = 180.0;
+    
+    /**
+     * The travel of a shock in millimeters.
+     */
+    private static final double SHOCK_TRAVEL = 120.0;
+    
+    /**
+     * The fraction of travel used when the rider is sitting on the bike.
+     */
+    private static final double SHOCK_SAG = 0.25;
+    
+    /**
+     * The raw accelerometer reading of one g.
+     */
+    private static final double COUNTS_PER_G = 1024.0;
+    
+    /**
+     * The average number of terrain bumps per second.
+     */
+    private static final double BUMP_RATE = 1.5;
+    
+    /**
+     * The seconds for the compression of a bump to decay by 1/e.
+     */
+    private static final double BUMP_DECAY = 0.15;
+    
+    /**
+     * The average number of brake squeezes per second.
+     */
+    private static final double BRAKE_RATE = 0.3;
+    
+    /**
+     * The fraction of readings which are missing.
+     */
+    private static final double DROPOUT_RATE = 0.002;
+    
+    /**
+     * The kinds of sensors data can be generated for.
+     */
+    private static enum Kind {
+        /**
+         * A brake lever position.
+         */
+        ROTARY,
+        
+        /**
+         * A shock position.
+         */
+        DISTANCE,
+        
+        /**
+         * A frame accelerometer.
+         */
+        ACCELEROMETER
+    };
+    
+    /**
+     * The sample frequency of the capture.
+     */
+    private final double frequency;
+    
+    /**
+     * The length of the capture in seconds.
+     */
+    private final double duration;
+    
+    /**
+     * The standard deviation of the noise added to readings as a fraction of
+     * the full scale of each sensor.
+     */
+    private final double noise;
+    
+    /**
+     * The seed of the random values so the same data is generated each time.
+     */
+    private final long seed;
+    
+    /**
+     * The sensor names to types in the order they were added.
+     */
+    private final Map<String, UUID> sensorTypes = new LinkedHashMap<>();
+    
+    /**
+     * The sensor names to the kind of data generated for them.
+     */
+    private final Map<String, Kind> sensorKinds = new LinkedHashMap<>();
+    
+    /**
+     * Initializes a new instance of the SyntheticCapture class.
+     * @param frequency The sample frequency of the capture.
+     * @param duration The length of the capture in seconds.
+     * @param noise The standard deviation of the noise added to readings as a
+     * fraction of the full scale of each sensor.
+     * @param seed The seed of the random values.
+     */
+    public SyntheticCapture(double frequency, double duration, double noise, long seed) {
+        this.frequency = frequency;
+        this.duration = duration;
+        this.noise = noise;
+        this.seed = seed;
+    }
+    
+    /**
+     * Creates a synthetic capture with the sensors of a standard bike: two
+     * brake levers, two shocks and a frame accelerometer.
+     * @param frequency The sample frequency of the capture.
+     * @param duration The length of the capture in seconds.
+     * @param noise The standard deviation of the noise added to readings as a
+     * fraction of the full scale of each sensor.
+     * @param seed The seed of the random values.
+     * @return The synthetic capture.
+     */
+    public static SyntheticCapture createStandard(double frequency, double duration, double noise, long seed) {
+        SyntheticCapture capture = new SyntheticCapture(frequency, duration, noise, seed);
+        try {
+            UUID brake = UUID.fromString("75d05ba8-639c-46e6-a940-591d920a2d86");
+            UUID shock = UUID.fromString("3972d3a9-d55f-4e74-a61f-f2f8fe62f858");
+            UUID accelerometer = UUID.fromString("fe3c4af2-feb4-4c9b-a717-2d0db3052293");
+            capture.addSensor("Front Brake", brake);
+            capture.addSensor("Rear Brake", brake);
+            capture.addSensor("Front Shock", shock);
+            capture.addSensor("Rear Shock", shock);
+            capture.addSensor("Frame Accelerometer", accelerometer);
+        } catch (InstantiationException ex) {
+            throw new IllegalStateException("Standard sensor types are not known.", ex);
+        }
+        return capture;
+    }
+    
+    /**
+     * Adds a sensor to the capture.
+     * @param name The name of the sensor.
+     * @param type The type of the sensor.
+     * @return This instance so calls can be chained.
+     * @throws InstantiationException If the sensor type is not known or data
+     * cannot be generated for it.
+     */
+    public SyntheticCapture addSensor(String name, UUID type) throws InstantiationException {
+        Sensor sensor = SensorFactory.getSensor(name, type, "");
+        Kind kind;
+        if (sensor instanceof RotarySensor) {
+            kind = Kind.ROTARY;
+        } else if (sensor instanceof DistanceSensor) {
+            kind = Kind.DISTANCE;
+        } else if (sensor instanceof AccelerometerThreeAxis) {
+            kind = Kind.ACCELEROMETER;
+        } else {
+            throw new InstantiationException("Cannot generate data for sensor \"" + name + "\".");
+        }
+        
+        this.sensorTypes.put(name, type);
+        this.sensorKinds.put(name, kind);
+        return this;
+    }
+    
+    /**
+     * Gets the sensor names to types of the capture.
+     * @return The sensor names to types.
+     */
+    public Map<String, UUID> getSensorTypes() {
+        return Collections.unmodifiableMap(this.sensorTypes);
+    }
+    
+    /**
+     * Gets the sample frequency of the capture.
+     * @return The sample frequency of the capture.
+     */
+    public double getFrequency() {
+        return this.frequency;
+    }
+    
+    /**
+     * Gets the number of samples in the capture.
+     * @return The number of samples in the capture.
+     */
+    public int getSampleCount() {
+        return (int)Math.round(this.frequency * this.duration);
+    }
+    
+    /**
+     * Gets the sensor data of each sample, generated as the stream is read.
+     * @return The sensor data of each sample in order.
+     */
+    public Stream<Map<String, String>> getSamples() {
+        Generator generator = new Generator();
+        return IntStream.range(0, this.getSampleCount()).mapToObj(generator::next);
+    }
+    
+    /**
+     * Builds a capture of the provided type and fills it with the samples.
+     * @param type The type of capture to build.
+     * @return The capture which was built.
+     * @throws InstantiationException If the capture cannot be created.
+     */
+    public Capture build(CaptureTypes type) throws InstantiationException {
+        Capture capture = CaptureFactory.buildCapture(type, this.frequency, this.sensorTypes, new HashMap<>());
+        this.writeTo(capture);
+        return capture;
+    }
+    
+    /**
+     * Adds the samples to a capture.
+     * @param capture The capture to add samples to.
+     */
+    public void writeTo(Capture capture) {
+        this.getSamples().forEach(capture::addSample);
+    }
+    
+    /**
+     * Generates samples in order, keeping the state of the ride between them.
+     */
+    private class Generator {
+        /**
+         * The source of random values.
+         */
+        private final Random random = new Random(seed);
+        
+        /**
+         * The compression the terrain is currently causing from 0 to 1.
+         */
+        private double terrain = 0;
+        
+        /**
+         * The compression of each shock from 0 to 1.
+         */
+        private final Map<String, Double> compression = new HashMap<>();
+        
+        /**
+         * The squeeze of each brake lever from 0 to 1.
+         */
+        private final Map<String, Double> squeeze = new HashMap<>();
+        
+        /**
+         * The samples remaining in the current squeeze of each brake lever.
+         */
+        private final Map<String, Integer> squeezeRemaining = new HashMap<>();
+        
+        /**
+         * Generates the sensor data of the next sample.
+         * @param index The index of the sample.
+         * @return The sensor data of the sample.
+         */
+        Map<String, String> next(int index) {
+            boolean atRest = index < SYNC_DURATION * frequency;
+            double interval = 1.0 / frequency;
+            
+            // bumps add compression which then decays away
+            double previous = this.terrain;
+            this.terrain *= Math.exp(-interval / BUMP_DECAY);
+            if (!atRest && this.random.nextDouble() < BUMP_RATE * interval) {
+                this.terrain = Math.min(1.0 - SHOCK_SAG, this.terrain + 0.2 + this.random.nextDouble() * 0.5);
+            }
+            double impact = Math.max(0, this.terrain - previous);
+            
+            Map<String, String> data = new HashMap<>();
+            double braking = 0;
+            int shockIndex = 0;
+            for (Map.Entry<String, Kind> sensor : sensorKinds.entrySet()) {
+                String name = sensor.getKey();
+                String value;
+                switch (sensor.getValue()) {
+                    case ROTARY:
+                        double level = this.nextSqueeze(name, atRest, interval);
+                        braking = Math.max(braking, level);
+                        value = Long.toString(Math.round(this.clamp(level * ROTARY_FULL_SCALE + this.noise(ROTARY_FULL_SCALE), 0, ROTARY_FULL_SCALE)));
+                        break;
+                    case DISTANCE:
+                        // shocks further back follow the terrain later
+                        double current = this.compression.getOrDefault(name, SHOCK_SAG);
+                        double response = 1.0 / (1.0 + shockIndex++);
+                        current += (SHOCK_SAG + this.terrain - current) * response;
+                        this.compression.put(name, current);
+                        value = Long.toString(Math.round(Math.max(0, SHOCK_EXTENDED - current * SHOCK_TRAVEL + this.noise(SHOCK_TRAVEL))));
+                        break;
+                    default:
+                        // braking pitches forward and impacts push up
+                        long x = Math.round((-0.6 * braking) * COUNTS_PER_G + this.noise(COUNTS_PER_G));
+                        long y = Math.round(this.noise(COUNTS_PER_G));
+                        long z = Math.round((1.0 + impact * 4.0) * COUNTS_PER_G + this.noise(COUNTS_PER_G));
+                        value = "(" + x + "," + y + "," + z + ")";
+                        break;
+                }
+                
+                // readings occasionally fail
+                if (this.random.nextDouble() < DROPOUT_RATE) {
+                    value = "";
+                }
+                data.put(name, value);
+            }
+            
+            return data;
+        }
+        
+        /**
+         * Advances the squeeze of a brake lever.
+         * @param name The name of the brake lever.
+         * @param atRest Whether the bike is at rest.
+         * @param interval The seconds between samples.
+         * @return The squeeze of the lever from 0 to 1.
+         */
+        private double nextSqueeze(String name, boolean atRest, double interval) {
+            int remaining = this.squeezeRemaining.getOrDefault(name, 0);
+            if (remaining > 0) {
+                this.squeezeRemaining.put(name, remaining - 1);
+                return this.squeeze.get(name);
+            }
+            
+            // squeezes last from half a second to two seconds
+            if (!atRest && this.random.nextDouble() < BRAKE_RATE * interval) {
+                this.squeeze.put(name, 0.3 + this.random.nextDouble() * 0.7);
+                this.squeezeRemaining.put(name, (int)Math.round((0.5 + this.random.nextDouble() * 1.5) * frequency));
+                return this.squeeze.get(name);
+            }
+            
+            return 0;
+        }
+        
+        /**
+         * Generates noise for a sensor.
+         * @param fullScale The full scale of the sensor.
+         * @return The noise to add to a reading.
+         */
+        private double noise(double fullScale) {
+            return this.random.nextGaussian() * noise * fullScale;
+        }
+        
+        /**
+         * Limits a value to a range.
+         * @param value The value to limit.
+         * @param minimum The minimum of the range.
+         * @param maximum The maximum of the range.
+         * @return The limited value.
+         */
+        private double clamp(double value, double minimum, double maximum) {
+            return Math.max(minimum, Math.min(maximum, value));
+        }
+    }
+}
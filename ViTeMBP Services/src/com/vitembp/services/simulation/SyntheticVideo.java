@@ -0,0 +1,192 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.simulation;
+
+import com.vitembp.services.AsyncProcessing;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Generates videos with FFmpeg which contain the sync signals of a device: a
+ * green flash of the sync light and a 3 kHz tone from the buzzer starting a
+ * known time into the video. The picture is noisy so the encoder and the
+ * detectors do the work they would on footage from a camera.
+ */
+public class SyntheticVideo {
+    /**
+     * Class logger instance.
+     */
+    private static final Logger LOGGER = LogManager.getLogger();
+    
+    /**
+     * The frequency of the buzzer tone.
+     */
+    public static final double SYNC_FREQUENCY = 3000.0;
+    
+    /**
+     * The seconds the sync light and buzzer are on.
+     */
+    private static final double SYNC_DURATION = 2.0;
+    
+    /**
+     * The width of the video in pixels.
+     */
+    private final int width;
+    
+    /**
+     * The height of the video in pixels.
+     */
+    private final int height;
+    
+    /**
+     * The frame rate of the video.
+     */
+    private final double frameRate;
+    
+    /**
+     * The length of the video in seconds.
+     */
+    private final double duration;
+    
+    /**
+     * The videos which have been generated keyed by sync offset.
+     */
+    private final Map<Double, Path> generated = new HashMap<>();
+    
+    /**
+     * Initializes a new instance of the SyntheticVideo class.
+     * @param width The width of the video in pixels.
+     * @param height The height of the video in pixels.
+     * @param frameRate The frame rate of the video.
+     * @param duration The length of the video in seconds.
+     */
+    public SyntheticVideo(int width, int height, double frameRate, double duration) {
+        this.width = width;
+        this.height = height;
+        this.frameRate = frameRate;
+        this.duration = duration;
+    }
+    
+    /**
+     * Gets the frame the sync signals start on for a sync offset.
+     * @param syncOffset The seconds into the video the sync signals start.
+     * @return The frame the sync signals start on.
+     */
+    public int getSyncFrame(double syncOffset) {
+        return (int)Math.round(syncOffset * this.frameRate);
+    }
+    
+    /**
+     * Gets a video with the sync signals at the provided offset, generating it
+     * in the directory the first time it is requested.
+     * @param directory The directory to generate the video in.
+     * @param syncOffset The seconds into the video the sync signals start.
+     * @return The video file.
+     * @throws IOException If the video cannot be generated.
+     */
+    public synchronized Path getVideo(Path directory, double syncOffset) throws IOException {
+        Path video = this.generated.get(syncOffset);
+        if (video == null) {
+            video = directory.resolve(String.format(Locale.ROOT, "sync-%d.mp4", Math.round(syncOffset * 1000)));
+            this.generate(video, syncOffset);
+            this.generated.put(syncOffset, video);
+        }
+        return video;
+    }
+    
+    /**
+     * Generates a video with the sync signals at the provided offset.
+     * @param destination The file to write the video to.
+     * @param syncOffset The seconds into the video the sync signals start.
+     * @throws IOException If the video cannot be generated.
+     */
+    public void generate(Path destination, double syncOffset) throws IOException {
+        String start = String.format(Locale.ROOT, "%.3f", syncOffset);
+        String end = String.format(Locale.ROOT, "%.3f", syncOffset + SYNC_DURATION);
+        String length = String.format(Locale.ROOT, "%.3f", this.duration);
+        String rate = String.format(Locale.ROOT, "%.3f", this.frameRate);
+        
+        // build the FFmpeg process that will generate the video from a noisy
+        // gray picture and a tone which are only shown while syncing
+        ProcessBuilder pb = new ProcessBuilder(
+                "ffmpeg",
+                "-y",
+                "-v",
+                "error",
+                "-f",
+                "lavfi",
+                "-i",
+                "color=c=0x404040:s=" + this.width + "x" + this.height + ":r=" + rate + ":d=" + length,
+                "-f",
+                "lavfi",
+                "-i",
+                "sine=frequency=" + Double.toString(SYNC_FREQUENCY) + ":sample_rate=48000:duration=" + length,
+                "-vf",
+                "noise=alls=12:allf=t,drawbox=x=0:y=0:w=iw:h=ih:color=0x00FF00:t=fill:enable='between(t," + start + "," + end + ")'",
+                "-af",
+                "volume=volume=0:enable='not(between(t," + start + "," + end + "))'",
+                "-g",
+                Long.toString(Math.round(this.frameRate)),
+                "-c:v",
+                "libx264",
+                "-pix_fmt",
+                "yuv420p",
+                "-c:a",
+                "aac",
+                "-shortest",
+                destination.toString()
+        );
+        
+        LOGGER.info("Executing command: " + Arrays.toString(pb.command().toArray()));
+        
+        // execute the command
+        Process proc = AsyncProcessing.startProcess(pb);
+        
+        try {
+            // execute and wait for the command
+            int result = AsyncProcessing.waitFor(proc);
+            if (result != 0) {
+                // result is exit level, log anything > 0 as an error
+                LOGGER.error("Synthetic video generation completed with exit level: " + Integer.toString(result));
+                BufferedReader br = new BufferedReader(new InputStreamReader(proc.getErrorStream()));
+                String line = br.readLine();
+                while (line != null) {
+                    LOGGER.error(line);
+                    line = br.readLine();
+                }
+                throw new IOException("Could not generate synthetic video, FFmpeg exit level: " + Integer.toString(result));
+            }
+        } catch (InterruptedException ex) {
+            LOGGER.error("Interrupted while waiting for synthetic video generation.", ex);
+            throw new IOException("Interrupted while generating synthetic video.", ex);
+        }
+        
+        if (!Files.exists(destination)) {
+            throw new IOException("FFmpeg did not create synthetic video: " + destination.toString());
+        }
+    }
+}
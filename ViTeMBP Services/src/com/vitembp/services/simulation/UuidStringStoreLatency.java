@@ -0,0 +1,137 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.simulation;
+
+import com.vitembp.embedded.data.CaptureDescription;
+import com.vitembp.embedded.data.RunnableIOException;
+import com.vitembp.embedded.data.UuidStringStore;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * This class wraps another UuidStringStore implementing class and delays each
+ * request to simulate the round trip to a remote store.
+ */
+class UuidStringStoreLatency implements UuidStringStore {
+    /**
+     * The store which is being wrapped.
+     */
+    private final UuidStringStore store;
+    
+    /**
+     * The delay added to each request in milliseconds.
+     */
+    private final long latencyMillis;
+    
+    /**
+     * Initializes a new instance of the UuidStringStoreLatency class.
+     * @param toWrap The store to wrap.
+     * @param latencyMillis The delay added to each request in milliseconds.
+     */
+    UuidStringStoreLatency(final UuidStringStore toWrap, long latencyMillis) {
+        this.store = toWrap;
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public String read(UUID key) throws IOException {
+        this.delay();
+        return this.store.read(key);
+    }
+
+    @Override
+    public void write(UUID key, String value) throws IOException {
+        this.delay();
+        this.store.write(key, value);
+    }
+
+    @Override
+    public Stream<CaptureDescription> getCaptureLocations() throws IOException {
+        this.delay();
+        return this.store.getCaptureLocations();
+    }
+
+    @Override
+    public void addCaptureDescription(CaptureDescription toAdd) throws IOException {
+        this.delay();
+        this.store.addCaptureDescription(toAdd);
+    }
+
+    @Override
+    public void removeCaptureDescription(UUID location) throws IOException {
+        this.delay();
+        this.store.removeCaptureDescription(location);
+    }
+
+    @Override
+    public CaptureDescription getCaptureDescription(UUID location) throws IOException {
+        this.delay();
+        return this.store.getCaptureDescription(location);
+    }
+    
+    @Override
+    public void delete(UUID key) throws IOException {
+        this.delay();
+        this.store.delete(key);
+    }
+
+    @Override
+    public Stream<UUID> getKeys() throws IOException {
+        this.delay();
+        return this.store.getKeys();
+    }
+
+    @Override
+    public Map<UUID, String> getHashes(List<UUID> locations) throws IOException {
+        // hashes are fetched with one batch request
+        this.delay();
+        return this.store.getHashes(locations);
+    }
+    
+    @Override
+    public void batch(RunnableIOException writes) throws IOException {
+        this.store.batch(writes);
+    }
+    
+    @Override
+    public void compact() throws IOException {
+        this.store.compact();
+    }
+    
+    /**
+     * Waits for the simulated request latency.
+     * @throws InterruptedIOException If the thread is interrupted while
+     * waiting.
+     */
+    private void delay() throws InterruptedIOException {
+        if (this.latencyMillis <= 0) {
+            return;
+        }
+        
+        try {
+            Thread.sleep(this.latencyMillis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during simulated store latency.");
+        }
+    }
+}
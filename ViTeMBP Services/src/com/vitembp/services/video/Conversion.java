@@ -17,6 +17,7 @@
  */
 package com.vitembp.services.video;
 
+import com.vitembp.services.AsyncProcessing;
 import com.vitembp.services.FilenameGenerator;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
@@ -63,11 +64,11 @@ public class Conversion {
         LOGGER.info("Executing command: " + Arrays.toString(pb.command().toArray()));
         
         // execute the command
-        Process proc = pb.start();
+        Process proc = AsyncProcessing.startProcess(pb);
 
         try {
             // execute and wait for the command
-            int result = proc.waitFor();
+            int result = AsyncProcessing.waitFor(proc);
             if (result != 0) {
                 // result is exit level, log anything > 0 as an error
                 LOGGER.error("Waveform audio extraction completed with exit level: " + Integer.toString(result));
@@ -95,19 +96,49 @@ public class Conversion {
      * video file.
      */
     public static void extractFrames(String source, Path destination, int start, int count, FilenameGenerator nameGenerator) throws IOException {
-        VideoFileInfo info = new VideoFileInfo(Paths.get(source).toFile());
+        Conversion.extractFrames(source, destination, start, count, 1, nameGenerator);
+    }
+    
+    /**
+     * Extracts frames from a video file to a destination directory. Decoding
+     * starts at the keyframe before the first frame and frames are trimmed
+     * exactly from there, so only the range needed is decoded.
+     * @param source The video from which to extract frames.
+     * @param destination The destination directory for the extracted frames.
+     * @param start The starting frame to extract.
+     * @param count The number of frames to extract.
+     * @param firstFile The file number of the first extracted frame.
+     * @param nameGenerator A function which will generate a file name for a
+     * given frame number.
+     * @throws java.io.IOException If there is an IOException processing the
+     * video file.
+     */
+    public static void extractFrames(String source, Path destination, int start, int count, int firstFile, FilenameGenerator nameGenerator) throws IOException {
+        MediaInfo info = MediaProbe.probe(Paths.get(source));
+        double startTime = info.getFrameTime(start);
         
-        double startTime = ((double)start) / info.getFrameRate();
+        // seek the input to the keyframe at or before the start, allowing for
+        // rounding in the reported keyframe times
+        double seekTime = startTime;
+        try {
+            seekTime = Math.min(startTime, info.getKeyframeBefore(startTime + info.getFrameTime(1) / 2.0));
+        } catch (IOException ex) {
+            LOGGER.warn("Could not read keyframes, seeking directly to frame " + Integer.toString(start) + ".", ex);
+        }
         
         // build the FFmpeg process that will extract the frames        
         ProcessBuilder pb = new ProcessBuilder(
                 "ffmpeg",
                 "-ss",
-                Double.toString(startTime),
+                Double.toString(seekTime),
                 "-i",
                 source,
+                "-ss",
+                Double.toString(startTime - seekTime),
                 "-vframes",
                 Integer.toString(count),
+                "-start_number",
+                Integer.toString(firstFile),
                 "-v",
                 "quiet",
                 nameGenerator.getFFmpegString()
@@ -118,11 +149,11 @@ public class Conversion {
         LOGGER.info("Executing command: " + Arrays.toString(pb.command().toArray()));
         
         // execute the command
-        Process proc = pb.start();
+        Process proc = AsyncProcessing.startProcess(pb);
 
         try {
             // execute and wait for the command
-            int result = proc.waitFor();
+            int result = AsyncProcessing.waitFor(proc);
             if (result != 0) {
                 // result is exit level, log anything > 0 as an error
                 LOGGER.error("Frame extraction completed with exit level: " + Integer.toString(result));
@@ -168,7 +199,7 @@ public class Conversion {
         LOGGER.info("Executing command: " + Arrays.toString(pb.command().toArray()));
         
         // execute the FFmpeg program
-        Process proc = pb.start();
+        Process proc = AsyncProcessing.startProcess(pb);
 
         try {
             // execute and wait for the command
@@ -179,7 +210,7 @@ public class Conversion {
                 line = br.readLine();
             }
             
-            int result = proc.waitFor();
+            int result = AsyncProcessing.waitFor(proc);
             if (result != 0) {
                 // result is exit level, log anything > 0 as an error
                 LOGGER.error("Frame assembly completed with exit level: " + Integer.toString(result));
@@ -244,7 +275,7 @@ public class Conversion {
         LOGGER.info("Executing command: " + Arrays.toString(pb.command().toArray()));
         
         // execute the FFmpeg program
-        Process proc = pb.start();
+        Process proc = AsyncProcessing.startProcess(pb);
 
         try {
             // execute and wait for the command
@@ -255,7 +286,7 @@ public class Conversion {
                 line = br.readLine();
             }
             
-            int result = proc.waitFor();
+            int result = AsyncProcessing.waitFor(proc);
             if (result != 0) {
                 // result is exit level, log anything > 0 as an error
                 LOGGER.error("Video concatenation completed with exit level: " + Integer.toString(result));
@@ -318,7 +349,7 @@ public class Conversion {
         LOGGER.info("Executing command: " + Arrays.toString(pb.command().toArray()));
         
         // execute the FFmpeg program
-        Process proc = pb.start();
+        Process proc = AsyncProcessing.startProcess(pb);
 
         try {
             // execute and wait for the command
@@ -329,7 +360,7 @@ public class Conversion {
                 line = br.readLine();
             }
             
-            int result = proc.waitFor();
+            int result = AsyncProcessing.waitFor(proc);
             if (result != 0) {
                 // result is exit level, log anything > 0 as an error
                 LOGGER.error("Video audio copy completed with exit level: " + Integer.toString(result));
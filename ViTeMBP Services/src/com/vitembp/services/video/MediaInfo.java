@@ -0,0 +1,402 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.video;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes a media file as reported by ffprobe. Frame rates are kept as the
+ * exact rational values of the stream so frame times can be calculated
+ * without rounding drift.
+ */
+public class MediaInfo {
+    /**
+     * The path of the probed file.
+     */
+    private final Path path;
+    
+    /**
+     * The name of the container format.
+     */
+    private final String formatName;
+    
+    /**
+     * The duration of the media in seconds.
+     */
+    private final double duration;
+    
+    /**
+     * The index of the video stream or -1 if there is no video stream.
+     */
+    private final int videoStreamIndex;
+    
+    /**
+     * The name of the video codec.
+     */
+    private final String videoCodec;
+    
+    /**
+     * The horizontal resolution of the video in pixels.
+     */
+    private final int width;
+    
+    /**
+     * The vertical resolution of the video in pixels.
+     */
+    private final int height;
+    
+    /**
+     * The numerator of the video frame rate.
+     */
+    private final int frameRateNumerator;
+    
+    /**
+     * The denominator of the video frame rate.
+     */
+    private final int frameRateDenominator;
+    
+    /**
+     * The number of frames in the video stream.
+     */
+    private final long frameCount;
+    
+    /**
+     * The audio streams of the media.
+     */
+    private final List<AudioStream> audioStreams;
+    
+    /**
+     * The presentation times of the video keyframes in seconds, loaded the
+     * first time they are requested.
+     */
+    private volatile double[] keyframeTimes;
+    
+    /**
+     * Initializes a new instance of the MediaInfo class.
+     * @param path The path of the probed file.
+     * @param formatName The name of the container format.
+     * @param duration The duration of the media in seconds.
+     * @param videoStreamIndex The index of the video stream or -1 if there is
+     * no video stream.
+     * @param videoCodec The name of the video codec.
+     * @param width The horizontal resolution of the video in pixels.
+     * @param height The vertical resolution of the video in pixels.
+     * @param frameRateNumerator The numerator of the video frame rate.
+     * @param frameRateDenominator The denominator of the video frame rate.
+     * @param frameCount The number of frames in the video stream.
+     * @param audioStreams The audio streams of the media.
+     */
+    MediaInfo(Path path, String formatName, double duration, int videoStreamIndex, String videoCodec, int width, int height, int frameRateNumerator, int frameRateDenominator, long frameCount, List<AudioStream> audioStreams) {
+        this.path = path;
+        this.formatName = formatName;
+        this.duration = duration;
+        this.videoStreamIndex = videoStreamIndex;
+        this.videoCodec = videoCodec;
+        this.width = width;
+        this.height = height;
+        this.frameRateNumerator = frameRateNumerator;
+        this.frameRateDenominator = frameRateDenominator;
+        this.frameCount = frameCount;
+        this.audioStreams = Collections.unmodifiableList(audioStreams);
+    }
+    
+    /**
+     * Gets the path of the probed file.
+     * @return The path of the probed file.
+     */
+    public Path getPath() {
+        return this.path;
+    }
+    
+    /**
+     * Gets the name of the container format.
+     * @return The name of the container format.
+     */
+    public String getFormatName() {
+        return this.formatName;
+    }
+    
+    /**
+     * Gets the duration of the media in seconds.
+     * @return The duration of the media in seconds.
+     */
+    public double getDuration() {
+        return this.duration;
+    }
+    
+    /**
+     * Gets whether the media has a video stream.
+     * @return Whether the media has a video stream.
+     */
+    public boolean hasVideo() {
+        return this.videoStreamIndex >= 0;
+    }
+    
+    /**
+     * Gets the index of the video stream.
+     * @return The index of the video stream or -1 if there is no video stream.
+     */
+    public int getVideoStreamIndex() {
+        return this.videoStreamIndex;
+    }
+    
+    /**
+     * Gets the name of the video codec.
+     * @return The name of the video codec or null if there is no video stream.
+     */
+    public String getVideoCodec() {
+        return this.videoCodec;
+    }
+    
+    /**
+     * Gets the horizontal resolution of the video in pixels.
+     * @return The horizontal resolution of the video in pixels.
+     */
+    public int getWidth() {
+        return this.width;
+    }
+    
+    /**
+     * Gets the vertical resolution of the video in pixels.
+     * @return The vertical resolution of the video in pixels.
+     */
+    public int getHeight() {
+        return this.height;
+    }
+    
+    /**
+     * Gets the numerator of the exact video frame rate.
+     * @return The numerator of the video frame rate.
+     */
+    public int getFrameRateNumerator() {
+        return this.frameRateNumerator;
+    }
+    
+    /**
+     * Gets the denominator of the exact video frame rate.
+     * @return The denominator of the video frame rate.
+     */
+    public int getFrameRateDenominator() {
+        return this.frameRateDenominator;
+    }
+    
+    /**
+     * Gets the video frame rate in frames per second.
+     * @return The video frame rate or 0 if it is not known.
+     */
+    public double getFrameRate() {
+        return this.frameRateDenominator == 0 ? 0.0 : (double)this.frameRateNumerator / this.frameRateDenominator;
+    }
+    
+    /**
+     * Gets the number of frames in the video stream.
+     * @return The number of frames in the video stream.
+     */
+    public long getFrameCount() {
+        return this.frameCount;
+    }
+    
+    /**
+     * Gets the presentation time of a frame calculated from the exact frame
+     * rate.
+     * @param frame The frame number.
+     * @return The time of the frame in seconds from the start of the video.
+     */
+    public double getFrameTime(long frame) {
+        if (this.frameRateNumerator == 0) {
+            throw new IllegalStateException("The frame rate of " + this.path.toString() + " is not known.");
+        }
+        return (double)frame * this.frameRateDenominator / this.frameRateNumerator;
+    }
+    
+    /**
+     * Gets the number of the frame presented at a time.
+     * @param time The time in seconds from the start of the video.
+     * @return The number of the frame nearest to the time.
+     */
+    public long getFrameAt(double time) {
+        if (this.frameRateDenominator == 0) {
+            throw new IllegalStateException("The frame rate of " + this.path.toString() + " is not known.");
+        }
+        return Math.round(time * this.frameRateNumerator / this.frameRateDenominator);
+    }
+    
+    /**
+     * Gets the audio streams of the media.
+     * @return The audio streams of the media.
+     */
+    public List<AudioStream> getAudioStreams() {
+        return this.audioStreams;
+    }
+    
+    /**
+     * Gets the presentation times of the video keyframes. The index is probed
+     * the first time it is requested and kept with this instance.
+     * @return The keyframe times in seconds in ascending order.
+     * @throws IOException If the keyframes could not be probed.
+     */
+    public double[] getKeyframeTimes() throws IOException {
+        double[] times = this.keyframeTimes;
+        if (times == null) {
+            times = MediaProbe.probeKeyframes(this.path);
+            this.keyframeTimes = times;
+        }
+        return times.clone();
+    }
+    
+    /**
+     * Gets the time of the last keyframe at or before a time, which is where
+     * a decoder can start to reach the time precisely.
+     * @param time The time in seconds.
+     * @return The time of the keyframe or 0 if there is none before the time.
+     * @throws IOException If the keyframes could not be probed.
+     */
+    public double getKeyframeBefore(double time) throws IOException {
+        if (this.keyframeTimes == null) {
+            this.getKeyframeTimes();
+        }
+        
+        double[] times = this.keyframeTimes;
+        int index = Arrays.binarySearch(times, time);
+        if (index >= 0) {
+            return times[index];
+        }
+        
+        // the insertion point is after the last smaller keyframe
+        int before = -index - 2;
+        return before >= 0 ? times[before] : 0.0;
+    }
+    
+    /**
+     * Gets the time of the first keyframe after a time, which is where a
+     * range of frames can end so the next range starts on a keyframe.
+     * @param time The time in seconds.
+     * @return The time of the keyframe or NaN if there is none after the time.
+     * @throws IOException If the keyframes could not be probed.
+     */
+    public double getKeyframeAfter(double time) throws IOException {
+        if (this.keyframeTimes == null) {
+            this.getKeyframeTimes();
+        }
+        
+        double[] times = this.keyframeTimes;
+        int index = Arrays.binarySearch(times, time);
+        
+        // the insertion point is the first larger keyframe
+        int after = index >= 0 ? index + 1 : -index - 1;
+        return after < times.length ? times[after] : Double.NaN;
+    }
+    
+    /**
+     * Sets the keyframe index when it is already known.
+     * @param times The keyframe times in seconds in ascending order.
+     */
+    void setKeyframeTimes(double[] times) {
+        this.keyframeTimes = times.clone();
+    }
+    
+    /**
+     * Describes an audio stream.
+     */
+    public static class AudioStream {
+        /**
+         * The index of the stream in the file.
+         */
+        private final int index;
+        
+        /**
+         * The name of the audio codec.
+         */
+        private final String codec;
+        
+        /**
+         * The sample rate in samples per second.
+         */
+        private final int sampleRate;
+        
+        /**
+         * The number of channels.
+         */
+        private final int channels;
+        
+        /**
+         * The channel layout name, such as stereo.
+         */
+        private final String channelLayout;
+        
+        /**
+         * Initializes a new instance of the AudioStream class.
+         * @param index The index of the stream in the file.
+         * @param codec The name of the audio codec.
+         * @param sampleRate The sample rate in samples per second.
+         * @param channels The number of channels.
+         * @param channelLayout The channel layout name.
+         */
+        AudioStream(int index, String codec, int sampleRate, int channels, String channelLayout) {
+            this.index = index;
+            this.codec = codec;
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            this.channelLayout = channelLayout;
+        }
+        
+        /**
+         * Gets the index of the stream in the file.
+         * @return The index of the stream in the file.
+         */
+        public int getIndex() {
+            return this.index;
+        }
+        
+        /**
+         * Gets the name of the audio codec.
+         * @return The name of the audio codec.
+         */
+        public String getCodec() {
+            return this.codec;
+        }
+        
+        /**
+         * Gets the sample rate in samples per second.
+         * @return The sample rate in samples per second.
+         */
+        public int getSampleRate() {
+            return this.sampleRate;
+        }
+        
+        /**
+         * Gets the number of channels.
+         * @return The number of channels.
+         */
+        public int getChannels() {
+            return this.channels;
+        }
+        
+        /**
+         * Gets the channel layout name.
+         * @return The channel layout name or null if it is not reported.
+         */
+        public String getChannelLayout() {
+            return this.channelLayout;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.video;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Probes media files with a single structured ffprobe call and caches the
+ * results by path, size, and modification time so that each stage of
+ * processing can share one probe of a file.
+ */
+public class MediaProbe {
+    /**
+     * Class logger instance.
+     */
+    private static final Logger LOGGER = LogManager.getLogger();
+    
+    /**
+     * The maximum number of probe results kept in the cache.
+     */
+    private static final int CACHE_SIZE = 256;
+    
+    /**
+     * The mapper used to parse ffprobe output.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    /**
+     * The probe results keyed by file path, size, and modification time.
+     */
+    private static final Map<String, MediaInfo> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, MediaInfo>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, MediaInfo> eldest) {
+                    return this.size() > CACHE_SIZE;
+                }
+            });
+    
+    /**
+     * Prevents instantiation of the MediaProbe class.
+     */
+    private MediaProbe() {
+    }
+    
+    /**
+     * Probes a media file, returning a cached result if the file has not
+     * changed since it was last probed.
+     * @param file The file to probe.
+     * @return The information describing the file.
+     * @throws IOException If the file could not be probed.
+     */
+    public static MediaInfo probe(Path file) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        BasicFileAttributes attributes = Files.readAttributes(absolute, BasicFileAttributes.class);
+        String key = absolute.toString() + "|" + Long.toString(attributes.size()) + "|" + Long.toString(attributes.lastModifiedTime().toMillis());
+        
+        MediaInfo info = CACHE.get(key);
+        if (info != null) {
+            return info;
+        }
+        
+        byte[] output = run(
+                "ffprobe",
+                "-v", "error",
+                "-print_format", "json",
+                "-show_streams",
+                "-show_format",
+                absolute.toString());
+        info = parse(absolute, MAPPER.readTree(output));
+        LOGGER.debug("Probed " + absolute.toString() + ": " + Integer.toString(info.getWidth()) + "x" + Integer.toString(info.getHeight()) + " at " + Integer.toString(info.getFrameRateNumerator()) + "/" + Integer.toString(info.getFrameRateDenominator()) + " fps.");
+        
+        CACHE.put(key, info);
+        return info;
+    }
+    
+    /**
+     * Removes all results from the probe cache.
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+    
+    /**
+     * Probes the presentation times of the keyframes of the first video stream
+     * of a file.
+     * @param file The file to probe.
+     * @return The keyframe times in seconds in ascending order.
+     * @throws IOException If the file could not be probed.
+     */
+    static double[] probeKeyframes(Path file) throws IOException {
+        byte[] output = run(
+                "ffprobe",
+                "-v", "error",
+                "-select_streams", "v:0",
+                "-show_entries", "packet=pts_time,flags",
+                "-print_format", "json",
+                file.toAbsolutePath().toString());
+        
+        return parseKeyframes(new ByteArrayInputStream(output));
+    }
+    
+    /**
+     * Builds media information from the JSON output of ffprobe.
+     * @param file The file that was probed.
+     * @param root The root of the ffprobe JSON output.
+     * @return The information describing the file.
+     * @throws IOException If the output does not describe a media file.
+     */
+    static MediaInfo parse(Path file, JsonNode root) throws IOException {
+        JsonNode format = root.path("format");
+        JsonNode streams = root.path("streams");
+        if (format.isMissingNode() || !streams.isArray()) {
+            throw new IOException("The probe of " + file.toString() + " did not return format and stream data.");
+        }
+        
+        double duration = format.path("duration").asDouble(0.0);
+        
+        JsonNode video = null;
+        List<MediaInfo.AudioStream> audio = new ArrayList<>();
+        for (JsonNode stream : streams) {
+            String type = stream.path("codec_type").asText();
+            if ("video".equals(type) && video == null && stream.path("disposition").path("attached_pic").asInt(0) == 0) {
+                video = stream;
+            } else if ("audio".equals(type)) {
+                audio.add(new MediaInfo.AudioStream(
+                        stream.path("index").asInt(),
+                        textOrNull(stream.path("codec_name")),
+                        stream.path("sample_rate").asInt(0),
+                        stream.path("channels").asInt(0),
+                        textOrNull(stream.path("channel_layout"))));
+            }
+        }
+        
+        if (video == null) {
+            return new MediaInfo(file, textOrNull(format.path("format_name")), duration, -1, null, 0, 0, 0, 0, 0, audio);
+        }
+        
+        // the average rate matches the frames actually in the file, while
+        // the base rate of variable rate video can be a multiple of it, so
+        // the base rate is only used when the average is not reported
+        int[] rate = parseRational(video.path("avg_frame_rate").asText("0/0"));
+        if (rate[0] == 0 || rate[1] == 0) {
+            rate = parseRational(video.path("r_frame_rate").asText("0/0"));
+        }
+        
+        // not all containers report a frame count, so estimate it from the
+        // duration when it is missing
+        double videoDuration = video.path("duration").asDouble(duration);
+        long frames = video.path("nb_frames").asLong(0);
+        if (frames == 0 && rate[1] != 0) {
+            frames = Math.round(videoDuration * rate[0] / rate[1]);
+        }
+        
+        return new MediaInfo(
+                file,
+                textOrNull(format.path("format_name")),
+                duration,
+                video.path("index").asInt(),
+                textOrNull(video.path("codec_name")),
+                video.path("width").asInt(0),
+                video.path("height").asInt(0),
+                rate[0],
+                rate[1],
+                frames,
+                audio);
+    }
+    
+    /**
+     * Parses the keyframe times from the JSON packet output of ffprobe. The
+     * output is streamed so that long videos do not build a full tree.
+     * @param input The ffprobe packet output.
+     * @return The keyframe times in seconds in ascending order.
+     * @throws IOException If the output could not be parsed.
+     */
+    static double[] parseKeyframes(InputStream input) throws IOException {
+        double[] times = new double[64];
+        int count = 0;
+        
+        try (JsonParser parser = new JsonFactory().createParser(input)) {
+            String ptsTime = null;
+            String flags = null;
+            int depth = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.START_OBJECT) {
+                    depth++;
+                    if (depth == 2) {
+                        ptsTime = null;
+                        flags = null;
+                    }
+                } else if (token == JsonToken.END_OBJECT) {
+                    // packets are the objects nested in the packets array
+                    if (depth == 2 && ptsTime != null && flags != null && flags.indexOf('K') >= 0) {
+                        if (count == times.length) {
+                            times = Arrays.copyOf(times, count * 2);
+                        }
+                        times[count++] = Double.parseDouble(ptsTime);
+                    }
+                    depth--;
+                } else if (token == JsonToken.VALUE_STRING && depth == 2) {
+                    if ("pts_time".equals(parser.getCurrentName())) {
+                        ptsTime = parser.getText();
+                    } else if ("flags".equals(parser.getCurrentName())) {
+                        flags = parser.getText();
+                    }
+                }
+            }
+        }
+        
+        // packets are listed in decode order
+        double[] toReturn = Arrays.copyOf(times, count);
+        Arrays.sort(toReturn);
+        return toReturn;
+    }
+    
+    /**
+     * Parses a rational number in the form "numerator/denominator".
+     * @param value The value to parse.
+     * @return An array of the numerator and denominator.
+     */
+    static int[] parseRational(String value) {
+        String[] parts = value.split("/");
+        try {
+            if (parts.length == 2) {
+                return new int[] { Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()) };
+            } else if (parts.length == 1) {
+                return new int[] { Integer.parseInt(parts[0].trim()), 1 };
+            }
+        } catch (NumberFormatException ex) {
+            LOGGER.error("Could not parse rational value: " + value, ex);
+        }
+        return new int[] { 0, 0 };
+    }
+    
+    /**
+     * Gets the text of a node or null if it is missing.
+     * @param node The node to get the text of.
+     * @return The text of the node or null if it is missing.
+     */
+    private static String textOrNull(JsonNode node) {
+        return node.isMissingNode() || node.isNull() ? null : node.asText();
+    }
+    
+    /**
+     * Runs ffprobe and collects its standard output.
+     * @param command The command to run.
+     * @return The standard output of the command.
+     * @throws IOException If the command failed.
+     */
+    private static byte[] run(String... command) throws IOException {
+        ProcessBuilder pb = new ProcessBuilder(command);
+        Process proc = pb.start();
+        
+        // drain the error stream separately so neither pipe can fill and
+        // stall the process
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        Thread errorReader = new Thread(() -> copy(proc.getErrorStream(), errors));
+        errorReader.setDaemon(true);
+        errorReader.start();
+        
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        copy(proc.getInputStream(), output);
+        
+        try {
+            int result = proc.waitFor();
+            errorReader.join();
+            if (result != 0) {
+                throw new IOException("ffprobe completed with exit level " + Integer.toString(result) + ": " + errors.toString().trim());
+            }
+        } catch (InterruptedException ex) {
+            proc.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for ffprobe.", ex);
+        }
+        
+        return output.toByteArray();
+    }
+    
+    /**
+     * Copies a stream to a buffer, logging rather than throwing errors.
+     * @param in The stream to read.
+     * @param out The buffer to write to.
+     */
+    private static void copy(InputStream in, ByteArrayOutputStream out) {
+        byte[] buffer = new byte[8192];
+        try {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException ex) {
+            LOGGER.error("IO exception reading ffprobe output.", ex);
+        }
+    }
+}
@@ -20,11 +20,15 @@ package com.vitembp.services.video;
 import com.vitembp.embedded.data.Capture;
 import com.vitembp.embedded.data.CaptureFactory;
 import com.vitembp.embedded.data.CaptureTypes;
-import com.vitembp.embedded.data.Sample;
 import com.vitembp.services.imaging.SyncDiagFrameProcessor;
+import com.vitembp.services.AsyncProcessing;
 import com.vitembp.services.ApiFunctions;
+import com.vitembp.services.audio.SyncDetector;
+import com.vitembp.services.audio.SyncResult;
 import com.vitembp.services.FilenameGenerator;
 import com.vitembp.services.config.ServicesConfig;
+import com.vitembp.services.data.CaptureExporter;
+import com.vitembp.services.data.CaptureOperations;
 import com.vitembp.services.data.CaptureProcessor;
 import com.vitembp.services.data.Pipeline;
 import com.vitembp.services.data.StandardOverlayDefinitions;
@@ -32,13 +36,8 @@ import com.vitembp.services.data.StandardPipelines;
 import com.vitembp.services.imaging.Histogram;
 import com.vitembp.services.imaging.HistogramList;
 import com.vitembp.services.interfaces.AmazonSimpleStorageService;
-import com.vitembp.services.sensors.AccelerometerThreeAxis;
-import com.vitembp.services.sensors.DistanceSensor;
-import com.vitembp.services.sensors.RotarySensor;
-import com.vitembp.services.sensors.Sensor;
-import com.vitembp.services.sensors.SensorFactory;
+import com.vitembp.services.interfaces.S3MultipartOutputStream;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -46,10 +45,9 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -71,9 +69,19 @@ public class Processing {
      */
     private static final double OUTLIER_DEVIATIONS = 2;
     
+    /**
+     * The maximum number of frames searched for synchronization frames.
+     */
+    private static final int SYNC_SEARCH_FRAMES = 900;
+    
+    /**
+     * The approximate number of frames extracted in each step of the search.
+     */
+    private static final int SYNC_CHUNK_FRAMES = 60;
+    
     /**
      * Finds the frames which have an outlier brightness in the given color.
-     * channel.
+     * channel. Frames are extracted in steps ending on keyframes.
      * @param videoFile The file to examine.
      * @param channel The color channel to evaluate.
      * @param fileGenerator The filename generator which defines the names of
@@ -84,6 +92,11 @@ public class Processing {
      * video file.
      */
     public static List<Integer> findChannelSyncFrames(String videoFile, ApiFunctions.COLOR_CHANNELS channel, FilenameGenerator fileGenerator, Path overlayOutput) throws IOException {
+        MediaInfo info = MediaProbe.probe(Paths.get(videoFile));
+        if (!info.hasVideo()) {
+            throw new IOException("No video stream found in file: " + videoFile);
+        }
+        
         // build a temporary directory for images
         Path tempDir = Files.createTempDirectory("vitempb");
         
@@ -104,11 +117,21 @@ public class Processing {
                 throw new IllegalArgumentException("Unknown color channel specified.");
         }
         
-        // crate images with ffmpeg
-        Conversion.extractFrames(videoFile, tempDir, 0, 900, fileGenerator);
-        
-        // create histogram list from images
-        HistogramList histograms = HistogramList.loadFromDirectory(tempDir, fileGenerator);
+        // crate images with ffmpeg a step at a time, building the histograms
+        // as each step completes
+        HistogramList histograms = new HistogramList();
+        int extracted = 0;
+        while (extracted < SYNC_SEARCH_FRAMES) {
+            int count = Math.min(getSyncChunkLength(info, extracted), SYNC_SEARCH_FRAMES - extracted);
+            Conversion.extractFrames(videoFile, tempDir, extracted, count, extracted + 1, fileGenerator);
+            histograms.addAll(HistogramList.loadFromDirectory(tempDir, fileGenerator, extracted + 1));
+            extracted += count;
+            
+            // stop at the end of the video
+            if (!Files.exists(tempDir.resolve(fileGenerator.getPath(extracted)))) {
+                break;
+            }
+        }
         
         // get stats for diagnostics
         double stdDev = histograms.getPosStdev(selector);
@@ -119,8 +142,8 @@ public class Processing {
         
         // if diagnostic data requested build it now
         if (overlayOutput != null) {
-            VideoFileInfo info = new VideoFileInfo(videoFile);
-            Processing.buildDiagOverlay(histograms, (OUTLIER_DEVIATIONS * stdDev) + average, outliers, fileGenerator, tempDir, overlayOutput, info);
+            VideoFileInfo fileInfo = new VideoFileInfo(videoFile);
+            Processing.buildDiagOverlay(histograms, (OUTLIER_DEVIATIONS * stdDev) + average, outliers, fileGenerator, tempDir, overlayOutput, fileInfo);
             // uploadPublic to S3
             AmazonSimpleStorageService s3 = new AmazonSimpleStorageService("www-vitembp-com");
             s3.uploadPublic(overlayOutput.toFile(), "debug/" + overlayOutput.getFileName());
@@ -146,6 +169,10 @@ public class Processing {
         AmazonSimpleStorageService sourceBucket = new AmazonSimpleStorageService(inputBucket);
         AmazonSimpleStorageService destinationBucket = new AmazonSimpleStorageService(outputBucket);
 
+        // the source and the processed output are both kept in the
+        // temporary directory until the job completes
+        AsyncProcessing.reserveTemporarySpace(sourceBucket.getSize(videoKey) * 2);
+        
         LOGGER.info("Downloading video from S3 storage.");
         // download the source file to temporary directory
         Path tempDir = ServicesConfig.getConfig().getTemporaryDirectory();
@@ -154,32 +181,22 @@ public class Processing {
         File localVideoSource = localVideoSourcePath.toFile();
         sourceBucket.download(videoKey, localVideoSource);
         
-        LOGGER.info("Detecting audio sync signal.");
-        // find video sync frames
-        // first try audio signal as it is more reliable
-        List<Integer> frames = 
-                com.vitembp.services.audio.Processing.findSyncFrames(
-                        localVideoSource.getAbsolutePath(),
-                        3000.0);
-        
-        // then if that was unsuccessful, try the video signal
-        if (frames.size() < 1) {
-            LOGGER.info("Audio sync signal detection failed, trying video.");
-            frames.addAll(
-                    Processing.findChannelSyncFrames(localVideoSource.getAbsolutePath(),
-                            ApiFunctions.COLOR_CHANNELS.GREEN,
-                            FilenameGenerator.PNG_NUMERIC_OUT));
-        }
+        LOGGER.info("Detecting sync signal.");
+        // find the sync frame from the audio tone and the sync light together
+        // in one pass over the start of the video
+        Optional<SyncResult> sync = SyncDetector.detect(
+                localVideoSource.getAbsolutePath(),
+                3000.0,
+                ApiFunctions.COLOR_CHANNELS.GREEN);
         
-        if (frames.isEmpty()) {
-            LOGGER.warn("No sync frames detected, will sync to frame 0.");
+        int syncFrame = 0;
+        if (sync.isPresent()) {
+            LOGGER.info("Found sync signal at " + sync.get().toString() + ".");
+            syncFrame = sync.get().getFrame();
         } else {
-            LOGGER.info("Found sync frames: " + Arrays.toString(frames.toArray()));
+            LOGGER.warn("No sync frames detected, will sync to frame 0.");
         }
         
-        // get the first frame
-        int syncFrame = frames.stream().min(Integer::compare).orElse(0);
-        
         // create a temporary file for the output
         Path localTempOutput = 
                 Files.createTempFile(tempDir, null, videoFilename.toString());
@@ -220,72 +237,26 @@ public class Processing {
      * video file.
      */
     public static void exportRawData(UUID capture, String outputBucket) throws IOException {
-        // create S3 bucket to save data to
-        AmazonSimpleStorageService destinationBucket = new AmazonSimpleStorageService(outputBucket);
-        String outputFilename = "RawData.csv";
-        
-        // download the source file to temporary directory
-        Path tempDir = ServicesConfig.getConfig().getTemporaryDirectory();
-        
-        // create a temporary file for the output
-        Path localTempOutput = 
-                Files.createTempFile(tempDir, null, outputFilename);
-        localTempOutput.toFile().delete();
-
-        // get the capture to process from the database
-        Capture toProcess;
-        try {
-            Stream<Capture> allCaptures = java.util.stream.StreamSupport.stream(
-                    CaptureFactory.getCaptures(CaptureTypes.AmazonDynamoDB).spliterator(),
-                    false);
-            toProcess = allCaptures.filter((Capture c) -> c.getId().equals(capture)).findFirst().get();
-        } catch (InstantiationException ex) {
-            throw new IOException("Could not read captures from database.", ex);
-        }
-
-        // write out header
-        try ( // create output file
-                FileWriter outFile = new FileWriter(localTempOutput.toFile())) {
-            // write out header
-            String[] names = toProcess.getSensorNames().toArray(new String[0]);
-            StringBuilder nameLine = new StringBuilder();
-            toProcess.getSensorNames().forEach((name) -> {
-                nameLine.append(name);
-                nameLine.append(",");
-            });
-            nameLine.deleteCharAt(nameLine.length() - 1);
-            nameLine.append('\n');
-            outFile.write(nameLine.toString());
-            
-            // process the data
-            Iterator<Sample> samples = toProcess.getSamples().iterator();
-            while (samples.hasNext()) {
-                Sample toWrite = samples.next();
-                StringBuilder nextLine = new StringBuilder();
-                for (String name : names) {
-                    if (toWrite.getSensorData().containsKey(name)) {
-                        nextLine.append('"');
-                        nextLine.append(toWrite.getSensorData().get(name));
-                        nextLine.append('"');
-                        nextLine.append(',');
-                    }
-                }
-                
-                // if there was any sensor data change the trailing comma to a
-                // newline and write the line to the output file.
-                if (nextLine.length() > 0) {
-                    nextLine.deleteCharAt(nextLine.length() - 1);
-                    nextLine.append("\n");
-                    outFile.write(nextLine.toString());
-                }
-            }
-        }
-
-        // upload to the destination in the target S3 bucket.
-        destinationBucket.uploadPublic(localTempOutput.toFile(), capture.toString() + "/" + outputFilename);
-        
-        // delte local file
-        localTempOutput.toFile().delete();
+        exportRawData(capture, outputBucket, CaptureExporter.Format.CSV, false);
+    }
+    
+    /**
+     * Exports un-calibrated data from the capture to a file in the target bucket.
+     * @param capture The capture containing data to export.
+     * @param outputBucket The bucket to store the output file in.
+     * @param format The format to export the data in.
+     * @param compress Whether the output file is compressed with GZip.
+     * @throws java.io.IOException If there is an IOException exporting the
+     * data.
+     */
+    public static void exportRawData(UUID capture, String outputBucket, CaptureExporter.Format format, boolean compress) throws IOException {
+        exportData(
+                CaptureOperations.getCaptureAtLocation(capture),
+                new AmazonSimpleStorageService(outputBucket),
+                "RawData",
+                false,
+                format,
+                compress);
     }
     
     /**
@@ -296,96 +267,58 @@ public class Processing {
      * video file.
      */
     public static void exportCalData(UUID capture, String outputBucket) throws IOException {
-        // create S3 bucket to save data to
-        AmazonSimpleStorageService destinationBucket = new AmazonSimpleStorageService(outputBucket);
-        String outputFilename = "CalibratedData.csv";
-        
-        // download the source file to temporary directory
-        Path tempDir = ServicesConfig.getConfig().getTemporaryDirectory();
+        exportCalData(capture, outputBucket, CaptureExporter.Format.CSV, false);
+    }
+    
+    /**
+     * Exports calibrated data from the capture to a file in the target bucket.
+     * @param capture The capture containing data to export.
+     * @param outputBucket The bucket to store the output file in.
+     * @param format The format to export the data in.
+     * @param compress Whether the output file is compressed with GZip.
+     * @throws java.io.IOException If there is an IOException exporting the
+     * data.
+     */
+    public static void exportCalData(UUID capture, String outputBucket, CaptureExporter.Format format, boolean compress) throws IOException {
+        exportData(
+                CaptureOperations.getCaptureAtLocation(capture),
+                new AmazonSimpleStorageService(outputBucket),
+                "CalibratedData",
+                true,
+                format,
+                compress);
+    }
+    
+    /**
+     * Streams the data of a capture into an upload to the target bucket. The
+     * data is encoded as it is read and uploaded in parts while the rest is
+     * encoded, so no temporary file is used.
+     * @param toExport The capture containing data to export.
+     * @param destinationBucket The bucket to store the output file in.
+     * @param outputName The name of the output file without an extension.
+     * @param calibrated Whether calibrated values are exported instead of the
+     * raw sensor data.
+     * @param format The format to export the data in.
+     * @param compress Whether the output file is compressed with GZip.
+     * @return The key of the output file in the bucket.
+     * @throws java.io.IOException If there is an IOException exporting the
+     * data.
+     */
+    public static String exportData(Capture toExport, AmazonSimpleStorageService destinationBucket, String outputName, boolean calibrated, CaptureExporter.Format format, boolean compress) throws IOException {
+        String key = toExport.getId().toString() + "/" + outputName + format.getExtension() + (compress ? ".gz" : "");
         
-        // create a temporary file for the output
-        Path localTempOutput = 
-                Files.createTempFile(tempDir, null, outputFilename);
-        localTempOutput.toFile().delete();
-
-        // get the capture to process from the database
-        Capture toProcess;
+        // the upload is only completed by closing it after a successful
+        // export and is aborted otherwise so no partial file is left
+        S3MultipartOutputStream upload = destinationBucket.openPublicUpload(key);
         try {
-            Stream<Capture> allCaptures = java.util.stream.StreamSupport.stream(
-                    CaptureFactory.getCaptures(CaptureTypes.AmazonDynamoDB).spliterator(),
-                    false);
-            toProcess = allCaptures.filter((Capture c) -> c.getId().equals(capture)).findFirst().get();
-        } catch (InstantiationException ex) {
-            throw new IOException("Could not read captures from database.", ex);
+            CaptureExporter.export(toExport, calibrated, format, compress, upload);
+            upload.close();
+        } catch (IOException | RuntimeException ex) {
+            upload.abort();
+            throw ex;
         }
-
-        // create output file
-        try (FileWriter outFile = new FileWriter(localTempOutput.toFile())) {
-            // write out header
-            String[] names = toProcess.getSensorNames().toArray(new String[0]);
-            StringBuilder nameLine = new StringBuilder();
-            toProcess.getSensorNames().forEach((name) -> {
-                nameLine.append(name);
-                nameLine.append(",");
-            });
-            nameLine.deleteCharAt(nameLine.length() - 1);
-            nameLine.append('\n');
-            outFile.write(nameLine.toString());
-            
-            // get sensors for processing calibrated data
-            Map<String, Sensor> sensors = SensorFactory.getSensors(toProcess);
-            
-            // process the data
-            Iterator<Sample> samples = toProcess.getSamples().iterator();
-            while (samples.hasNext()) {
-                Sample toWrite = samples.next();
-                StringBuilder nextLine = new StringBuilder();
-                for (String name : names) {
-                    // write data
-                    if (toWrite.getSensorData().containsKey(name)) {
-                        // get calibrated data
-                        Sensor sensor = sensors.get(name);
-                        String exportData = "";
-                        if (sensor instanceof RotarySensor) {
-                            exportData = Double.toString(
-                                ((RotarySensor)sensor).getPositionPercentage(toWrite).get());
-                        } else if (sensor instanceof DistanceSensor) {
-                            exportData = Double.toString(
-                                ((DistanceSensor)sensor).getDistancePercent(toWrite).get());
-                        }else if (sensor instanceof AccelerometerThreeAxis) {
-                            double x = ((AccelerometerThreeAxis)sensor).getXAxisG(toWrite).get();
-                            double y = ((AccelerometerThreeAxis)sensor).getYAxisG(toWrite).get();
-                            double z = ((AccelerometerThreeAxis)sensor).getZAxisG(toWrite).get();
-                            
-                            exportData = Double.toString(Math.sqrt(
-                                    Math.pow(x, 2) + Math.pow(y, 2) + Math.pow(z, 2)));
-                        } else {
-                            LOGGER.error("Unknown sensor type exporting calibrated data.");
-                        }
-                        
-                        // write out calibrated data
-                        nextLine.append('"');
-                        nextLine.append(exportData);
-                        nextLine.append('"');
-                        nextLine.append(',');
-                    }
-                }
-                
-                // if there was any sensor data change the trailing comma to a
-                // newline and write the line to the output file.
-                if (nextLine.length() > 0) {
-                    nextLine.deleteCharAt(nextLine.length() - 1);
-                    nextLine.append("\n");
-                    outFile.write(nextLine.toString());
-                }
-            }
-        }
-
-        // upload to the destination in the target S3 bucket.
-        destinationBucket.uploadPublic(localTempOutput.toFile(), capture.toString() + "/" + outputFilename);
         
-        // delte local file
-        localTempOutput.toFile().delete();
+        return key;
     }
 
     /**
@@ -432,7 +365,32 @@ public class Processing {
     public static List<Integer> findChannelSyncFrames(String videoFile, ApiFunctions.COLOR_CHANNELS channel, FilenameGenerator fileGenerator) throws IOException {
         return Processing.findChannelSyncFrames(videoFile, channel, fileGenerator, null);
     }
-
+    
+    /**
+     * Gets the number of frames to extract in a step of the sync search. Steps
+     * end on a keyframe so the next step starts decoding at its first frame.
+     * @param info The information of the video being searched.
+     * @param start The first frame of the step.
+     * @return The number of frames to extract.
+     */
+    private static int getSyncChunkLength(MediaInfo info, int start) {
+        try {
+            double keyframe = info.getKeyframeAfter(info.getFrameTime(start + SYNC_CHUNK_FRAMES - 1));
+            if (!Double.isNaN(keyframe)) {
+                long end = info.getFrameAt(keyframe);
+                
+                // very long groups of pictures use fixed length steps
+                if (end > start && end - start <= SYNC_CHUNK_FRAMES * 2) {
+                    return (int)(end - start);
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.warn("Could not read keyframes, using fixed length steps.", ex);
+        }
+        
+        return SYNC_CHUNK_FRAMES;
+    }
+    
     /**
      * Builds a video from frames with overlaid histogram data.
      * @param histograms The histograms for the frames.
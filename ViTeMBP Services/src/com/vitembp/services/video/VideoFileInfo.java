@@ -17,20 +17,16 @@
  */
 package com.vitembp.services.video;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.regex.Pattern;
+import java.nio.file.Paths;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
  * The Information class contains functions which will provide data on a 
- * video file.
+ * video file. The values are rounded as ffprobe displays them, the exact
+ * probe results are available from getMediaInfo.
  */
 public class VideoFileInfo {
     /**
@@ -58,6 +54,11 @@ public class VideoFileInfo {
      */
     private int verticalResolution;
     
+    /**
+     * The probe results for the file or null if it could not be probed.
+     */
+    private final MediaInfo mediaInfo;
+    
     /**
      * Initializes a new instance of the VideoFileInfo class.
      * @param file The file instance pointing to the video file to examine.
@@ -71,47 +72,28 @@ public class VideoFileInfo {
      * @param file The file instance pointing to the video file to examine.
      */
     public VideoFileInfo(String file) {
-        // build the FFmpeg process that will examine the file       
-        ProcessBuilder pb = new ProcessBuilder(
-                "ffprobe",
-                file
-        );
-        
-        List<String> response = new ArrayList<>();
-
+        MediaInfo info = null;
         try {
-            // build a process that will execute the FFmpeg command
-            Process proc = pb.start();
-        
-            // execute and wait for the command
-            int result = proc.waitFor();
-            if (result != 0) {
-                // result is exit level, log anything > 0 as an error
-                LOGGER.error("File probe completed with exit level: " + Integer.toString(result));
-                BufferedReader br = new BufferedReader(new InputStreamReader(proc.getErrorStream()));
-                String line = br.readLine();
-                while (line != null) {
-                    LOGGER.error(line);
-                    response.add(line);
-                    line = br.readLine();
-                }
-            } else {
-                // read results from the process
-                BufferedReader br = new BufferedReader(new InputStreamReader(proc.getErrorStream()));
-                    String line = br.readLine();
-                    while (line != null) {
-                        response.add(line);
-                        line = br.readLine();
-                    }
-            }
-        } catch (InterruptedException ex) {
-            LOGGER.error("Interrupted while waiting for process completion.", ex);
+            info = MediaProbe.probe(Paths.get(file));
         } catch (IOException ex) {
-            LOGGER.error("IO exception while creating process.", ex);
+            LOGGER.error("IO exception while probing file: " + file, ex);
         }
         
-        // parse and save response
-        this.parseResponse(response);
+        this.mediaInfo = info;
+        if (info == null) {
+            return;
+        }
+        
+        if (!info.hasVideo()) {
+            LOGGER.error("No video stream found in file: " + file);
+        }
+        
+        // round as ffprobe displays the values, to the hundredth of a frame
+        // per second and of a second
+        this.frameRate = Math.round(info.getFrameRate() * 100.0) / 100.0;
+        this.duration = Math.round(info.getDuration() * 100.0) / 100.0;
+        this.horizontalResolution = info.getWidth();
+        this.verticalResolution = info.getHeight();
     }
     
     /**
@@ -147,87 +129,11 @@ public class VideoFileInfo {
     }
     
     /**
-     * Parses and saves data from the ffprobe output to member variables.
-     * @param output The output from the ffprobe program.
+     * Gets the exact probe results for the file, including the rational frame
+     * rate, frame count, audio streams, and keyframe index.
+     * @return The probe results or null if the file could not be probed.
      */
-    private void parseResponse(List<String> output) {
-        Iterator<String> lines = output.iterator();
-        
-        // find line staring with "Input #" which should represent the video
-        // stream
-        String line;
-        do {
-            if (!lines.hasNext()) {
-                LOGGER.error("Unexpected end of output parsing stream input.");
-                output.forEach((str) -> LOGGER.error(str));
-                return;
-            }
-            
-            line = lines.next();
-        } while (!line.startsWith("Input #"));
-        
-        // find duration
-        do {
-            if (!lines.hasNext()) {
-                LOGGER.error("Unexpected end of output parsing duration.");
-                output.forEach((str) -> LOGGER.error(str));
-                return;
-            }
-            
-            line = lines.next();
-        } while (!line.startsWith("  Duration"));
-        
-        // split the time in the format "HH:MM:SS.SS" about the ":"
-        String[] times = line.split(",")[0].trim().split(" ")[1].split(":");        
-        
-        // parse the seconds, minutes, and hours to total seconds
-        this.duration = Double.parseDouble(times[2]);
-        this.duration += Double.parseDouble(times[1]) * 60.0;
-        this.duration += Double.parseDouble(times[0]) * 60.0 * 60.0;
-        
-        // read main stream data from the next line
-        if (!lines.hasNext()) {
-            LOGGER.error("Unexpected end of output parsing video mode.");
-            output.forEach((str) -> LOGGER.error(str));
-            return;
-        }
-        line = lines.next();
-        
-        // split up the video data entry around commas 
-        String[] values = line.split("Video:")[1].split(",");
-        
-        boolean foundResolution = false;
-        
-        Pattern findRes = Pattern.compile("^\\s\\d+x\\d+$");
-        // find the entry with resolution
-        for (String val : values) {
-            if (val.contains("SAR") || findRes.matcher(val).find()) {
-                String[] res = val.trim().split(" ")[0].split("x");
-                this.horizontalResolution = Integer.parseInt(res[0]);
-                this.verticalResolution = Integer.parseInt(res[1]);
-                foundResolution = true;
-                break;
-            }
-        }
-        
-        if (!foundResolution) {
-            LOGGER.error("Resolution not found.");
-            return;
-        }
-        
-        boolean foundFPS = false;
-        
-        // find framerate
-        for (String val : values) {
-            if (val.contains("fps")) {
-                this.frameRate = Double.parseDouble(val.trim().split(" ")[0]);
-                foundFPS = true;
-                break;
-            }
-        }
-        
-        if (!foundFPS) {
-            LOGGER.error("Frame rate not found.");
-        }
+    public MediaInfo getMediaInfo() {
+        return this.mediaInfo;
     }
 }
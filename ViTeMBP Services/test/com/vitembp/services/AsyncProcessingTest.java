@@ -0,0 +1,230 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the AsyncProcessing class.
+ */
+public class AsyncProcessingTest {
+    /**
+     * The scheduler under test.
+     */
+    private AsyncProcessing instance;
+    
+    public AsyncProcessingTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        this.instance = new AsyncProcessing(
+                new AsyncProcessing.ClassLimits(1, 1, 100),
+                new AsyncProcessing.ClassLimits(2, 1, 100));
+    }
+    
+    @After
+    public void tearDown() {
+        this.instance.shutdown();
+    }
+    
+    /**
+     * Submits a job which blocks its worker until the latch is released and
+     * waits for it to start.
+     * @param jobClass The class of the job.
+     * @param latch The latch to wait on.
+     * @return The job.
+     * @throws InterruptedException If interrupted waiting for the job.
+     */
+    private AsyncProcessing.Job<Object> block(AsyncProcessing.JobClass jobClass, CountDownLatch latch) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        AsyncProcessing.Job<Object> job = this.instance.submit(jobClass, AsyncProcessing.Priority.NORMAL, null, null, () -> {
+            started.countDown();
+            latch.await();
+            return null;
+        });
+        started.await();
+        return job;
+    }
+    
+    /**
+     * Tests that queued jobs run in priority order.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testPriority() throws Exception {
+        System.out.println("priority");
+        CountDownLatch latch = new CountDownLatch(1);
+        block(AsyncProcessing.JobClass.DATA, latch);
+        
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<AsyncProcessing.Job<Object>> jobs = new ArrayList<>();
+        for (AsyncProcessing.Priority priority : new AsyncProcessing.Priority[] {
+                AsyncProcessing.Priority.LOW,
+                AsyncProcessing.Priority.HIGH,
+                AsyncProcessing.Priority.NORMAL,
+                AsyncProcessing.Priority.HIGH }) {
+            int index = jobs.size();
+            jobs.add(this.instance.submit(AsyncProcessing.JobClass.DATA, priority, null, null, () -> {
+                order.add(priority.toString() + index);
+                return null;
+            }));
+        }
+        assertEquals(4, this.instance.getQueueDepth(AsyncProcessing.JobClass.DATA));
+        
+        latch.countDown();
+        for (AsyncProcessing.Job<Object> job : jobs) {
+            job.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(Arrays.asList("HIGH1", "HIGH3", "NORMAL2", "LOW0"), order);
+        assertEquals(0, this.instance.getQueueDepth(AsyncProcessing.JobClass.DATA));
+        assertEquals(5, this.instance.getCompletedCount(AsyncProcessing.JobClass.DATA));
+        assertTrue(this.instance.getStatus().contains("\"DATA\":{\"queued\":0,\"running\":0,\"completed\":5"));
+    }
+    
+    /**
+     * Tests that data jobs are not held up by video jobs.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testSeparatePools() throws Exception {
+        System.out.println("separatePools");
+        CountDownLatch latch = new CountDownLatch(1);
+        AsyncProcessing.Job<Object> first = block(AsyncProcessing.JobClass.VIDEO, latch);
+        AsyncProcessing.Job<Object> second = block(AsyncProcessing.JobClass.VIDEO, latch);
+        
+        String result = this.instance.run(AsyncProcessing.JobClass.DATA, AsyncProcessing.Priority.HIGH, null, null, () -> "done");
+        assertEquals("done", result);
+        assertEquals(2, this.instance.getRunningCount(AsyncProcessing.JobClass.VIDEO));
+        latch.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Tests that jobs for the same capture and output are only run once.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testDeduplication() throws Exception {
+        System.out.println("deduplication");
+        UUID capture = UUID.randomUUID();
+        CountDownLatch latch = new CountDownLatch(1);
+        AsyncProcessing.Job<String> first = this.instance.submit(AsyncProcessing.JobClass.DATA, AsyncProcessing.Priority.NORMAL, capture, "summary", () -> {
+            latch.await();
+            return "first";
+        });
+        AsyncProcessing.Job<String> second = this.instance.submit(AsyncProcessing.JobClass.DATA, AsyncProcessing.Priority.NORMAL, capture, "summary", () -> "second");
+        AsyncProcessing.Job<String> other = this.instance.submit(AsyncProcessing.JobClass.DATA, AsyncProcessing.Priority.NORMAL, capture, "graph", () -> "other");
+        assertSame(first, second);
+        assertNotSame(first, other);
+        
+        latch.countDown();
+        assertEquals("first", second.get(5, TimeUnit.SECONDS));
+        assertEquals("other", other.get(5, TimeUnit.SECONDS));
+        
+        // a finished job is not joined
+        assertEquals("third", this.instance.run(AsyncProcessing.JobClass.DATA, AsyncProcessing.Priority.NORMAL, capture, "summary", () -> "third"));
+    }
+    
+    /**
+     * Tests cancelling queued and running jobs.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testCancel() throws Exception {
+        System.out.println("cancel");
+        UUID capture = UUID.randomUUID();
+        CountDownLatch started = new CountDownLatch(1);
+        AsyncProcessing.Job<Object> running = this.instance.submit(AsyncProcessing.JobClass.DATA, AsyncProcessing.Priority.NORMAL, capture, "running", () -> {
+            started.countDown();
+            Thread.sleep(60000);
+            return null;
+        });
+        AsyncProcessing.Job<Object> queued = this.instance.submit(AsyncProcessing.JobClass.DATA, AsyncProcessing.Priority.NORMAL, capture, "queued", () -> null);
+        started.await();
+        
+        assertEquals(2, this.instance.cancel(capture));
+        assertTrue(running.isCancelled());
+        assertTrue(queued.isCancelled());
+        try {
+            running.get();
+            fail("Cancelled job returned a result.");
+        } catch (CancellationException ex) {
+        }
+        
+        // the worker is free for new jobs
+        assertEquals("next", this.instance.run(AsyncProcessing.JobClass.DATA, AsyncProcessing.Priority.NORMAL, capture, "running", () -> "next"));
+        assertEquals(0, this.instance.getQueueDepth(AsyncProcessing.JobClass.DATA));
+        assertEquals(0, this.instance.cancel(capture));
+    }
+    
+    /**
+     * Tests that temporary space reservations wait for space in the class.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testReserveTemporarySpace() throws Exception {
+        System.out.println("reserveTemporarySpace");
+        CountDownLatch reserved = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncProcessing.Job<Object> first = this.instance.submit(AsyncProcessing.JobClass.VIDEO, AsyncProcessing.Priority.NORMAL, null, null, () -> {
+            AsyncProcessing.reserveTemporarySpace(80);
+            reserved.countDown();
+            release.await();
+            return null;
+        });
+        reserved.await();
+        
+        CountDownLatch secondReserved = new CountDownLatch(1);
+        AsyncProcessing.Job<Object> second = this.instance.submit(AsyncProcessing.JobClass.VIDEO, AsyncProcessing.Priority.NORMAL, null, null, () -> {
+            AsyncProcessing.reserveTemporarySpace(50);
+            secondReserved.countDown();
+            return null;
+        });
+        
+        // the second job waits until the first releases its space
+        assertFalse(secondReserved.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(80, this.instance.getTemporaryBytesReserved(AsyncProcessing.JobClass.VIDEO));
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(0, this.instance.getTemporaryBytesReserved(AsyncProcessing.JobClass.VIDEO));
+    }
+}
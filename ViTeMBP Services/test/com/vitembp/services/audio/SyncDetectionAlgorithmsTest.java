@@ -25,10 +25,13 @@ import java.net.URL;
 import java.net.URLDecoder;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -44,6 +47,11 @@ public class SyncDetectionAlgorithmsTest {
     private final double signalFrequency = 3000;
     private final int signalFrameLength = 60;
     
+    /**
+     * The number of random traces each property is checked against.
+     */
+    private static final int TRACE_COUNT = 500;
+    
     public SyncDetectionAlgorithmsTest() {
     }
     
@@ -70,7 +78,7 @@ public class SyncDetectionAlgorithmsTest {
      * @return The frame data.
      * @throws IOException If the data cannot be read.
      */
-    private List<Double> getFrameValues(String filename) throws IOException {
+    private double[] getFrameValues(String filename) throws IOException {
         // get refrence to test file
         URL reso = getClass().getResource(filename);
         String sourceFile = null;
@@ -93,9 +101,8 @@ public class SyncDetectionAlgorithmsTest {
         // provides video file information, such as frame rate
         VideoFileInfo videoInfo = new VideoFileInfo(new File(sourceFile));
         
-        // performs an SignalProcessing on the audio of each video frame and gets the value
-        // at the target signal frequency
-        List<Double> frameValues = SignalProcessing.getFrameFFTValues(fileIn, videoInfo, signalFrequency);
+        // detects the tone in the audio of each video frame
+        double[] frameValues = ToneDetector.detect(fileIn, videoInfo.getFrameRate(), signalFrequency).getToneContrast();
         
         // perform averaging to smooth noise
         frameValues = SignalProcessing.appplyAveragingWindow(frameValues, 6);
@@ -151,4 +158,282 @@ public class SyncDetectionAlgorithmsTest {
         assertEquals(expResult, result);
     }
     
+    /**
+     * Builds a synthetic trace of tone contrast values as produced by the
+     * tone detector, a noise floor with a tone of roughly the signal length
+     * and optionally some shorter bursts. The trace always ends in noise.
+     * @param rnd The random source.
+     * @return The trace values.
+     */
+    private double[] createTrace(Random rnd) {
+        int length = signalFrameLength + 10 + rnd.nextInt(600);
+        double[] trace = new double[length];
+        double noise = rnd.nextDouble() * 50;
+        for (int i = 0; i < length; i++) {
+            trace[i] = Math.abs(rnd.nextGaussian()) * noise;
+        }
+        
+        // the tone itself, sometimes faint or missing entirely
+        if (rnd.nextInt(10) > 0) {
+            int toneLength = signalFrameLength / 2 + rnd.nextInt(signalFrameLength);
+            int toneStart = rnd.nextInt(Math.max(1, length - toneLength - 5));
+            double level = rnd.nextDouble() * 1000;
+            for (int i = toneStart; i < Math.min(toneStart + toneLength, length - 5); i++) {
+                trace[i] += level * (0.85 + 0.3 * rnd.nextDouble());
+            }
+        }
+        
+        // short bursts of interference
+        for (int burst = rnd.nextInt(4); burst > 0; burst--) {
+            int start = rnd.nextInt(length - 10);
+            double level = rnd.nextDouble() * 800;
+            for (int i = start; i < start + 1 + rnd.nextInt(8); i++) {
+                trace[i] += level;
+            }
+        }
+        
+        // the data ends in noise
+        for (int i = length - 2; i < length; i++) {
+            trace[i] = 0.0;
+        }
+        
+        return trace;
+    }
+    
+    /**
+     * Converts an array to a list of values.
+     * @param values The values.
+     * @return The list of values.
+     */
+    private static List<Double> toList(double[] values) {
+        List<Double> toReturn = new ArrayList<>(values.length);
+        for (double value : values) {
+            toReturn.add(value);
+        }
+        return toReturn;
+    }
+    
+    /**
+     * The list based averaging window the primitive implementation replaced.
+     * @param data The data to average.
+     * @param windowSize The size of the averaging window to apply.
+     * @return The averaged data.
+     */
+    private static List<Double> referenceAveragingWindow(List<Double> data, int windowSize) {
+        List<Double> averaged = new ArrayList<>(data.size());
+        for (int i = 0; i < data.size(); i++) {
+            double value = 0.0;
+            int end = Math.min(i + windowSize, data.size());
+            int elements = end - i;
+            for (int j = i; j < end; j++) {
+                value += data.get(j) / elements;
+            }
+            averaged.add(value);
+        }
+        return averaged;
+    }
+    
+    /**
+     * The list based sliding window search the primitive implementation
+     * replaced.
+     * @param frameValues The frame values.
+     * @param signalFrameLength The length of the signal to find.
+     * @return A set containing the frame which was found, if any.
+     */
+    private static Set<Integer> referenceAveragingWindowFrames(List<Double> frameValues, int signalFrameLength) {
+        Set<Integer> syncFramesFound = new HashSet<>();
+        if (frameValues.size() < signalFrameLength) {
+            return syncFramesFound;
+        }
+        TreeMap<Double, Integer> averages = new TreeMap<>(Double::compare);
+        for (int startFrame = 0; startFrame < frameValues.size() - signalFrameLength; startFrame++) {
+            double average = 0.0;
+            for (int offset = 0; offset < signalFrameLength; offset++) {
+                average += frameValues.get(startFrame + offset) / signalFrameLength;
+            }
+            if (!averages.containsKey(average)) {
+                averages.put(average, startFrame);
+            }
+        }
+        syncFramesFound.add(averages.lastEntry().getValue());
+        return syncFramesFound;
+    }
+    
+    /**
+     * A list based run length search, which checks the length of the longest
+     * run against the range.
+     * @param frameValues The frame values.
+     * @param signalFrameLength The length of the signal to find.
+     * @return A set containing the frame which was found, if any.
+     */
+    private static Set<Integer> referenceRunLengthFrames(List<Double> frameValues, int signalFrameLength) {
+        Set<Integer> syncFramesFound = new HashSet<>();
+        double max = Double.MIN_VALUE;
+        for (int i = 0; i < frameValues.size(); i++) {
+            max = Math.max(max, frameValues.get(i));
+        }
+        double target = 0.8 * max;
+        int minRunLength = (int)Math.round(signalFrameLength * 0.25);
+        int maxRunLength = (int)Math.round(signalFrameLength * 1.25);
+        TreeMap<Integer, Integer> values = new TreeMap<>(Integer::compare);
+        for (int startFrame = 0; startFrame < frameValues.size(); startFrame++) {
+            if (frameValues.get(startFrame) >= target) {
+                for (int runLength = 1; startFrame + runLength < frameValues.size(); runLength++) {
+                    if (frameValues.get(startFrame + runLength) < target) {
+                        if (!values.containsKey(runLength)) {
+                            values.put(runLength, startFrame);
+                        }
+                        startFrame = startFrame + runLength;
+                        break;
+                    }
+                }
+            }
+        }
+        if (values.size() > 0) {
+            int largestRun = values.lastKey();
+            if (largestRun > minRunLength && largestRun < maxRunLength) {
+                syncFramesFound.add(values.get(largestRun));
+            }
+        }
+        return syncFramesFound;
+    }
+    
+    /**
+     * The list based first close to max search the primitive implementation
+     * replaced.
+     * @param frameValues The frame values.
+     * @return A set containing the frame which was found, if any.
+     */
+    private static Set<Integer> referenceFirstCloseToMaxFrames(List<Double> frameValues) {
+        Set<Integer> syncFramesFound = new HashSet<>();
+        double max = Double.MIN_VALUE;
+        for (int i = 0; i < frameValues.size(); i++) {
+            max = Math.max(max, frameValues.get(i));
+        }
+        double target = 0.9 * max;
+        int firstFrame = -1;
+        for (int i = 0; i < frameValues.size(); i++) {
+            if (frameValues.get(i) >= target) {
+                firstFrame = i;
+                break;
+            }
+        }
+        syncFramesFound.add(firstFrame);
+        return syncFramesFound;
+    }
+    
+    /**
+     * Gets the average of a window of values.
+     * @param values The values.
+     * @param start The first value of the window.
+     * @param length The length of the window.
+     * @return The average of the window.
+     */
+    private static double windowAverage(double[] values, int start, int length) {
+        double sum = 0.0;
+        for (int i = start; i < start + length; i++) {
+            sum += values[i];
+        }
+        return sum / length;
+    }
+    
+    /**
+     * Checks that the averaging window matches the list based implementation
+     * on random traces.
+     */
+    @Test
+    public void testAveragingWindowMatchesReference() {
+        System.out.println("appplyAveragingWindow reference");
+        Random rnd = new Random(31);
+        for (int trace = 0; trace < TRACE_COUNT; trace++) {
+            double[] values = createTrace(rnd);
+            int windowSize = 1 + rnd.nextInt(12);
+            double[] result = SignalProcessing.appplyAveragingWindow(values, windowSize);
+            List<Double> expected = referenceAveragingWindow(toList(values), windowSize);
+            assertEquals(expected.size(), result.length);
+            for (int i = 0; i < result.length; i++) {
+                assertEquals(expected.get(i), result[i], 1e-9 * (1.0 + Math.abs(expected.get(i))));
+            }
+        }
+    }
+    
+    /**
+     * Checks that the sync detection algorithms and the fused scan match the
+     * list based implementations on random traces.
+     */
+    @Test
+    public void testAlgorithmsMatchReference() {
+        System.out.println("findSyncFrames reference");
+        Random rnd = new Random(47);
+        for (int trace = 0; trace < TRACE_COUNT; trace++) {
+            double[] values = SignalProcessing.appplyAveragingWindow(createTrace(rnd), 6);
+            List<Double> list = toList(values);
+            
+            // the window sums are calculated differently so windows with
+            // averages equal to rounding error are also accepted
+            Set<Integer> expectedWindow = referenceAveragingWindowFrames(list, signalFrameLength);
+            Set<Integer> window = SyncDetectionAlgorithms.findSyncFramesByAveragingWindow(values, signalFrameLength);
+            int expectedFrame = expectedWindow.iterator().next();
+            int frame = window.iterator().next();
+            assertEquals(1, window.size());
+            assertEquals(
+                    windowAverage(values, expectedFrame, signalFrameLength),
+                    windowAverage(values, frame, signalFrameLength),
+                    1e-9 * (1.0 + Math.abs(windowAverage(values, expectedFrame, signalFrameLength))));
+            
+            Set<Integer> expectedRun = referenceRunLengthFrames(list, signalFrameLength);
+            assertEquals(expectedRun, SyncDetectionAlgorithms.findSyncFramesByRunLength(values, signalFrameLength));
+            
+            Set<Integer> expectedClose = referenceFirstCloseToMaxFrames(list);
+            assertEquals(expectedClose, SyncDetectionAlgorithms.findSyncFramesByFirstCloseToMax(values));
+            
+            // the fused scan agrees with each of the algorithms
+            List<SyncCandidate> candidates = SyncDetectionAlgorithms.findSyncCandidates(values, signalFrameLength);
+            for (int i = 0; i < candidates.size(); i++) {
+                SyncCandidate candidate = candidates.get(i);
+                assertTrue(candidate.getConfidence() >= 0.0 && candidate.getConfidence() <= 1.0);
+                if (i > 0) {
+                    assertTrue(candidates.get(i - 1).getConfidence() >= candidate.getConfidence());
+                }
+                
+                switch (candidate.getMethod()) {
+                    case AVERAGING_WINDOW:
+                        assertEquals(frame, candidate.getFrame());
+                        break;
+                    case RUN_LENGTH:
+                        assertEquals(expectedRun, new HashSet<>(Arrays.asList(candidate.getFrame())));
+                        break;
+                    case FIRST_CLOSE_TO_MAX:
+                        assertEquals(expectedClose, new HashSet<>(Arrays.asList(candidate.getFrame())));
+                        break;
+                }
+            }
+            assertEquals(expectedRun.size() + 2, candidates.size());
+        }
+    }
+    
+    /**
+     * Checks that a clean tone is found with a high confidence.
+     */
+    @Test
+    public void testFindSyncCandidates() {
+        System.out.println("findSyncCandidates");
+        double[] values = new double[600];
+        for (int i = 200; i < 200 + signalFrameLength; i++) {
+            values[i] = 100.0;
+        }
+        
+        List<SyncCandidate> candidates = SyncDetectionAlgorithms.findSyncCandidates(values, signalFrameLength);
+        assertEquals(3, candidates.size());
+        for (SyncCandidate candidate : candidates) {
+            assertEquals(200, candidate.getFrame());
+            assertEquals(1.0, candidate.getConfidence(), 1e-9);
+        }
+        
+        // no tone gives no confidence
+        candidates = SyncDetectionAlgorithms.findSyncCandidates(new double[600], signalFrameLength);
+        for (SyncCandidate candidate : candidates) {
+            assertEquals(0.0, candidate.getConfidence(), 0.0);
+        }
+    }
 }
@@ -0,0 +1,203 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.audio;
+
+import com.vitembp.services.ApiFunctions;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the SyncDetector class.
+ */
+public class SyncDetectorTest {
+    
+    public SyncDetectorTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    /**
+     * Writes an AVI chunk.
+     * @param out The stream to write to.
+     * @param id The chunk ID.
+     * @param data The chunk data.
+     */
+    private static void writeChunk(ByteArrayOutputStream out, String id, byte[] data) {
+        out.write(id.charAt(0));
+        out.write(id.charAt(1));
+        out.write(id.charAt(2));
+        out.write(id.charAt(3));
+        writeInt(out, data.length);
+        out.write(data, 0, data.length);
+        if ((data.length & 1) == 1) {
+            out.write(0);
+        }
+    }
+    
+    /**
+     * Writes a little endian integer.
+     * @param out The stream to write to.
+     * @param value The value to write.
+     */
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+    
+    /**
+     * Creates an AVI stream as FFmpeg would decode it for a video at 30
+     * frames per second where the sync light and tone start at a time.
+     * @param seconds The length of the video in seconds.
+     * @param syncTime The time the sync signal starts.
+     * @param withAudio Whether to include the audio stream.
+     * @return The AVI stream.
+     */
+    private static byte[] createAvi(double seconds, double syncTime, boolean withAudio) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Random rnd = new Random(11);
+        
+        // headers with unknown sizes as when streamed
+        out.write('R'); out.write('I'); out.write('F'); out.write('F');
+        writeInt(out, 0);
+        out.write('A'); out.write('V'); out.write('I'); out.write(' ');
+        writeChunk(out, "LIST", "hdrlavih".getBytes());
+        writeChunk(out, "JUNK", new byte[7]);
+        out.write('L'); out.write('I'); out.write('S'); out.write('T');
+        writeInt(out, 0);
+        out.write('m'); out.write('o'); out.write('v'); out.write('i');
+        
+        int frames = (int)(seconds * 30);
+        for (int frame = 0; frame < frames; frame++) {
+            // the frame the light turns on in is partly lit
+            double lit = Math.max(0.0, Math.min(1.0, (frame + 1) - syncTime * 30));
+            byte[] thumbnail = new byte[48];
+            for (int i = 0; i < thumbnail.length; i++) {
+                double value = 64 + rnd.nextGaussian() * 3;
+                if (i % 3 == 1) {
+                    value += lit * 150;
+                }
+                thumbnail[i] = (byte)Math.max(0, Math.min(255, Math.round(value)));
+            }
+            writeChunk(out, "00db", thumbnail);
+            
+            if (withAudio) {
+                byte[] audio = new byte[1600 * 2];
+                for (int i = 0; i < 1600; i++) {
+                    double time = (frame * 1600 + i) / 48000.0;
+                    double value = rnd.nextGaussian() * 500;
+                    if (time >= syncTime) {
+                        value += 8000 * Math.sin(2 * Math.PI * 3000 * time);
+                    }
+                    short sample = (short)Math.round(value);
+                    audio[i * 2] = (byte)(sample & 0xff);
+                    audio[i * 2 + 1] = (byte)((sample >> 8) & 0xff);
+                }
+                writeChunk(out, "01wb", audio);
+            }
+        }
+        
+        writeChunk(out, "idx1", new byte[16]);
+        return out.toByteArray();
+    }
+
+    /**
+     * Test of read method, of class SyncDetector, with audio and video.
+     * @throws java.io.IOException If the stream cannot be read.
+     */
+    @Test
+    public void testReadAudioAndVideo() throws IOException {
+        System.out.println("readAudioAndVideo");
+        SyncDetector instance = new SyncDetector(30.0, 3000.0, ApiFunctions.COLOR_CHANNELS.GREEN, true, 1800);
+        
+        // the search stops long before the end of the video
+        assertTrue(instance.read(new ByteArrayInputStream(createAvi(20.0, 3.4567, true))));
+        SyncResult result = instance.getResult().get();
+        assertTrue(result.getFramesExamined() < 150);
+        
+        // the start is measured from the tone to well within a frame
+        assertEquals(3.4567, result.getTime(), 0.001);
+        assertEquals(104, result.getFrame());
+        assertEquals(103.7, result.getFramePosition(), 0.03);
+    }
+
+    /**
+     * Test of read method, of class SyncDetector, with only video.
+     * @throws java.io.IOException If the stream cannot be read.
+     */
+    @Test
+    public void testReadVideoOnly() throws IOException {
+        System.out.println("readVideoOnly");
+        SyncDetector instance = new SyncDetector(30.0, 3000.0, ApiFunctions.COLOR_CHANNELS.GREEN, false, 1800);
+        assertTrue(instance.read(new ByteArrayInputStream(createAvi(20.0, 5.5, false))));
+        SyncResult result = instance.getResult().get();
+        assertEquals(165, result.getFrame());
+        assertEquals(5.5, result.getTime(), 1e-9);
+        
+        // a video without the signal is read to the end
+        SyncDetector none = new SyncDetector(30.0, 3000.0, ApiFunctions.COLOR_CHANNELS.GREEN, false, 1800);
+        assertFalse(none.read(new ByteArrayInputStream(createAvi(10.0, 100.0, false))));
+        assertFalse(none.getResult().isPresent());
+    }
+
+    /**
+     * Test of findToneStart method, of class SyncDetector.
+     */
+    @Test
+    public void testFindToneStart() {
+        System.out.println("findToneStart");
+        Random rnd = new Random(13);
+        double[] samples = new double[4800];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = rnd.nextGaussian() * 300;
+            if (i >= 2017) {
+                samples[i] += 6000 * Math.sin(2 * Math.PI * 3000 * i / 48000.0);
+            }
+        }
+        assertEquals(2017 / 48000.0, SyncDetector.findToneStart(samples, 48000, 3000), 0.0002);
+        
+        // no tone start is found in noise
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = rnd.nextGaussian() * 300;
+        }
+        assertTrue(Double.isNaN(SyncDetector.findToneStart(samples, 48000, 3000)));
+    }
+}
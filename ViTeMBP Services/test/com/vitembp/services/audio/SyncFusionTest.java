@@ -0,0 +1,107 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.audio;
+
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the SyncFusion class.
+ */
+public class SyncFusionTest {
+    
+    public SyncFusionTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+    }
+    
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of accept method, of class SyncFusion, with a signal in both the
+     * audio and video.
+     */
+    @Test
+    public void testAcceptBothSignals() {
+        System.out.println("acceptBothSignals");
+        SyncFusion instance = new SyncFusion(30.0, true, true);
+        Random rnd = new Random(3);
+        
+        int stoppedAt = -1;
+        for (int i = 0; i < 900; i++) {
+            boolean on = i >= 200 && i < 260;
+            double audio = Math.abs(rnd.nextGaussian() * 0.01) + (on ? 0.2 : 0.0);
+            double video = 0.25 + rnd.nextGaussian() * 0.01 + (on ? 0.3 : 0.0);
+            if (instance.accept(audio, video)) {
+                stoppedAt = i;
+                break;
+            }
+        }
+        
+        // the search stops soon after the start without reading the signal
+        assertTrue(stoppedAt > 200);
+        assertTrue(stoppedAt < 230);
+        assertEquals(200, instance.getStartFrame());
+        assertTrue(instance.getScore() >= SyncFusion.CONFIDENT_SCORE);
+    }
+
+    /**
+     * Test of accept method, of class SyncFusion, where one signal is weak
+     * and the other strong, and where there is only noise.
+     */
+    @Test
+    public void testAcceptWeakSignal() {
+        System.out.println("acceptWeakSignal");
+        Random rnd = new Random(5);
+        
+        // the light is not in view but the tone is clear
+        SyncFusion instance = new SyncFusion(29.97, true, true);
+        boolean confident = false;
+        for (int i = 0; i < 400 && !confident; i++) {
+            boolean on = i >= 120 && i < 180;
+            confident = instance.accept(Math.abs(rnd.nextGaussian() * 0.01) + (on ? 0.2 : 0.0), 0.4 + rnd.nextGaussian() * 0.02);
+        }
+        assertTrue(confident);
+        assertEquals(120, instance.getStartFrame());
+        
+        // noise alone is not reported
+        SyncFusion noise = new SyncFusion(29.97, true, true);
+        for (int i = 0; i < 400; i++) {
+            assertFalse(noise.accept(Math.abs(rnd.nextGaussian() * 0.01), 0.4 + rnd.nextGaussian() * 0.02));
+        }
+        assertEquals(-1, noise.getStartFrame());
+        assertEquals(400, noise.getFrameCount());
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.audio;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ToneDetector class.
+ */
+public class ToneDetectorTest {
+    
+    public ToneDetectorTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    /**
+     * Creates 16 bit stereo audio containing noise and a tone in a range of
+     * time.
+     * @param sampleRate The sample rate of the audio.
+     * @param seconds The length of the audio in seconds.
+     * @param toneFrequency The frequency of the tone.
+     * @param toneStart The start of the tone in seconds.
+     * @param toneEnd The end of the tone in seconds.
+     * @return The audio stream.
+     */
+    private static AudioInputStream createAudio(float sampleRate, double seconds, double toneFrequency, double toneStart, double toneEnd) {
+        int samples = (int)(sampleRate * seconds);
+        byte[] data = new byte[samples * 4];
+        Random rnd = new Random(7);
+        for (int i = 0; i < samples; i++) {
+            double time = i / sampleRate;
+            double value = rnd.nextGaussian() * 2000;
+            if (time >= toneStart && time < toneEnd) {
+                value += 8000 * Math.sin(2 * Math.PI * toneFrequency * time);
+            }
+            
+            // write the same little endian sample to both channels
+            short sample = (short)Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value)));
+            for (int channel = 0; channel < 2; channel++) {
+                data[i * 4 + channel * 2] = (byte)(sample & 0xff);
+                data[i * 4 + channel * 2 + 1] = (byte)((sample >> 8) & 0xff);
+            }
+        }
+        
+        AudioFormat format = new AudioFormat(sampleRate, 16, 2, true, false);
+        return new AudioInputStream(new ByteArrayInputStream(data), format, samples);
+    }
+
+    /**
+     * Test of detect method, of class ToneDetector.
+     * @throws java.io.IOException If the audio cannot be read.
+     */
+    @Test
+    public void testDetect() throws IOException {
+        System.out.println("detect");
+        double frameRate = 29.97;
+        
+        // the tone is well past the first 30 seconds
+        ToneDetector instance = ToneDetector.detect(createAudio(8000, 45, 3000, 40, 42), frameRate, 3000);
+        
+        // frame boundaries do not drift from the video frame rate
+        assertEquals((int)Math.floor(45 * frameRate), instance.getFrameCount());
+        
+        // the tone frames stand out from the noise
+        double[] contrast = instance.getToneContrast();
+        int firstToneFrame = (int)Math.ceil(40 * frameRate);
+        int lastToneFrame = (int)Math.floor(42 * frameRate) - 1;
+        double minimumTone = Double.MAX_VALUE;
+        double maximumNoise = 0.0;
+        for (int i = 0; i < contrast.length; i++) {
+            if (i >= firstToneFrame && i < lastToneFrame) {
+                minimumTone = Math.min(minimumTone, contrast[i]);
+            } else if (i < firstToneFrame - 1 || i > lastToneFrame + 1) {
+                maximumNoise = Math.max(maximumNoise, contrast[i]);
+            }
+        }
+        assertTrue(minimumTone > 4 * maximumNoise);
+        
+        // the sync algorithms find the start of the tone
+        int signalFrameLength = (int)Math.round(frameRate * 2.0);
+        int found = SyncDetectionAlgorithms.findSyncFramesByAveragingWindow(contrast, signalFrameLength).iterator().next();
+        assertEquals(firstToneFrame, found, 1);
+    }
+
+    /**
+     * Test of decodeSample method, of class ToneDetector.
+     */
+    @Test
+    public void testDecodeSample() {
+        System.out.println("decodeSample");
+        assertEquals(-2.0, ToneDetector.decodeSample(new byte[] { (byte)0xfe, (byte)0xff }, 0, 2, true, false), 0.0);
+        assertEquals(-2.0, ToneDetector.decodeSample(new byte[] { (byte)0xff, (byte)0xfe }, 0, 2, true, true), 0.0);
+        assertEquals(258.0, ToneDetector.decodeSample(new byte[] { 2, 1 }, 0, 2, true, false), 0.0);
+        assertEquals(-128.0, ToneDetector.decodeSample(new byte[] { 0 }, 0, 1, false, false), 0.0);
+        assertEquals(127.0, ToneDetector.decodeSample(new byte[] { (byte)0xff }, 0, 1, false, false), 0.0);
+    }
+}
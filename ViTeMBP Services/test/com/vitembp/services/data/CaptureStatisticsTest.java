@@ -0,0 +1,241 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.data;
+
+import com.vitembp.embedded.data.Capture;
+import com.vitembp.embedded.data.Sample;
+import com.vitembp.services.sensors.Captures;
+import com.vitembp.services.sensors.DecodedCapture;
+import com.vitembp.services.sensors.Sensor;
+import com.vitembp.services.sensors.SensorFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static java.util.stream.Collectors.toList;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the CaptureStatistics class.
+ */
+public class CaptureStatisticsTest {
+
+    public CaptureStatisticsTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Creates a capture with known data.
+     * @return The capture with data.
+     * @throws InstantiationException If the capture cannot be created.
+     */
+    private static Capture createCapture() throws InstantiationException {
+        Capture source = Captures.createCapture();
+
+        for (int i = 0; i <= 365; i++) {
+            Map<String, String> toAdd = new HashMap<>();
+            toAdd.put("Front Brake", Integer.toString(i % 128));
+            toAdd.put("Rear Brake", Integer.toString(i % 128));
+            toAdd.put("Front Shock", Integer.toString(i % 151));
+
+            // leave some samples missing
+            toAdd.put("Rear Shock", (i % 10 == 0) ? "" : Integer.toString(i % 81));
+            toAdd.put("Frame Accelerometer",
+                    "(" + Integer.toString(i % 5) + "," +
+                    Integer.toString((i + 2) % 5 - 2) + "," +
+                    Integer.toString((i + 4) % 5) + ")");
+            source.addSample(toAdd);
+        }
+
+        return source;
+    }
+
+    /**
+     * Test of calculate method, of class CaptureStatistics.
+     * @throws java.lang.InstantiationException If a capture cannot be created.
+     */
+    @Test
+    public void testCalculate() throws InstantiationException {
+        System.out.println("calculate");
+        Capture source = createCapture();
+        Map<String, Sensor> sensors = SensorFactory.getSensors(source);
+
+        CaptureStatistics stats = CaptureStatistics.calculate(source.getSamples(), sensors, true);
+
+        assertEquals(366L, stats.getSampleCount());
+
+        ValueStatistics brake = stats.getStatistics("Front Brake").get();
+        assertEquals(366L, brake.getCount());
+        assertEquals(60.8d, brake.getMean(), 0.01);
+        assertEquals(0.0d, brake.getMinimum(), 0.0);
+        assertEquals(127.0d, brake.getMaximum(), 0.0);
+        assertEquals(0.0d, brake.getPercentile(0.0), 0.0);
+        assertEquals(127.0d, brake.getPercentile(1.0), 0.0);
+
+        // missing samples are counted but do not affect the values
+        ValueStatistics shock = stats.getStatistics("Rear Shock").get();
+        assertEquals(37L, shock.getMissingCount());
+        assertEquals(329L, shock.getCount());
+
+        // accelerometers have a magnitude and each axis
+        ValueStatistics yAxis = stats.getStatistics("Frame Accelerometer", CaptureStatistics.Channel.Y_AXIS).get();
+        assertEquals(-2.0d, yAxis.getMinimum(), 0.0);
+        assertEquals(2.0d, yAxis.getMaximum(), 0.0);
+        assertEquals(2.0d, yAxis.getAbsoluteMaximum(), 0.0);
+        assertEquals(0.0d, yAxis.getAbsoluteMinimum(), 0.0);
+        assertEquals(2.0d, yAxis.getVariance(), 0.02);
+        assertFalse(stats.getStatistics("Front Brake", CaptureStatistics.Channel.X_AXIS).isPresent());
+
+        // verify against a direct calculation of the same values
+        List<Double> values = source.getSamples()
+                .map(Sample::getSensorData)
+                .map(d -> Double.parseDouble(d.get("Front Shock")))
+                .sorted()
+                .collect(toList());
+        double mean = values.stream().mapToDouble(d -> d).average().getAsDouble();
+        double variance = values.stream().mapToDouble(d -> (d - mean) * (d - mean)).sum() / values.size();
+        ValueStatistics frontShock = stats.getStatistics("Front Shock").get();
+        assertEquals(mean, frontShock.getMean(), 1e-9);
+        assertEquals(variance, frontShock.getVariance(), 1e-9);
+        assertEquals(values.get(values.size() / 2 - 1) / 2 + values.get(values.size() / 2) / 2, frontShock.getPercentile(0.5), 1e-9);
+    }
+
+    /**
+     * Test of getMinimums, getMaximums, and getAverages methods, of class
+     * CaptureStatistics, with a sensor without any readings.
+     * @throws java.lang.InstantiationException If a capture cannot be created.
+     */
+    @Test
+    public void testSensorWithoutReadings() throws InstantiationException {
+        System.out.println("sensorWithoutReadings");
+        Capture source = Captures.createCapture();
+        for (int i = 0; i < 10; i++) {
+            Map<String, String> toAdd = new HashMap<>();
+            toAdd.put("Front Brake", Integer.toString(i));
+            toAdd.put("Rear Brake", "");
+            toAdd.put("Front Shock", Integer.toString(i));
+            toAdd.put("Rear Shock", Integer.toString(i));
+            toAdd.put("Frame Accelerometer", "(1,2,3)");
+            source.addSample(toAdd);
+        }
+        Map<String, Sensor> sensors = SensorFactory.getSensors(source);
+
+        CaptureStatistics stats = CaptureStatistics.calculate(source.getSamples(), sensors, false);
+        Sensor rearBrake = sensors.get("Rear Brake");
+        assertEquals(0L, stats.getStatistics("Rear Brake").get().getCount());
+        assertEquals(10L, stats.getStatistics("Rear Brake").get().getMissingCount());
+
+        // the sensor is left out rather than reported with undefined values
+        for (Map<Sensor, Double> values : Arrays.asList(stats.getMinimums(), stats.getMaximums(), stats.getAverages())) {
+            assertFalse(values.containsKey(rearBrake));
+            assertEquals(sensors.size() - 1, values.size());
+            values.values().forEach(value -> assertFalse(value.isNaN()));
+        }
+        assertTrue(stats.getMinimums().containsKey(sensors.get("Front Brake")));
+    }
+
+    /**
+     * Test of merge method, of class CaptureStatistics.
+     * @throws java.lang.InstantiationException If a capture cannot be created.
+     */
+    @Test
+    public void testMerge() throws InstantiationException {
+        System.out.println("merge");
+        Capture source = createCapture();
+        Map<String, Sensor> sensors = SensorFactory.getSensors(source);
+
+        CaptureStatistics whole = CaptureStatistics.calculate(source.getSamples(), sensors, true);
+        CaptureStatistics first = CaptureStatistics.calculate(source.getSamples().limit(100), sensors, true);
+        CaptureStatistics second = CaptureStatistics.calculate(source.getSamples().skip(100), sensors, true);
+        CaptureStatistics merged = first.merge(second);
+
+        assertEquals(whole.getSampleCount(), merged.getSampleCount());
+        for (String name : sensors.keySet()) {
+            for (CaptureStatistics.Channel channel : CaptureStatistics.Channel.values()) {
+                if (!whole.getStatistics(name, channel).isPresent()) {
+                    continue;
+                }
+
+                ValueStatistics expected = whole.getStatistics(name, channel).get();
+                ValueStatistics actual = merged.getStatistics(name, channel).get();
+                assertEquals(expected.getCount(), actual.getCount());
+                assertEquals(expected.getMissingCount(), actual.getMissingCount());
+                assertEquals(expected.getMinimum(), actual.getMinimum(), 0.0);
+                assertEquals(expected.getMaximum(), actual.getMaximum(), 0.0);
+                assertEquals(expected.getMean(), actual.getMean(), 1e-9);
+                assertEquals(expected.getVariance(), actual.getVariance(), 1e-9);
+                assertEquals(expected.getAbsoluteMean(), actual.getAbsoluteMean(), 1e-9);
+                assertEquals(expected.getPercentile(0.95), actual.getPercentile(0.95), 0.0);
+            }
+        }
+    }
+
+    /**
+     * Test of calculate method, of class CaptureStatistics, from the columns
+     * of a decoded capture.
+     * @throws java.lang.InstantiationException If a capture cannot be created.
+     */
+    @Test
+    public void testCalculateDecoded() throws InstantiationException {
+        System.out.println("calculateDecoded");
+        Capture source = createCapture();
+        Map<String, Sensor> sensors = SensorFactory.getSensors(source);
+
+        CaptureStatistics expected = CaptureStatistics.calculate(source.getSamples(), sensors, true);
+        CaptureStatistics actual = CaptureStatistics.calculate(DecodedCapture.decode(source.getSamples(), sensors), true);
+
+        assertEquals(expected.getSampleCount(), actual.getSampleCount());
+        for (String name : sensors.keySet()) {
+            for (CaptureStatistics.Channel channel : CaptureStatistics.Channel.values()) {
+                assertEquals(expected.getStatistics(name, channel).isPresent(), actual.getStatistics(name, channel).isPresent());
+                if (!expected.getStatistics(name, channel).isPresent()) {
+                    continue;
+                }
+
+                ValueStatistics e = expected.getStatistics(name, channel).get();
+                ValueStatistics a = actual.getStatistics(name, channel).get();
+                assertEquals(e.getCount(), a.getCount());
+                assertEquals(e.getMissingCount(), a.getMissingCount());
+                assertEquals(e.getMean(), a.getMean(), 0.0);
+                assertEquals(e.getVariance(), a.getVariance(), 0.0);
+                assertEquals(e.getMaximum(), a.getMaximum(), 0.0);
+                assertEquals(e.getPercentile(0.5), a.getPercentile(0.5), 0.0);
+            }
+        }
+    }
+}
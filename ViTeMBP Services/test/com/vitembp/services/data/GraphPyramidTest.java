@@ -0,0 +1,198 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.data;
+
+import com.vitembp.embedded.data.Capture;
+import com.vitembp.services.sensors.Captures;
+import com.vitembp.services.sensors.SensorFactory;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the GraphPyramid class.
+ */
+public class GraphPyramidTest {
+
+    public GraphPyramidTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Adds samples with known data to a capture.
+     * @param capture The capture to add samples to.
+     * @param from The value of the first sample to add.
+     * @param to The value after the last sample to add.
+     */
+    private static void addSamples(Capture capture, int from, int to) {
+        for (int i = from; i < to; i++) {
+            Map<String, String> toAdd = new HashMap<>();
+            toAdd.put("Front Brake", Integer.toString(i % 4096));
+            toAdd.put("Rear Brake", Integer.toString((i * 7) % 4096));
+            toAdd.put("Front Shock", Integer.toString(i % 151));
+            toAdd.put("Rear Shock", (i % 10 == 0) ? "" : Integer.toString(i % 81));
+            toAdd.put("Frame Accelerometer", "(" + Integer.toString(i % 5) + ",1,2)");
+            capture.addSample(toAdd);
+        }
+    }
+
+    /**
+     * Verifies a series against statistics calculated from the samples.
+     * @param capture The capture the series was built from.
+     * @param series The series to verify.
+     * @param endSample The index after the last sample of the series.
+     */
+    private static void verifySeries(Capture capture, GraphSeries series, long endSample) {
+        for (int i = 0; i < series.getPointCount(); i++) {
+            long start = series.getSampleIndex(i);
+            long end = i + 1 < series.getPointCount() ? series.getSampleIndex(i + 1) : endSample;
+            CaptureStatistics expected = CaptureStatistics.calculate(
+                    capture.getSamples().skip(start).limit(end - start),
+                    SensorFactory.getSensors(capture),
+                    false);
+
+            for (String name : series.getSensorNames()) {
+                ValueStatistics stats = expected.getStatistics(name).get();
+                assertEquals(stats.getCount(), series.getCount(name, i));
+                assertEquals(stats.getMinimum(), series.getMinimum(name, i), 0.0);
+                assertEquals(stats.getMaximum(), series.getMaximum(name, i), 0.0);
+                assertEquals(stats.getMean(), series.getMean(name, i), 1e-6);
+            }
+        }
+    }
+
+    /**
+     * Test of getSeries method, of class GraphPyramid.
+     * @throws java.lang.InstantiationException If a capture cannot be created.
+     * @throws java.io.IOException If the pyramid cannot be stored.
+     */
+    @Test
+    public void testGetSeries() throws InstantiationException, IOException {
+        System.out.println("getSeries");
+        Capture capture = Captures.createCapture();
+        addSamples(capture, 0, 20000);
+
+        GraphPyramid pyramid = GraphPyramid.getPyramid(capture);
+        assertEquals(20000, pyramid.getSampleCount());
+        assertEquals(7, pyramid.getLevelCount());
+
+        // the whole capture is served from an upper level
+        GraphSeries series = pyramid.getSeries(0, 20000, 400);
+        assertEquals(400, series.getPointCount());
+        assertEquals(0L, series.getSampleIndex(0));
+        verifySeries(capture, series, 20000);
+
+        // a window is aligned to the buckets of the level it is served from
+        series = pyramid.getSeries(1000, 5000, 100);
+        assertEquals(100, series.getPointCount());
+        assertEquals(992L, series.getSampleIndex(0));
+        verifySeries(capture, series, 5024);
+
+        // a small window is served from the samples
+        series = pyramid.getSeries(100, 150, 400);
+        assertEquals(50, series.getPointCount());
+        assertEquals(100L, series.getSampleIndex(0));
+        verifySeries(capture, series, 150);
+
+        // an empty window has no points
+        assertEquals(0, pyramid.getSeries(20000, 30000, 400).getPointCount());
+    }
+
+    /**
+     * Test that samples added after the pyramid is built are added to it.
+     * @throws java.lang.InstantiationException If a capture cannot be created.
+     * @throws java.io.IOException If the pyramid cannot be stored.
+     */
+    @Test
+    public void testIncrementalUpdate() throws InstantiationException, IOException {
+        System.out.println("incrementalUpdate");
+        Capture capture = Captures.createCapture();
+        addSamples(capture, 0, 3333);
+        GraphPyramid.getPyramid(capture);
+
+        addSamples(capture, 3333, 9001);
+        GraphPyramid pyramid = GraphPyramid.getPyramid(capture);
+        assertEquals(9001, pyramid.getSampleCount());
+        verifySeries(capture, pyramid.getSeries(0, 9001, 10), 9001);
+        verifySeries(capture, pyramid.getSeries(0, 9001, 333), 9001);
+
+        // deleting the pyramid causes it to be rebuilt with the same values
+        GraphSeries before = pyramid.getSeries(0, 9001, 200);
+        GraphPyramid.delete(capture);
+        GraphSeries after = GraphPyramid.getPyramid(capture).getSeries(0, 9001, 200);
+        assertEquals(before.getPointCount(), after.getPointCount());
+        for (int i = 0; i < before.getPointCount(); i++) {
+            assertEquals(before.getSampleIndex(i), after.getSampleIndex(i));
+            for (String name : before.getSensorNames()) {
+                assertEquals(before.getMean(name, i), after.getMean(name, i), 1e-9);
+                assertEquals(before.getMaximum(name, i), after.getMaximum(name, i), 0.0);
+            }
+        }
+    }
+
+    /**
+     * Test that a pyramid built with different parameters is deleted before
+     * it is rebuilt.
+     * @throws java.lang.InstantiationException If a capture cannot be created.
+     * @throws java.io.IOException If the pyramid cannot be stored.
+     */
+    @Test
+    public void testRebuildDeletesSegments() throws InstantiationException, IOException {
+        System.out.println("rebuildDeletesSegments");
+        Capture capture = Captures.createCapture();
+        addSamples(capture, 0, 20000);
+        GraphPyramid.getPyramid(capture);
+
+        // store the pyramid as if it had been built with smaller segments,
+        // which gives the lowest level 40 segments rather than 10
+        String index = capture.readAssociatedData("graphpyramid");
+        capture.writeAssociatedData("graphpyramid", index.replace("<segmentsize>256</segmentsize>", "<segmentsize>64</segmentsize>"));
+        for (int segment = 10; segment < 40; segment++) {
+            capture.writeAssociatedData("graphpyramid/0/" + Integer.toString(segment), "old");
+        }
+
+        GraphPyramid pyramid = GraphPyramid.getPyramid(capture);
+        assertEquals(20000, pyramid.getSampleCount());
+        verifySeries(capture, pyramid.getSeries(0, 20000, 400), 20000);
+        for (int segment = 10; segment < 40; segment++) {
+            assertNull(capture.readAssociatedData("graphpyramid/0/" + Integer.toString(segment)));
+        }
+        assertNotNull(capture.readAssociatedData("graphpyramid/0/9"));
+    }
+}
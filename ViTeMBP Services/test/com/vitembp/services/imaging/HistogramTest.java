@@ -17,9 +17,12 @@
  */
 package com.vitembp.services.imaging;
 
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.List;
+import java.util.Random;
 import java.util.function.BiConsumer;
+import javax.imageio.ImageIO;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -206,6 +209,76 @@ public class HistogramTest {
         assertEquals(255.0, instance.getRedBrightness(), 0.0001);
     }
     
+    /**
+     * Test that the histogram read from the raster matches the histogram read
+     * through the color model of each pixel for each image type.
+     * @throws java.io.IOException If a test bitmap cannot be loaded.
+     */
+    @Test
+    public void testRasterMatchesRgb() throws IOException {
+        System.out.println("rasterMatchesRgb");
+        Random rnd = new Random(42);
+        int[] types = new int[] {
+            BufferedImage.TYPE_INT_ARGB,
+            BufferedImage.TYPE_INT_RGB,
+            BufferedImage.TYPE_3BYTE_BGR,
+            BufferedImage.TYPE_4BYTE_ABGR,
+            BufferedImage.TYPE_INT_BGR,
+            BufferedImage.TYPE_BYTE_GRAY
+        };
+        
+        // random frames of each image type
+        for (int type : types) {
+            BufferedImage image = new BufferedImage(97, 61, type);
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    image.setRGB(x, y, rnd.nextInt());
+                }
+            }
+            assertMatchesRgb(image);
+            
+            // a child image shares the raster of its parent
+            assertMatchesRgb(image.getSubimage(5, 7, 40, 30));
+        }
+        
+        // the reference bitmaps
+        for (String name : new String[] { "quarterBlue.png", "quarterGreen.png", "quarterRed.png", "threeQuarterAlpha.png" }) {
+            assertMatchesRgb(ImageIO.read(getClass().getResourceAsStream(name)));
+        }
+    }
+    
+    /**
+     * Verifies the histogram of an image against one calculated from the RGB
+     * value of each pixel.
+     * @param image The image to verify.
+     */
+    private static void assertMatchesRgb(BufferedImage image) {
+        int[][] expected = new int[4][256];
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int value = image.getRGB(x, y);
+                expected[0][value & 0xff]++;
+                expected[1][(value >> 8) & 0xff]++;
+                expected[2][(value >> 16) & 0xff]++;
+                expected[3][(value >> 24) & 0xff]++;
+            }
+        }
+        
+        Histogram instance = new Histogram(image);
+        assertArrayEquals(expected[0], instance.getBlueCounts());
+        assertArrayEquals(expected[1], instance.getGreenCounts());
+        assertArrayEquals(expected[2], instance.getRedCounts());
+        assertArrayEquals(expected[3], instance.getAlphaCounts());
+        
+        // the brightness is summed exactly as from the normalized values
+        List<Double> blues = instance.getBlueValues();
+        double brightness = 0.0;
+        for (int i = 1; i < blues.size(); i++) {
+            brightness += i * blues.get(i);
+        }
+        assertEquals(brightness, instance.getBlueBrightness(), 0.0);
+    }
+    
     /**
      * Loads a histogram for a bitmap from the test package by filename.
      * @param name The name of the bitmap file.
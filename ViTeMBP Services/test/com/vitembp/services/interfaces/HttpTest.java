@@ -0,0 +1,140 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.interfaces;
+
+import com.vitembp.services.ApiFunctions;
+import com.vitembp.services.AsyncProcessing;
+import com.vitembp.services.FilenameGenerator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the Http class.
+ */
+public class HttpTest {
+    /**
+     * The scheduler used by the API functions.
+     */
+    private AsyncProcessing scheduler;
+    
+    /**
+     * The server under test.
+     */
+    private Http instance;
+    
+    public HttpTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        this.scheduler = new AsyncProcessing(
+                new AsyncProcessing.ClassLimits(1, 1, 100),
+                new AsyncProcessing.ClassLimits(1, 1, 100));
+        this.instance = new Http(0, new ApiFunctions(FilenameGenerator.PNG_NUMERIC_OUT, this.scheduler));
+    }
+
+    @After
+    public void tearDown() {
+        this.instance.stop(0);
+        this.scheduler.shutdown();
+    }
+    
+    /**
+     * Sends a request to the server.
+     * @param method The request method.
+     * @param path The path and query of the request.
+     * @param expectedStatus The expected response status.
+     * @return The response body.
+     * @throws IOException If the request fails.
+     */
+    private String request(String method, String path, int expectedStatus) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection)new URL("http://localhost:" + Integer.toString(this.instance.getPort()) + path).openConnection();
+        conn.setRequestMethod(method);
+        conn.setReadTimeout(5000);
+        assertEquals(expectedStatus, conn.getResponseCode());
+        
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = expectedStatus < 400 ? conn.getInputStream() : conn.getErrorStream()) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                body.write(buffer, 0, read);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tests that the health check is answered while another request is
+     * being handled.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testHealthCheckWhileBusy() throws Exception {
+        System.out.println("healthCheckWhileBusy");
+        
+        // start a request whose body never arrives, which holds a worker
+        try (Socket slow = new Socket("localhost", this.instance.getPort())) {
+            OutputStream out = slow.getOutputStream();
+            out.write(("POST /findsyncframes?path=https://example.com/a.mp4 HTTP/1.1\r\n"
+                    + "Host: localhost\r\n"
+                    + "Content-Length: 1000\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            Thread.sleep(100);
+            
+            assertEquals("Services Healthy.", request("GET", "/healthcheck", 200));
+        }
+    }
+
+    /**
+     * Tests the error responses of the jobs interface.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testJobErrors() throws Exception {
+        System.out.println("jobErrors");
+        request("POST", "/jobs/findsyncframes", 400);
+        request("POST", "/jobs/findsyncframes?path=http://example.com/a.mp4", 400);
+        request("GET", "/jobs/findsyncframes?path=https://example.com/a.mp4", 405);
+        request("GET", "/jobs/" + UUID.randomUUID().toString(), 404);
+        request("GET", "/jobs/notajob", 404);
+        request("DELETE", "/jobs/" + UUID.randomUUID().toString(), 404);
+        request("GET", "/export?capture=notacapture", 400);
+    }
+}
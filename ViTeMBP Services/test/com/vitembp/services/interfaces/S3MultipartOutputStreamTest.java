@@ -0,0 +1,323 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.interfaces;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CannedAccessControlList;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.vitembp.embedded.data.Capture;
+import com.vitembp.services.data.CaptureExporter;
+import com.vitembp.services.sensors.Captures;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the S3MultipartOutputStream class.
+ */
+public class S3MultipartOutputStreamTest {
+
+    public S3MultipartOutputStreamTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Creates a capture with known data.
+     * @return The capture with data.
+     * @throws InstantiationException If the capture cannot be created.
+     */
+    private static Capture createCapture() throws InstantiationException {
+        Capture source = Captures.createCapture();
+        for (int i = 0; i < 2000; i++) {
+            Map<String, String> toAdd = new HashMap<>();
+            toAdd.put("Front Brake", Integer.toString(i % 4096));
+            toAdd.put("Rear Brake", Integer.toString((i * 7) % 4096));
+            toAdd.put("Front Shock", Integer.toString(i % 151));
+            toAdd.put("Rear Shock", Integer.toString(i % 81));
+            toAdd.put("Frame Accelerometer", "(" + Integer.toString(i % 5) + ",1,2)");
+            source.addSample(toAdd);
+        }
+        return source;
+    }
+
+    /**
+     * Reads all of the bytes from a stream.
+     * @param in The stream to read.
+     * @return The bytes read.
+     * @throws IOException If the stream cannot be read.
+     */
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Test of a compressed export streamed as a multipart upload.
+     * @throws java.lang.InstantiationException If a capture cannot be created.
+     * @throws java.io.IOException If the export fails.
+     */
+    @Test
+    public void testMultipartUpload() throws InstantiationException, IOException {
+        System.out.println("multipartUpload");
+        Capture capture = createCapture();
+        FakeS3 s3 = new FakeS3(-1);
+
+        S3MultipartOutputStream instance = new S3MultipartOutputStream(s3, "bucket", "key.csv.gz", CannedAccessControlList.PublicRead, 1024, 2);
+        CaptureExporter.export(capture, true, CaptureExporter.Format.CSV, true, instance);
+        instance.close();
+
+        assertTrue(s3.partCount > 1);
+        assertTrue(s3.completed);
+        assertEquals(CannedAccessControlList.PublicRead, s3.acl);
+
+        // the uploaded object is the compressed export
+        StringWriter expected = new StringWriter();
+        CaptureExporter.write(capture, true, CaptureExporter.Format.CSV, expected);
+        byte[] uploaded = readAll(new GZIPInputStream(new ByteArrayInputStream(s3.objects.get("key.csv.gz"))));
+        assertEquals(expected.toString(), new String(uploaded, StandardCharsets.UTF_8));
+        assertTrue(expected.toString().startsWith(String.join(",", capture.getSensorNames()) + "\n\""));
+    }
+
+    /**
+     * Test that data which fits in one part is uploaded with one request.
+     * @throws java.lang.InstantiationException If a capture cannot be created.
+     * @throws java.io.IOException If the export fails.
+     */
+    @Test
+    public void testSinglePartUpload() throws InstantiationException, IOException {
+        System.out.println("singlePartUpload");
+        Capture capture = createCapture();
+        FakeS3 s3 = new FakeS3(-1);
+
+        S3MultipartOutputStream instance = new S3MultipartOutputStream(s3, "bucket", "key.json", CannedAccessControlList.PublicRead, 1024 * 1024, 2);
+        CaptureExporter.export(capture, false, CaptureExporter.Format.JSON, false, instance);
+        instance.close();
+
+        assertEquals(0, s3.partCount);
+        String uploaded = new String(s3.objects.get("key.json"), StandardCharsets.UTF_8);
+        assertTrue(uploaded.startsWith("[\n{\"index\":0,"));
+        assertTrue(uploaded.endsWith("}\n]\n"));
+    }
+
+    /**
+     * Test that a failed part aborts the upload.
+     * @throws java.lang.InstantiationException If a capture cannot be created.
+     */
+    @Test
+    public void testFailedUpload() throws InstantiationException {
+        System.out.println("failedUpload");
+        Capture capture = createCapture();
+        FakeS3 s3 = new FakeS3(2);
+
+        S3MultipartOutputStream instance = new S3MultipartOutputStream(s3, "bucket", "key.csv", CannedAccessControlList.PublicRead, 1024, 1);
+        try {
+            CaptureExporter.export(capture, false, CaptureExporter.Format.CSV, false, instance);
+            instance.close();
+            fail("Expected the upload to fail.");
+        } catch (IOException ex) {
+            instance.abort();
+        }
+
+        assertTrue(s3.aborted);
+        assertFalse(s3.completed);
+        assertFalse(s3.objects.containsKey("key.csv"));
+    }
+
+    /**
+     * Test that an export which fails while encoding leaves the upload open
+     * so it can be aborted rather than completed with partial data.
+     * @throws java.lang.InstantiationException If a capture cannot be created.
+     * @throws java.io.IOException If the export fails.
+     */
+    @Test
+    public void testFailedEncode() throws InstantiationException, IOException {
+        System.out.println("failedEncode");
+        Capture capture = createCapture();
+        Map<String, String> toAdd = new HashMap<>();
+        toAdd.put("Front Brake", "not a number");
+        capture.addSample(toAdd);
+        FakeS3 s3 = new FakeS3(-1);
+
+        S3MultipartOutputStream instance = new S3MultipartOutputStream(s3, "bucket", "key.csv", CannedAccessControlList.PublicRead, 1024, 2);
+        try {
+            CaptureExporter.export(capture, true, CaptureExporter.Format.CSV, false, instance);
+            fail("Expected the export to fail.");
+        } catch (NumberFormatException ex) {
+            // the destination was not closed so nothing has been completed
+            assertFalse(s3.completed);
+            instance.abort();
+        }
+
+        assertTrue(s3.partCount > 0);
+        assertTrue(s3.aborted);
+        assertFalse(s3.completed);
+        assertFalse(s3.objects.containsKey("key.csv"));
+    }
+
+    /**
+     * An in-memory stand in for the S3 client which supports the requests
+     * used for uploads.
+     */
+    private static class FakeS3 extends AbstractAmazonS3 {
+        /**
+         * The uploaded objects keyed by their keys.
+         */
+        final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+        /**
+         * The uploaded parts keyed by part number.
+         */
+        final Map<Integer, byte[]> parts = new ConcurrentHashMap<>();
+
+        /**
+         * The part number which fails to upload or -1 if none fail.
+         */
+        final int failingPart;
+
+        /**
+         * The number of parts uploaded.
+         */
+        volatile int partCount = 0;
+
+        /**
+         * Whether a multipart upload was completed.
+         */
+        volatile boolean completed = false;
+
+        /**
+         * Whether a multipart upload was aborted.
+         */
+        volatile boolean aborted = false;
+
+        /**
+         * The access control list requested for the object.
+         */
+        volatile CannedAccessControlList acl;
+
+        /**
+         * Initializes a new instance of the FakeS3 class.
+         * @param failingPart The part number which fails to upload or -1 if
+         * none fail.
+         */
+        FakeS3(int failingPart) {
+            this.failingPart = failingPart;
+        }
+
+        @Override
+        public PutObjectResult putObject(PutObjectRequest req) {
+            try {
+                this.acl = req.getCannedAcl();
+                this.objects.put(req.getKey(), readAll(req.getInputStream()));
+            } catch (IOException ex) {
+                throw new AmazonServiceException("Could not read object.", ex);
+            }
+            return new PutObjectResult();
+        }
+
+        @Override
+        public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest req) {
+            this.acl = req.getCannedACL();
+            InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+            result.setUploadId("upload");
+            return result;
+        }
+
+        @Override
+        public UploadPartResult uploadPart(UploadPartRequest req) {
+            if (req.getPartNumber() == this.failingPart) {
+                throw new AmazonServiceException("Part failed.");
+            }
+
+            try {
+                byte[] data = readAll(req.getInputStream());
+                assertEquals(req.getPartSize(), (long)data.length);
+                this.parts.put(req.getPartNumber(), data);
+            } catch (IOException ex) {
+                throw new AmazonServiceException("Could not read part.", ex);
+            }
+
+            this.partCount++;
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(req.getPartNumber());
+            result.setETag(Integer.toString(req.getPartNumber()));
+            return result;
+        }
+
+        @Override
+        public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest req) {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            int expected = 1;
+            for (PartETag tag : req.getPartETags()) {
+                assertEquals(expected++, tag.getPartNumber());
+                byte[] part = this.parts.get(tag.getPartNumber());
+                data.write(part, 0, part.length);
+            }
+            this.objects.put(req.getKey(), data.toByteArray());
+            this.completed = true;
+            return new CompleteMultipartUploadResult();
+        }
+
+        @Override
+        public void abortMultipartUpload(AbortMultipartUploadRequest req) {
+            this.aborted = true;
+        }
+    }
+}
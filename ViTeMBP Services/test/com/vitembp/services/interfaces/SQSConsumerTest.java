@@ -0,0 +1,345 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.interfaces;
+
+import com.amazonaws.services.sqs.AbstractAmazonSQS;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.amazonaws.services.sqs.model.CreateQueueRequest;
+import com.amazonaws.services.sqs.model.CreateQueueResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.GetQueueUrlRequest;
+import com.amazonaws.services.sqs.model.GetQueueUrlResult;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the SQSConsumer class.
+ */
+public class SQSConsumerTest {
+    /**
+     * The consumer under test.
+     */
+    private SQSConsumer instance;
+    
+    public SQSConsumerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+        if (this.instance != null) {
+            this.instance.stop();
+        }
+    }
+    
+    /**
+     * Waits for a condition to become true.
+     * @param condition The condition to wait for.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > end) {
+                fail("Timed out waiting for condition.");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Tests that messages are received and deleted in batches.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testBatchedConsumption() throws Exception {
+        System.out.println("batchedConsumption");
+        FakeSQS sqs = new FakeSQS();
+        for (int i = 0; i < 25; i++) {
+            sqs.send("message " + Integer.toString(i));
+        }
+        
+        Set<String> handled = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        this.instance = new SQSConsumer(sqs, "queue", handled::add, 16, 30);
+        this.instance.start();
+        
+        waitFor(() -> sqs.deleted.size() == 25);
+        assertEquals(25, handled.size());
+        assertTrue(handled.contains("message 24"));
+        assertEquals(sqs.receipts.keySet(), new HashSet<>(sqs.deleted));
+        
+        // no request is larger than a batch and full batches are used
+        assertTrue(sqs.receiveSizes.stream().allMatch(size -> size <= SQSConsumer.BATCH_SIZE));
+        assertEquals(SQSConsumer.BATCH_SIZE, (int)sqs.receivedSizes.stream().max(Integer::compare).get());
+        assertTrue(sqs.deleteSizes.stream().allMatch(size -> size <= SQSConsumer.BATCH_SIZE));
+        assertTrue(sqs.deleteSizes.size() < 25);
+        assertEquals(0, this.instance.getInFlightCount());
+    }
+
+    /**
+     * Tests that the visibility of messages being handled is extended and
+     * that no more messages are received than can be handled.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testVisibilityExtended() throws Exception {
+        System.out.println("visibilityExtended");
+        FakeSQS sqs = new FakeSQS();
+        for (int i = 0; i < 5; i++) {
+            sqs.send("message " + Integer.toString(i));
+        }
+        
+        CountDownLatch release = new CountDownLatch(1);
+        this.instance = new SQSConsumer(sqs, "queue", (body) -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                fail("Interrupted handling message.");
+            }
+        }, 2, 1);
+        this.instance.start();
+        
+        // only two messages are taken while the handlers are busy
+        waitFor(() -> this.instance.getInFlightCount() == 2);
+        waitFor(() -> sqs.extended.size() == 2);
+        Thread.sleep(200);
+        assertEquals(3, sqs.messages.size());
+        assertTrue(sqs.deleted.isEmpty());
+        
+        release.countDown();
+        waitFor(() -> sqs.deleted.size() == 5);
+        assertEquals(0, this.instance.getInFlightCount());
+    }
+
+    /**
+     * Tests that a message delivered again while it is being handled is
+     * handled and deleted with each of its receipt handles.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testRedelivery() throws Exception {
+        System.out.println("redelivery");
+        FakeSQS sqs = new FakeSQS();
+        sqs.send("message 0");
+        sqs.redeliver("0", "message 0");
+        
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> handled = Collections.synchronizedList(new ArrayList<>());
+        this.instance = new SQSConsumer(sqs, "queue", (body) -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                fail("Interrupted handling message.");
+            }
+            handled.add(body);
+        }, 2, 30);
+        this.instance.start();
+        
+        // both deliveries are in flight at once
+        waitFor(() -> this.instance.getInFlightCount() == 2);
+        release.countDown();
+        waitFor(() -> sqs.deleted.size() == 2);
+        assertEquals(sqs.receipts.keySet(), new HashSet<>(sqs.deleted));
+        assertEquals(2, handled.size());
+        assertEquals(0, this.instance.getInFlightCount());
+        
+        // the permits of both deliveries were returned
+        sqs.send("message 1");
+        sqs.send("message 2");
+        waitFor(() -> sqs.deleted.size() == 4);
+        assertEquals(0, this.instance.getInFlightCount());
+    }
+
+    /**
+     * Tests that stopping while a message is being handled waits for the
+     * handler and then deletes the message.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testStopWhileHandling() throws Exception {
+        System.out.println("stopWhileHandling");
+        FakeSQS sqs = new FakeSQS();
+        sqs.send("message 0");
+        
+        CountDownLatch release = new CountDownLatch(1);
+        // a local instance so a stop which never returns does not block the
+        // stop in tearDown
+        SQSConsumer consumer = new SQSConsumer(sqs, "queue", (body) -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                fail("Interrupted handling message.");
+            }
+        }, 2, 30);
+        consumer.start();
+        waitFor(() -> consumer.getInFlightCount() == 1);
+        
+        // stop waits for the handler, which is released while it waits
+        Thread stopThread = new Thread(consumer::stop);
+        stopThread.setDaemon(true);
+        stopThread.start();
+        Thread.sleep(200);
+        assertTrue(stopThread.isAlive());
+        release.countDown();
+        stopThread.join(10000);
+        
+        assertFalse("Stop did not return.", stopThread.isAlive());
+        assertEquals(sqs.receipts.keySet(), new HashSet<>(sqs.deleted));
+        assertEquals(0, consumer.getInFlightCount());
+    }
+    
+    /**
+     * A fake SQS client holding a single queue in memory.
+     */
+    private static class FakeSQS extends AbstractAmazonSQS {
+        /**
+         * The messages waiting to be received.
+         */
+        final ConcurrentLinkedQueue<Message> messages = new ConcurrentLinkedQueue<>();
+        
+        /**
+         * The message IDs of all delivered messages keyed by receipt handle.
+         */
+        final Map<String, String> receipts = new ConcurrentHashMap<>();
+        
+        /**
+         * The number of messages sent.
+         */
+        int sent = 0;
+        
+        /**
+         * The receipt handles of deleted messages.
+         */
+        final List<String> deleted = Collections.synchronizedList(new ArrayList<>());
+        
+        /**
+         * The receipt handles of messages which had their visibility extended.
+         */
+        final Set<String> extended = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        
+        /**
+         * The number of messages requested by each receive.
+         */
+        final List<Integer> receiveSizes = Collections.synchronizedList(new ArrayList<>());
+        
+        /**
+         * The number of messages returned by each receive.
+         */
+        final List<Integer> receivedSizes = Collections.synchronizedList(new ArrayList<>());
+        
+        /**
+         * The number of messages in each delete batch.
+         */
+        final List<Integer> deleteSizes = Collections.synchronizedList(new ArrayList<>());
+        
+        /**
+         * Adds a message to the queue.
+         * @param body The body of the message.
+         */
+        void send(String body) {
+            String id = Integer.toString(this.sent++);
+            this.redeliver(id, body);
+        }
+        
+        /**
+         * Adds a delivery of a message to the queue with a new receipt handle.
+         * @param id The ID of the message.
+         * @param body The body of the message.
+         */
+        void redeliver(String id, String body) {
+            String receipt = "receipt " + Integer.toString(this.receipts.size());
+            this.receipts.put(receipt, id);
+            this.messages.add(new Message().withMessageId(id).withReceiptHandle(receipt).withBody(body));
+        }
+
+        @Override
+        public CreateQueueResult createQueue(CreateQueueRequest request) {
+            return new CreateQueueResult().withQueueUrl("url");
+        }
+
+        @Override
+        public GetQueueUrlResult getQueueUrl(GetQueueUrlRequest request) {
+            return new GetQueueUrlResult().withQueueUrl("url");
+        }
+
+        @Override
+        public ReceiveMessageResult receiveMessage(ReceiveMessageRequest request) {
+            this.receiveSizes.add(request.getMaxNumberOfMessages());
+            List<Message> received = new ArrayList<>();
+            Message msg;
+            while (received.size() < request.getMaxNumberOfMessages() && (msg = this.messages.poll()) != null) {
+                received.add(msg);
+            }
+            
+            // stand in for the long poll when the queue is empty
+            if (received.isEmpty()) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            
+            this.receivedSizes.add(received.size());
+            return new ReceiveMessageResult().withMessages(received);
+        }
+
+        @Override
+        public ChangeMessageVisibilityBatchResult changeMessageVisibilityBatch(ChangeMessageVisibilityBatchRequest request) {
+            request.getEntries().forEach(entry -> this.extended.add(entry.getReceiptHandle()));
+            return new ChangeMessageVisibilityBatchResult();
+        }
+
+        @Override
+        public DeleteMessageBatchResult deleteMessageBatch(DeleteMessageBatchRequest request) {
+            this.deleteSizes.add(request.getEntries().size());
+            request.getEntries().forEach(entry -> this.deleted.add(entry.getReceiptHandle()));
+            return new DeleteMessageBatchResult();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.interfaces;
+
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the SQSMessageHandler class.
+ */
+public class SQSMessageHandlerTest {
+    
+    public SQSMessageHandlerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Tests that a command stored in the database is processed, removed, and
+     * its result written to the response location.
+     */
+    @Test
+    public void testFromUuid() {
+        System.out.println("fromUuid");
+        FakeDynamoDB db = new FakeDynamoDB();
+        UUID location = UUID.randomUUID();
+        UUID response = UUID.randomUUID();
+        db.data.put(location.toString(), response.toString() + " listsensors");
+        
+        List<String> parsed = Collections.synchronizedList(new ArrayList<>());
+        SQSMessageHandler instance = new SQSMessageHandler((cmd) -> {
+            parsed.add(cmd);
+            return "result of " + cmd;
+        }, db);
+        instance.accept("FROMUUID " + location.toString());
+        
+        assertEquals(Collections.singletonList("listsensors"), parsed);
+        assertFalse(db.data.containsKey(location.toString()));
+        assertEquals("result of listsensors", db.data.get(response.toString()));
+    }
+
+    /**
+     * Tests that commands in the message are processed directly and that
+     * invalid FROMUUID messages are ignored.
+     */
+    @Test
+    public void testDirectAndInvalid() {
+        System.out.println("directAndInvalid");
+        FakeDynamoDB db = new FakeDynamoDB();
+        UUID location = UUID.randomUUID();
+        db.data.put(location.toString(), "too short");
+        
+        List<String> parsed = Collections.synchronizedList(new ArrayList<>());
+        SQSMessageHandler instance = new SQSMessageHandler((cmd) -> {
+            parsed.add(cmd);
+            return "done";
+        }, db);
+        instance.accept("listsensors");
+        instance.accept("FROMUUID");
+        instance.accept("FROMUUID notauuid");
+        instance.accept("FROMUUID " + UUID.randomUUID().toString());
+        instance.accept("FROMUUID " + location.toString());
+        
+        // the invalid stored command is removed without being processed
+        assertEquals(Collections.singletonList("listsensors"), parsed);
+        assertTrue(db.data.isEmpty());
+    }
+    
+    /**
+     * A fake DynamoDB client holding the DATA table in memory.
+     */
+    private static class FakeDynamoDB extends AbstractAmazonDynamoDB {
+        /**
+         * The values of the DATA table keyed by ID.
+         */
+        final Map<String, String> data = new ConcurrentHashMap<>();
+
+        @Override
+        public GetItemResult getItem(GetItemRequest request) {
+            String value = this.data.get(request.getKey().get("ID").getS());
+            if (value == null) {
+                return new GetItemResult();
+            }
+            
+            Map<String, AttributeValue> item = new HashMap<>();
+            item.put("VALUE", new AttributeValue().withS(value));
+            return new GetItemResult().withItem(item);
+        }
+
+        @Override
+        public DeleteItemResult deleteItem(String tableName, Map<String, AttributeValue> key) {
+            this.data.remove(key.get("ID").getS());
+            return new DeleteItemResult();
+        }
+
+        @Override
+        public PutItemResult putItem(String tableName, Map<String, AttributeValue> item) {
+            this.data.put(item.get("ID").getS(), item.get("VALUE").getS());
+            return new PutItemResult();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.sensors;
+
+import com.vitembp.embedded.data.Sample;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the DecodedCapture class.
+ */
+public class DecodedCaptureTest {
+
+    public DecodedCaptureTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Builds samples with known data, leaving some readings missing.
+     * @return The samples.
+     */
+    private static List<Sample> createSamples() {
+        List<Sample> samples = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            Map<String, String> data = new HashMap<>();
+            data.put("Brake", (i % 7 == 0) ? "" : Integer.toString(i % 128));
+            data.put("Shock", Integer.toString(i % 151));
+            data.put("Frame", "(" + Integer.toString(i % 5 - 2) + "," +
+                    Double.toString((i % 9) / 4.0 - 1.0) + "," +
+                    Integer.toString(i % 3) + ")");
+            if (i % 11 != 0) {
+                data.put("Bars", "(" + Integer.toString(i % 7 - 3) + "," +
+                        Integer.toString(i % 4 - 1) + "," +
+                        Integer.toString(i % 6 - 2) + ")");
+            }
+            samples.add(new Sample(i, Instant.now(), data));
+        }
+        return samples;
+    }
+    
+    /**
+     * Builds sensors for the sample data, some with calibration data.
+     * @return The sensors keyed by name.
+     */
+    private static Map<String, Sensor> createSensors() {
+        Map<String, Sensor> sensors = new LinkedHashMap<>();
+        sensors.put("Brake", new RotaryEncoderEAW0J("Brake", "(10,64,120)"));
+        sensors.put("Shock", new DistanceVL53L0X("Shock", null));
+        sensors.put("Frame", new AccelerometerFXOS8700CQSerial("Frame", null));
+        sensors.put("Bars", new AccelerometerADXL326("Bars", "[(-2,2),(-3,3),(-4,4)]"));
+        return sensors;
+    }
+    
+    /**
+     * Converts an optional reading to a primitive with NaN for missing.
+     * @param value The optional reading.
+     * @return The primitive reading.
+     */
+    private static double unwrap(Optional<Double> value) {
+        return value.isPresent() ? value.get() : Double.NaN;
+    }
+
+    /**
+     * Test of decode method, of class DecodedCapture.
+     */
+    @Test
+    public void testDecode() {
+        System.out.println("decode");
+        List<Sample> samples = createSamples();
+        Map<String, Sensor> sensors = createSensors();
+        DecodedCapture decoded = DecodedCapture.decode(samples.stream(), sensors);
+        
+        assertEquals(samples.size(), decoded.getSampleCount());
+        assertEquals(sensors.keySet(), decoded.getSensors().keySet());
+        
+        RotarySensor brake = (RotarySensor)sensors.get("Brake");
+        DistanceSensor shock = (DistanceSensor)sensors.get("Shock");
+        AccelerometerThreeAxis frame = (AccelerometerThreeAxis)sensors.get("Frame");
+        AccelerometerThreeAxis bars = (AccelerometerThreeAxis)sensors.get("Bars");
+        
+        // the columns hold the same values the sensors decode one at a time
+        for (Sample sample : samples) {
+            int i = sample.getIndex();
+            assertEquals(unwrap(brake.getPositionPercentage(sample)), decoded.getColumn(brake, RotarySensor.PERCENTAGE)[i], 0.0);
+            assertEquals(unwrap(shock.getDistancePercent(sample)), decoded.getColumn(shock, DistanceSensor.PERCENT)[i], 0.0);
+            assertEquals(unwrap(shock.getDistanceMilimeters(sample)), decoded.getColumn(shock, DistanceSensor.MILLIMETERS)[i], 0.0);
+            for (AccelerometerThreeAxis accel : new AccelerometerThreeAxis[] { frame, bars }) {
+                assertEquals(unwrap(accel.getXAxisG(sample)), decoded.getValue(accel, AccelerometerThreeAxis.X_AXIS, i), 0.0);
+                assertEquals(unwrap(accel.getYAxisG(sample)), decoded.getValue(accel, AccelerometerThreeAxis.Y_AXIS, i), 0.0);
+                assertEquals(unwrap(accel.getZAxisG(sample)), decoded.getValue(accel, AccelerometerThreeAxis.Z_AXIS, i), 0.0);
+            }
+        }
+        
+        // missing readings and samples outside of the capture are NaN
+        assertTrue(Double.isNaN(decoded.getValue(brake, RotarySensor.PERCENTAGE, 0)));
+        assertTrue(Double.isNaN(decoded.getValue(bars, AccelerometerThreeAxis.Y_AXIS, 11)));
+        assertTrue(Double.isNaN(decoded.getValue(shock, DistanceSensor.PERCENT, -1)));
+        assertTrue(Double.isNaN(decoded.getValue(shock, DistanceSensor.PERCENT, samples.size())));
+        
+        // calibration is applied to the decoded values
+        assertEquals(0.5, decoded.getValue(bars, AccelerometerThreeAxis.X_AXIS, 4), 0.0);
+        assertEquals(0.0, decoded.getValue(brake, RotarySensor.PERCENTAGE, 120), 0.0);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.simulation;
+
+import com.vitembp.embedded.data.Capture;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.After;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Class containing unit tests for the SimulatedDevice class.
+ */
+public class SimulatedDeviceTest {
+    /**
+     * Initializes a new instance of the SimulatedDeviceTest class.
+     */
+    public SimulatedDeviceTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+    }
+    
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of uploading a capture to a fake DynamoDB destination.
+     * @throws java.lang.Exception If the test fails.
+     */
+    @Test
+    public void testUploadToFakeDynamoDB() throws Exception {
+        System.out.println("UploadToFakeDynamoDB");
+        SimulatedDevice.Destination destination = SimulatedDevice.Destination.createFakeDynamoDB(1);
+        SimulatedDevice instance = new SimulatedDevice("device", destination);
+        
+        // nothing recorded is trivially uploaded
+        assertTrue(instance.isUploaded());
+        
+        Map<String, UUID> nameToIds = new HashMap<>();
+        nameToIds.put("Front Brake", UUID.randomUUID());
+        nameToIds.put("Rear Brake", UUID.randomUUID());
+        Capture capture = instance.createCapture(29.97, nameToIds, new HashMap<>());
+        for (int i = 0; i < 100; i++) {
+            Map<String, String> data = new HashMap<>();
+            data.put("Front Brake", Integer.toString(i));
+            data.put("Rear Brake", Integer.toString(i * 2));
+            capture.addSample(data);
+        }
+        capture.complete();
+        assertFalse(instance.isUploaded());
+        assertNull(destination.getCapture(capture.getId()));
+        
+        instance.startUpload();
+        
+        // wait until all data is transported or timeout period expires
+        long start = System.nanoTime();
+        long timeout = 40 * 1000000000l;
+        while (!instance.isUploaded()) {
+            Thread.sleep(10);
+            if (System.nanoTime() - start > timeout) {
+                fail("Timed out waiting for upload.");
+            }
+        }
+        instance.stopUpload();
+        
+        Capture uploaded = destination.getCapture(capture.getId());
+        assertNotNull(uploaded);
+        assertEquals(100, uploaded.getSampleCount());
+        assertEquals(nameToIds, uploaded.getSensorTypes());
+        assertEquals(1, destination.getCaptures().size());
+        destination.close();
+    }
+}
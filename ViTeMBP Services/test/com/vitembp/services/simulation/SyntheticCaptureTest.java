@@ -0,0 +1,111 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.simulation;
+
+import com.vitembp.embedded.data.Capture;
+import com.vitembp.embedded.data.CaptureTypes;
+import com.vitembp.services.data.CaptureStatistics;
+import com.vitembp.services.data.ValueStatistics;
+import com.vitembp.services.sensors.SensorFactory;
+import java.util.List;
+import java.util.Map;
+import static java.util.stream.Collectors.toList;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the SyntheticCapture class.
+ */
+public class SyntheticCaptureTest {
+
+    public SyntheticCaptureTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of build method, of class SyntheticCapture.
+     * @throws java.lang.InstantiationException If a capture cannot be created.
+     */
+    @Test
+    public void testBuild() throws InstantiationException {
+        System.out.println("build");
+        SyntheticCapture instance = SyntheticCapture.createStandard(29.97, 60.0, 0.01, 1);
+        Capture capture = instance.build(CaptureTypes.InMemory);
+
+        assertEquals(1798, instance.getSampleCount());
+        assertEquals(1798, capture.getSampleCount());
+        assertEquals(instance.getSensorTypes(), capture.getSensorTypes());
+
+        // every reading decodes to a value in the range of its sensor
+        CaptureStatistics stats = CaptureStatistics.calculate(capture.getSamples(), SensorFactory.getSensors(capture), true);
+        ValueStatistics brake = stats.getStatistics("Front Brake").get();
+        assertTrue(brake.getMinimum() >= 0.0);
+        assertTrue(brake.getMaximum() <= 127.0);
+        assertTrue(brake.getMaximum() > 30.0);
+        ValueStatistics shock = stats.getStatistics("Rear Shock").get();
+        assertTrue(shock.getMinimum() >= 0.0);
+        assertTrue(shock.getMaximum() <= 200.0);
+        assertTrue(shock.getMaximum() - shock.getMinimum() > 20.0);
+        ValueStatistics vertical = stats.getStatistics("Frame Accelerometer", CaptureStatistics.Channel.Z_AXIS).get();
+        assertEquals(1024.0, vertical.getPercentile(0.5), 100.0);
+        assertTrue(vertical.getMaximum() > 1500.0);
+    }
+
+    /**
+     * Test of getSamples method, of class SyntheticCapture.
+     */
+    @Test
+    public void testGetSamples() {
+        System.out.println("getSamples");
+        SyntheticCapture instance = SyntheticCapture.createStandard(30.0, 20.0, 0.0, 7);
+        List<Map<String, String>> samples = instance.getSamples().collect(toList());
+        assertEquals(600, samples.size());
+
+        // the same seed generates the same data
+        assertEquals(samples, instance.getSamples().collect(toList()));
+        assertEquals(samples, SyntheticCapture.createStandard(30.0, 20.0, 0.0, 7).getSamples().collect(toList()));
+        assertNotEquals(samples, SyntheticCapture.createStandard(30.0, 20.0, 0.0, 8).getSamples().collect(toList()));
+
+        // the bike is at rest while the sync light and buzzer are on
+        for (Map<String, String> sample : samples.subList(0, (int)(SyntheticCapture.SYNC_DURATION * 30))) {
+            assertEquals(5, sample.size());
+            assertTrue(sample.get("Front Brake").isEmpty() || "0".equals(sample.get("Front Brake")));
+            assertTrue(sample.get("Front Shock").isEmpty() || "150".equals(sample.get("Front Shock")));
+            assertTrue(sample.get("Frame Accelerometer").isEmpty() || "(0,0,1024)".equals(sample.get("Frame Accelerometer")));
+        }
+    }
+}
@@ -32,6 +32,7 @@ import java.nio.file.attribute.BasicFileAttributes;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -115,6 +116,52 @@ public class ConversionTest {
         Assert.assertEquals(151, filesCount);
     }
 
+    /**
+     * Test of extractFrames method, of class Conversion, on a generated clip
+     * with a keyframe every 30 frames.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testExtractFramesKeyframes() throws Exception {
+        System.out.println("extractFramesKeyframes");
+        
+        // generate a four second clip at 30 frames per second
+        Path tempDir = Files.createTempDirectory("vitempbTest");
+        Path clip = tempDir.resolve("clip.mp4");
+        Process proc;
+        try {
+            proc = new ProcessBuilder(
+                    "ffmpeg", "-v", "quiet",
+                    "-f", "lavfi", "-i", "testsrc=duration=4:size=160x120:rate=30",
+                    "-g", "30", "-keyint_min", "30", "-sc_threshold", "0",
+                    "-pix_fmt", "yuv420p", clip.toString()).start();
+        } catch (IOException ex) {
+            DeleteTree(tempDir);
+            Assume.assumeNoException("ffmpeg is not available.", ex);
+            return;
+        }
+        Assert.assertEquals(0, proc.waitFor());
+        
+        MediaInfo info = MediaProbe.probe(clip);
+        Assert.assertEquals(120L, info.getFrameCount());
+        Assert.assertArrayEquals(new double[] { 0.0, 1.0, 2.0, 3.0 }, info.getKeyframeTimes(), 0.01);
+        
+        // a range starting inside a group of pictures is trimmed exactly and
+        // numbered from the requested file
+        Path frames = Files.createDirectory(tempDir.resolve("frames"));
+        Conversion.extractFrames(clip.toString(), frames, 45, 20, 46, FilenameGenerator.PNG_NUMERIC_OUT);
+        Assert.assertTrue(Files.exists(frames.resolve(FilenameGenerator.PNG_NUMERIC_OUT.getPath(46))));
+        Assert.assertTrue(Files.exists(frames.resolve(FilenameGenerator.PNG_NUMERIC_OUT.getPath(65))));
+        Assert.assertEquals(20, DeleteTree(frames));
+        
+        // a range past the end extracts the remaining frames
+        frames = Files.createDirectory(tempDir.resolve("frames"));
+        Conversion.extractFrames(clip.toString(), frames, 110, 30, FilenameGenerator.PNG_NUMERIC_OUT);
+        Assert.assertEquals(10, DeleteTree(frames));
+        
+        DeleteTree(tempDir);
+    }
+
     /**
      * Test of assembleFrames method, of class Conversion.
      * @throws java.lang.Exception
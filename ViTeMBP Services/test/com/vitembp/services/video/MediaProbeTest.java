@@ -0,0 +1,192 @@
+/*
+ * Video Telemetry for Mountain Bike Platform back-end services.
+ * Copyright (C) 2017 Kyle Grund
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.vitembp.services.video;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the MediaProbe class.
+ */
+public class MediaProbeTest {
+    /**
+     * Stream and format output of ffprobe for a camera video file.
+     */
+    private static final String PROBE_OUTPUT = "{\"streams\":["
+            + "{\"index\":0,\"codec_name\":\"h264\",\"codec_type\":\"video\",\"width\":1920,\"height\":1080,"
+            + "\"r_frame_rate\":\"30000/1001\",\"avg_frame_rate\":\"30000/1001\",\"duration\":\"5.038367\",\"nb_frames\":\"151\","
+            + "\"disposition\":{\"default\":1,\"attached_pic\":0}},"
+            + "{\"index\":1,\"codec_name\":\"aac\",\"codec_type\":\"audio\",\"sample_rate\":\"48000\",\"channels\":2,"
+            + "\"channel_layout\":\"stereo\",\"duration\":\"5.034667\"},"
+            + "{\"index\":2,\"codec_name\":\"none\",\"codec_type\":\"data\"}],"
+            + "\"format\":{\"format_name\":\"mov,mp4,m4a,3gp,3g2,mj2\",\"duration\":\"5.038367\",\"size\":\"17366912\"}}";
+    
+    public MediaProbeTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+    }
+    
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of parse method, of class MediaProbe.
+     * @throws java.io.IOException If the output cannot be parsed.
+     */
+    @Test
+    public void testParse() throws IOException {
+        System.out.println("parse");
+        MediaInfo info = MediaProbe.parse(Paths.get("GOPR0026.MP4"), new ObjectMapper().readTree(PROBE_OUTPUT));
+        
+        assertTrue(info.hasVideo());
+        assertEquals(0, info.getVideoStreamIndex());
+        assertEquals("h264", info.getVideoCodec());
+        assertEquals(1920, info.getWidth());
+        assertEquals(1080, info.getHeight());
+        assertEquals(30000, info.getFrameRateNumerator());
+        assertEquals(1001, info.getFrameRateDenominator());
+        assertEquals(30000.0 / 1001.0, info.getFrameRate(), 0.0);
+        assertEquals(151L, info.getFrameCount());
+        assertEquals(5.038367, info.getDuration(), 0.0);
+        
+        // frame times are exact multiples of the rational frame period
+        assertEquals(300.0 * 1001.0 / 30000.0, info.getFrameTime(300), 0.0);
+        
+        assertEquals(1, info.getAudioStreams().size());
+        MediaInfo.AudioStream audio = info.getAudioStreams().get(0);
+        assertEquals(1, audio.getIndex());
+        assertEquals("aac", audio.getCodec());
+        assertEquals(48000, audio.getSampleRate());
+        assertEquals(2, audio.getChannels());
+        assertEquals("stereo", audio.getChannelLayout());
+    }
+
+    /**
+     * Test of parse method, of class MediaProbe, with variable frame rate
+     * video whose base rate is higher than its average rate.
+     * @throws java.io.IOException If the output cannot be parsed.
+     */
+    @Test
+    public void testParseVariableFrameRate() throws IOException {
+        System.out.println("parseVariableFrameRate");
+        String output = "{\"streams\":[{\"index\":0,\"codec_name\":\"h264\",\"codec_type\":\"video\",\"width\":1280,\"height\":720,"
+                + "\"r_frame_rate\":\"60/1\",\"avg_frame_rate\":\"2997/100\",\"duration\":\"10.010000\"}],"
+                + "\"format\":{\"format_name\":\"mov,mp4,m4a,3gp,3g2,mj2\",\"duration\":\"10.010000\"}}";
+        MediaInfo info = MediaProbe.parse(Paths.get("phone.mp4"), new ObjectMapper().readTree(output));
+        
+        // the average rate is used rather than the base rate
+        assertEquals(2997, info.getFrameRateNumerator());
+        assertEquals(100, info.getFrameRateDenominator());
+        assertEquals(29.97, info.getFrameRate(), 0.0);
+        assertEquals(300L, info.getFrameCount());
+    }
+
+    /**
+     * Test of parse method, of class MediaProbe, when the frame count and
+     * average frame rate are missing.
+     * @throws java.io.IOException If the output cannot be parsed.
+     */
+    @Test
+    public void testParseMissingValues() throws IOException {
+        System.out.println("parseMissingValues");
+        String output = "{\"streams\":[{\"index\":0,\"codec_type\":\"video\",\"width\":640,\"height\":480,"
+                + "\"r_frame_rate\":\"25/1\",\"avg_frame_rate\":\"0/0\"}],"
+                + "\"format\":{\"duration\":\"10.000000\"}}";
+        MediaInfo info = MediaProbe.parse(Paths.get("test.mkv"), new ObjectMapper().readTree(output));
+        
+        assertEquals(25.0, info.getFrameRate(), 0.0);
+        assertEquals(250L, info.getFrameCount());
+        assertTrue(info.getAudioStreams().isEmpty());
+        
+        // audio only files have no video stream
+        output = "{\"streams\":[{\"index\":0,\"codec_type\":\"audio\",\"sample_rate\":\"44100\",\"channels\":1}],"
+                + "\"format\":{\"duration\":\"1.5\"}}";
+        info = MediaProbe.parse(Paths.get("test.wav"), new ObjectMapper().readTree(output));
+        assertFalse(info.hasVideo());
+        assertEquals(0.0, info.getFrameRate(), 0.0);
+        assertEquals(44100, info.getAudioStreams().get(0).getSampleRate());
+        
+        // output without streams is not media
+        try {
+            MediaProbe.parse(Paths.get("test.txt"), new ObjectMapper().readTree("{}"));
+            fail("Expected an IOException.");
+        } catch (IOException ex) {
+        }
+    }
+
+    /**
+     * Test of parseKeyframes method, of class MediaProbe.
+     * @throws java.io.IOException If the output cannot be parsed.
+     */
+    @Test
+    public void testParseKeyframes() throws IOException {
+        System.out.println("parseKeyframes");
+        String output = "{\"packets\":["
+                + "{\"pts_time\":\"0.000000\",\"flags\":\"K_\"},"
+                + "{\"pts_time\":\"0.066733\",\"flags\":\"__\"},"
+                + "{\"pts_time\":\"0.033367\",\"flags\":\"__\"},"
+                + "{\"pts_time\":\"1.001000\",\"flags\":\"K_\",\"side_data_list\":[{\"side_data_type\":\"K\"}]},"
+                + "{\"flags\":\"K_\"},"
+                + "{\"pts_time\":\"2.002000\",\"flags\":\"K__\"}]}";
+        double[] times = MediaProbe.parseKeyframes(new ByteArrayInputStream(output.getBytes(StandardCharsets.UTF_8)));
+        
+        assertArrayEquals(new double[] { 0.0, 1.001, 2.002 }, times, 0.0);
+        
+        MediaInfo info = MediaProbe.parse(Paths.get("GOPR0026.MP4"), new ObjectMapper().readTree(PROBE_OUTPUT));
+        info.setKeyframeTimes(times);
+        assertEquals(0.0, info.getKeyframeBefore(0.5), 0.0);
+        assertEquals(1.001, info.getKeyframeBefore(1.001), 0.0);
+        assertEquals(1.001, info.getKeyframeBefore(2.0), 0.0);
+        assertEquals(2.002, info.getKeyframeBefore(4.0), 0.0);
+        assertEquals(1.001, info.getKeyframeAfter(0.0), 0.0);
+        assertEquals(2.002, info.getKeyframeAfter(1.5), 0.0);
+        assertTrue(Double.isNaN(info.getKeyframeAfter(2.002)));
+        assertEquals(60L, info.getFrameAt(2.002));
+    }
+
+    /**
+     * Test of parseRational method, of class MediaProbe.
+     */
+    @Test
+    public void testParseRational() {
+        System.out.println("parseRational");
+        assertArrayEquals(new int[] { 24000, 1001 }, MediaProbe.parseRational("24000/1001"));
+        assertArrayEquals(new int[] { 30, 1 }, MediaProbe.parseRational("30"));
+        assertArrayEquals(new int[] { 0, 0 }, MediaProbe.parseRational("N/A"));
+    }
+}